@@ -0,0 +1,49 @@
+/**
+ * -------------------------------------------------------------------------------------------------
+ * 
+ * Copyright 2015 - Giorgio Desideri
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.
+ * 
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ * 
+ */
+package net.sf.gee.hbase.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to declare a counter column, on a <code>long</code> field mapped by
+ * {@link HBaseColumn}. Counters change by atomic increments on the region server: update never
+ * writes them, save only sets their initial value when the stored row has none, so saving a loaded
+ * entity again keeps the increments applied since.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+@Target(value = {ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Counter {
+
+  /**
+   * Shards of a hot counter: increments are spread on as many rows of the
+   * <code>&lt;table&gt;_cnt</code> companion table, and the value is their sum. Loading the entity
+   * reads only the value set on save, the total is read by counter.
+   * 
+   * @return default is 0, no shards
+   */
+  int shards() default 0;
+}
@@ -24,7 +24,11 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import net.sf.gee.hbase.basic.Compression;
+import net.sf.gee.hbase.basic.FetchType;
+import net.sf.gee.hbase.codec.FieldCodec;
 import net.sf.gee.hbase.basic.HBaseMapper;
+import net.sf.gee.hbase.basic.MapperScope;
 import net.sf.gee.hbase.basic.NoneMapper;
 
 /**
@@ -71,4 +75,60 @@ public @interface HBaseColumn {
    */
   @SuppressWarnings("rawtypes")
   Class<? extends HBaseMapper> mapper() default NoneMapper.class;
+
+  /**
+   * Lifecycle of the mapper instances. The mapping property
+   * <code>g-hb-mapper-scope.&lt;mapper class&gt;</code> overrides it.
+   * 
+   * @return default is {@link MapperScope#SINGLETON}
+   */
+  MapperScope mapperScope() default MapperScope.SINGLETON;
+
+  /**
+   * When the column is read. Lazy columns are left out of default loads and scans.
+   * 
+   * @return default is {@link FetchType#EAGER}
+   */
+  FetchType fetch() default FetchType.EAGER;
+
+  /**
+   * Fetch groups of a lazy column: requesting one of them reads the column too.
+   * 
+   * @return default is no group
+   */
+  String[] fetchGroups() default {};
+
+  /**
+   * Class of codec of the column value, or of each element for collections. It needs a
+   * constructor taking the value {@linkplain java.lang.Class} or a no-args constructor.
+   * 
+   * @return default {@link FieldCodec} resolves the codec by field type
+   */
+  @SuppressWarnings("rawtypes")
+  Class<? extends FieldCodec> codec() default FieldCodec.class;
+
+  /**
+   * Compression of the column values, not supported on collections. Compressed columns cannot be
+   * used in conditions.
+   * 
+   * @return default is {@link Compression#NONE}
+   */
+  Compression compression() default Compression.NONE;
+
+  /**
+   * Minimum encoded length of a compressed value, shorter values are stored as encoded.
+   * 
+   * @return default is 4096 bytes
+   */
+  int compressionThreshold() default 4096;
+
+  /**
+   * Secondary index of the column: each value is also written, with the row key, in the
+   * <code>&lt;table&gt;_idx</code> companion table, so rows can be found by value without a full
+   * scan. Only scalar columns without mapper, of a type with an ordered row key encoding, can be
+   * indexed.
+   * 
+   * @return default is <code>false</code>
+   */
+  boolean indexed() default false;
 }
@@ -22,8 +22,14 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import net.sf.gee.hbase.codec.FieldCodec;
+
 /**
- * Annotation to declare the Row Key field.
+ * Annotation to declare the Row Key field. Strings, byte arrays, short, int, long, dates and UUIDs
+ * are encoded preserving the value order. Several fields, or the fields of an {@link Embeddable}
+ * row key class, make a composite row key: it is read and written as the array of their values,
+ * ordered component by component. A saved row needs every component; as a scan bound or prefix,
+ * components after the first null are left out.
  * 
  * @author Giorgio Desideri - giorgio.desideri@gmail.com
  *
@@ -33,4 +39,27 @@ import java.lang.annotation.Target;
 @Documented
 public @interface RowKey {
 
+  /**
+   * Position of the field in a composite row key.
+   * 
+   * @return default is 0
+   */
+  int order() default 0;
+
+  /**
+   * Class of codec of the row key. It needs a constructor taking the value
+   * {@linkplain java.lang.Class} or a no-args constructor, and should preserve the value order.
+   * 
+   * @return default {@link FieldCodec} resolves the ordered codec by field type
+   */
+  @SuppressWarnings("rawtypes")
+  Class<? extends FieldCodec> codec() default FieldCodec.class;
+
+  /**
+   * Hash buckets prepended to the row key, up to 256, to spread monotonic keys on write. Loads and
+   * deletes compute the bucket, scans read every bucket and merge rows in key order.
+   * 
+   * @return default is 0, no bucket
+   */
+  int salt() default 0;
 }
@@ -46,4 +46,28 @@ public @interface Table {
    * @return namespace of table
    */
   String namespace() default "";
+
+  /**
+   * Maximum rows of the entity kept in the client cache. The mapping property
+   * <code>g-hb-cache-size.&lt;class&gt;</code> overrides it.
+   *
+   * @return default is <code>0</code>, no cache
+   */
+  int cacheSize() default 0;
+
+  /**
+   * Time to live of cached rows in milliseconds. The mapping property
+   * <code>g-hb-cache-ttl.&lt;class&gt;</code> overrides it.
+   *
+   * @return default is <code>0</code>, no expiration
+   */
+  long cacheTtl() default 0;
+
+  /**
+   * Keep a fingerprint of the fields of loaded entities, so that updates write only the changed
+   * columns. The mapping property <code>g-hb-dirty-tracking.&lt;class&gt;</code> overrides it.
+   *
+   * @return default is <code>false</code>, updates write every updatable column
+   */
+  boolean dirtyTracking() default false;
 }
@@ -0,0 +1,41 @@
+/**
+ * -------------------------------------------------------------------------------------------------
+ * 
+ * Copyright 2015 - Giorgio Desideri
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.
+ * 
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ * 
+ */
+package net.sf.gee.hbase.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to declare the version column, on a {@linkplain java.lang.Long} field mapped by
+ * {@link HBaseColumn}. Update writes the row only if the stored version is still the one of the
+ * entity, and bumps it in the same atomic mutation; save starts a missing version from 0. A row
+ * stored without version loads a null one, and its first update checks the column is missing.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+@Target(value = {ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Version {
+
+}
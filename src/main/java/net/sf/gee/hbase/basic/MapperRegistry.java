@@ -0,0 +1,112 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.basic;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link HBaseMapper} instances by {@link MapperScope}: singleton and thread local
+ * instances are created once and reused for every cell.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+@SuppressWarnings("rawtypes")
+public final class MapperRegistry {
+
+  /** Singleton instance */
+  private static final MapperRegistry INSTANCE = new MapperRegistry();
+
+  /** Singleton scoped mappers */
+  private final ConcurrentHashMap<Class<?>, HBaseMapper> singletons = new ConcurrentHashMap<>();
+
+  /** Thread scoped mappers */
+  private final ConcurrentHashMap<Class<?>, ThreadLocal<HBaseMapper>> threadLocals =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Private constructor as singleton pattern
+   */
+  private MapperRegistry() {
+    super();
+  }
+
+  /**
+   * Get singleton instance
+   * 
+   * @return {@link MapperRegistry}
+   */
+  public static MapperRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Create a new mapper instance.
+   * 
+   * @param mapperClass {@linkplain java.lang.Class} of {@link HBaseMapper}
+   * 
+   * @return {@link HBaseMapper}
+   * 
+   * @throws ReflectiveOperationException
+   */
+  public HBaseMapper newMapper(Class<? extends HBaseMapper> mapperClass)
+      throws ReflectiveOperationException {
+    return mapperClass.getDeclaredConstructor().newInstance();
+  }
+
+  /**
+   * Get the singleton scoped mapper.
+   * 
+   * @param mapperClass {@linkplain java.lang.Class} of {@link HBaseMapper}
+   * 
+   * @return {@link HBaseMapper}
+   */
+  public HBaseMapper getSingleton(Class<? extends HBaseMapper> mapperClass) {
+    return singletons.computeIfAbsent(mapperClass, this::newMapperUnchecked);
+  }
+
+  /**
+   * Get the thread scoped mapper holder.
+   * 
+   * @param mapperClass {@linkplain java.lang.Class} of {@link HBaseMapper}
+   * 
+   * @return {@linkplain java.lang.ThreadLocal} of {@link HBaseMapper}
+   */
+  public ThreadLocal<HBaseMapper> getThreadLocal(Class<? extends HBaseMapper> mapperClass) {
+    return threadLocals.computeIfAbsent(mapperClass,
+        c -> ThreadLocal.withInitial(() -> newMapperUnchecked(c)));
+  }
+
+  /**
+   * Create a new mapper instance, wrapping reflection errors.
+   * 
+   * @param mapperClass {@linkplain java.lang.Class} of {@link HBaseMapper}
+   * 
+   * @return {@link HBaseMapper}
+   */
+  @SuppressWarnings("unchecked")
+  private HBaseMapper newMapperUnchecked(Class<?> mapperClass) {
+    try {
+      return newMapper((Class<? extends HBaseMapper>) mapperClass);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(
+          String.format("Unable to create mapper [%s]", mapperClass.getName()), e);
+    }
+  }
+
+}
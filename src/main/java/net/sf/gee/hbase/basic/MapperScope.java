@@ -0,0 +1,37 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.basic;
+
+/**
+ * Lifecycle of {@link HBaseMapper} instances.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public enum MapperScope {
+
+  /** One instance shared by all threads: the mapper must be stateless or thread-safe. */
+  SINGLETON,
+
+  /** One instance for each thread. */
+  THREAD_LOCAL,
+
+  /** One instance for each read or write of an entity. */
+  OPERATION,
+
+  ;
+}
@@ -0,0 +1,42 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.codec;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Lossless BigInteger codec, as the two's complement bytes of any magnitude. Never chosen by type,
+ * as the default codec keeps the double stored by earlier versions: declare it on the column, as
+ * <code>@HBaseColumn(codec = BigIntegerCodec.class)</code>, on new columns or rewritten ones.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class BigIntegerCodec implements FieldCodec<BigInteger> {
+
+  @Override
+  public byte[] encode(BigInteger value) {
+    return value.toByteArray();
+  }
+
+  @Override
+  public BigInteger decode(byte[] buffer, int offset, int length) {
+    return new BigInteger(Arrays.copyOfRange(buffer, offset, offset + length));
+  }
+
+}
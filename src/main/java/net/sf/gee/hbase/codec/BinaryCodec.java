@@ -0,0 +1,986 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Schema driven binary codec, the default for types without a built-in codec. The schema is the
+ * type itself: nested objects write their fields with no name nor class descriptor, sorted by
+ * declaring class from the top of the hierarchy and then by name, integers as zig-zag varints,
+ * references after a presence byte. Supported: primitives and wrappers, strings, enums, dates,
+ * {@linkplain java.math.BigInteger}, {@linkplain java.math.BigDecimal},
+ * {@linkplain java.util.UUID}, {@linkplain java.time.Instant}, {@linkplain java.time.LocalDate},
+ * primitive arrays, lists, sets and maps of supported types and objects with a no-args
+ * constructor made of supported types. Containers are read back as the declared class when
+ * concrete, as a default implementation of the declared interface otherwise. Objects are written
+ * as their declared class, with no class descriptor: a field declared <code>Object</code> has no
+ * layout and a value of a subclass is rejected on write, both need a codec declared on the column.
+ * <p>
+ * The layout follows the fields. Each value starts with a checksum of the declaring class, name
+ * and type of every field of its nested objects: adding, removing, renaming or retyping a field
+ * fails the read of values written before, which need a migration. Values written by java
+ * serialization are still read.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class BinaryCodec<T> implements FieldCodec<T> {
+
+  /** Layout version, never the first byte of a java serialization stream */
+  private static final byte VERSION = 2;
+
+  private final Class<T> type;
+
+  private final Node root;
+
+  /** Checksum of the object fields of the schema, written after the version */
+  private final int fingerprint;
+
+  /** Reader of values written before this codec */
+  private final JavaSerializationCodec<T> legacy;
+
+  /**
+   * Build the codec of a type.
+   *
+   * @param type {@linkplain java.lang.Class} of value
+   *
+   * @throws IllegalArgumentException when the type has no binary layout
+   */
+  public BinaryCodec(Class<T> type) {
+    this(type, type);
+  }
+
+  /**
+   * Build the codec of a generic type, as a field declared <code>Map&lt;String, Long&gt;</code>.
+   *
+   * @param type {@linkplain java.lang.Class} of value
+   * @param genericType {@linkplain java.lang.reflect.Type} of value
+   *
+   * @throws IllegalArgumentException when the type has no binary layout
+   */
+  public BinaryCodec(Class<T> type, Type genericType) {
+    super();
+
+    final Map<Class<?>, ObjectNode> objects = new HashMap<>();
+
+    this.type = type;
+    this.root = node(genericType, objects);
+    this.fingerprint = fingerprint(objects.values());
+    this.legacy = new JavaSerializationCodec<>(type);
+  }
+
+  @Override
+  public byte[] encode(T value) {
+
+    final Writer out = new Writer(32);
+
+    out.writeByte(VERSION);
+    out.writeInt(fingerprint);
+
+    root.write(out, value);
+
+    return out.toByteArray();
+  }
+
+  @Override
+  public T decode(byte[] buffer, int offset, int length) {
+
+    // written by java serialization
+    if (JavaSerializationCodec.isSerialized(buffer, offset, length)) {
+      return legacy.decode(buffer, offset, length);
+    }
+
+    final Reader in = new Reader(buffer, offset, length);
+
+    // check
+    if (in.readByte() != VERSION) {
+      throw new IllegalArgumentException("Unknown binary layout for " + type.getName());
+    }
+
+    if (in.readInt() != fingerprint) {
+      throw new IllegalStateException("Fields of " + type.getName()
+          + " or of its nested objects changed since the value was written");
+    }
+
+    return type.cast(root.read(in));
+  }
+
+  /**
+   * Build the node of a type.
+   *
+   * @param type {@linkplain java.lang.reflect.Type}
+   * @param objects object nodes already built, for recursive types
+   *
+   * @return {@link Node}
+   */
+  private static Node node(Type type, Map<Class<?>, ObjectNode> objects) {
+
+    // generic containers
+    if (type instanceof ParameterizedType) {
+
+      final ParameterizedType parameterized = (ParameterizedType) type;
+
+      final Class<?> raw = (Class<?>) parameterized.getRawType();
+      final Type[] arguments = parameterized.getActualTypeArguments();
+
+      if (Map.class.isAssignableFrom(raw)) {
+        return new MapNode(container(raw, type), node(arguments[0], objects),
+            node(arguments[1], objects));
+      }
+
+      if (Collection.class.isAssignableFrom(raw)) {
+        return new CollectionNode(container(raw, type), node(arguments[0], objects));
+      }
+
+      throw unsupported(type);
+    }
+
+    // check
+    if (!(type instanceof Class)) {
+      throw unsupported(type);
+    }
+
+    final Class<?> clazz = (Class<?>) type;
+
+    final Node simple = SIMPLE.get(clazz);
+
+    if (simple != null) {
+      return simple;
+    }
+
+    if (clazz.isEnum()) {
+      return new EnumNode(clazz);
+    }
+
+    // raw containers, arrays of objects, interfaces, any object
+    if (Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz)
+        || clazz.isArray() || clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())
+        || Object.class.equals(clazz)) {
+      throw unsupported(type);
+    }
+
+    // already built, or being built
+    final ObjectNode existing = objects.get(clazz);
+
+    if (existing != null) {
+      return existing;
+    }
+
+    final ObjectNode created = new ObjectNode(clazz);
+
+    objects.put(clazz, created);
+
+    created.build(objects);
+
+    return created;
+  }
+
+  /**
+   * Checksum the schema of the object nodes: declaring class, name and type of every field, in
+   * schema order.
+   *
+   * @param objects {@link ObjectNode} of the schema
+   *
+   * @return checksum
+   */
+  private static int fingerprint(Collection<ObjectNode> objects) {
+
+    final List<ObjectNode> sorted = new ArrayList<>(objects);
+
+    sorted.sort(Comparator.comparing(object -> object.type.getName()));
+
+    final CRC32 crc = new CRC32();
+
+    for (ObjectNode object : sorted) {
+
+      final StringBuilder schema = new StringBuilder(object.type.getName()).append('{');
+
+      for (Field field : object.fields) {
+        schema.append(field.getDeclaringClass().getName()).append('.').append(field.getName())
+            .append(':').append(field.getGenericType().getTypeName()).append(';');
+      }
+
+      crc.update(schema.append('}').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Build the factory of a container type, by size: the declared class when concrete, through its
+   * no-args constructor, otherwise the first default implementation of it.
+   *
+   * @param raw {@linkplain java.lang.Class} of the container
+   * @param type {@linkplain java.lang.reflect.Type} of the container
+   *
+   * @return {@linkplain java.util.function.IntFunction} creating an empty container
+   */
+  private static IntFunction<Object> container(Class<?> raw, Type type) {
+
+    // interface or abstract class
+    if (raw.isInterface() || Modifier.isAbstract(raw.getModifiers())) {
+
+      for (Map.Entry<Class<?>, IntFunction<Object>> current : CONTAINERS.entrySet()) {
+        if (raw.isAssignableFrom(current.getKey())) {
+          return current.getValue();
+        }
+      }
+
+      throw unsupported(type);
+    }
+
+    final IntFunction<Object> known = CONTAINERS.get(raw);
+
+    if (known != null) {
+      return known;
+    }
+
+    try {
+      final Constructor<?> noArgs = raw.getDeclaredConstructor();
+      noArgs.setAccessible(true);
+
+      final MethodHandle constructor = MethodHandles.lookup().unreflectConstructor(noArgs)
+          .asType(MethodType.methodType(Object.class));
+
+      return size -> {
+        try {
+          return (Object) constructor.invokeExact();
+        }
+        catch (RuntimeException | Error e) {
+          throw e;
+        }
+        catch (Throwable e) {
+          throw new IllegalStateException(e);
+        }
+      };
+    }
+    catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+      throw new IllegalArgumentException(
+          "Type " + raw.getName() + " needs a no-args constructor for the binary codec", e);
+    }
+  }
+
+  /**
+   * @param type {@linkplain java.lang.reflect.Type}
+   *
+   * @return {@linkplain java.lang.IllegalArgumentException}
+   */
+  private static IllegalArgumentException unsupported(Type type) {
+    return new IllegalArgumentException("Type " + type.getTypeName()
+        + " has no binary layout, declare a codec on the column,"
+        + " as @HBaseColumn(codec = JavaSerializationCodec.class)");
+  }
+
+  /**
+   * Encoder / decoder of a type.
+   */
+  private interface Node {
+
+    void write(Writer out, Object value);
+
+    Object read(Reader in);
+  }
+
+  /** Nodes of types without parameters */
+  private static final Map<Class<?>, Node> SIMPLE = new HashMap<>();
+
+  /** Containers by size, in the order they implement a declared interface */
+  private static final Map<Class<?>, IntFunction<Object>> CONTAINERS = new LinkedHashMap<>();
+
+  static {
+    CONTAINERS.put(ArrayList.class, ArrayList::new);
+    CONTAINERS.put(LinkedHashSet.class, size -> new LinkedHashSet<>(Math.max(16, size * 2)));
+    CONTAINERS.put(TreeSet.class, size -> new TreeSet<>());
+    CONTAINERS.put(LinkedList.class, size -> new LinkedList<>());
+    CONTAINERS.put(LinkedHashMap.class, size -> new LinkedHashMap<>(Math.max(16, size * 2)));
+    CONTAINERS.put(TreeMap.class, size -> new TreeMap<>());
+    CONTAINERS.put(ConcurrentHashMap.class,
+        size -> new ConcurrentHashMap<>(Math.max(16, size * 2)));
+  }
+
+  static {
+    final Node bool =
+        node((out, v) -> out.writeByte((Boolean) v ? 1 : 0), in -> in.readByte() != 0);
+    SIMPLE.put(boolean.class, bool);
+    SIMPLE.put(Boolean.class, bool);
+
+    final Node oneByte = node((out, v) -> out.writeByte((Byte) v), Reader::readByte);
+    SIMPLE.put(byte.class, oneByte);
+    SIMPLE.put(Byte.class, oneByte);
+
+    final Node shortNode = node((out, v) -> out.writeVarLong(zigZag((Short) v)),
+        in -> (short) unZigZag(in.readVarLong()));
+    SIMPLE.put(short.class, shortNode);
+    SIMPLE.put(Short.class, shortNode);
+
+    final Node charNode =
+        node((out, v) -> out.writeVarLong((Character) v), in -> (char) in.readVarLong());
+    SIMPLE.put(char.class, charNode);
+    SIMPLE.put(Character.class, charNode);
+
+    final Node intNode = node((out, v) -> out.writeVarLong(zigZag((Integer) v)),
+        in -> (int) unZigZag(in.readVarLong()));
+    SIMPLE.put(int.class, intNode);
+    SIMPLE.put(Integer.class, intNode);
+
+    final Node longNode = node((out, v) -> out.writeVarLong(zigZag((Long) v)),
+        in -> unZigZag(in.readVarLong()));
+    SIMPLE.put(long.class, longNode);
+    SIMPLE.put(Long.class, longNode);
+
+    final Node floatNode = node((out, v) -> out.writeInt(Float.floatToIntBits((Float) v)),
+        in -> Float.intBitsToFloat(in.readInt()));
+    SIMPLE.put(float.class, floatNode);
+    SIMPLE.put(Float.class, floatNode);
+
+    final Node doubleNode = node((out, v) -> out.writeLong(Double.doubleToLongBits((Double) v)),
+        in -> Double.longBitsToDouble(in.readLong()));
+    SIMPLE.put(double.class, doubleNode);
+    SIMPLE.put(Double.class, doubleNode);
+
+    SIMPLE.put(String.class, node(
+        (out, v) -> out.writeBlock(((String) v).getBytes(StandardCharsets.UTF_8)),
+        in -> new String(in.readBlock(), StandardCharsets.UTF_8)));
+
+    SIMPLE.put(byte[].class, node((out, v) -> out.writeBlock((byte[]) v), Reader::readBlock));
+
+    SIMPLE.put(BigInteger.class, node((out, v) -> out.writeBlock(((BigInteger) v).toByteArray()),
+        in -> new BigInteger(in.readBlock())));
+
+    SIMPLE.put(BigDecimal.class, node((out, v) -> {
+      out.writeVarLong(zigZag(((BigDecimal) v).scale()));
+      out.writeBlock(((BigDecimal) v).unscaledValue().toByteArray());
+    }, in -> {
+      final int scale = (int) unZigZag(in.readVarLong());
+      return new BigDecimal(new BigInteger(in.readBlock()), scale);
+    }));
+
+    SIMPLE.put(Date.class, node((out, v) -> out.writeVarLong(zigZag(((Date) v).getTime())),
+        in -> new Date(unZigZag(in.readVarLong()))));
+
+    SIMPLE.put(UUID.class, node((out, v) -> {
+      out.writeLong(((UUID) v).getMostSignificantBits());
+      out.writeLong(((UUID) v).getLeastSignificantBits());
+    }, in -> new UUID(in.readLong(), in.readLong())));
+
+    SIMPLE.put(Instant.class, node((out, v) -> {
+      out.writeVarLong(zigZag(((Instant) v).getEpochSecond()));
+      out.writeVarLong(((Instant) v).getNano());
+    }, in -> Instant.ofEpochSecond(unZigZag(in.readVarLong()), in.readVarLong())));
+
+    SIMPLE.put(LocalDate.class,
+        node((out, v) -> out.writeVarLong(zigZag(((LocalDate) v).toEpochDay())),
+            in -> LocalDate.ofEpochDay(unZigZag(in.readVarLong()))));
+
+    SIMPLE.put(boolean[].class, node((out, v) -> {
+      final boolean[] array = (boolean[]) v;
+      out.writeVarLong(array.length);
+      for (boolean b : array) {
+        out.writeByte(b ? 1 : 0);
+      }
+    }, in -> {
+      final boolean[] array = new boolean[in.readLength()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = in.readByte() != 0;
+      }
+      return array;
+    }));
+
+    SIMPLE.put(short[].class, node((out, v) -> {
+      final short[] array = (short[]) v;
+      out.writeVarLong(array.length);
+      for (short s : array) {
+        out.writeVarLong(zigZag(s));
+      }
+    }, in -> {
+      final short[] array = new short[in.readLength()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = (short) unZigZag(in.readVarLong());
+      }
+      return array;
+    }));
+
+    SIMPLE.put(char[].class, node((out, v) -> {
+      final char[] array = (char[]) v;
+      out.writeVarLong(array.length);
+      for (char c : array) {
+        out.writeVarLong(c);
+      }
+    }, in -> {
+      final char[] array = new char[in.readLength()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = (char) in.readVarLong();
+      }
+      return array;
+    }));
+
+    SIMPLE.put(int[].class, node((out, v) -> {
+      final int[] array = (int[]) v;
+      out.writeVarLong(array.length);
+      for (int i : array) {
+        out.writeVarLong(zigZag(i));
+      }
+    }, in -> {
+      final int[] array = new int[in.readLength()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = (int) unZigZag(in.readVarLong());
+      }
+      return array;
+    }));
+
+    SIMPLE.put(long[].class, node((out, v) -> {
+      final long[] array = (long[]) v;
+      out.writeVarLong(array.length);
+      for (long l : array) {
+        out.writeVarLong(zigZag(l));
+      }
+    }, in -> {
+      final long[] array = new long[in.readLength()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = unZigZag(in.readVarLong());
+      }
+      return array;
+    }));
+
+    SIMPLE.put(float[].class, node((out, v) -> {
+      final float[] array = (float[]) v;
+      out.writeVarLong(array.length);
+      for (float f : array) {
+        out.writeInt(Float.floatToIntBits(f));
+      }
+    }, in -> {
+      final float[] array = new float[in.readLength()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = Float.intBitsToFloat(in.readInt());
+      }
+      return array;
+    }));
+
+    SIMPLE.put(double[].class, node((out, v) -> {
+      final double[] array = (double[]) v;
+      out.writeVarLong(array.length);
+      for (double d : array) {
+        out.writeLong(Double.doubleToLongBits(d));
+      }
+    }, in -> {
+      final double[] array = new double[in.readLength()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = Double.longBitsToDouble(in.readLong());
+      }
+      return array;
+    }));
+  }
+
+  /**
+   * Writer half of a node.
+   */
+  @FunctionalInterface
+  private interface WriteFunction {
+
+    void write(Writer out, Object value);
+  }
+
+  /**
+   * Reader half of a node.
+   */
+  @FunctionalInterface
+  private interface ReadFunction {
+
+    Object read(Reader in);
+  }
+
+  /**
+   * @param writer writer half
+   * @param reader reader half
+   *
+   * @return {@link Node}
+   */
+  private static Node node(WriteFunction writer, ReadFunction reader) {
+    return new Node() {
+
+      @Override
+      public void write(Writer out, Object value) {
+        writer.write(out, value);
+      }
+
+      @Override
+      public Object read(Reader in) {
+        return reader.read(in);
+      }
+    };
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Enum by name, stable when constants are reordered.
+   */
+  private static final class EnumNode implements Node {
+
+    private final Class<?> type;
+
+    private EnumNode(Class<?> type) {
+      super();
+
+      this.type = type;
+    }
+
+    @Override
+    public void write(Writer out, Object value) {
+      out.writeBlock(((Enum<?>) value).name().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @Override
+    public Object read(Reader in) {
+      return Enum.valueOf((Class) type, new String(in.readBlock(), StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * List or set: size, then each element after its presence byte.
+   */
+  private static final class CollectionNode implements Node {
+
+    private final IntFunction<Object> factory;
+
+    private final Node element;
+
+    private CollectionNode(IntFunction<Object> factory, Node element) {
+      super();
+
+      this.factory = factory;
+      this.element = element;
+    }
+
+    @Override
+    public void write(Writer out, Object value) {
+
+      final Collection<?> collection = (Collection<?>) value;
+
+      out.writeVarLong(collection.size());
+
+      for (Object current : collection) {
+        writeNullable(out, element, current);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object read(Reader in) {
+
+      final int size = in.readLength();
+
+      final Collection<Object> collection = (Collection<Object>) factory.apply(size);
+
+      for (int i = 0; i < size; i++) {
+        collection.add(readNullable(in, element));
+      }
+
+      return collection;
+    }
+  }
+
+  /**
+   * Map: size, then each key and value after their presence byte.
+   */
+  private static final class MapNode implements Node {
+
+    private final IntFunction<Object> factory;
+
+    private final Node key;
+
+    private final Node value;
+
+    private MapNode(IntFunction<Object> factory, Node key, Node value) {
+      super();
+
+      this.factory = factory;
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public void write(Writer out, Object map) {
+
+      out.writeVarLong(((Map<?, ?>) map).size());
+
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) map).entrySet()) {
+        writeNullable(out, key, entry.getKey());
+        writeNullable(out, value, entry.getValue());
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object read(Reader in) {
+
+      final int size = in.readLength();
+
+      final Map<Object, Object> map = (Map<Object, Object>) factory.apply(size);
+
+      for (int i = 0; i < size; i++) {
+        map.put(readNullable(in, key), readNullable(in, value));
+      }
+
+      return map;
+    }
+  }
+
+  /**
+   * Object: each field in schema order.
+   */
+  private static final class ObjectNode implements Node {
+
+    private final Class<?> type;
+
+    private MethodHandle constructor = null;
+
+    private Field[] fields = null;
+
+    private FieldAccessor[] accessors = null;
+
+    private Node[] nodes = null;
+
+    /** Primitive fields are never null and have no presence byte */
+    private boolean[] primitives = null;
+
+    private ObjectNode(Class<?> type) {
+      super();
+
+      this.type = type;
+    }
+
+    /**
+     * Build the schema of the type.
+     *
+     * @param objects object nodes already built
+     */
+    private void build(Map<Class<?>, ObjectNode> objects) {
+
+      final List<Class<?>> hierarchy = new ArrayList<>(2);
+
+      for (Class<?> current = type; current != null
+          && !Object.class.equals(current); current = current.getSuperclass()) {
+        hierarchy.add(0, current);
+      }
+
+      final List<Field> state = new ArrayList<>(0);
+
+      for (Class<?> current : hierarchy) {
+
+        final Field[] declared = current.getDeclaredFields();
+
+        Arrays.sort(declared, Comparator.comparing(Field::getName));
+
+        for (Field field : declared) {
+
+          // not state
+          if (Modifier.isStatic(field.getModifiers())
+              || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
+            continue;
+          }
+
+          state.add(field);
+        }
+      }
+
+      fields = state.toArray(new Field[state.size()]);
+
+      try {
+        final Constructor<?> noArgs = type.getDeclaredConstructor();
+        noArgs.setAccessible(true);
+
+        constructor = MethodHandles.lookup().unreflectConstructor(noArgs)
+            .asType(MethodType.methodType(Object.class));
+
+        accessors = new FieldAccessor[fields.length];
+        nodes = new Node[fields.length];
+        primitives = new boolean[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+          accessors[i] = FieldAccessor.of(fields[i]);
+          nodes[i] = node(fields[i].getGenericType(), objects);
+          primitives[i] = fields[i].getType().isPrimitive();
+        }
+      }
+      catch (NoSuchMethodException | IllegalAccessException e) {
+        throw new IllegalArgumentException(
+            "Type " + type.getName() + " needs a no-args constructor for the binary codec", e);
+      }
+    }
+
+    @Override
+    public void write(Writer out, Object value) {
+
+      // check, a subclass would lose its own fields
+      if (value.getClass() != type) {
+        throw new IllegalArgumentException("Value of " + type.getName() + " is a "
+            + value.getClass().getName() + ", the binary codec writes the declared class only:"
+            + " declare a codec on the column,"
+            + " as @HBaseColumn(codec = JavaSerializationCodec.class)");
+      }
+
+      for (int i = 0; i < nodes.length; i++) {
+
+        final Object field = accessors[i].get(value);
+
+        if (primitives[i]) {
+          nodes[i].write(out, field);
+        }
+        else {
+          writeNullable(out, nodes[i], field);
+        }
+      }
+    }
+
+    @Override
+    public Object read(Reader in) {
+
+      final Object value;
+
+      try {
+        value = (Object) constructor.invokeExact();
+      }
+      catch (RuntimeException | Error e) {
+        throw e;
+      }
+      catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+
+      for (int i = 0; i < nodes.length; i++) {
+        accessors[i].set(value, primitives[i] ? nodes[i].read(in) : readNullable(in, nodes[i]));
+      }
+
+      return value;
+    }
+  }
+
+  private static void writeNullable(Writer out, Node node, Object value) {
+
+    // check
+    if (value == null) {
+      out.writeByte(0);
+    }
+    else {
+      out.writeByte(1);
+      node.write(out, value);
+    }
+  }
+
+  private static Object readNullable(Reader in, Node node) {
+    return in.readByte() == 0 ? null : node.read(in);
+  }
+
+  /**
+   * Growable output buffer.
+   */
+  private static final class Writer {
+
+    private byte[] buffer;
+
+    private int size = 0;
+
+    private Writer(int capacity) {
+      super();
+
+      this.buffer = new byte[capacity];
+    }
+
+    private void ensure(int more) {
+      if (size + more > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + more));
+      }
+    }
+
+    private void writeByte(int value) {
+      ensure(1);
+      buffer[size++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+
+      ensure(10);
+
+      while ((value & ~0x7FL) != 0) {
+        buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+
+      buffer[size++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+      ensure(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        buffer[size++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeLong(long value) {
+      ensure(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[size++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeBlock(byte[] value) {
+      writeVarLong(value.length);
+      ensure(value.length);
+      System.arraycopy(value, 0, buffer, size, value.length);
+      size += value.length;
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(buffer, size);
+    }
+  }
+
+  /**
+   * Input cursor on a cell slice.
+   */
+  private static final class Reader {
+
+    private final byte[] buffer;
+
+    private int position;
+
+    private final int end;
+
+    private Reader(byte[] buffer, int offset, int length) {
+      super();
+
+      this.buffer = buffer;
+      this.position = offset;
+      this.end = offset + length;
+    }
+
+    private void require(int bytes) {
+      if (position + bytes > end) {
+        throw new IllegalArgumentException("Truncated binary value");
+      }
+    }
+
+    private byte readByte() {
+      require(1);
+      return buffer[position++];
+    }
+
+    private long readVarLong() {
+
+      long value = 0;
+
+      for (int shift = 0; shift < 64; shift += 7) {
+
+        final byte b = readByte();
+
+        value |= (long) (b & 0x7F) << shift;
+
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+
+      throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private int readLength() {
+
+      final long length = readVarLong();
+
+      // check
+      if (length < 0 || length > end - position) {
+        throw new IllegalArgumentException("Malformed length " + length);
+      }
+
+      return (int) length;
+    }
+
+    private int readInt() {
+      require(4);
+
+      int value = 0;
+
+      for (int i = 0; i < 4; i++) {
+        value = (value << 8) | (buffer[position++] & 0xFF);
+      }
+
+      return value;
+    }
+
+    private long readLong() {
+      require(8);
+
+      long value = 0;
+
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (buffer[position++] & 0xFF);
+      }
+
+      return value;
+    }
+
+    private byte[] readBlock() {
+
+      final int length = readLength();
+
+      final byte[] value = Arrays.copyOfRange(buffer, position, position + length);
+
+      position += length;
+
+      return value;
+    }
+  }
+
+}
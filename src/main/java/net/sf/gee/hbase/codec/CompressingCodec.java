@@ -0,0 +1,201 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.codec;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.sf.gee.hbase.basic.Compression;
+
+/**
+ * {@link FieldCodec} compressing the values of the wrapped codec not shorter than a threshold.
+ * Compressed values start with a header: marker, {@link Compression} ordinal and original length.
+ * Shorter or incompressible values are stored as encoded, so columns may hold both.
+ * <p>
+ * The marker byte is never the first byte of a UTF-8 string, of a java serialization stream nor
+ * of a {@link BinaryCodec} value; a value of another codec starting with it is still read as is,
+ * as the compressed data carries its own checksum.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class CompressingCodec<T> implements FieldCodec<T> {
+
+  /** First byte of a compressed value */
+  private static final byte MARKER = (byte) 0xFE;
+
+  /** Marker, compression, original length */
+  private static final int HEADER_LENGTH = 6;
+
+  /** Bound of the deflate expansion on inflate */
+  private static final int MAX_RATIO = 1032;
+
+  /** Reused deflaters, by level */
+  private static final ThreadLocal<Deflater> FAST_DEFLATER =
+      ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+  private static final ThreadLocal<Deflater> BEST_DEFLATER =
+      ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_COMPRESSION));
+
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+  private final FieldCodec<T> delegate;
+
+  private final Compression compression;
+
+  private final int threshold;
+
+  /**
+   * @param delegate wrapped {@link FieldCodec}
+   * @param compression {@link Compression} of new values
+   * @param threshold minimum encoded length compressed
+   */
+  public CompressingCodec(FieldCodec<T> delegate, Compression compression, int threshold) {
+    super();
+
+    this.delegate = delegate;
+    this.compression = compression;
+    this.threshold = Math.max(HEADER_LENGTH + 1, threshold);
+  }
+
+  @Override
+  public byte[] encode(T value) {
+
+    final byte[] encoded = delegate.encode(value);
+
+    // check
+    if (encoded == null || encoded.length < threshold || compression == Compression.NONE) {
+      return encoded;
+    }
+
+    final Deflater deflater =
+        (compression == Compression.DEFLATE_BEST ? BEST_DEFLATER : FAST_DEFLATER).get();
+
+    // worth it only if smaller than the value
+    final byte[] compressed = new byte[encoded.length];
+
+    compressed[0] = MARKER;
+    compressed[1] = (byte) compression.ordinal();
+    compressed[2] = (byte) (encoded.length >>> 24);
+    compressed[3] = (byte) (encoded.length >>> 16);
+    compressed[4] = (byte) (encoded.length >>> 8);
+    compressed[5] = (byte) encoded.length;
+
+    int size = HEADER_LENGTH;
+
+    try {
+      deflater.setInput(encoded);
+      deflater.finish();
+
+      while (!deflater.finished() && size < compressed.length) {
+        size += deflater.deflate(compressed, size, compressed.length - size);
+      }
+
+      // incompressible
+      if (!deflater.finished()) {
+        return encoded;
+      }
+    }
+    finally {
+      deflater.reset();
+    }
+
+    return Arrays.copyOf(compressed, size);
+  }
+
+  @Override
+  public T decode(byte[] buffer, int offset, int length) {
+
+    // stored as encoded
+    if (length <= HEADER_LENGTH || buffer[offset] != MARKER
+        || buffer[offset + 1] == (byte) Compression.NONE.ordinal()
+        || (buffer[offset + 1] & 0xFF) >= Compression.values().length) {
+      return delegate.decode(buffer, offset, length);
+    }
+
+    final int originalLength = ((buffer[offset + 2] & 0xFF) << 24)
+        | ((buffer[offset + 3] & 0xFF) << 16) | ((buffer[offset + 4] & 0xFF) << 8)
+        | (buffer[offset + 5] & 0xFF);
+
+    final byte[] original = inflate(buffer, offset + HEADER_LENGTH, length - HEADER_LENGTH,
+        originalLength);
+
+    // not a compressed value
+    if (original == null) {
+      return delegate.decode(buffer, offset, length);
+    }
+
+    return delegate.decode(original, 0, original.length);
+  }
+
+  /**
+   * @param buffer backing array
+   * @param offset compressed data offset
+   * @param length compressed data length
+   * @param originalLength length declared in the header
+   *
+   * @return byte[] original value, <code>null</code> when data are not a deflate stream of that
+   *         length
+   */
+  private static byte[] inflate(byte[] buffer, int offset, int length, int originalLength) {
+
+    // compressed only when smaller, deflate ratio is below 1:1032
+    if (originalLength <= length || originalLength / MAX_RATIO > length) {
+      return null;
+    }
+
+    final Inflater inflater = INFLATER.get();
+
+    try {
+      inflater.setInput(buffer, offset, length);
+
+      final byte[] original = new byte[originalLength];
+
+      int size = 0;
+
+      while (size < originalLength && !inflater.finished()) {
+
+        final int read = inflater.inflate(original, size, originalLength - size);
+
+        // truncated or needs a dictionary
+        if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          return null;
+        }
+
+        size += read;
+      }
+
+      return size == originalLength && inflater.finished() ? original : null;
+    }
+    catch (DataFormatException e) {
+      return null;
+    }
+    finally {
+      inflater.reset();
+    }
+  }
+
+  /**
+   * @return wrapped {@link FieldCodec}
+   */
+  public FieldCodec<T> getDelegate() {
+    return delegate;
+  }
+
+}
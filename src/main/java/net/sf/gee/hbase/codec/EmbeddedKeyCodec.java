@@ -0,0 +1,159 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sf.gee.hbase.annotation.Embeddable;
+import net.sf.gee.hbase.annotation.RowKey;
+
+/**
+ * {@link FieldCodec} of an {@link Embeddable} row key class, encoding its {@link RowKey} fields as
+ * a {@link TupleCodec} in their order. Row keys need every field; in a prefix, null fields end
+ * the key.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class EmbeddedKeyCodec<T> implements KeyPrefixCodec<T> {
+
+  private final Class<T> type;
+
+  private final MethodHandle constructor;
+
+  private final FieldAccessor[] accessors;
+
+  private final TupleCodec tuple;
+
+  /**
+   * @param type {@link Embeddable} {@linkplain java.lang.Class} of row key
+   *
+   * @throws IllegalArgumentException when the class is not a valid row key class
+   */
+  public EmbeddedKeyCodec(Class<T> type) {
+    super();
+
+    // check
+    if (!type.isAnnotationPresent(Embeddable.class)) {
+      throw new IllegalArgumentException(type.getName() + " is not an embeddable row key");
+    }
+
+    this.type = type;
+
+    final List<Field> fields = new ArrayList<>(0);
+
+    for (Field current : type.getDeclaredFields()) {
+      if (current.isAnnotationPresent(RowKey.class)) {
+        fields.add(current);
+      }
+    }
+
+    // check
+    if (fields.isEmpty()) {
+      throw new IllegalArgumentException(type.getName() + " has no row key field");
+    }
+
+    fields.sort(Comparator.comparingInt(f -> f.getAnnotation(RowKey.class).order()));
+
+    final Class<?>[] types = new Class<?>[fields.size()];
+
+    this.accessors = new FieldAccessor[fields.size()];
+
+    try {
+      for (int i = 0; i < fields.size(); i++) {
+        accessors[i] = FieldAccessor.of(fields.get(i));
+        types[i] = fields.get(i).getType();
+      }
+
+      final Constructor<T> noArgs = type.getDeclaredConstructor();
+      noArgs.setAccessible(true);
+
+      this.constructor = MethodHandles.lookup().unreflectConstructor(noArgs)
+          .asType(MethodType.methodType(Object.class));
+    }
+    catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new IllegalArgumentException(
+          type.getName() + " needs accessible fields and a no-args constructor", e);
+    }
+
+    this.tuple = TupleCodec.of(types);
+  }
+
+  /**
+   * @throws IllegalArgumentException when a field is null
+   */
+  @Override
+  public byte[] encode(T value) {
+    return tuple.encode(components(value));
+  }
+
+  @Override
+  public byte[] encodePrefix(T value) {
+    return tuple.encodePrefix(components(value));
+  }
+
+  /**
+   * @param value row key
+   *
+   * @return values of the row key fields, in order
+   */
+  private Object[] components(T value) {
+
+    final Object[] values = new Object[accessors.length];
+
+    for (int i = 0; i < accessors.length; i++) {
+      values[i] = accessors[i].get(value);
+    }
+
+    return values;
+  }
+
+  @Override
+  public T decode(byte[] buffer, int offset, int length) {
+
+    final Object[] values = tuple.decode(buffer, offset, length);
+
+    final Object key;
+
+    try {
+      key = (Object) constructor.invokeExact();
+    }
+    catch (RuntimeException | Error e) {
+      throw e;
+    }
+    catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+
+    // missing components of a prefix keep their default
+    for (int i = 0; i < accessors.length; i++) {
+      if (values[i] != null) {
+        accessors[i].set(key, values[i]);
+      }
+    }
+
+    return type.cast(key);
+  }
+
+}
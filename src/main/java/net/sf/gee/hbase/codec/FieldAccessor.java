@@ -0,0 +1,167 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Field getter / setter compiled once in {@linkplain java.lang.invoke.MethodHandle}, without any
+ * reflection lookup at access time.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class FieldAccessor {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final MethodHandle getter;
+
+  private final MethodHandle setter;
+
+  /** Primitive fields can not be set to null */
+  private final boolean primitive;
+
+  /**
+   * @param getter generic getter
+   * @param setter generic setter
+   * @param primitive primitive field flag
+   */
+  private FieldAccessor(MethodHandle getter, MethodHandle setter, boolean primitive) {
+    super();
+
+    this.getter = getter;
+    this.setter = setter;
+    this.primitive = primitive;
+  }
+
+  /**
+   * Compile the accessor of a field.
+   *
+   * @param field {@linkplain java.lang.reflect.Field}
+   *
+   * @return {@link FieldAccessor}
+   *
+   * @throws IllegalAccessException
+   */
+  public static FieldAccessor of(Field field) throws IllegalAccessException {
+
+    field.setAccessible(true);
+
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    return new FieldAccessor(lookup.unreflectGetter(field).asType(GETTER_TYPE),
+        lookup.unreflectSetter(field).asType(SETTER_TYPE), field.getType().isPrimitive());
+  }
+
+  /**
+   * Compile the accessor of a row key made of several fields, read and written as the array of
+   * their values in order.
+   *
+   * @param parts {@link FieldAccessor} of each field
+   *
+   * @return {@link FieldAccessor}
+   */
+  public static FieldAccessor composite(FieldAccessor... parts) {
+
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    try {
+      final MethodHandle getter = lookup.findStatic(FieldAccessor.class, "getAll",
+          MethodType.methodType(Object.class, FieldAccessor[].class, Object.class));
+
+      final MethodHandle setter = lookup.findStatic(FieldAccessor.class, "setAll",
+          MethodType.methodType(void.class, FieldAccessor[].class, Object.class, Object.class));
+
+      return new FieldAccessor(MethodHandles.insertArguments(getter, 0, (Object) parts.clone()),
+          MethodHandles.insertArguments(setter, 0, (Object) parts.clone()), false);
+    }
+    catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Object getAll(FieldAccessor[] parts, Object target) {
+
+    final Object[] values = new Object[parts.length];
+
+    for (int i = 0; i < parts.length; i++) {
+      values[i] = parts[i].get(target);
+    }
+
+    return values;
+  }
+
+  private static void setAll(FieldAccessor[] parts, Object target, Object value) {
+
+    final Object[] values = (Object[]) value;
+
+    for (int i = 0; i < parts.length && i < values.length; i++) {
+      parts[i].set(target, values[i]);
+    }
+  }
+
+  /**
+   * Get field value.
+   *
+   * @param target object owner of field
+   *
+   * @return field value
+   */
+  public Object get(Object target) {
+    try {
+      return (Object) getter.invokeExact(target);
+    }
+    catch (RuntimeException | Error e) {
+      throw e;
+    }
+    catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Set field value. A null value on a primitive field is ignored.
+   *
+   * @param target object owner of field
+   * @param value field value
+   */
+  public void set(Object target, Object value) {
+
+    // check
+    if (value == null && primitive) {
+      return;
+    }
+
+    try {
+      setter.invokeExact(target, value);
+    }
+    catch (RuntimeException | Error e) {
+      throw e;
+    }
+    catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
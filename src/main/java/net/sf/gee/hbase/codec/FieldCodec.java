@@ -0,0 +1,59 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.codec;
+
+/**
+ * Type specialized encoder / decoder of a cell value. One codec is chosen for each field when the
+ * class is registered, so the cell hot path does not inspect the value type.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public interface FieldCodec<T> {
+
+  /**
+   * Convert the value in a byte array ready to use for HBase.
+   * 
+   * @param value not null value
+   * 
+   * @return byte[]
+   */
+  public byte[] encode(T value);
+
+  /**
+   * Convert a slice of the cell backing array in the proper object, copying bytes only when the
+   * type requires it.
+   * 
+   * @param buffer backing array
+   * @param offset value offset
+   * @param length value length
+   * 
+   * @return <T>
+   */
+  public T decode(byte[] buffer, int offset, int length);
+
+  /**
+   * Convert the cell value in the proper object.
+   * 
+   * @param value not null byte[] value
+   * 
+   * @return <T>
+   */
+  public default T decode(byte[] value) {
+    return decode(value, 0, value.length);
+  }
+}
@@ -0,0 +1,273 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.codec;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Built-in {@link FieldCodec} registry, resolved once per field type.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class FieldCodecs {
+
+  /** String codec */
+  public static final FieldCodec<String> STRING = new FieldCodec<String>() {
+
+    @Override
+    public byte[] encode(String value) {
+      return Bytes.toBytes(value);
+    }
+
+    @Override
+    public String decode(byte[] buffer, int offset, int length) {
+      return Bytes.toString(buffer, offset, length);
+    }
+  };
+
+  /** Date codec, as epoch millis */
+  public static final FieldCodec<Date> DATE = new FieldCodec<Date>() {
+
+    @Override
+    public byte[] encode(Date value) {
+      return Bytes.toBytes(value.getTime());
+    }
+
+    @Override
+    public Date decode(byte[] buffer, int offset, int length) {
+      return new Date(Bytes.toLong(buffer, offset, length));
+    }
+  };
+
+  /** Boolean codec */
+  public static final FieldCodec<Boolean> BOOLEAN = new FieldCodec<Boolean>() {
+
+    @Override
+    public byte[] encode(Boolean value) {
+      return Bytes.toBytes(value.booleanValue());
+    }
+
+    @Override
+    public Boolean decode(byte[] buffer, int offset, int length) {
+
+      // check
+      if (length != 1) {
+        throw new IllegalArgumentException("Array has wrong size: " + length);
+      }
+
+      return buffer[offset] != (byte) 0;
+    }
+  };
+
+  /** Integer codec */
+  public static final FieldCodec<Integer> INTEGER = new FieldCodec<Integer>() {
+
+    @Override
+    public byte[] encode(Integer value) {
+      return Bytes.toBytes(value.intValue());
+    }
+
+    @Override
+    public Integer decode(byte[] buffer, int offset, int length) {
+      return Bytes.toInt(buffer, offset, length);
+    }
+  };
+
+  /** Long codec */
+  public static final FieldCodec<Long> LONG = new FieldCodec<Long>() {
+
+    @Override
+    public byte[] encode(Long value) {
+      return Bytes.toBytes(value.longValue());
+    }
+
+    @Override
+    public Long decode(byte[] buffer, int offset, int length) {
+      return Bytes.toLong(buffer, offset, length);
+    }
+  };
+
+  /** Double codec */
+  public static final FieldCodec<Double> DOUBLE = new FieldCodec<Double>() {
+
+    @Override
+    public byte[] encode(Double value) {
+      return Bytes.toBytes(value.doubleValue());
+    }
+
+    @Override
+    public Double decode(byte[] buffer, int offset, int length) {
+      return Double.longBitsToDouble(Bytes.toLong(buffer, offset, length));
+    }
+  };
+
+  /** BigDecimal codec */
+  public static final FieldCodec<BigDecimal> BIG_DECIMAL = new FieldCodec<BigDecimal>() {
+
+    @Override
+    public byte[] encode(BigDecimal value) {
+      return Bytes.toBytes(value);
+    }
+
+    @Override
+    public BigDecimal decode(byte[] buffer, int offset, int length) {
+      return Bytes.toBigDecimal(buffer, offset, length);
+    }
+  };
+
+  /**
+   * BigInteger codec, stored as double as it has always been written: lossy beyond 2^53, declare
+   * {@link BigIntegerCodec} on the column for the exact value
+   */
+  public static final FieldCodec<BigInteger> BIG_INTEGER = new FieldCodec<BigInteger>() {
+
+    @Override
+    public byte[] encode(BigInteger value) {
+      return Bytes.toBytes(value.doubleValue());
+    }
+
+    @Override
+    public BigInteger decode(byte[] buffer, int offset, int length) {
+      return BigDecimal.valueOf(Double.longBitsToDouble(Bytes.toLong(buffer, offset, length)))
+          .toBigInteger();
+    }
+  };
+
+  /** Raw byte array codec */
+  public static final FieldCodec<byte[]> BYTES = new FieldCodec<byte[]>() {
+
+    @Override
+    public byte[] encode(byte[] value) {
+      return value;
+    }
+
+    @Override
+    public byte[] decode(byte[] buffer, int offset, int length) {
+
+      // whole array, nothing to cut
+      if (offset == 0 && length == buffer.length) {
+        return buffer;
+      }
+
+      return Arrays.copyOfRange(buffer, offset, offset + length);
+    }
+  };
+
+  /** Built-in codecs by type */
+  private static final Map<Class<?>, FieldCodec<?>> CODECS = new HashMap<>();
+
+  static {
+    CODECS.put(String.class, STRING);
+    CODECS.put(Date.class, DATE);
+    CODECS.put(Boolean.class, BOOLEAN);
+    CODECS.put(boolean.class, BOOLEAN);
+    CODECS.put(Integer.class, INTEGER);
+    CODECS.put(int.class, INTEGER);
+    CODECS.put(Long.class, LONG);
+    CODECS.put(long.class, LONG);
+    CODECS.put(Double.class, DOUBLE);
+    CODECS.put(double.class, DOUBLE);
+    CODECS.put(BigDecimal.class, BIG_DECIMAL);
+    CODECS.put(BigInteger.class, BIG_INTEGER);
+    CODECS.put(byte[].class, BYTES);
+  }
+
+  /**
+   * Private constructor
+   */
+  private FieldCodecs() {
+    super();
+  }
+
+  /**
+   * Resolve the codec of a type. Types without a built-in codec use the {@link BinaryCodec}.
+   *
+   * @param type {@linkplain java.lang.Class} of value
+   *
+   * @return {@link FieldCodec}
+   *
+   * @throws IllegalArgumentException when the type has no binary layout
+   */
+  public static <T> FieldCodec<T> forType(Class<T> type) {
+    return forType(type, type);
+  }
+
+  /**
+   * Resolve the codec of a generic type, as a field declared <code>Map&lt;String, Long&gt;</code>.
+   *
+   * @param type {@linkplain java.lang.Class} of value
+   * @param genericType {@linkplain java.lang.reflect.Type} of value
+   *
+   * @return {@link FieldCodec}
+   *
+   * @throws IllegalArgumentException when the type has no binary layout
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> FieldCodec<T> forType(Class<T> type, Type genericType) {
+
+    final FieldCodec<?> codec = CODECS.get(type);
+
+    // check
+    if (codec != null) {
+      return (FieldCodec<T>) codec;
+    }
+
+    return new BinaryCodec<>(type, genericType);
+  }
+
+  /**
+   * Instantiate a codec declared on a column, through its constructor taking the value
+   * {@linkplain java.lang.Class} or else its no-args constructor.
+   *
+   * @param codecClass {@linkplain java.lang.Class} of {@link FieldCodec}
+   * @param type {@linkplain java.lang.Class} of value
+   *
+   * @return {@link FieldCodec}
+   *
+   * @throws ReflectiveOperationException when the codec cannot be instantiated
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public static <T> FieldCodec<T> create(Class<? extends FieldCodec> codecClass, Class<T> type)
+      throws ReflectiveOperationException {
+
+    Constructor<? extends FieldCodec> constructor;
+
+    try {
+      constructor = codecClass.getDeclaredConstructor(Class.class);
+      constructor.setAccessible(true);
+
+      return constructor.newInstance(type);
+    }
+    catch (NoSuchMethodException e) {
+      constructor = codecClass.getDeclaredConstructor();
+      constructor.setAccessible(true);
+
+      return constructor.newInstance();
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import net.sf.gee.logger.factory.GLogFactory;
+import net.sf.gee.logger.log.SimpleGLogger;
+
+/**
+ * Java serialization codec. Never chosen by type: declare it on the column, as
+ * <code>@HBaseColumn(codec = JavaSerializationCodec.class)</code>, for types without a binary
+ * layout.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class JavaSerializationCodec<T> implements FieldCodec<T> {
+
+  private final static SimpleGLogger LOGGER =
+      GLogFactory.getInstance().getLogger(SimpleGLogger.class, JavaSerializationCodec.class);
+
+  /** Stream magic and version, head of every serialized value */
+  private static final byte[] STREAM_HEADER = {(byte) 0xAC, (byte) 0xED, 0x00, 0x05};
+
+  private final Class<T> type;
+
+  /**
+   * @param type {@linkplain java.lang.Class} of value
+   */
+  public JavaSerializationCodec(Class<T> type) {
+    super();
+
+    this.type = type;
+  }
+
+  @Override
+  public byte[] encode(T value) {
+
+    // open streams
+    try (ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bout);) {
+
+      // write object
+      out.writeObject(value);
+      out.flush();
+
+      // get byte array
+      return bout.toByteArray();
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+    }
+
+    return null;
+  }
+
+  @Override
+  public T decode(byte[] buffer, int offset, int length) {
+
+    // open streams
+    try (ByteArrayInputStream bin = new ByteArrayInputStream(buffer, offset, length);
+        ObjectInputStream in = new ObjectInputStream(bin);) {
+
+      // read object
+      return type.cast(in.readObject());
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+    }
+
+    return null;
+  }
+
+  /**
+   * Check if a value was written by java serialization.
+   *
+   * @param buffer backing array
+   * @param offset value offset
+   * @param length value length
+   *
+   * @return <code>true</code> when the value starts with the serialization stream header
+   */
+  public static boolean isSerialized(byte[] buffer, int offset, int length) {
+
+    // check
+    if (length < STREAM_HEADER.length) {
+      return false;
+    }
+
+    for (int i = 0; i < STREAM_HEADER.length; i++) {
+      if (buffer[offset + i] != STREAM_HEADER[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+}
@@ -0,0 +1,39 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.codec;
+
+/**
+ * Row key {@link FieldCodec} of a key made of components. {@link #encode(Object)} needs every
+ * component, as the key of a stored row; {@link #encodePrefix(Object)} stops at the first missing
+ * one, as a scan bound or prefix.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public interface KeyPrefixCodec<T> extends FieldCodec<T> {
+
+  /**
+   * Convert a key whose trailing components may be missing in the row key prefix of every key
+   * starting with the given components.
+   *
+   * @param value not null value
+   *
+   * @return byte[]
+   */
+  public byte[] encodePrefix(T value);
+
+}
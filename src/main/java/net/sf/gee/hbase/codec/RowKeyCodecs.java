@@ -0,0 +1,256 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.codec;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Row key {@link FieldCodec} registry. Row key encodings preserve the value order in the byte
+ * order of HBase, so scan bounds, ranges and row key conditions follow the values: numbers are
+ * big-endian with the sign bit flipped, UUIDs are their 16 bytes, strings and byte arrays are taken
+ * as they are.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class RowKeyCodecs {
+
+  /** Short codec, sign-flipped big-endian */
+  public static final FieldCodec<Short> SHORT = new FieldCodec<Short>() {
+
+    @Override
+    public byte[] encode(Short value) {
+      return toBytes(value.longValue(), Short.BYTES);
+    }
+
+    @Override
+    public Short decode(byte[] buffer, int offset, int length) {
+      return (short) toLong(buffer, offset, length, Short.BYTES);
+    }
+  };
+
+  /** Integer codec, sign-flipped big-endian */
+  public static final FieldCodec<Integer> INTEGER = new FieldCodec<Integer>() {
+
+    @Override
+    public byte[] encode(Integer value) {
+      return toBytes(value.longValue(), Integer.BYTES);
+    }
+
+    @Override
+    public Integer decode(byte[] buffer, int offset, int length) {
+      return (int) toLong(buffer, offset, length, Integer.BYTES);
+    }
+  };
+
+  /** Long codec, sign-flipped big-endian */
+  public static final FieldCodec<Long> LONG = new FieldCodec<Long>() {
+
+    @Override
+    public byte[] encode(Long value) {
+      return toBytes(value.longValue(), Long.BYTES);
+    }
+
+    @Override
+    public Long decode(byte[] buffer, int offset, int length) {
+      return toLong(buffer, offset, length, Long.BYTES);
+    }
+  };
+
+  /** Date codec, epoch millis as sign-flipped big-endian */
+  public static final FieldCodec<Date> DATE = new FieldCodec<Date>() {
+
+    @Override
+    public byte[] encode(Date value) {
+      return toBytes(value.getTime(), Long.BYTES);
+    }
+
+    @Override
+    public Date decode(byte[] buffer, int offset, int length) {
+      return new Date(toLong(buffer, offset, length, Long.BYTES));
+    }
+  };
+
+  /** UUID codec, most then least significant bits */
+  public static final FieldCodec<UUID> UUID_BYTES = new FieldCodec<UUID>() {
+
+    @Override
+    public byte[] encode(UUID value) {
+
+      final byte[] bytes = new byte[16];
+
+      write(value.getMostSignificantBits(), bytes, 0);
+      write(value.getLeastSignificantBits(), bytes, 8);
+
+      return bytes;
+    }
+
+    @Override
+    public UUID decode(byte[] buffer, int offset, int length) {
+
+      // check
+      if (length != 16) {
+        throw new IllegalArgumentException("Array has wrong size: " + length);
+      }
+
+      return new UUID(read(buffer, offset), read(buffer, offset + 8));
+    }
+  };
+
+  /** Row key codecs by type */
+  private static final Map<Class<?>, FieldCodec<?>> CODECS = new HashMap<>();
+
+  static {
+    CODECS.put(String.class, FieldCodecs.STRING);
+    CODECS.put(byte[].class, FieldCodecs.BYTES);
+    CODECS.put(Short.class, SHORT);
+    CODECS.put(short.class, SHORT);
+    CODECS.put(Integer.class, INTEGER);
+    CODECS.put(int.class, INTEGER);
+    CODECS.put(Long.class, LONG);
+    CODECS.put(long.class, LONG);
+    CODECS.put(Date.class, DATE);
+    CODECS.put(UUID.class, UUID_BYTES);
+  }
+
+  /**
+   * Private constructor
+   */
+  private RowKeyCodecs() {
+    super();
+  }
+
+  /**
+   * Resolve the row key codec of a type.
+   *
+   * @param type {@linkplain java.lang.Class} of row key
+   *
+   * @return {@link FieldCodec}
+   *
+   * @throws IllegalArgumentException when the type has no ordered encoding
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> FieldCodec<T> forType(Class<T> type) {
+
+    final FieldCodec<?> codec = CODECS.get(type);
+
+    // check
+    if (codec == null) {
+      throw new IllegalArgumentException("Row key type " + type.getName()
+          + " has no ordered encoding, declare a codec on the row key");
+    }
+
+    return (FieldCodec<T>) codec;
+  }
+
+  /**
+   * Length of the ordered encoding of a type, when fixed.
+   *
+   * @param type {@linkplain java.lang.Class} of row key
+   *
+   * @return bytes of each value, <code>-1</code> for variable length types
+   */
+  public static int fixedLength(Class<?> type) {
+
+    final FieldCodec<?> codec = CODECS.get(type);
+
+    if (codec == SHORT) {
+      return Short.BYTES;
+    }
+
+    if (codec == INTEGER) {
+      return Integer.BYTES;
+    }
+
+    if (codec == LONG || codec == DATE) {
+      return Long.BYTES;
+    }
+
+    if (codec == UUID_BYTES) {
+      return 16;
+    }
+
+    return -1;
+  }
+
+  /**
+   * @param value signed value
+   * @param size bytes of the type
+   *
+   * @return big-endian bytes with the sign bit flipped
+   */
+  private static byte[] toBytes(long value, int size) {
+
+    final byte[] bytes = new byte[size];
+
+    for (int i = size - 1; i >= 0; i--) {
+      bytes[i] = (byte) value;
+      value >>>= 8;
+    }
+
+    bytes[0] ^= (byte) 0x80;
+
+    return bytes;
+  }
+
+  /**
+   * @param buffer backing array
+   * @param offset value offset
+   * @param length value length
+   * @param size bytes of the type
+   *
+   * @return signed value
+   */
+  private static long toLong(byte[] buffer, int offset, int length, int size) {
+
+    // check
+    if (length != size) {
+      throw new IllegalArgumentException("Array has wrong size: " + length);
+    }
+
+    // sign restored, then extended
+    long value = (byte) (buffer[offset] ^ 0x80);
+
+    for (int i = 1; i < size; i++) {
+      value = (value << 8) | (buffer[offset + i] & 0xFF);
+    }
+
+    return value;
+  }
+
+  private static void write(long value, byte[] bytes, int offset) {
+    for (int i = 7; i >= 0; i--) {
+      bytes[offset + i] = (byte) value;
+      value >>>= 8;
+    }
+  }
+
+  private static long read(byte[] buffer, int offset) {
+
+    long value = 0;
+
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (buffer[offset + i] & 0xFF);
+    }
+
+    return value;
+  }
+
+}
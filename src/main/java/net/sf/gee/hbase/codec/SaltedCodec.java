@@ -0,0 +1,102 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.codec;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Row key {@link FieldCodec} prepending a hash bucket to the key of the wrapped codec, so that
+ * monotonic keys are written across as many key ranges as buckets. The bucket depends only on the
+ * encoded key, so any key can be read back from its value.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class SaltedCodec<T> implements FieldCodec<T> {
+
+  /** Buckets fit the prefix byte */
+  public static final int MAX_BUCKETS = 256;
+
+  private final FieldCodec<T> delegate;
+
+  private final int buckets;
+
+  /**
+   * @param delegate wrapped {@link FieldCodec}
+   * @param buckets number of buckets, from 1 to {@link #MAX_BUCKETS}
+   */
+  public SaltedCodec(FieldCodec<T> delegate, int buckets) {
+    super();
+
+    // check
+    if (buckets < 1 || buckets > MAX_BUCKETS) {
+      throw new IllegalArgumentException("Salt buckets must be from 1 to " + MAX_BUCKETS);
+    }
+
+    this.delegate = delegate;
+    this.buckets = buckets;
+  }
+
+  @Override
+  public byte[] encode(T value) {
+    return salt(delegate.encode(value));
+  }
+
+  @Override
+  public T decode(byte[] buffer, int offset, int length) {
+    return delegate.decode(buffer, offset + 1, length - 1);
+  }
+
+  /**
+   * Prepend the bucket to an unsalted key.
+   *
+   * @param key unsalted key
+   *
+   * @return salted key
+   */
+  public byte[] salt(byte[] key) {
+
+    final byte[] salted = new byte[key.length + 1];
+
+    salted[0] = (byte) bucket(key);
+
+    System.arraycopy(key, 0, salted, 1, key.length);
+
+    return salted;
+  }
+
+  /**
+   * @param key unsalted key
+   *
+   * @return bucket of the key
+   */
+  public int bucket(byte[] key) {
+    return (Bytes.hashCode(key) & Integer.MAX_VALUE) % buckets;
+  }
+
+  /**
+   * @return wrapped {@link FieldCodec}, encoding unsalted keys
+   */
+  public FieldCodec<T> getDelegate() {
+    return delegate;
+  }
+
+  public int getBuckets() {
+    return buckets;
+  }
+
+}
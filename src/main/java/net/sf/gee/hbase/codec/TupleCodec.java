@@ -0,0 +1,202 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Order preserving {@link FieldCodec} of a composite row key, as the array of its component
+ * values. Fixed length components are written as they are; variable length ones, as strings, have
+ * their zero bytes escaped as <code>0x00 0xFF</code> and end with <code>0x00 0x00</code>, so that a
+ * shorter component sorts first whatever follows it.
+ * <p>
+ * A row key needs every component; a prefix stops at the first missing one, as the row key prefix
+ * of every key starting with the given components.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class TupleCodec implements KeyPrefixCodec<Object[]> {
+
+  private static final byte ESCAPE = (byte) 0xFF;
+
+  private final FieldCodec<Object>[] codecs;
+
+  /** Length of each component, <code>-1</code> for variable length */
+  private final int[] lengths;
+
+  /**
+   * @param codecs {@link FieldCodec} of each component
+   * @param lengths length of each component, <code>-1</code> for variable length
+   */
+  @SuppressWarnings("unchecked")
+  public TupleCodec(FieldCodec<?>[] codecs, int[] lengths) {
+    super();
+
+    this.codecs = (FieldCodec<Object>[]) codecs.clone();
+    this.lengths = lengths.clone();
+  }
+
+  /**
+   * Build the codec of components with ordered encodings.
+   *
+   * @param types {@linkplain java.lang.Class} of each component
+   *
+   * @return {@link TupleCodec}
+   *
+   * @throws IllegalArgumentException when a type has no ordered encoding
+   */
+  public static TupleCodec of(Class<?>... types) {
+
+    final FieldCodec<?>[] codecs = new FieldCodec<?>[types.length];
+    final int[] lengths = new int[types.length];
+
+    for (int i = 0; i < types.length; i++) {
+      codecs[i] = RowKeyCodecs.forType(types[i]);
+      lengths[i] = RowKeyCodecs.fixedLength(types[i]);
+    }
+
+    return new TupleCodec(codecs, lengths);
+  }
+
+  /**
+   * @throws IllegalArgumentException when a component is missing
+   */
+  @Override
+  public byte[] encode(Object[] values) {
+    return write(values, false);
+  }
+
+  @Override
+  public byte[] encodePrefix(Object[] values) {
+    return write(values, true);
+  }
+
+  /**
+   * @param values component values
+   * @param prefix <code>true</code> to stop at the first missing component
+   *
+   * @return encoded key
+   */
+  private byte[] write(Object[] values, boolean prefix) {
+
+    // check
+    if (!prefix && values.length < codecs.length) {
+      throw new IllegalArgumentException(
+          "Row key has " + values.length + " components, " + codecs.length + " expected");
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+
+    for (int i = 0; i < Math.min(values.length, codecs.length); i++) {
+
+      if (values[i] == null) {
+
+        // a row key would collide with every key sharing the components before
+        if (!prefix) {
+          throw new IllegalArgumentException("Null row key component " + i);
+        }
+
+        break;
+      }
+
+      final byte[] component = codecs[i].encode(values[i]);
+
+      // fixed
+      if (lengths[i] >= 0) {
+        out.write(component, 0, component.length);
+
+        continue;
+      }
+
+      for (byte b : component) {
+
+        out.write(b);
+
+        if (b == 0) {
+          out.write(ESCAPE);
+        }
+      }
+
+      out.write(0);
+      out.write(0);
+    }
+
+    return out.toByteArray();
+  }
+
+  @Override
+  public Object[] decode(byte[] buffer, int offset, int length) {
+
+    final Object[] values = new Object[codecs.length];
+
+    final int end = offset + length;
+
+    int position = offset;
+
+    for (int i = 0; i < codecs.length && position < end; i++) {
+
+      // fixed
+      if (lengths[i] >= 0) {
+
+        // check
+        if (position + lengths[i] > end) {
+          throw new IllegalArgumentException("Truncated row key component " + i);
+        }
+
+        values[i] = codecs[i].decode(buffer, position, lengths[i]);
+
+        position += lengths[i];
+
+        continue;
+      }
+
+      final byte[] component = new byte[end - position];
+
+      int size = 0;
+
+      while (true) {
+
+        // check
+        if (position >= end) {
+          throw new IllegalArgumentException("Unterminated row key component " + i);
+        }
+
+        final byte b = buffer[position++];
+
+        if (b != 0) {
+          component[size++] = b;
+        } // escaped zero
+        else if (position < end && buffer[position] == ESCAPE) {
+          component[size++] = 0;
+          position++;
+        } // terminator
+        else {
+          position++;
+
+          break;
+        }
+      }
+
+      values[i] = codecs[i].decode(Arrays.copyOf(component, size));
+    }
+
+    return values;
+  }
+
+}
@@ -19,7 +19,22 @@
 package net.sf.gee.hbase.config;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import net.sf.gee.hbase.basic.FetchType;
+import net.sf.gee.hbase.basic.NoneMapper;
+import net.sf.gee.hbase.filters.HBaseColumnParam;
 
 /**
  * @author Giorgio Desideri - giorgio.desideri@gmail.com
@@ -41,6 +56,36 @@ public class ClassConfiguration implements Serializable {
   /** The row key field. */
   private FieldConfiguration rowKeyField = null;
 
+  /** The version field, <code>null</code> without optimistic locking. */
+  private FieldConfiguration versionField = null;
+
+  /** Maximum rows in the client cache, not positive for no cache. */
+  private int cacheSize = 0;
+
+  /** Time to live of cached rows in milliseconds, not positive for no expiration. */
+  private long cacheTtl = 0;
+
+  /** Row key hash buckets, not positive for unsalted row keys. */
+  private int saltBuckets = 0;
+
+  /** Keep field fingerprints of loaded entities for partial updates. */
+  private boolean dirtyTracking = false;
+
+  /** Column to field dispatch table. */
+  private transient volatile ColumnDispatcher dispatcher = null;
+
+  /** Columns read by default, empty for the whole row. */
+  private transient volatile List<HBaseColumnParam> defaultProjection = null;
+
+  /** Fields with a secondary index. */
+  private transient volatile List<FieldConfiguration> indexedFields = null;
+
+  /** Fields read only on request. */
+  private transient volatile List<FieldConfiguration> lazyFields = null;
+
+  /** Compiled no-args constructor of the entity. */
+  private transient MethodHandle instantiator = null;
+
   /**
    * Instantiates a new class configuration.
    */
@@ -88,6 +133,38 @@ public class ClassConfiguration implements Serializable {
     this.namespace = namespace;
   }
 
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  public void setCacheSize(int cacheSize) {
+    this.cacheSize = cacheSize;
+  }
+
+  public long getCacheTtl() {
+    return cacheTtl;
+  }
+
+  public void setCacheTtl(long cacheTtl) {
+    this.cacheTtl = cacheTtl;
+  }
+
+  public int getSaltBuckets() {
+    return saltBuckets;
+  }
+
+  public void setSaltBuckets(int saltBuckets) {
+    this.saltBuckets = saltBuckets;
+  }
+
+  public boolean isDirtyTracking() {
+    return dirtyTracking;
+  }
+
+  public void setDirtyTracking(boolean dirtyTracking) {
+    this.dirtyTracking = dirtyTracking;
+  }
+
   public ArrayList<FieldConfiguration> getFields() {
     return fields;
   }
@@ -100,6 +177,47 @@ public class ClassConfiguration implements Serializable {
     this.rowKeyField = rowKeyField;
   }
 
+  public FieldConfiguration getVersionField() {
+    return versionField;
+  }
+
+  public void setVersionField(FieldConfiguration versionField) {
+    this.versionField = versionField;
+  }
+
+  /**
+   * Compile the no-args constructor of the entity.
+   *
+   * @param entityClass {@linkplain java.lang.Class} of entity
+   * 
+   * @throws ReflectiveOperationException
+   */
+  public void compileInstantiator(Class<?> entityClass) throws ReflectiveOperationException {
+
+    final Constructor<?> constructor = entityClass.getDeclaredConstructor();
+    constructor.setAccessible(true);
+
+    this.instantiator = MethodHandles.lookup().unreflectConstructor(constructor)
+        .asType(MethodType.methodType(Object.class));
+  }
+
+  /**
+   * Create a new empty entity.
+   *
+   * @return new instance of entity
+   */
+  public Object newInstance() {
+    try {
+      return (Object) instantiator.invokeExact();
+    }
+    catch (RuntimeException | Error e) {
+      throw e;
+    }
+    catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   /**
    * Adds the field configuration.
    *
@@ -117,8 +235,15 @@ public class ClassConfiguration implements Serializable {
     // check no uplicate
     if (!getFields().contains(fconfig)) {
       // add in list
+      fconfig.setPosition(getFields().size());
       getFields().add(fconfig);
 
+      // dispatch table and projection to rebuild
+      dispatcher = null;
+      defaultProjection = null;
+      indexedFields = null;
+      lazyFields = null;
+
       return true;
 
     } // duplicate ---> no insert
@@ -138,6 +263,11 @@ public class ClassConfiguration implements Serializable {
 
     FieldConfiguration field = null;
 
+    // row key, joined names when composite
+    if (rowKeyField != null && rowKeyField.getFieldName().equals(fieldName)) {
+      return rowKeyField;
+    }
+
     // iterate
     for (FieldConfiguration current : getFields()) {
 
@@ -153,6 +283,196 @@ public class ClassConfiguration implements Serializable {
     return field;
   }
 
+  /**
+   * Gets the fields with a secondary index.
+   * 
+   * @return {@linkplain java.util.List} of indexed {@link FieldConfiguration}, empty when none
+   */
+  public List<FieldConfiguration> getIndexedFields() {
+
+    List<FieldConfiguration> current = indexedFields;
+
+    // lazy build
+    if (current == null) {
+
+      final List<FieldConfiguration> indexed = new ArrayList<>(0);
+
+      for (FieldConfiguration field : getFields()) {
+        if (field.isIndexed()) {
+          indexed.add(field);
+        }
+      }
+
+      current = Collections.unmodifiableList(indexed);
+      indexedFields = current;
+    }
+
+    return current;
+  }
+
+  /**
+   * Gets the lazy fields, left out of the default projection.
+   * 
+   * @return {@linkplain java.util.List} of lazy {@link FieldConfiguration}, empty when none
+   */
+  public List<FieldConfiguration> getLazyFields() {
+
+    List<FieldConfiguration> current = lazyFields;
+
+    // lazy build
+    if (current == null) {
+
+      final List<FieldConfiguration> lazy = new ArrayList<>(0);
+
+      for (FieldConfiguration field : getFields()) {
+        if (field.getFetch() == FetchType.LAZY) {
+          lazy.add(field);
+        }
+      }
+
+      current = Collections.unmodifiableList(lazy);
+      lazyFields = current;
+    }
+
+    return current;
+  }
+
+  /**
+   * Build the column to field dispatch table. Called once fields are registered, otherwise on
+   * first lookup.
+   */
+  public void compileDispatcher() {
+    dispatcher = new ColumnDispatcher(getFields());
+  }
+
+  /**
+   * Build the default projection. Called once fields are registered, otherwise on first use.
+   */
+  public void compileProjection() {
+    defaultProjection = buildProjection(Collections.<String>emptySet());
+  }
+
+  /**
+   * Get the columns to read for the fetch groups: eager fields and lazy fields of the groups.
+   * Families whose fields are all read are requested whole, scalar columns one by one; families
+   * holding a collection or mapped column to read are requested whole, as their columns are known
+   * only by prefix.
+   * 
+   * @param fetchGroups {@linkplain java.util.Collection} of fetch groups, <code>null</code> or
+   *        empty for the default
+   * 
+   * @return {@linkplain java.util.List} of {@link HBaseColumnParam}, empty to read the whole row
+   */
+  public List<HBaseColumnParam> getProjection(Collection<String> fetchGroups) {
+
+    // default
+    if (fetchGroups == null || fetchGroups.isEmpty()) {
+
+      List<HBaseColumnParam> current = defaultProjection;
+
+      // lazy build
+      if (current == null) {
+        current = buildProjection(Collections.<String>emptySet());
+        defaultProjection = current;
+      }
+
+      return current;
+    }
+
+    return buildProjection(fetchGroups);
+  }
+
+  /**
+   * @param field {@link FieldConfiguration}
+   * @param fetchGroups requested fetch groups
+   * 
+   * @return <code>true</code> when the field is read
+   */
+  private static boolean isFetched(FieldConfiguration field, Collection<String> fetchGroups) {
+
+    // check
+    if (field.getFetch() == FetchType.EAGER) {
+      return true;
+    }
+
+    for (String group : field.getFetchGroups()) {
+      if (fetchGroups.contains(group)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Build the projection of the fetch groups.
+   * 
+   * @param fetchGroups requested fetch groups
+   * 
+   * @return {@linkplain java.util.List} of {@link HBaseColumnParam}
+   */
+  private List<HBaseColumnParam> buildProjection(Collection<String> fetchGroups) {
+
+    // fields by family, in declaration order
+    final Map<String, List<FieldConfiguration>> families = new LinkedHashMap<>();
+
+    boolean whole = true;
+
+    for (FieldConfiguration current : getFields()) {
+
+      families.computeIfAbsent(current.getFamilyName(), k -> new ArrayList<>(1)).add(current);
+
+      whole &= isFetched(current, fetchGroups);
+    }
+
+    // nothing lazy
+    if (whole) {
+      return Collections.emptyList();
+    }
+
+    final List<HBaseColumnParam> projection = new ArrayList<>(0);
+
+    for (Map.Entry<String, List<FieldConfiguration>> family : families.entrySet()) {
+
+      final List<HBaseColumnParam> columns = new ArrayList<>(family.getValue().size());
+
+      boolean allFetched = true;
+      boolean prefixFetched = false;
+
+      for (FieldConfiguration current : family.getValue()) {
+
+        // skip lazy
+        if (!isFetched(current, fetchGroups)) {
+          allFetched = false;
+          continue;
+        }
+
+        // scalar column
+        if (!current.isCollection() && NoneMapper.class.equals(current.getMapper())) {
+          columns.add(new HBaseColumnParam(family.getKey(), current.getColumnName()));
+        }
+        else {
+          prefixFetched = true;
+        }
+      }
+
+      // whole family
+      if (allFetched || prefixFetched) {
+        projection.add(new HBaseColumnParam(family.getKey(), null));
+      }
+      else {
+        projection.addAll(columns);
+      }
+    }
+
+    // only lazy fields: a row must still come back
+    if (projection.isEmpty()) {
+      projection.add(new HBaseColumnParam(families.keySet().iterator().next(), null));
+    }
+
+    return Collections.unmodifiableList(projection);
+  }
+
   /**
    * Get field configuration by family name and column name.
    * 
@@ -163,21 +483,39 @@ public class ClassConfiguration implements Serializable {
    */
   public FieldConfiguration getFieldConfiguration(String family, String column) {
 
-    FieldConfiguration fieldConfig = null;
+    final byte[] familyBytes = Bytes.toBytes(family);
+    final byte[] columnBytes = Bytes.toBytes(column);
 
-    // iterate
-    for (FieldConfiguration current : getFields()) {
+    return getFieldConfiguration(familyBytes, 0, familyBytes.length, columnBytes, 0,
+        columnBytes.length);
+  }
 
-      // match exactly with all field
-      if (current.getFamilyName().equals(family) && column.startsWith(current.getColumnName())) {
+  /**
+   * Get field configuration by family and column slices of a cell, without copying them. Scalar
+   * columns match exactly, collection and mapped columns by longest prefix.
+   * 
+   * @param family family backing array
+   * @param familyOffset family offset
+   * @param familyLength family length
+   * @param column column backing array
+   * @param columnOffset column offset
+   * @param columnLength column length
+   * 
+   * @return {@link FieldConfiguration}
+   */
+  public FieldConfiguration getFieldConfiguration(byte[] family, int familyOffset,
+      int familyLength, byte[] column, int columnOffset, int columnLength) {
 
-        fieldConfig = current;
+    ColumnDispatcher current = dispatcher;
 
-        break;
-      }
+    // lazy build
+    if (current == null) {
+      current = new ColumnDispatcher(getFields());
+      dispatcher = current;
     }
 
-    return fieldConfig;
+    return current.lookup(family, familyOffset, familyLength, column, columnOffset,
+        columnLength);
   }
 
 }
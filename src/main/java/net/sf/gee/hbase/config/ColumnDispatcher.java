@@ -0,0 +1,325 @@
+/**
+ * -------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied.
+ *
+ * See the License for the specific language governing permissions and limitations under the
+ * License.
+ *
+ */
+package net.sf.gee.hbase.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import net.sf.gee.hbase.basic.NoneMapper;
+
+/**
+ * Column to field dispatch table of a class, built once. For each family, scalar columns are found
+ * by exact match in an open addressing hash table, collection and mapped columns by longest prefix
+ * in a byte trie. Lookups work on cell slices and allocate nothing.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+final class ColumnDispatcher {
+
+  /** Indexes by family, families are a handful so they are compared in sequence */
+  private final FamilyIndex[] families;
+
+  /**
+   * Build the dispatcher of fields.
+   *
+   * @param fields {@linkplain java.util.List} of {@link FieldConfiguration}
+   */
+  ColumnDispatcher(List<FieldConfiguration> fields) {
+    super();
+
+    final List<FamilyIndex> indexes = new ArrayList<>(2);
+
+    // iterate
+    for (FieldConfiguration current : fields) {
+
+      FamilyIndex index = null;
+
+      // find family
+      for (FamilyIndex family : indexes) {
+        if (Bytes.equals(family.family, current.getFamilyBytes())) {
+          index = family;
+          break;
+        }
+      }
+
+      // new family
+      if (index == null) {
+        index = new FamilyIndex(current.getFamilyBytes());
+        indexes.add(index);
+      }
+
+      index.add(current);
+    }
+
+    // finalize
+    for (FamilyIndex index : indexes) {
+      index.buildExact();
+    }
+
+    this.families = indexes.toArray(new FamilyIndex[indexes.size()]);
+  }
+
+  /**
+   * Find the field of a cell.
+   *
+   * @param family family backing array
+   * @param familyOffset family offset
+   * @param familyLength family length
+   * @param column column backing array
+   * @param columnOffset column offset
+   * @param columnLength column length
+   *
+   * @return {@link FieldConfiguration} or <code>null</code>
+   */
+  FieldConfiguration lookup(byte[] family, int familyOffset, int familyLength, byte[] column,
+      int columnOffset, int columnLength) {
+
+    // iterate
+    for (FamilyIndex index : families) {
+
+      // match family
+      if (Bytes.equals(index.family, 0, index.family.length, family, familyOffset,
+          familyLength)) {
+
+        return index.lookup(column, columnOffset, columnLength);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Scalar and prefix columns of a family.
+   */
+  private static final class FamilyIndex {
+
+    private final byte[] family;
+
+    /** Exact match columns, before table building */
+    private final List<FieldConfiguration> exact = new ArrayList<>(0);
+
+    /** Open addressing keys */
+    private byte[][] keys = null;
+
+    /** Open addressing values */
+    private FieldConfiguration[] values = null;
+
+    private int mask = 0;
+
+    /** Prefix trie root */
+    private final TrieNode prefixes = new TrieNode();
+
+    /**
+     * @param family family name bytes
+     */
+    private FamilyIndex(byte[] family) {
+      super();
+
+      this.family = family;
+    }
+
+    /**
+     * Add field by kind: scalar columns are written with their exact name, collection and mapped
+     * columns only start with it.
+     *
+     * @param field {@link FieldConfiguration}
+     */
+    private void add(FieldConfiguration field) {
+
+      if (!field.isCollection() && NoneMapper.class.equals(field.getMapper())) {
+        exact.add(field);
+      }
+      else {
+        prefixes.insert(field.getColumnBytes(), field);
+      }
+    }
+
+    /**
+     * Build the open addressing table, at most half full.
+     */
+    private void buildExact() {
+
+      int capacity = 2;
+
+      while (capacity < exact.size() * 2) {
+        capacity <<= 1;
+      }
+
+      keys = new byte[capacity][];
+      values = new FieldConfiguration[capacity];
+      mask = capacity - 1;
+
+      // iterate
+      for (FieldConfiguration field : exact) {
+
+        final byte[] key = field.getColumnBytes();
+
+        int slot = Bytes.hashCode(key, 0, key.length) & mask;
+
+        // linear probing, first declared field wins
+        while (keys[slot] != null && !Bytes.equals(keys[slot], key)) {
+          slot = (slot + 1) & mask;
+        }
+
+        if (keys[slot] == null) {
+          keys[slot] = key;
+          values[slot] = field;
+        }
+      }
+    }
+
+    /**
+     * Exact match first, then longest prefix.
+     *
+     * @param column column backing array
+     * @param offset column offset
+     * @param length column length
+     *
+     * @return {@link FieldConfiguration} or <code>null</code>
+     */
+    private FieldConfiguration lookup(byte[] column, int offset, int length) {
+
+      int slot = Bytes.hashCode(column, offset, length) & mask;
+
+      // linear probing
+      while (keys[slot] != null) {
+
+        if (Bytes.equals(keys[slot], 0, keys[slot].length, column, offset, length)) {
+          return values[slot];
+        }
+
+        slot = (slot + 1) & mask;
+      }
+
+      return prefixes.longestPrefix(column, offset, length);
+    }
+  }
+
+  /**
+   * Byte trie node with sparse children.
+   */
+  private static final class TrieNode {
+
+    private byte[] labels = new byte[0];
+
+    private TrieNode[] children = new TrieNode[0];
+
+    /** Field whose column ends on this node */
+    private FieldConfiguration field = null;
+
+    /**
+     * Insert a column prefix.
+     *
+     * @param key column prefix bytes
+     * @param value {@link FieldConfiguration}
+     */
+    private void insert(byte[] key, FieldConfiguration value) {
+
+      TrieNode node = this;
+
+      for (byte b : key) {
+        node = node.childOrCreate(b);
+      }
+
+      // first declared field wins
+      if (node.field == null) {
+        node.field = value;
+      }
+    }
+
+    /**
+     * @param b label
+     *
+     * @return child node, created if missing
+     */
+    private TrieNode childOrCreate(byte b) {
+
+      final TrieNode existing = child(b);
+
+      if (existing != null) {
+        return existing;
+      }
+
+      final TrieNode created = new TrieNode();
+
+      final int size = labels.length;
+
+      final byte[] newLabels = new byte[size + 1];
+      final TrieNode[] newChildren = new TrieNode[size + 1];
+
+      System.arraycopy(labels, 0, newLabels, 0, size);
+      System.arraycopy(children, 0, newChildren, 0, size);
+
+      newLabels[size] = b;
+      newChildren[size] = created;
+
+      labels = newLabels;
+      children = newChildren;
+
+      return created;
+    }
+
+    /**
+     * @param b label
+     *
+     * @return child node or <code>null</code>
+     */
+    private TrieNode child(byte b) {
+
+      for (int i = 0; i < labels.length; i++) {
+        if (labels[i] == b) {
+          return children[i];
+        }
+      }
+
+      return null;
+    }
+
+    /**
+     * Walk the column and keep the deepest field found.
+     *
+     * @param column column backing array
+     * @param offset column offset
+     * @param length column length
+     *
+     * @return {@link FieldConfiguration} or <code>null</code>
+     */
+    private FieldConfiguration longestPrefix(byte[] column, int offset, int length) {
+
+      TrieNode node = this;
+
+      FieldConfiguration found = node.field;
+
+      for (int i = 0; i < length && node != null; i++) {
+
+        node = node.child(column[offset + i]);
+
+        if (node != null && node.field != null) {
+          found = node.field;
+        }
+      }
+
+      return found;
+    }
+  }
+
+}
@@ -20,7 +20,15 @@ package net.sf.gee.hbase.config;
 
 import java.io.Serializable;
 
+import org.apache.hadoop.hbase.util.Bytes;
+
+import net.sf.gee.hbase.basic.Compression;
+import net.sf.gee.hbase.basic.FetchType;
 import net.sf.gee.hbase.basic.HBaseMapper;
+import net.sf.gee.hbase.basic.MapperScope;
+import net.sf.gee.hbase.codec.FieldAccessor;
+import net.sf.gee.hbase.codec.FieldCodec;
+import net.sf.gee.hbase.codec.KeyPrefixCodec;
 
 /**
  * @author Giorgio Desideri - giorgio.desideri@gmail.com
@@ -39,16 +47,65 @@ public class FieldConfiguration implements Serializable {
 
   private String familyName = null;
 
+  /** Family name bytes, precomputed for cell matching */
+  private transient byte[] familyBytes = null;
+
+  /** Column name bytes, precomputed for cell matching */
+  private transient byte[] columnBytes = null;
+
   private boolean insertable = false;
 
   private boolean updatable = true;
 
   private Class<? extends HBaseMapper> mapper = null;
 
+  private MapperScope mapperScope = MapperScope.SINGLETON;
+
+  /** Mapper resolved once for singleton scope */
+  private transient HBaseMapper mapperInstance = null;
+
+  /** Mapper holder for thread scope */
+  private transient ThreadLocal<HBaseMapper> mapperThreadLocal = null;
+
+  private FetchType fetch = FetchType.EAGER;
+
+  private String[] fetchGroups = new String[0];
+
+  private Compression compression = Compression.NONE;
+
+  private int compressionThreshold = 0;
+
+  private boolean indexed = false;
+
+  private boolean counter = false;
+
+  private boolean version = false;
+
+  /** Shard rows of a counter, 0 for none */
+  private int counterShards = 0;
+
+  /** Index of the field in the class fields */
+  private int position = 0;
+
   private String fieldInnerType = null;
 
   private boolean collection = false;
 
+  /** Compiled accessor of the field */
+  private transient FieldAccessor accessor = null;
+
+  /** Codec of the field value */
+  private transient FieldCodec codec = null;
+
+  /** Class of the collection inner type */
+  private transient Class<?> fieldInnerClass = null;
+
+  /** Codec of the collection inner type */
+  private transient FieldCodec innerCodec = null;
+
+  /** Codec of the index row key: field name, ordered value and entity row key. */
+  private transient KeyPrefixCodec<Object[]> indexCodec = null;
+
   /**
    * Instantiates a new field configuration.
    */
@@ -130,6 +187,11 @@ public class FieldConfiguration implements Serializable {
 
   public void setColumnName(String columnName) {
     this.columnName = columnName;
+    this.columnBytes = columnName == null ? null : Bytes.toBytes(columnName);
+  }
+
+  public byte[] getColumnBytes() {
+    return columnBytes;
   }
 
   public String getFamilyName() {
@@ -138,6 +200,11 @@ public class FieldConfiguration implements Serializable {
 
   public void setFamilyName(String familyName) {
     this.familyName = familyName;
+    this.familyBytes = familyName == null ? null : Bytes.toBytes(familyName);
+  }
+
+  public byte[] getFamilyBytes() {
+    return familyBytes;
   }
 
   public boolean isInsertable() {
@@ -164,6 +231,102 @@ public class FieldConfiguration implements Serializable {
     this.mapper = mapper;
   }
 
+  public MapperScope getMapperScope() {
+    return mapperScope;
+  }
+
+  public void setMapperScope(MapperScope mapperScope) {
+    this.mapperScope = mapperScope;
+  }
+
+  public FetchType getFetch() {
+    return fetch;
+  }
+
+  public void setFetch(FetchType fetch) {
+    this.fetch = fetch;
+  }
+
+  public String[] getFetchGroups() {
+    return fetchGroups;
+  }
+
+  public void setFetchGroups(String[] fetchGroups) {
+    this.fetchGroups = fetchGroups;
+  }
+
+  public Compression getCompression() {
+    return compression;
+  }
+
+  public void setCompression(Compression compression) {
+    this.compression = compression;
+  }
+
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+
+  public void setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  public boolean isIndexed() {
+    return indexed;
+  }
+
+  public void setIndexed(boolean indexed) {
+    this.indexed = indexed;
+  }
+
+  public boolean isCounter() {
+    return counter;
+  }
+
+  public void setCounter(boolean counter) {
+    this.counter = counter;
+  }
+
+  public boolean isVersion() {
+    return version;
+  }
+
+  public void setVersion(boolean version) {
+    this.version = version;
+  }
+
+  public int getPosition() {
+    return position;
+  }
+
+  public void setPosition(int position) {
+    this.position = position;
+  }
+
+  public int getCounterShards() {
+    return counterShards;
+  }
+
+  public void setCounterShards(int counterShards) {
+    this.counterShards = counterShards;
+  }
+
+  public HBaseMapper getMapperInstance() {
+    return mapperInstance;
+  }
+
+  public void setMapperInstance(HBaseMapper mapperInstance) {
+    this.mapperInstance = mapperInstance;
+  }
+
+  public ThreadLocal<HBaseMapper> getMapperThreadLocal() {
+    return mapperThreadLocal;
+  }
+
+  public void setMapperThreadLocal(ThreadLocal<HBaseMapper> mapperThreadLocal) {
+    this.mapperThreadLocal = mapperThreadLocal;
+  }
+
   public boolean isCollection() {
     return collection;
   }
@@ -172,4 +335,44 @@ public class FieldConfiguration implements Serializable {
     this.collection = collection;
   }
 
+  public FieldAccessor getAccessor() {
+    return accessor;
+  }
+
+  public void setAccessor(FieldAccessor accessor) {
+    this.accessor = accessor;
+  }
+
+  public FieldCodec getCodec() {
+    return codec;
+  }
+
+  public void setCodec(FieldCodec codec) {
+    this.codec = codec;
+  }
+
+  public KeyPrefixCodec<Object[]> getIndexCodec() {
+    return indexCodec;
+  }
+
+  public void setIndexCodec(KeyPrefixCodec<Object[]> indexCodec) {
+    this.indexCodec = indexCodec;
+  }
+
+  public Class<?> getFieldInnerClass() {
+    return fieldInnerClass;
+  }
+
+  public void setFieldInnerClass(Class<?> fieldInnerClass) {
+    this.fieldInnerClass = fieldInnerClass;
+  }
+
+  public FieldCodec getInnerCodec() {
+    return innerCodec;
+  }
+
+  public void setInnerCodec(FieldCodec innerCodec) {
+    this.innerCodec = innerCodec;
+  }
+
 }
@@ -22,16 +22,36 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
 
+import net.sf.gee.hbase.annotation.Counter;
+import net.sf.gee.hbase.annotation.Embeddable;
 import net.sf.gee.hbase.annotation.HBaseColumn;
 import net.sf.gee.hbase.annotation.RowKey;
 import net.sf.gee.hbase.annotation.Table;
+import net.sf.gee.hbase.annotation.Version;
+import net.sf.gee.hbase.basic.Compression;
+import net.sf.gee.hbase.basic.MapperRegistry;
+import net.sf.gee.hbase.basic.MapperScope;
+import net.sf.gee.hbase.basic.NoneMapper;
+import net.sf.gee.hbase.codec.CompressingCodec;
+import net.sf.gee.hbase.codec.EmbeddedKeyCodec;
+import net.sf.gee.hbase.codec.FieldAccessor;
+import net.sf.gee.hbase.codec.FieldCodec;
+import net.sf.gee.hbase.codec.FieldCodecs;
+import net.sf.gee.hbase.codec.KeyPrefixCodec;
+import net.sf.gee.hbase.codec.RowKeyCodecs;
+import net.sf.gee.hbase.codec.SaltedCodec;
+import net.sf.gee.hbase.codec.TupleCodec;
 import net.sf.gee.hbase.config.xml.Mapping;
 import net.sf.gee.hbase.config.xml.Prop;
 import net.sf.gee.hbase.exception.ConfigurationException;
@@ -55,6 +75,30 @@ public class HBaseConfiguration {
 
   public static final String HB_PASSWORD = "g-hb-password";
 
+  /** Number of shared heavyweight HBase connections held by the factory (default 1). */
+  public static final String HB_CONNECTION_POOL_SIZE = "g-hb-connection-pool-size";
+
+  /** Threads of the async executor, 0 for virtual threads when available (default 0). */
+  public static final String HB_ASYNC_THREADS = "g-hb-async-threads";
+
+  /** Maximum async operations in flight for each async connection (default 512). */
+  public static final String HB_ASYNC_MAX_IN_FLIGHT = "g-hb-async-max-in-flight";
+
+  /** Prefix of the properties overriding the scope of a mapper class, followed by its name. */
+  public static final String HB_MAPPER_SCOPE_PREFIX = "g-hb-mapper-scope.";
+
+  /** Prefix of the properties overriding the cache size of a class, followed by its name. */
+  public static final String HB_CACHE_SIZE_PREFIX = "g-hb-cache-size.";
+
+  /** Prefix of the properties overriding the cache time to live of a class, in milliseconds. */
+  public static final String HB_CACHE_TTL_PREFIX = "g-hb-cache-ttl.";
+
+  /** Prefix of the properties overriding the dirty tracking of a class, followed by its name. */
+  public static final String HB_DIRTY_TRACKING_PREFIX = "g-hb-dirty-tracking.";
+
+  /** Window in milliseconds of coalesced counter increments, 0 to write each one (default 100). */
+  public static final String HB_COUNTER_WINDOW = "g-hb-counter-window";
+
   private static final SimpleGLogger LOGGER =
       GLogFactory.getInstance().getLogger(SimpleGLogger.class, HBaseConfiguration.class);
 
@@ -130,6 +174,16 @@ public class HBaseConfiguration {
         throw new IOException("Unmarshalling phase return NULL object");
       }
 
+      // properties, read first as they tune the class inspection
+      if (mapping.getProperties() != null) {
+
+        // iterate
+        for (Prop current : mapping.getProperties().getProp()) {
+          // put in map
+          properties.put(current.getName().trim(), current.getValue().trim());
+        }
+      }
+
       // inspect declared classes
       for (String current : mapping.getClazz()) {
 
@@ -147,16 +201,6 @@ public class HBaseConfiguration {
         connectionData.put(HB_PASSWORD, mapping.getHost().getPassword());
       }
 
-      // properties
-      if (mapping.getProperties() != null) {
-
-        // iterate
-        for (Prop current : mapping.getProperties().getProp()) {
-          // put in map
-          properties.put(current.getName().trim(), current.getValue().trim());
-        }
-      }
-
       return this;
 
     }
@@ -210,9 +254,24 @@ public class HBaseConfiguration {
       final ClassConfiguration classConfig =
           new ClassConfiguration(tableAnnotation.table(), tableAnnotation.namespace());
 
+      // client cache, the mapping file wins on the annotation
+      classConfig.setCacheSize(
+          getIntProperty(HB_CACHE_SIZE_PREFIX + fullClassName, tableAnnotation.cacheSize()));
+      classConfig.setCacheTtl(
+          getLongProperty(HB_CACHE_TTL_PREFIX + fullClassName, tableAnnotation.cacheTtl()));
+      LOGGER.logTrace("Cache size [%s] ttl [%s]", classConfig.getCacheSize(),
+          classConfig.getCacheTtl());
+
+      // partial updates
+      classConfig.setDirtyTracking(getBooleanProperty(HB_DIRTY_TRACKING_PREFIX + fullClassName,
+          tableAnnotation.dirtyTracking()));
+
       // fields
       Field[] fields = clazz.getDeclaredFields();
 
+      // row key fields, composite when many
+      final List<Field> rowKeyFields = new ArrayList<>(1);
+
       // iterate
       for (Field current : fields) {
 
@@ -223,16 +282,7 @@ public class HBaseConfiguration {
         // check row key annotation
         if (rowKeyAnnotation != null) {
 
-          final FieldConfiguration fc = new FieldConfiguration();
-
-          // set name
-          fc.setFieldName(current.getName());
-
-          // set type
-          fc.setFieldType(current.getType());
-
-          // set row key
-          classConfig.setRowKeyField(fc);
+          rowKeyFields.add(current);
 
         } // check column annotation
         else if (columnAnnotation != null) {
@@ -244,9 +294,31 @@ public class HBaseConfiguration {
 
           // add to class configuration
           classConfig.addFieldConfiguration(fc);
+
+          // version
+          if (fc.isVersion()) {
+
+            // check
+            if (classConfig.getVersionField() != null) {
+              throw ConfigurationException.build(GHBaseCode.PARSING_CLASS_ERROR,
+                  "Class " + fullClassName + " has more than one version field");
+            }
+
+            classConfig.setVersionField(fc);
+          }
         }
       }
 
+      // set row key
+      if (!rowKeyFields.isEmpty()) {
+        classConfig.setRowKeyField(inspectRowKey(classConfig, rowKeyFields));
+      }
+
+      // compile constructor and column dispatch
+      classConfig.compileInstantiator(clazz);
+      classConfig.compileDispatcher();
+      classConfig.compileProjection();
+
       // add to map
       classes.put(fullClassName, classConfig);
 
@@ -261,6 +333,127 @@ public class HBaseConfiguration {
     }
   }
 
+  /**
+   * Build the row key configuration, composite when declared on many fields.
+   * 
+   * @param classConfig {@link ClassConfiguration} receiving the salt
+   * @param fields row key {@linkplain java.lang.reflection.Field} list
+   * 
+   * @return {@link FieldConfiguration} of the row key
+   * 
+   * @throws {@link ConfigurationException}
+   * @throws IllegalAccessException
+   */
+  private FieldConfiguration inspectRowKey(ClassConfiguration classConfig, List<Field> fields)
+      throws ConfigurationException, IllegalAccessException {
+
+    // by order
+    fields.sort(Comparator.comparingInt(f -> f.getDeclaredAnnotation(RowKey.class).order()));
+
+    final FieldConfiguration fc = new FieldConfiguration();
+
+    int salt = 0;
+
+    // single
+    if (fields.size() == 1) {
+
+      final Field current = fields.get(0);
+
+      // set name and type
+      fc.setFieldName(current.getName());
+      fc.setFieldType(current.getType());
+
+      // compile accessor and ordered codec
+      fc.setAccessor(FieldAccessor.of(current));
+      fc.setCodec(rowKeyCodec(current, current.getDeclaredAnnotation(RowKey.class)));
+
+      salt = current.getDeclaredAnnotation(RowKey.class).salt();
+    } // composite
+    else {
+
+      final FieldAccessor[] accessors = new FieldAccessor[fields.size()];
+      final FieldCodec<?>[] codecs = new FieldCodec<?>[fields.size()];
+      final int[] lengths = new int[fields.size()];
+      final String[] names = new String[fields.size()];
+
+      for (int i = 0; i < fields.size(); i++) {
+
+        final Field current = fields.get(i);
+        final RowKey annotation = current.getDeclaredAnnotation(RowKey.class);
+
+        names[i] = current.getName();
+        accessors[i] = FieldAccessor.of(current);
+        codecs[i] = rowKeyCodec(current, annotation);
+
+        // declared codecs have variable length
+        lengths[i] = FieldCodec.class.equals(annotation.codec())
+            ? RowKeyCodecs.fixedLength(current.getType()) : -1;
+
+        salt = Math.max(salt, annotation.salt());
+      }
+
+      // set name and type: array of components
+      fc.setFieldName(String.join(",", names));
+      fc.setFieldType(Object[].class);
+
+      // compile accessor and tuple codec
+      fc.setAccessor(FieldAccessor.composite(accessors));
+      fc.setCodec(new TupleCodec(codecs, lengths));
+    }
+
+    // salt
+    if (salt > 0) {
+      try {
+        final FieldCodec<?> codec = fc.getCodec();
+
+        fc.setCodec(new SaltedCodec<>(codec, salt));
+      }
+      catch (IllegalArgumentException e) {
+        throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+            "Row key " + fc.getFieldName() + ": " + e.getMessage(), e);
+      }
+    }
+
+    classConfig.setSaltBuckets(salt);
+
+    LOGGER.logTrace("Row key [%s] codec [%s] salt buckets [%s]", fc.getFieldName(),
+        fc.getCodec().getClass().getName(), salt);
+
+    return fc;
+  }
+
+  /**
+   * Resolve the unsalted codec of a row key field.
+   * 
+   * @param current {@linkplain java.lang.reflection.Field} row key field
+   * @param annotation {@link RowKey} annotation
+   * 
+   * @return {@link FieldCodec}
+   * 
+   * @throws {@link ConfigurationException}
+   */
+  private FieldCodec<?> rowKeyCodec(Field current, RowKey annotation)
+      throws ConfigurationException {
+
+    try {
+      // declared on the row key
+      if (!FieldCodec.class.equals(annotation.codec())) {
+        return FieldCodecs.create(annotation.codec(), current.getType());
+      }
+
+      // row key class
+      if (current.getType().isAnnotationPresent(Embeddable.class)) {
+        return new EmbeddedKeyCodec<>(current.getType());
+      }
+
+      return RowKeyCodecs.forType(current.getType());
+    }
+    catch (ReflectiveOperationException | IllegalArgumentException e) {
+      throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+          "Field " + current.getName() + ": " + e.getMessage(), e);
+    }
+  }
+
   /**
    * Parse single field of inspectedd class.
    * 
@@ -304,6 +497,37 @@ public class HBaseConfiguration {
     fc.setMapper(annotation.mapper());
     LOGGER.logTrace("Mapper Class [%s]", fc.getMapper().getName());
 
+    // mapper scope, the mapping file wins on the annotation
+    fc.setMapperScope(MapperScope.valueOf(getProperty(
+        HB_MAPPER_SCOPE_PREFIX + fc.getMapper().getName(), annotation.mapperScope().name())));
+    LOGGER.logTrace("Mapper Scope [%s]", fc.getMapperScope());
+
+    // resolve mapper once
+    if (!NoneMapper.class.equals(fc.getMapper())) {
+
+      // singleton
+      if (fc.getMapperScope() == MapperScope.SINGLETON) {
+        fc.setMapperInstance(MapperRegistry.getInstance().getSingleton(fc.getMapper()));
+
+      } // thread
+      else if (fc.getMapperScope() == MapperScope.THREAD_LOCAL) {
+        fc.setMapperThreadLocal(MapperRegistry.getInstance().getThreadLocal(fc.getMapper()));
+      }
+    }
+
+    // fetch
+    fc.setFetch(annotation.fetch());
+    fc.setFetchGroups(annotation.fetchGroups());
+    LOGGER.logTrace("Fetch [%s] groups %s", fc.getFetch(), Arrays.toString(fc.getFetchGroups()));
+
+    // compile accessor
+    try {
+      fc.setAccessor(FieldAccessor.of(current));
+    }
+    catch (IllegalAccessException e) {
+      throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR, e.getMessage(), e);
+    }
+
     // check if field is a collection
     if (Collection.class.isAssignableFrom(current.getType())) {
 
@@ -318,12 +542,197 @@ public class HBaseConfiguration {
 
       // inner type
       fc.setFieldInnerType(collectionTypeClass.getName());
+      fc.setFieldInnerClass(collectionTypeClass);
       LOGGER.logTrace("Inner type [%s]", fc.getFieldInnerType());
     }
 
+    // codec, mappers convert values by themselves
+    if (NoneMapper.class.equals(fc.getMapper())) {
+
+      try {
+        // declared on the column
+        if (!FieldCodec.class.equals(annotation.codec())) {
+
+          final Class<?> valueType =
+              fc.isCollection() ? fc.getFieldInnerClass() : current.getType();
+
+          final FieldCodec<?> codec = FieldCodecs.create(annotation.codec(), valueType);
+
+          if (fc.isCollection()) {
+            fc.setInnerCodec(codec);
+          }
+          else {
+            fc.setCodec(codec);
+          }
+        } // by type
+        else if (fc.isCollection()) {
+          fc.setInnerCodec(FieldCodecs.forType(fc.getFieldInnerClass()));
+        }
+        else {
+          fc.setCodec(FieldCodecs.forType(current.getType(), current.getGenericType()));
+        }
+      }
+      catch (ReflectiveOperationException | IllegalArgumentException e) {
+        throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+            "Field " + current.getName() + ": " + e.getMessage(), e);
+      }
+
+      // compression
+      fc.setCompression(annotation.compression());
+      fc.setCompressionThreshold(annotation.compressionThreshold());
+
+      if (fc.getCompression() != Compression.NONE) {
+
+        // elements are qualifiers, matched by prefix
+        if (fc.isCollection()) {
+          throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+              "Field " + current.getName() + ": collection elements cannot be compressed");
+        }
+
+        final FieldCodec<?> codec = fc.getCodec();
+
+        fc.setCodec(
+            new CompressingCodec<>(codec, fc.getCompression(), fc.getCompressionThreshold()));
+
+        LOGGER.logTrace("Compression [%s] threshold [%s]", fc.getCompression(),
+            fc.getCompressionThreshold());
+      }
+
+      LOGGER.logTrace("Codec [%s]",
+          (fc.isCollection() ? fc.getInnerCodec() : fc.getCodec()).getClass().getName());
+    }
+
+    // counter
+    final Counter counter = current.getDeclaredAnnotation(Counter.class);
+
+    if (counter != null) {
+      inspectCounter(current, fc, counter);
+    }
+
+    // version
+    if (current.isAnnotationPresent(Version.class)) {
+      inspectVersion(current, fc);
+    }
+
+    // secondary index
+    if (annotation.indexed()) {
+
+      // check
+      if (fc.isCounter() || fc.isVersion()) {
+        throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+            "Field " + current.getName() + ": counters and versions cannot be indexed");
+      }
+
+      fc.setIndexCodec(indexCodec(current, fc));
+      fc.setIndexed(true);
+      LOGGER.logTrace("Indexed [%s]", fc.isIndexed());
+    }
+
     return fc;
   }
 
+  /**
+   * Configure a counter column: 8 bytes big endian values, as the region server increments them,
+   * never written by update.
+   * 
+   * @param current {@linkplain java.lang.reflection.Field} counter field
+   * @param fc {@link FieldConfiguration} of the field
+   * @param counter {@link Counter} annotation
+   * 
+   * @throws {@link ConfigurationException}
+   */
+  private void inspectCounter(Field current, FieldConfiguration fc, Counter counter)
+      throws ConfigurationException {
+
+    // check
+    if (!Long.class.equals(current.getType()) && !long.class.equals(current.getType())) {
+      throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+          "Field " + current.getName() + ": counters must be long");
+    }
+
+    if (fc.getCodec() != FieldCodecs.LONG) {
+      throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+          "Field " + current.getName() + ": counters take no mapper, codec or compression");
+    }
+
+    if (counter.shards() < 0 || counter.shards() > SaltedCodec.MAX_BUCKETS) {
+      throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR, "Field "
+          + current.getName() + ": counter shards must be in [0, " + SaltedCodec.MAX_BUCKETS + "]");
+    }
+
+    fc.setCounter(true);
+    fc.setCounterShards(counter.shards());
+
+    // increments only
+    fc.setUpdatable(false);
+
+    LOGGER.logTrace("Counter shards [%s]", fc.getCounterShards());
+  }
+
+  /**
+   * Configure the version column: 8 bytes big endian values, compared by the region server before
+   * an update. Only boxed, as a primitive would load a row without version as 0, never matching
+   * the missing column.
+   * 
+   * @param current {@linkplain java.lang.reflection.Field} version field
+   * @param fc {@link FieldConfiguration} of the field
+   * 
+   * @throws {@link ConfigurationException}
+   */
+  private void inspectVersion(Field current, FieldConfiguration fc) throws ConfigurationException {
+
+    // check, a row without version column loads as null and is checked as missing
+    if (!Long.class.equals(current.getType())) {
+      throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+          "Field " + current.getName() + ": versions must be java.lang.Long");
+    }
+
+    if (fc.getCodec() != FieldCodecs.LONG || fc.isCounter()) {
+      throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR, "Field "
+          + current.getName() + ": versions take no mapper, codec, compression or counter");
+    }
+
+    fc.setVersion(true);
+
+    // written by every update changing the row
+    fc.setInsertable(true);
+    fc.setUpdatable(true);
+
+    LOGGER.logTrace("Version [%s]", fc.isVersion());
+  }
+
+  /**
+   * Build the index row key codec of a column: field name, value with its ordered row key
+   * encoding, entity row key. Values of a field sort together and in order.
+   * 
+   * @param current {@linkplain java.lang.reflection.Field} indexed field
+   * @param fc {@link FieldConfiguration} of the field
+   * 
+   * @return {@link KeyPrefixCodec} of the index row key
+   * 
+   * @throws {@link ConfigurationException}
+   */
+  private KeyPrefixCodec<Object[]> indexCodec(Field current, FieldConfiguration fc)
+      throws ConfigurationException {
+
+    // check
+    if (fc.isCollection() || !NoneMapper.class.equals(fc.getMapper())) {
+      throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+          "Field " + current.getName() + ": only scalar columns without mapper can be indexed");
+    }
+
+    try {
+      return new TupleCodec(
+          new FieldCodec<?>[] {FieldCodecs.STRING, RowKeyCodecs.forType(current.getType()),
+              FieldCodecs.BYTES},
+          new int[] {-1, RowKeyCodecs.fixedLength(current.getType()), -1});
+    }
+    catch (IllegalArgumentException e) {
+      throw ConfigurationException.build(GHBaseCode.PARSING_FIELD_ERROR,
+          "Field " + current.getName() + ": " + e.getMessage(), e);
+    }
+  }
+
   /**
    * Get specific class configuration.
    * 
@@ -335,6 +744,26 @@ public class HBaseConfiguration {
     return classes.get(className);
   }
 
+  /**
+   * Get specific class configuration, inspecting the class on first request when the mapping file
+   * does not declare it. Not thread-safe: callers serialize the first inspection.
+   * 
+   * @param className full class name
+   * 
+   * @return {@link ClassConfiguration}, <code>null</code> when the class has no table annotation
+   * 
+   * @throws {@link ConfigurationException}
+   */
+  public ClassConfiguration inspect(String className) throws ConfigurationException {
+
+    // check
+    if (!classes.containsKey(className)) {
+      inspectClass(className);
+    }
+
+    return classes.get(className);
+  }
+
   /**
    * Get connection data
    * 
@@ -360,4 +789,94 @@ public class HBaseConfiguration {
     return p;
   }
 
+  /**
+   * Return a single property.
+   * 
+   * @param name property name
+   * @param defaultValue value returned when the property is not declared
+   * 
+   * @return {@linkplain java.lang.String} property value
+   */
+  public String getProperty(String name, String defaultValue) {
+
+    final String value = properties.get(name);
+
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Return a single integer property.
+   * 
+   * @param name property name
+   * @param defaultValue value returned when the property is not declared or is not a number
+   * 
+   * @return int property value
+   */
+  public int getIntProperty(String name, int defaultValue) {
+
+    final String value = properties.get(name);
+
+    // not declared
+    if (value == null) {
+      return defaultValue;
+    }
+
+    try {
+      return Integer.parseInt(value);
+    }
+    catch (NumberFormatException e) {
+      LOGGER.logError(String.format("Property [%s] is not a number: [%s]", name, value), e);
+
+      return defaultValue;
+    }
+  }
+
+
+  /**
+   * Return a single long property.
+   * 
+   * @param name property name
+   * @param defaultValue value returned when the property is not declared or is not a number
+   * 
+   * @return long property value
+   */
+  public long getLongProperty(String name, long defaultValue) {
+
+    final String value = properties.get(name);
+
+    // not declared
+    if (value == null) {
+      return defaultValue;
+    }
+
+    try {
+      return Long.parseLong(value);
+    }
+    catch (NumberFormatException e) {
+      LOGGER.logError(String.format("Property [%s] is not a number: [%s]", name, value), e);
+
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Return a single boolean property.
+   * 
+   * @param name property name
+   * @param defaultValue value returned when the property is not declared
+   * 
+   * @return boolean property value
+   */
+  public boolean getBooleanProperty(String name, boolean defaultValue) {
+
+    final String value = properties.get(name);
+
+    // not declared
+    if (value == null) {
+      return defaultValue;
+    }
+
+    return Boolean.parseBoolean(value.trim());
+  }
+
 }
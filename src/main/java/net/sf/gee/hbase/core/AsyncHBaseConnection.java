@@ -0,0 +1,349 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import net.sf.gee.hbase.filters.HBaseColumnParam;
+import net.sf.gee.hbase.filters.HBaseParams;
+import net.sf.gee.hbase.filters.Page;
+import net.sf.gee.hbase.filters.PageRequest;
+
+/**
+ * Non blocking facade of {@link HBaseConnection}: each operation runs on the factory executor
+ * (virtual threads when the runtime has them) and completes a
+ * {@linkplain java.util.concurrent.CompletableFuture}. Operations over the in-flight limit wait in
+ * a queue without holding any thread.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class AsyncHBaseConnection implements Closeable {
+
+  private final HBaseConnection connection;
+
+  private final Executor executor;
+
+  /** In-flight operations permits */
+  private final Semaphore permits;
+
+  /** Operations waiting for a permit */
+  private final ConcurrentLinkedQueue<AsyncCall<?>> waiting = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Create new async connection.
+   *
+   * @param connection {@link HBaseConnection} running the operations
+   * @param executor {@linkplain java.util.concurrent.Executor} of operations
+   * @param maxInFlight maximum number of operations running at the same time
+   */
+  public AsyncHBaseConnection(HBaseConnection connection, Executor executor, int maxInFlight) {
+    super();
+
+    this.connection = connection;
+    this.executor = executor;
+    this.permits = new Semaphore(Math.max(1, maxInFlight));
+  }
+
+  /**
+   * Close the underlying connection handle.
+   *
+   * @throws IOException
+   */
+  @Override
+  public void close() throws IOException {
+    connection.close();
+  }
+
+  /**
+   * @return the blocking {@link HBaseConnection}
+   */
+  public HBaseConnection getConnection() {
+    return connection;
+  }
+
+  /**
+   * Load by row key.
+   *
+   * @see HBaseConnection#load(Class, Object, HBaseColumnParam...)
+   */
+  public <T extends Serializable> CompletableFuture<T> load(Class<T> clazz, Object rowKey,
+      HBaseColumnParam... columns) {
+    return submit(() -> connection.load(clazz, rowKey, columns));
+  }
+
+  /**
+   * Load by row key.
+   *
+   * @see HBaseConnection#load(Class, Object, List)
+   */
+  public <T extends Serializable> CompletableFuture<T> load(Class<T> clazz, Object rowKey,
+      List<HBaseColumnParam> columns) {
+    return submit(() -> connection.load(clazz, rowKey, columns));
+  }
+
+  /**
+   * Load many row keys with a single batched get.
+   *
+   * @see HBaseConnection#loadAll(Class, Collection, List)
+   */
+  public <K, T extends Serializable> CompletableFuture<Map<K, T>> loadAll(Class<T> clazz,
+      Collection<K> rowKeys, HBaseColumnParam... columns) {
+    return submit(() -> connection.loadAll(clazz, rowKeys, columns));
+  }
+
+  /**
+   * Load many row keys with a single batched get.
+   *
+   * @see HBaseConnection#loadAll(Class, Collection, List)
+   */
+  public <K, T extends Serializable> CompletableFuture<Map<K, T>> loadAll(Class<T> clazz,
+      Collection<K> rowKeys, List<HBaseColumnParam> columns) {
+    return submit(() -> connection.loadAll(clazz, rowKeys, columns));
+  }
+
+  /**
+   * Atomically increment a counter field.
+   *
+   * @see HBaseConnection#increment(Class, Object, String, long)
+   */
+  public CompletableFuture<Long> increment(Class<?> clazz, Object rowKey, String fieldName,
+      long delta) {
+    return submit(() -> connection.increment(clazz, rowKey, fieldName, delta));
+  }
+
+  /**
+   * Atomically increment many counter fields of a row.
+   *
+   * @see HBaseConnection#increment(Class, Object, Map)
+   */
+  public CompletableFuture<Map<String, Long>> increment(Class<?> clazz, Object rowKey,
+      Map<String, Long> deltas) {
+    return submit(() -> connection.increment(clazz, rowKey, deltas));
+  }
+
+  /**
+   * Read the value of a counter field.
+   *
+   * @see HBaseConnection#getCounter(Class, Object, String)
+   */
+  public CompletableFuture<Long> getCounter(Class<?> clazz, Object rowKey, String fieldName) {
+    return submit(() -> connection.getCounter(clazz, rowKey, fieldName));
+  }
+
+  /**
+   * Find entities by the value of an indexed field.
+   *
+   * @see HBaseConnection#findBy(Class, String, Object)
+   */
+  public <T extends Serializable> CompletableFuture<List<T>> findBy(Class<T> clazz,
+      String fieldName, Object value) {
+    return submit(() -> connection.findBy(clazz, fieldName, value));
+  }
+
+  /**
+   * Find entities by a range of values of an indexed field.
+   *
+   * @see HBaseConnection#findRange(Class, String, Object, Object)
+   */
+  public <T extends Serializable> CompletableFuture<List<T>> findRange(Class<T> clazz,
+      String fieldName, Object from, Object to) {
+    return submit(() -> connection.findRange(clazz, fieldName, from, to));
+  }
+
+  /**
+   * Save HBase Entity.
+   *
+   * @see HBaseConnection#save(Serializable)
+   */
+  public <T extends Serializable> CompletableFuture<Void> save(T hBaseEntity) {
+    return submit(() -> {
+      connection.save(hBaseEntity);
+      return null;
+    });
+  }
+
+  /**
+   * Update HBase Entity.
+   *
+   * @see HBaseConnection#update(Serializable)
+   */
+  public <T extends Serializable> CompletableFuture<Void> update(T hBaseEntity) {
+    return submit(() -> {
+      connection.update(hBaseEntity);
+      return null;
+    });
+  }
+
+  /**
+   * Load, change and update a versioned entity, again on version conflicts.
+   *
+   * @see HBaseConnection#updateWithRetry(Class, Object, Consumer, int)
+   */
+  public <T extends Serializable> CompletableFuture<T> updateWithRetry(Class<T> clazz,
+      Object rowKey, Consumer<T> change, int maxAttempts) {
+    return submit(() -> connection.updateWithRetry(clazz, rowKey, change, maxAttempts));
+  }
+
+  /**
+   * Delete entire row.
+   *
+   * @see HBaseConnection#delete(Class, Object)
+   */
+  public <K extends Serializable> CompletableFuture<Void> delete(Class<K> clazz, Object rowKey) {
+    return submit(() -> {
+      connection.delete(clazz, rowKey);
+      return null;
+    });
+  }
+
+  /**
+   * Delete entire column family values.
+   *
+   * @see HBaseConnection#deleteFamily(Class, Object, String)
+   */
+  public <K extends Serializable> CompletableFuture<Void> deleteFamily(Class<K> clazz,
+      Object rowKey, String family) {
+    return submit(() -> {
+      connection.deleteFamily(clazz, rowKey, family);
+      return null;
+    });
+  }
+
+  /**
+   * Get rows by filters.
+   *
+   * @see HBaseConnection#scan(Class, HBaseParams)
+   */
+  public <T extends Serializable> CompletableFuture<List<T>> scan(Class<T> hBaseEntityClass,
+      HBaseParams params) {
+    return submit(() -> connection.scan(hBaseEntityClass, params));
+  }
+
+  /**
+   * Get a page of rows by filters.
+   *
+   * @see HBaseConnection#scanPage(Class, HBaseParams, PageRequest)
+   */
+  public <T extends Serializable> CompletableFuture<Page<T>> scanPage(Class<T> hBaseEntityClass,
+      HBaseParams params, PageRequest request) {
+    return submit(() -> connection.scanPage(hBaseEntityClass, params, request));
+  }
+
+  /**
+   * Queue the operation and dispatch it when a permit is free.
+   *
+   * @param call operation
+   *
+   * @return {@linkplain java.util.concurrent.CompletableFuture}
+   */
+  private <R> CompletableFuture<R> submit(IOCall<R> call) {
+
+    final AsyncCall<R> asyncCall = new AsyncCall<>(call);
+
+    waiting.add(asyncCall);
+
+    drain();
+
+    return asyncCall.future;
+  }
+
+  /**
+   * Dispatch waiting operations while permits are free. A finishing operation releases its
+   * permit before draining, so a queued operation is never left behind.
+   */
+  private void drain() {
+
+    while (!waiting.isEmpty() && permits.tryAcquire()) {
+
+      final AsyncCall<?> next = waiting.poll();
+
+      // taken by another thread
+      if (next == null) {
+        permits.release();
+        continue;
+      }
+
+      try {
+        executor.execute(() -> {
+          try {
+            next.run();
+          }
+          finally {
+            permits.release();
+            drain();
+          }
+        });
+      }
+      catch (RejectedExecutionException e) {
+        permits.release();
+
+        next.future.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * Blocking operation throwing {@linkplain java.io.IOException}.
+   */
+  @FunctionalInterface
+  private interface IOCall<R> {
+
+    R call() throws IOException;
+  }
+
+  /**
+   * Operation bound to its future.
+   */
+  private static final class AsyncCall<R> implements Runnable {
+
+    private final IOCall<R> call;
+
+    private final CompletableFuture<R> future = new CompletableFuture<>();
+
+    /**
+     * @param call operation
+     */
+    private AsyncCall(IOCall<R> call) {
+      super();
+
+      this.call = call;
+    }
+
+    @Override
+    public void run() {
+      try {
+        future.complete(call.call());
+      }
+      catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
+}
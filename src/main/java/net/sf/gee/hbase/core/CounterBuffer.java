@@ -0,0 +1,290 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import net.sf.gee.logger.factory.GLogFactory;
+import net.sf.gee.logger.log.SimpleGLogger;
+
+/**
+ * Client buffer of counter increments: deltas of the same cell are summed for a time window, then
+ * every row is written with a single increment. Hot counters cost one round trip by window
+ * instead of one by call. With a window, the deltas of a failed increment are merged back and
+ * written by the next flush; without window each delta is written at once, never queued, and its
+ * caller gets the failure, as for a direct increment.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class CounterBuffer implements Closeable {
+
+  private static final SimpleGLogger LOGGER =
+      GLogFactory.getInstance().getLogger(SimpleGLogger.class, CounterBuffer.class);
+
+  /** Pending deltas by row, then by field name */
+  private final ConcurrentHashMap<PendingRow, Map<String, Long>> pending =
+      new ConcurrentHashMap<>();
+
+  /** Handle of each flush */
+  private final Supplier<HBaseConnection> lease;
+
+  /** <code>true</code> to close the handle after each flush */
+  private final boolean release;
+
+  /** Periodic flush, <code>null</code> without window */
+  private final ScheduledExecutorService flusher;
+
+  /**
+   * Create new counter buffer.
+   *
+   * @param window coalescing window in milliseconds, not positive to write each increment at once
+   * @param lease supplier of the {@link HBaseConnection} of each flush
+   * @param release <code>true</code> to close the handle after each flush
+   */
+  public CounterBuffer(long window, Supplier<HBaseConnection> lease, boolean release) {
+    super();
+
+    this.lease = lease;
+    this.release = release;
+
+    // check
+    if (window > 0) {
+      this.flusher = Executors
+          .newSingleThreadScheduledExecutor(HBaseConnectionFactory.daemonThreads("g-hb-counters-"));
+
+      flusher.scheduleWithFixedDelay(this::flushQuietly, window, window, TimeUnit.MILLISECONDS);
+    }
+    else {
+      this.flusher = null;
+    }
+  }
+
+  /**
+   * Add a delta to a counter.
+   *
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param row encoded row key
+   * @param fieldName counter field name
+   * @param delta increment
+   *
+   * @throws IOException when written at once and failed
+   */
+  public void add(Class<?> clazz, byte[] row, String fieldName, long delta) throws IOException {
+
+    // no window, only the delta of the caller
+    if (flusher == null) {
+      write(clazz, row, Collections.singletonMap(fieldName, delta));
+
+      return;
+    }
+
+    // atomic on the row: a flush takes the whole map
+    pending.compute(new PendingRow(clazz, row), (key, deltas) -> {
+
+      final Map<String, Long> current = deltas == null ? new HashMap<>(2) : deltas;
+
+      current.merge(fieldName, delta, Long::sum);
+
+      return current;
+    });
+  }
+
+  /**
+   * Write the deltas of a row at once.
+   *
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param row encoded row key
+   * @param deltas deltas by field name
+   *
+   * @throws IOException
+   */
+  private void write(Class<?> clazz, byte[] row, Map<String, Long> deltas) throws IOException {
+
+    final HBaseConnection connection = lease.get();
+
+    // check
+    if (connection == null) {
+      throw new IOException("No connection to write counter increments");
+    }
+
+    try {
+      connection.increment(clazz, row, deltas);
+    }
+    finally {
+      if (release) {
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * @return number of rows with pending increments
+   */
+  public int getPendingRows() {
+    return pending.size();
+  }
+
+  /**
+   * Write the pending increments, one for each row.
+   *
+   * @throws IOException the first failure, other rows are still written
+   */
+  public void flush() throws IOException {
+
+    // check
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    final HBaseConnection connection = lease.get();
+
+    // check
+    if (connection == null) {
+      throw new IOException("No connection to write counter increments");
+    }
+
+    IOException failure = null;
+
+    try {
+      for (PendingRow key : pending.keySet()) {
+
+        final Map<String, Long> deltas = pending.remove(key);
+
+        // flushed by another thread
+        if (deltas == null) {
+          continue;
+        }
+
+        try {
+          connection.increment(key.clazz, key.row.array(), deltas);
+        }
+        catch (IOException e) {
+          LOGGER.logError(e.getMessage(), e);
+
+          // retried by the next flush
+          restore(key, deltas);
+
+          failure = failure == null ? e : failure;
+        }
+      }
+    }
+    finally {
+      if (release) {
+        connection.close();
+      }
+    }
+
+    // check
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Merge the deltas of a failed increment back with the ones added since.
+   *
+   * @param key {@link PendingRow}
+   * @param deltas deltas by field name
+   */
+  private void restore(PendingRow key, Map<String, Long> deltas) {
+
+    pending.merge(key, deltas, (current, failed) -> {
+
+      failed.forEach((fieldName, delta) -> current.merge(fieldName, delta, Long::sum));
+
+      return current;
+    });
+  }
+
+  /**
+   * Periodic flush, failed increments are kept for the next one.
+   */
+  private void flushQuietly() {
+    try {
+      flush();
+    }
+    catch (IOException | RuntimeException e) {
+      LOGGER.logError(String.format("Counter flush failed, [%s] rows pending: %s",
+          pending.size(), e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Stop the periodic flush and write the pending increments.
+   *
+   * @throws IOException
+   */
+  @Override
+  public void close() throws IOException {
+
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+
+    flush();
+  }
+
+  /**
+   * Row of pending increments.
+   */
+  private static final class PendingRow {
+
+    private final Class<?> clazz;
+
+    private final ByteBuffer row;
+
+    /**
+     * @param clazz {@linkplain java.lang.Class} of entity
+     * @param row encoded row key
+     */
+    PendingRow(Class<?> clazz, byte[] row) {
+      this.clazz = clazz;
+      this.row = ByteBuffer.wrap(row);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(clazz, row);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+      // check
+      if (!(obj instanceof PendingRow)) {
+        return false;
+      }
+
+      final PendingRow other = (PendingRow) obj;
+
+      return clazz.equals(other.clazz) && row.equals(other.row);
+    }
+  }
+
+}
@@ -0,0 +1,279 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.core;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import net.sf.gee.hbase.filters.HBaseColumnParam;
+
+/**
+ * Client cache of the rows of an entity class, with least recently used eviction and optional
+ * time to live. Raw {@linkplain org.apache.hadoop.hbase.client.Result} are kept, one for each
+ * projection read, and decoded on each hit, so callers never share entity instances. Writes
+ * through the library invalidate the whole row and bump its generation: a read started before the
+ * write is not cached.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class EntityCache {
+
+  /** Invalidation generations, rows share them by hash */
+  private static final int GENERATION_STRIPES = 256;
+
+  private final int maxSize;
+
+  private final long ttl;
+
+  /** Rows in access order, each with its projections */
+  private final LinkedHashMap<ByteBuffer, Map<String, CachedRow>> rows;
+
+  /** Invalidations of the rows of each stripe */
+  private final long[] generations = new long[GENERATION_STRIPES];
+
+  private final AtomicLong hits = new AtomicLong(0);
+
+  private final AtomicLong misses = new AtomicLong(0);
+
+  private final AtomicLong evictions = new AtomicLong(0);
+
+  /**
+   * Create new entity cache.
+   *
+   * @param maxSize maximum rows kept
+   * @param ttl time to live in milliseconds, not positive for no expiration
+   */
+  public EntityCache(int maxSize, long ttl) {
+    super();
+
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+    this.rows = new LinkedHashMap<ByteBuffer, Map<String, CachedRow>>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<ByteBuffer, Map<String, CachedRow>> eldest) {
+
+        // check
+        if (size() > EntityCache.this.maxSize) {
+          evictions.incrementAndGet();
+
+          return true;
+        }
+
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Key of a projection.
+   *
+   * @param columns {@linkplain java.util.List} of {@link HBaseColumnParam}, empty for the whole
+   *        row
+   *
+   * @return projection key
+   */
+  public static String projectionKey(List<HBaseColumnParam> columns) {
+
+    // whole row
+    if (columns == null || columns.isEmpty()) {
+      return "";
+    }
+
+    final StringBuilder key = new StringBuilder();
+
+    for (HBaseColumnParam current : columns) {
+      key.append(current.getFamilyName()).append(':')
+          .append(current.getColumnName() == null ? "" : current.getColumnName()).append(',');
+    }
+
+    return key.toString();
+  }
+
+  /**
+   * Get a cached row.
+   *
+   * @param row row key
+   * @param projection projection key
+   *
+   * @return {@linkplain org.apache.hadoop.hbase.client.Result} or <code>null</code>
+   */
+  public synchronized Result get(byte[] row, String projection) {
+
+    final Map<String, CachedRow> projections = rows.get(ByteBuffer.wrap(row));
+
+    final CachedRow entry = projections == null ? null : projections.get(projection);
+
+    // check
+    if (entry == null) {
+      misses.incrementAndGet();
+
+      return null;
+    }
+
+    // expired
+    if (ttl > 0 && entry.expiration < System.currentTimeMillis()) {
+      projections.remove(projection);
+
+      misses.incrementAndGet();
+
+      return null;
+    }
+
+    hits.incrementAndGet();
+
+    return entry.result;
+  }
+
+  /**
+   * Get the invalidation generation of a row, to read before getting the row from the table.
+   *
+   * @param row row key
+   *
+   * @return generation, passed back to {@link #put(byte[], String, Result, long)}
+   */
+  public synchronized long generation(byte[] row) {
+    return generations[stripe(row)];
+  }
+
+  /**
+   * Cache a row.
+   *
+   * @param row row key
+   * @param projection projection key
+   * @param result not empty {@linkplain org.apache.hadoop.hbase.client.Result}
+   */
+  public synchronized void put(byte[] row, String projection, Result result) {
+    rows.computeIfAbsent(ByteBuffer.wrap(row), k -> new HashMap<>(2)).put(projection,
+        new CachedRow(result, ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE));
+  }
+
+  /**
+   * Cache a row read from the table, unless it was invalidated since the generation was taken:
+   * the result may be older than a write.
+   *
+   * @param row row key
+   * @param projection projection key
+   * @param result not empty {@linkplain org.apache.hadoop.hbase.client.Result}
+   * @param generation {@link #generation(byte[])} taken before the read
+   *
+   * @return <code>true</code> when cached
+   */
+  public synchronized boolean put(byte[] row, String projection, Result result,
+      long generation) {
+
+    // stale
+    if (generations[stripe(row)] != generation) {
+      return false;
+    }
+
+    put(row, projection, result);
+
+    return true;
+  }
+
+  /**
+   * Remove every projection of a row.
+   *
+   * @param row row key
+   */
+  public synchronized void invalidate(byte[] row) {
+    rows.remove(ByteBuffer.wrap(row));
+
+    generations[stripe(row)]++;
+  }
+
+  /**
+   * Remove all rows.
+   */
+  public synchronized void clear() {
+    rows.clear();
+
+    for (int i = 0; i < generations.length; i++) {
+      generations[i]++;
+    }
+  }
+
+  /**
+   * @param row row key
+   *
+   * @return generation stripe of the row
+   */
+  private static int stripe(byte[] row) {
+    return (Bytes.hashCode(row) & 0x7fffffff) % GENERATION_STRIPES;
+  }
+
+  /**
+   * @return number of rows cached
+   */
+  public synchronized int getSize() {
+    return rows.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getTtl() {
+    return ttl;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * Cached result and its expiration.
+   */
+  private static final class CachedRow {
+
+    private final Result result;
+
+    private final long expiration;
+
+    /**
+     * @param result {@linkplain org.apache.hadoop.hbase.client.Result}
+     * @param expiration expiration time in milliseconds
+     */
+    private CachedRow(Result result, long expiration) {
+      super();
+
+      this.result = result;
+      this.expiration = expiration;
+    }
+  }
+
+}
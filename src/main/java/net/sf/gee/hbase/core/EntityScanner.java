@@ -0,0 +1,372 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import net.sf.gee.logger.factory.GLogFactory;
+import net.sf.gee.logger.log.SimpleGLogger;
+
+/**
+ * Iterator on a live {@linkplain org.apache.hadoop.hbase.client.ResultScanner}: each row is
+ * decoded only when requested, so the heap used does not depend on the table size. It can also
+ * merge in row key order the scanners of disjoint key spaces, as salt buckets. Must be closed to
+ * release scanners and tables.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class EntityScanner<T extends Serializable> implements Iterator<T>, Closeable {
+
+  private final static SimpleGLogger LOGGER =
+      GLogFactory.getInstance().getLogger(SimpleGLogger.class, EntityScanner.class);
+
+  private final HBaseConnection connection;
+
+  private final Class<T> entityClass;
+
+  private final Table table;
+
+  private final ResultScanner scanner;
+
+  /** Partial results are expected and must be merged by row */
+  private final boolean batched;
+
+  /** Maximum rows returned, not positive for no limit */
+  private final int limit;
+
+  /** Bit set of the lazy fields left out by the scan, <code>null</code> when every field is read */
+  private final long[] unreadFields;
+
+  /** Rows returned */
+  private int count = 0;
+
+  /** Row key of the next entity */
+  private byte[] nextRow = null;
+
+  /** Row key of the last returned entity */
+  private byte[] lastRow = null;
+
+  /** Row of the next entity */
+  private Result nextResult = null;
+
+  /** Row of the last returned entity */
+  private Result lastResult = null;
+
+  /** Merged scanners having a next row, by next row key; <code>null</code> on a single scanner */
+  private final PriorityQueue<EntityScanner<T>> heads;
+
+  /** Every merged scanner */
+  private final List<EntityScanner<T>> parts;
+
+  /** Result read ahead while merging partial rows */
+  private Result pending = null;
+
+  /** Next decoded entity */
+  private T next = null;
+
+  private boolean closed = false;
+
+  /**
+   * Create new entity scanner.
+   *
+   * @param connection {@link HBaseConnection} used to decode rows
+   * @param entityClass {@linkplain java.lang.Class} of <T>
+   * @param table {@linkplain org.apache.hadoop.hbase.client.Table} owned by this scanner
+   * @param scanner {@linkplain org.apache.hadoop.hbase.client.ResultScanner} owned by this scanner
+   * @param batched <code>true</code> when the scan has a batch size
+   * @param limit maximum rows returned, not positive for no limit
+   * @param unreadFields bit set of the lazy fields left out by the scan, <code>null</code> when
+   *        every field is read
+   */
+  EntityScanner(HBaseConnection connection, Class<T> entityClass, Table table,
+      ResultScanner scanner, boolean batched, int limit, long[] unreadFields) {
+    super();
+
+    this.connection = connection;
+    this.entityClass = entityClass;
+    this.table = table;
+    this.scanner = scanner;
+    this.batched = batched;
+    this.limit = limit;
+    this.unreadFields = unreadFields;
+    this.heads = null;
+    this.parts = null;
+  }
+
+  /**
+   * Create new entity scanner merging scanners in row key order. Row keys are compared after a
+   * prefix, as the bucket of salted keys.
+   *
+   * @param parts {@link EntityScanner} in row key order each, owned by this scanner
+   * @param prefixLength bytes of row key skipped by the comparison
+   * @param limit maximum rows returned, not positive for no limit
+   */
+  EntityScanner(List<EntityScanner<T>> parts, int prefixLength, int limit) {
+    super();
+
+    this.connection = null;
+    this.entityClass = null;
+    this.table = null;
+    this.scanner = null;
+    this.batched = false;
+    this.limit = limit;
+    this.unreadFields = null;
+    this.parts = parts;
+    this.heads = new PriorityQueue<>(Math.max(1, parts.size()),
+        (a, b) -> Bytes.compareTo(a.nextRow, prefixLength, a.nextRow.length - prefixLength,
+            b.nextRow, prefixLength, b.nextRow.length - prefixLength));
+
+    // first row of each
+    for (EntityScanner<T> part : parts) {
+      if (part.hasNext()) {
+        heads.add(part);
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+
+    // already fetched
+    if (next != null) {
+      return true;
+    }
+
+    // check
+    if (closed) {
+      return false;
+    }
+
+    // limit reached
+    if (limit > 0 && count >= limit) {
+      close();
+
+      return false;
+    }
+
+    try {
+      next = fetchNext();
+    }
+    catch (IOException e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new UncheckedIOException(e);
+    }
+
+    // end of scan
+    if (next == null) {
+      close();
+    }
+
+    return next != null;
+  }
+
+  @Override
+  public T next() {
+
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    final T current = next;
+    next = null;
+    lastRow = nextRow;
+    lastResult = nextResult;
+    nextResult = null;
+    count++;
+
+    return current;
+  }
+
+  /**
+   * Read and decode the next row.
+   *
+   * @return <T> or <code>null</code> at the end of the scan
+   *
+   * @throws IOException
+   */
+  private T fetchNext() throws IOException {
+
+    // merge
+    if (heads != null) {
+      return mergeNext();
+    }
+
+    Result current = pending != null ? pending : scanner.next();
+    pending = null;
+
+    // skip empty rows
+    while (current != null && current.isEmpty()) {
+      current = scanner.next();
+    }
+
+    // end of scan
+    if (current == null) {
+      return null;
+    }
+
+    // merge partial results of the same row
+    if (batched) {
+
+      List<Cell> cells = null;
+
+      Result following = scanner.next();
+
+      while (following != null && Bytes.equals(following.getRow(), current.getRow())) {
+
+        // first partial
+        if (cells == null) {
+          cells = new ArrayList<>(Arrays.asList(current.rawCells()));
+        }
+
+        cells.addAll(Arrays.asList(following.rawCells()));
+
+        following = scanner.next();
+      }
+
+      pending = following;
+
+      if (cells != null) {
+        current = Result.create(cells);
+      }
+    }
+
+    nextRow = current.getRow();
+    nextResult = current;
+
+    return decode(current);
+  }
+
+  /**
+   * Decode a row read by this scanner, as the scanner does: the entity is tracked for update like
+   * the ones returned by {@link #next()}. Still usable once closed.
+   *
+   * @param result not empty row {@linkplain org.apache.hadoop.hbase.client.Result}
+   *
+   * @return <T>
+   *
+   * @throws IOException
+   */
+  T decode(Result result) throws IOException {
+
+    // merged scanners share entity class and projection
+    if (parts != null) {
+      return parts.get(0).decode(result);
+    }
+
+    try {
+      return connection.toEntity(entityClass, result, unreadFields);
+    }
+    catch (Exception e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Take the lowest next row of the merged scanners.
+   *
+   * @return <T> or <code>null</code> when all are over
+   */
+  private T mergeNext() {
+
+    final EntityScanner<T> head = heads.poll();
+
+    // end of scans
+    if (head == null) {
+      return null;
+    }
+
+    final T current = head.next();
+
+    nextRow = head.getLastRow();
+    nextResult = head.getLastResult();
+
+    if (head.hasNext()) {
+      heads.add(head);
+    }
+
+    return current;
+  }
+
+  /**
+   * @return row key of the last entity returned by {@link #next()}, <code>null</code> before the
+   *         first one
+   */
+  public byte[] getLastRow() {
+    return lastRow;
+  }
+
+  /**
+   * @return row of the last entity returned by {@link #next()}, <code>null</code> before the first
+   *         one
+   */
+  Result getLastResult() {
+    return lastResult;
+  }
+
+  /**
+   * Close scanner and table.
+   */
+  @Override
+  public void close() {
+
+    // only once
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    pending = null;
+
+    // merged scanners
+    if (parts != null) {
+      heads.clear();
+
+      for (EntityScanner<T> part : parts) {
+        part.close();
+      }
+
+      return;
+    }
+
+    scanner.close();
+
+    try {
+      table.close();
+    }
+    catch (IOException e) {
+      LOGGER.logError(e.getMessage(), e);
+    }
+  }
+
+}
@@ -0,0 +1,141 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.core;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Field data of the loaded entities, as the cells snapshot compared by updates to write only
+ * changed columns. Entities are held by identity through weak references: a snapshot goes away
+ * with its entity.
+ *
+ * @param <V> type of the data kept by entity
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class EntitySnapshots<V> {
+
+  /** Snapshots by entity identity */
+  private final ConcurrentHashMap<IdentityKey, V> snapshots = new ConcurrentHashMap<>();
+
+  /** Keys of collected entities */
+  private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+  /**
+   * Keep the snapshot of an entity, replacing the previous one.
+   *
+   * @param entity loaded entity
+   * @param snapshot field data, not copied
+   */
+  public void put(Object entity, V snapshot) {
+
+    expunge();
+
+    snapshots.put(new IdentityKey(entity, collected), snapshot);
+  }
+
+  /**
+   * @param entity entity
+   *
+   * @return field data, <code>null</code> when the entity was not loaded
+   */
+  public V get(Object entity) {
+
+    expunge();
+
+    return snapshots.get(new IdentityKey(entity, null));
+  }
+
+  /**
+   * Forget the snapshot of an entity.
+   *
+   * @param entity entity
+   */
+  public void remove(Object entity) {
+    snapshots.remove(new IdentityKey(entity, null));
+  }
+
+  /**
+   * @return number of snapshots kept
+   */
+  public int size() {
+
+    expunge();
+
+    return snapshots.size();
+  }
+
+  /**
+   * Forget all snapshots.
+   */
+  public void clear() {
+    snapshots.clear();
+  }
+
+  /**
+   * Drop the snapshots of collected entities.
+   */
+  private void expunge() {
+
+    Reference<?> key;
+
+    while ((key = collected.poll()) != null) {
+      snapshots.remove(key);
+    }
+  }
+
+  /**
+   * Weak key comparing referents by identity.
+   */
+  private static final class IdentityKey extends WeakReference<Object> {
+
+    private final int hash;
+
+    IdentityKey(Object entity, ReferenceQueue<Object> queue) {
+      super(entity, queue);
+
+      this.hash = System.identityHashCode(entity);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+      // check
+      if (this == other) {
+        return true;
+      }
+
+      if (!(other instanceof IdentityKey)) {
+        return false;
+      }
+
+      final Object referent = get();
+
+      return referent != null && referent == ((IdentityKey) other).get();
+    }
+  }
+
+}
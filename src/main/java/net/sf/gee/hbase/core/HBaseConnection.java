@@ -19,29 +19,92 @@ package net.sf.gee.hbase.core;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.management.OperationsException;
 
 import org.apache.hadoop.hbase.Cell;
-import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.RowMutations;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FilterList.Operator;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
+import org.apache.hadoop.hbase.filter.MultipleColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
 
 import net.sf.gee.common.util.string.StringUtil;
+import net.sf.gee.hbase.basic.NoneMapper;
+import net.sf.gee.hbase.codec.FieldCodec;
+import net.sf.gee.hbase.codec.KeyPrefixCodec;
+import net.sf.gee.hbase.codec.SaltedCodec;
 import net.sf.gee.hbase.config.ClassConfiguration;
+import net.sf.gee.hbase.config.FieldConfiguration;
+import net.sf.gee.hbase.exception.OptimisticLockException;
+import net.sf.gee.hbase.filters.Condition;
 import net.sf.gee.hbase.filters.HBaseColumnParam;
 import net.sf.gee.hbase.filters.HBaseParams;
+import net.sf.gee.hbase.filters.HBaseRowRangeParam;
+import net.sf.gee.hbase.filters.Page;
+import net.sf.gee.hbase.filters.PageRequest;
+import net.sf.gee.hbase.util.ExternalSorter;
 import net.sf.gee.hbase.util.GHBaseObjectBuilder;
+import net.sf.gee.hbase.util.RowSnapshot;
 import net.sf.gee.logger.factory.GLogFactory;
 import net.sf.gee.logger.log.SimpleGLogger;
 
@@ -56,27 +119,94 @@ public class HBaseConnection implements Serializable, Closeable {
   private final static SimpleGLogger LOGGER =
       GLogFactory.getInstance().getLogger(SimpleGLogger.class, HBaseConnection.class);
 
-  private Connection connection = null;
+  /** Batch size from which rows are decoded in parallel */
+  protected static final int PARALLEL_DECODE_THRESHOLD = 64;
+
+  /** Suffix of the secondary index table name */
+  public static final String INDEX_TABLE_SUFFIX = "_idx";
+
+  /** Family of the secondary index rows */
+  protected static final byte[] INDEX_FAMILY = Bytes.toBytes("i");
+
+  /** Column of the secondary index rows, the row key holds everything */
+  protected static final byte[] INDEX_COLUMN = Bytes.toBytes("r");
+
+  /** Suffix of the counter shard table name */
+  public static final String COUNTER_TABLE_SUFFIX = "_cnt";
+
+  /**
+   * Age in milliseconds after which an index entry not matching its row is dropped on read.
+   * Younger entries may belong to a row being written.
+   */
+  protected static final long INDEX_REPAIR_DELAY = 60000L;
+
+  private final transient Connection connection;
+
+  /** Factory owning the shared connection, <code>null</code> when this handle owns it */
+  private final transient HBaseConnectionFactory factory;
+
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  /** Counter buffer of a handle owning its connection, created on first use */
+  private transient volatile CounterBuffer counterBuffer = null;
+
+  /** Executor of background reads of a handle owning its connection, created on first use */
+  private transient volatile ExecutorService readExecutor = null;
 
   /**
-   * Constructor with connection
+   * Constructor with connection. The handle owns the connection and closes it on
+   * {@link #close()}.
    * 
    * @param connection {@linkplain org.apache.hadoop.hbase.client.Connection}
    */
   public HBaseConnection(Connection connection) {
+    this(connection, null);
+  }
+
+  /**
+   * Constructor with shared connection leased by the factory.
+   * 
+   * @param connection {@linkplain org.apache.hadoop.hbase.client.Connection}
+   * @param factory {@link HBaseConnectionFactory} owner of the connection
+   */
+  HBaseConnection(Connection connection, HBaseConnectionFactory factory) {
     super();
 
     this.connection = connection;
+    this.factory = factory;
   }
 
   /**
-   * Close connection.
+   * Close connection. A leased handle only releases its lease: the shared connection stays open.
    * 
    * @throws IOException
    */
   @Override
   public void close() throws IOException {
-    connection.close();
+
+    try {
+      // pending increments are written through this handle, while still open
+      if (factory == null && counterBuffer != null && !closed.get()) {
+        counterBuffer.close();
+      }
+    }
+    finally {
+      // only once
+      if (closed.compareAndSet(false, true)) {
+
+        if (factory != null) {
+          // release lease
+          factory.releaseConnection(this);
+        }
+        else {
+          if (readExecutor != null) {
+            readExecutor.shutdown();
+          }
+
+          connection.close();
+        }
+      }
+    }
   }
 
   /**
@@ -90,6 +220,52 @@ public class HBaseConnection implements Serializable, Closeable {
    * @throws IOException
    */
   protected Table getTable(Class<?> hBaseEntity) throws IOException {
+    return openTable(getTableName(hBaseEntity));
+  }
+
+  /**
+   * Gets the secondary index table.
+   *
+   * @param hBaseEntity class object of entity {@linkplain java.lang.Class<?>}
+   * 
+   * @return the index table object {@linkplain org.apache.hadoop.hbase.client.Table}
+   * 
+   * @throws IOException
+   */
+  protected Table getIndexTable(Class<?> hBaseEntity) throws IOException {
+    return openTable(getIndexTableName(hBaseEntity));
+  }
+
+  /**
+   * @param tableName {@linkplain org.apache.hadoop.hbase.TableName}
+   * 
+   * @return the table object {@linkplain org.apache.hadoop.hbase.client.Table}
+   * 
+   * @throws IOException
+   */
+  private Table openTable(TableName tableName) throws IOException {
+
+    // check lease
+    if (closed.get()) {
+      throw new IOException("Connection handle already closed");
+    }
+
+    // usage metrics
+    if (factory != null) {
+      factory.markUsage();
+    }
+
+    return connection.getTable(tableName);
+  }
+
+  /**
+   * Gets the table name.
+   *
+   * @param hBaseEntity class object of entity {@linkplain java.lang.Class<?>}
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.TableName}
+   */
+  protected TableName getTableName(Class<?> hBaseEntity) {
 
     // get class configuration
     final ClassConfiguration cc =
@@ -99,16 +275,48 @@ public class HBaseConnection implements Serializable, Closeable {
     if (StringUtil.isEmpty(cc.getNamespace())) {
 
       // get table by name
-      return connection.getTable(TableName.valueOf(cc.getTable()));
+      return TableName.valueOf(cc.getTable());
 
     }
     else {
 
       // get table by namespace + name
-      return connection.getTable(TableName.valueOf(cc.getNamespace() + ":" + cc.getTable()));
+      return TableName.valueOf(cc.getNamespace() + ":" + cc.getTable());
     }
   }
 
+  /**
+   * Gets the counter shard table name: the entity table name with the
+   * {@link #COUNTER_TABLE_SUFFIX} suffix, in the same namespace.
+   *
+   * @param hBaseEntity class object of entity {@linkplain java.lang.Class<?>}
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.TableName}
+   */
+  protected TableName getCounterTableName(Class<?> hBaseEntity) {
+
+    final TableName table = getTableName(hBaseEntity);
+
+    return TableName.valueOf(table.getNamespaceAsString(),
+        table.getQualifierAsString() + COUNTER_TABLE_SUFFIX);
+  }
+
+  /**
+   * Gets the secondary index table name: the entity table name with the
+   * {@link #INDEX_TABLE_SUFFIX} suffix, in the same namespace.
+   *
+   * @param hBaseEntity class object of entity {@linkplain java.lang.Class<?>}
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.TableName}
+   */
+  protected TableName getIndexTableName(Class<?> hBaseEntity) {
+
+    final TableName table = getTableName(hBaseEntity);
+
+    return TableName.valueOf(table.getNamespaceAsString(),
+        table.getQualifierAsString() + INDEX_TABLE_SUFFIX);
+  }
+
   /**
    * Close table.
    *
@@ -126,14 +334,14 @@ public class HBaseConnection implements Serializable, Closeable {
    * Load by row key.
    * 
    * @param clazz {@linkplain java.lang.Class<K extends java.io.Serializable>}
-   * @param rowKey row key {@linkplain java.lang.String}
+   * @param rowKey row key value, of the row key field type
    * @param columns optional array of columns to retrieve {@link HBaseColumnParam}
    * 
    * @return <T extends java.io.Serializable>
    * 
    * @throws IOException
    */
-  public <T extends Serializable> T load(Class<T> clazz, String rowKey, HBaseColumnParam... columns)
+  public <T extends Serializable> T load(Class<T> clazz, Object rowKey, HBaseColumnParam... columns)
       throws IOException {
 
     // check array
@@ -148,71 +356,78 @@ public class HBaseConnection implements Serializable, Closeable {
 
   /**
    * @param clazz {@linkplain java.lang.Class} of <K extends java.io.Serializable>
-   * @param rowKey row key {@linkplain java.lang.String}
-   * @param columns {@linkplain java.util.List} of columns to retrieve {@link HBaseColumnParam}
+   * @param rowKey row key value, of the row key field type
+   * @param columns {@linkplain java.util.List} of columns to retrieve {@link HBaseColumnParam},
+   *        empty for the eager ones
    * 
    * @return <T extends java.io.Serializable>
    * 
    * @throws IOException
    */
-  public <T extends Serializable> T load(Class<T> clazz, String rowKey,
+  public <T extends Serializable> T load(Class<T> clazz, Object rowKey,
       List<HBaseColumnParam> columns) throws IOException {
+    return loadRow(clazz, rowKey, withDefault(clazz, columns));
+  }
 
-    // get table
-    try (Table table = getTable(clazz);) {
+  /**
+   * Load by row key exactly the given columns.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of <K extends java.io.Serializable>
+   * @param rowKey row key value, of the row key field type
+   * @param columns {@linkplain java.util.List} of columns to retrieve {@link HBaseColumnParam},
+   *        empty for the whole row
+   * 
+   * @return <T extends java.io.Serializable>
+   * 
+   * @throws IOException
+   */
+  protected <T extends Serializable> T loadRow(Class<T> clazz, Object rowKey,
+      List<HBaseColumnParam> columns) throws IOException {
+
+    final EntityCache cache = HBaseConnectionFactory.getInstance().getEntityCache(clazz);
+
+    final String projection = cache == null ? null : EntityCache.projectionKey(columns);
+
+    try {
 
       // get by rowId
-      Get get = new Get(Bytes.toBytes(rowKey));
+      Get get = createGet(toRowKey(clazz, rowKey), columns);
 
-      // check columns
-      if (columns != null && !columns.isEmpty()) {
+      final long[] unread = getUnreadFields(clazz, get.getFamilyMap());
 
-        // iterate
-        for (HBaseColumnParam current : columns) {
+      long generation = 0;
 
-          // check
-          if (StringUtil.isEmpty(current.getColumnName())) {
+      // cached, no table leased
+      if (cache != null) {
 
-            // add only family
-            get.addFamily(Bytes.toBytes(current.getFamilyName()));
-          }
-          else {
-            // add column
-            get.addColumn(Bytes.toBytes(current.getFamilyName()),
-                Bytes.toBytes(current.getColumnName()));
-          }
+        final Result cached = cache.get(get.getRow(), projection);
+
+        if (cached != null) {
+          return toEntity(clazz, cached, unread);
         }
+
+        // writes from now on make the result stale
+        generation = cache.generation(get.getRow());
       }
 
-      // get result
-      Result result = table.get(get);
+      final Result result;
+
+      // get table
+      try (Table table = getTable(clazz);) {
+        result = table.get(get);
+      }
 
       // check
       if (result.isEmpty()) {
         return null;
       }
 
-      // init GHbase Bean
-      final GHBaseObjectBuilder<T> gHBean =
-          new GHBaseObjectBuilder<T>(clazz, Bytes.toBytes(rowKey));
-
-      // iterate
-      for (Cell cell : result.listCells()) {
-
-        // family
-        String family = StringUtil.toString(CellUtil.cloneFamily(cell));
-
-        // column
-        String column = StringUtil.toString(CellUtil.cloneQualifier(cell));
-
-        // value
-        byte[] value = CellUtil.cloneValue(cell);
-
-        // set value
-        gHBean.setValue(family, column, value);
+      // cache
+      if (cache != null) {
+        cache.put(get.getRow(), projection, result, generation);
       }
 
-      return gHBean.getObject();
+      return toEntity(clazz, result, unread);
 
     }
     catch (Exception e) {
@@ -223,49 +438,135 @@ public class HBaseConnection implements Serializable, Closeable {
   }
 
   /**
-   * Save HBase Entity
+   * Load by row key the eager columns and the lazy columns of the fetch groups.
    * 
-   * @param hBaseEntity <T>
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param rowKey row key value, of the row key field type
+   * @param fetchGroups fetch groups of lazy columns to read
+   * 
+   * @return <T extends java.io.Serializable>
    * 
    * @throws IOException
    */
-  public <T extends Serializable> void save(T hBaseEntity) throws IOException {
-
-    try (Table table = getTable(hBaseEntity.getClass());) {
-
-      final GHBaseObjectBuilder<T> gHBean = new GHBaseObjectBuilder<T>(hBaseEntity);
-
-      // put operation list
-      final List<Put> puts = gHBean.preparePuts(true);
-
-      // save or update inside table
-      table.put(puts);
-    }
-    catch (Exception e) {
-      LOGGER.logError(e.getMessage(), e);
+  public <T extends Serializable> T loadGroups(Class<T> clazz, Object rowKey,
+      String... fetchGroups) throws IOException {
 
-      throw new IOException(e.getMessage());
-    }
+    return loadRow(clazz, rowKey,
+        getProjection(clazz, fetchGroups == null ? null : Arrays.asList(fetchGroups)));
   }
 
   /**
-   * Update HBase Entity
+   * Read lazy fields of an entity, replacing their current value.
    * 
-   * @param hBaseEntity <K>
+   * @param hBaseEntity entity with its row key
+   * @param fieldNames names of fields to read
+   * 
+   * @return the entity
    * 
    * @throws IOException
    */
-  public <T extends Serializable> void update(T hBaseEntity) throws IOException {
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> T fetch(T hBaseEntity, String... fieldNames) throws IOException {
+
+    // check
+    if (fieldNames == null || fieldNames.length == 0) {
+      return hBaseEntity;
+    }
+
+    final ClassConfiguration cc = HBaseConnectionFactory.getInstance()
+        .getClassConfiguration(hBaseEntity.getClass().getName());
+
+    final Set<FieldConfiguration> fields = new HashSet<>();
+
+    final List<byte[]> prefixes = new ArrayList<>(fieldNames.length);
+
+    for (String name : fieldNames) {
+
+      final FieldConfiguration field = cc.getFieldConfiguration(name);
+
+      // check
+      if (field == null || field == cc.getRowKeyField()) {
+        throw new IOException(String.format("No column field [%s] in [%s]", name,
+            hBaseEntity.getClass().getName()));
+      }
+
+      fields.add(field);
+      prefixes.add(field.getColumnBytes());
+    }
+
+    final FieldConfiguration rowKeyField = cc.getRowKeyField();
+
+    // get by rowId: whole families, only the field columns
+    final Get get =
+        new Get(rowKeyField.getCodec().encode(rowKeyField.getAccessor().get(hBaseEntity)));
+
+    for (FieldConfiguration field : fields) {
+      get.addFamily(field.getFamilyBytes());
+    }
+
+    get.setFilter(new MultipleColumnPrefixFilter(prefixes.toArray(new byte[prefixes.size()][])));
 
     try (Table table = getTable(hBaseEntity.getClass());) {
 
+      final Result result = table.get(get);
+
+      // reset fields, collections are rebuilt
+      for (FieldConfiguration field : fields) {
+        field.getAccessor().set(hBaseEntity, null);
+      }
+
       final GHBaseObjectBuilder<T> gHBean = new GHBaseObjectBuilder<T>(hBaseEntity);
 
-      // put operation list
-      final List<Put> puts = gHBean.preparePuts(false);
+      // iterate
+      for (Cell cell : result.rawCells()) {
 
-      // save or update inside table
-      table.put(puts);
+        // prefixes can match other fields
+        final FieldConfiguration field = cc.getFieldConfiguration(cell.getFamilyArray(),
+            cell.getFamilyOffset(), cell.getFamilyLength(), cell.getQualifierArray(),
+            cell.getQualifierOffset(), cell.getQualifierLength());
+
+        if (fields.contains(field)) {
+          gHBean.setValue(cell);
+        }
+      }
+
+      final EntitySnapshots<RowSnapshot> snapshots =
+          HBaseConnectionFactory.getInstance().getEntitySnapshots();
+      final RowSnapshot snapshot = cc.isDirtyTracking() ? snapshots.get(hBaseEntity) : null;
+
+      final EntitySnapshots<long[]> unreadFields =
+          HBaseConnectionFactory.getInstance().getUnreadFields();
+      final long[] unread = unreadFields.get(hBaseEntity);
+
+      // fetched fields are read now
+      if (unread != null) {
+
+        final long[] left = unread.clone();
+
+        boolean none = true;
+
+        for (FieldConfiguration field : fields) {
+          left[field.getPosition() >>> 6] &= ~(1L << field.getPosition());
+        }
+
+        for (long bits : left) {
+          none &= bits == 0;
+        }
+
+        if (none) {
+          unreadFields.remove(hBaseEntity);
+        }
+        else {
+          unreadFields.put(hBaseEntity, left);
+        }
+      }
+
+      // fetched fields are loaded now
+      if (snapshot != null) {
+        snapshots.put(hBaseEntity, snapshot.merge(gHBean.getSnapshot(), fields));
+      }
+
+      return hBaseEntity;
     }
     catch (Exception e) {
       LOGGER.logError(e.getMessage(), e);
@@ -275,142 +576,2572 @@ public class HBaseConnection implements Serializable, Closeable {
   }
 
   /**
-   * Delete entire row.
+   * Get the columns to read by default.
    * 
-   * @param clazz {@linkplain java.lang.Class<K>}
-   * @param rowKey row key code
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param fetchGroups {@linkplain java.util.Collection} of fetch groups, <code>null</code> for
+   *        none
    * 
-   * @throws IOException
+   * @return {@linkplain java.util.List} of {@link HBaseColumnParam}, empty for the whole row
    */
-  public <K extends Serializable> void delete(Class<K> clazz, String rowKey) throws IOException {
-
-    try (Table table = getTable(clazz);) {
-
-      // get by rowId
-      Delete delete = new Delete(Bytes.toBytes(rowKey));
-
-      // delete
-      table.delete(delete);
-    }
-    catch (Exception e) {
-      LOGGER.logError(e.getMessage(), e);
+  protected List<HBaseColumnParam> getProjection(Class<?> clazz, Collection<String> fetchGroups) {
+    return HBaseConnectionFactory.getInstance().getClassConfiguration(clazz.getName())
+        .getProjection(fetchGroups);
+  }
 
-      throw new IOException(e.getMessage());
-    }
+  /**
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param columns requested columns
+   * 
+   * @return requested columns, or the default projection when none
+   */
+  private List<HBaseColumnParam> withDefault(Class<?> clazz, List<HBaseColumnParam> columns) {
+    return columns == null || columns.isEmpty() ? getProjection(clazz, null) : columns;
   }
 
   /**
-   * Delete enitre column family values.
+   * Load many row keys with a single batched get.
    * 
-   * @param clazz {@linkplain java.lang.Class<K>}
-   * @param rowKey row key code
-   * @param family family name
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param rowKeys row key values {@linkplain java.util.Collection<K>}, of the row key field type
+   * @param columns optional array of columns to retrieve {@link HBaseColumnParam}
+   * 
+   * @return {@linkplain java.util.Map} of found entities by row key, missing rows are absent
    * 
    * @throws IOException
    */
-  public <K extends Serializable> void deleteFamily(Class<K> clazz, String rowKey, String family)
-      throws IOException {
-
-    try (Table table = getTable(clazz);) {
-
-      // get by rowId
-      Delete delete = new Delete(Bytes.toBytes(rowKey));
+  public <K, T extends Serializable> Map<K, T> loadAll(Class<T> clazz, Collection<K> rowKeys,
+      HBaseColumnParam... columns) throws IOException {
 
-      // add family name
-      delete.addFamily(Bytes.toBytes(family));
-
-      // delete
-      table.delete(delete);
-
-    }
-    catch (Exception e) {
-      LOGGER.logError(e.getMessage(), e);
+    // check array
+    if (columns != null && columns.length > 0) {
+      return loadAll(clazz, rowKeys, Arrays.asList(columns));
 
-      throw new IOException(e.getMessage());
+    } // load all
+    else {
+      return loadAll(clazz, rowKeys, new ArrayList<>(0));
     }
   }
 
   /**
-   * Get rows by filters.
+   * Load many row keys with a single batched get. Rows are decoded in parallel when the batch is
+   * large enough.
    * 
-   * @param <K>
-   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
-   * @param params {@link HBaseParams}
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param rowKeys row key values {@linkplain java.util.Collection<K>}, of the row key field type
+   * @param columns {@linkplain java.util.List} of columns to retrieve {@link HBaseColumnParam}
    * 
-   * @return {@linkplain java.util.List<K>}
+   * @return {@linkplain java.util.Map} of found entities by row key in request order, missing
+   *         rows are absent
    * 
    * @throws IOException
    */
-  @SuppressWarnings("unchecked")
-  public <T extends Serializable> List<T> scan(Class<T> hBaseEntityClass, HBaseParams params)
-      throws IOException {
+  public <K, T extends Serializable> Map<K, T> loadAll(Class<T> clazz, Collection<K> rowKeys,
+      List<HBaseColumnParam> columns) throws IOException {
 
-    final List<T> results = new ArrayList<>(0);
+    final Map<K, T> entities = new LinkedHashMap<>();
 
-    // get table
-    Table table = getTable(hBaseEntityClass);
+    // check
+    if (rowKeys == null || rowKeys.isEmpty()) {
+      return entities;
+    }
 
-    // get scan
-    Scan scan = new Scan();
+    // no duplicate gets
+    final List<K> keys = new ArrayList<>(new LinkedHashSet<>(rowKeys));
 
-    // only last version
-    scan.setMaxVersions(1);
+    // no columns: eager ones
+    final List<HBaseColumnParam> projection = withDefault(clazz, columns);
 
-    // add columns
-    if (!params.isColumnsEmpty()) {
-      for (HBaseColumnParam current : params.getColumns()) {
+    final EntityCache cache = HBaseConnectionFactory.getInstance().getEntityCache(clazz);
 
-        // add column to scan
-        scan.addColumn(Bytes.toBytes(current.getFamilyName()),
-            Bytes.toBytes(current.getColumnName()));
-      }
-    }
+    final String projectionKey = cache == null ? null : EntityCache.projectionKey(projection);
 
-    // add filters
-    if (!params.isFiltersEmpty()) {
-      scan.setFilter(params.getFilters());
-    }
+    try {
 
-    // prepare all columns
-    List<HBaseColumnParam> allCols = params.getAllColumns();
+      // prepare gets of rows not cached
+      final List<Get> gets = new ArrayList<>(keys.size());
 
-    // get result
-    try (ResultScanner scanner = table.getScanner(scan);) {
+      final List<K> getKeys = new ArrayList<>(keys.size());
 
-      // Reading values from scan result
-      for (Result result = scanner.next(); result != null; result = scanner.next()) {
+      // generations of the rows to get
+      final long[] generations = new long[keys.size()];
 
-        // check if result is empty
-        if (result.isEmpty()) {
-          continue;
+      // lazy fields left out, the same for every get
+      long[] unread = null;
+
+      for (K rowKey : keys) {
+
+        final Get get = createGet(toRowKey(clazz, rowKey), projection);
+
+        // first get
+        if (entities.isEmpty()) {
+          unread = getUnreadFields(clazz, get.getFamilyMap());
         }
 
-        // retrieve row key
-        String rowKey = Bytes.toString(result.getRow());
+        final Result cached = cache == null ? null : cache.get(get.getRow(), projectionKey);
+
+        // keep request order, filled below
+        entities.put(rowKey, cached == null ? null : toEntity(clazz, cached, unread));
 
-        // retrieve entity
-        T entity = load(hBaseEntityClass, rowKey, allCols);
+        if (cached == null) {
 
-        // add to results
-        results.add(entity);
+          if (cache != null) {
+            generations[gets.size()] = cache.generation(get.getRow());
+          }
+
+          gets.add(get);
+          getKeys.add(rowKey);
+        }
       }
 
-      // sorting
-      if (params.getComparator() != null) {
-        // sort
-        results.sort((Comparator<T>) params.getComparator());
+      // all cached, no table leased
+      if (gets.isEmpty()) {
+        return entities;
       }
 
-      return results;
-    }
-    catch (Exception e) {
-      LOGGER.logError(e);
+      final Result[] results;
 
-      throw new IOException(e.getMessage());
-    }
-    finally {
-      // close table
-      table.close();
+      // one batch, split by region server inside the client
+      try (Table table = getTable(clazz);) {
+        results = table.get(gets);
+      }
+
+      // cache
+      if (cache != null) {
+        for (int i = 0; i < results.length; i++) {
+          if (results[i] != null && !results[i].isEmpty()) {
+            cache.put(results[i].getRow(), projectionKey, results[i], generations[i]);
+          }
+        }
+      }
+
+      // decode
+      final T[] decoded = decodeAll(clazz, results, unread);
+
+      for (int i = 0; i < decoded.length; i++) {
+
+        // missing row
+        if (decoded[i] != null) {
+          entities.put(getKeys.get(i), decoded[i]);
+        }
+        else {
+          entities.remove(getKeys.get(i));
+        }
+      }
+
+      return entities;
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  /**
+   * Build a get by row key with column projection.
+   * 
+   * @param rowKey encoded row key
+   * @param columns {@linkplain java.util.List} of columns to retrieve {@link HBaseColumnParam}
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.client.Get}
+   */
+  protected Get createGet(byte[] rowKey, List<HBaseColumnParam> columns) {
+
+    // get by rowId
+    Get get = new Get(rowKey);
+
+    // check columns
+    if (columns != null && !columns.isEmpty()) {
+
+      // iterate
+      for (HBaseColumnParam current : columns) {
+
+        // check
+        if (StringUtil.isEmpty(current.getColumnName())) {
+
+          // add only family
+          get.addFamily(Bytes.toBytes(current.getFamilyName()));
+        }
+        else {
+          // add column
+          get.addColumn(Bytes.toBytes(current.getFamilyName()),
+              Bytes.toBytes(current.getColumnName()));
+        }
+      }
+    }
+
+    return get;
+  }
+
+  /**
+   * Get the lazy fields left out by the columns of a get or a scan. Collection and mapped fields
+   * are read only with their whole family, as their columns are known by prefix.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param columns family map of the get or scan, empty for the whole row
+   * 
+   * @return bit set of field positions, <code>null</code> when every field is read
+   */
+  protected long[] getUnreadFields(Class<?> clazz, Map<byte[], NavigableSet<byte[]>> columns) {
+
+    // whole row
+    if (columns.isEmpty()) {
+      return null;
+    }
+
+    final ClassConfiguration cc =
+        HBaseConnectionFactory.getInstance().getClassConfiguration(clazz.getName());
+
+    long[] unread = null;
+
+    for (FieldConfiguration field : cc.getLazyFields()) {
+
+      final NavigableSet<byte[]> qualifiers = columns.get(field.getFamilyBytes());
+
+      // whole family, or the column of a scalar
+      final boolean read = columns.containsKey(field.getFamilyBytes())
+          && (qualifiers == null || qualifiers.isEmpty()
+              || (!field.isCollection() && NoneMapper.class.equals(field.getMapper())
+                  && qualifiers.contains(field.getColumnBytes())));
+
+      if (!read) {
+
+        // lazy build
+        if (unread == null) {
+          unread = new long[(cc.getFields().size() + 63) >>> 6];
+        }
+
+        unread[field.getPosition() >>> 6] |= 1L << field.getPosition();
+      }
+    }
+
+    return unread;
+  }
+
+  /**
+   * Decode a batch of results, over {@link #PARALLEL_DECODE_THRESHOLD} rows also on the read
+   * executor of the handle.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param results array of {@linkplain org.apache.hadoop.hbase.client.Result}
+   * @param unreadFields bit set of the lazy fields not read, <code>null</code> when every field
+   *        was read
+   * 
+   * @return array of <T>, <code>null</code> for empty results
+   * 
+   * @throws IOException
+   */
+  @SuppressWarnings("unchecked")
+  protected <T extends Serializable> T[] decodeAll(Class<T> clazz, Result[] results,
+      long[] unreadFields) throws IOException {
+
+    final T[] entities = (T[]) Array.newInstance(clazz, results.length);
+
+    final Exception[] failures = new Exception[results.length];
+
+    final AtomicInteger cursor = new AtomicInteger(0);
+    final CountDownLatch done = new CountDownLatch(results.length);
+
+    final Runnable worker = () -> {
+
+      int index;
+
+      // next row
+      while ((index = cursor.getAndIncrement()) < results.length) {
+
+        try {
+          // missing row
+          if (results[index] != null && !results[index].isEmpty()) {
+            entities[index] = toEntity(clazz, results[index], unreadFields);
+          }
+        }
+        catch (Exception e) {
+          // never left null, as a missing row
+          failures[index] = e;
+        }
+        finally {
+          done.countDown();
+        }
+      }
+    };
+
+    // check
+    if (results.length >= PARALLEL_DECODE_THRESHOLD) {
+
+      final Executor executor = asyncExecutor();
+
+      final int helpers = Math.min(results.length / PARALLEL_DECODE_THRESHOLD,
+          Runtime.getRuntime().availableProcessors() - 1);
+
+      for (int i = 0; i < helpers; i++) {
+        executor.execute(worker);
+      }
+    }
+
+    worker.run();
+
+    try {
+      done.await();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      throw new IOException(e.getMessage(), e);
+    }
+
+    // first failure
+    for (Exception failure : failures) {
+      if (failure != null) {
+        throw new IOException(failure.getMessage(), failure);
+      }
+    }
+
+    return entities;
+  }
+
+  /**
+   * Build the entity from a row result, without any further round trip.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param result not empty row {@linkplain org.apache.hadoop.hbase.client.Result}
+   * 
+   * @return <T extends java.io.Serializable>
+   * 
+   * @throws OperationsException
+   */
+  protected <T extends Serializable> T toEntity(Class<T> clazz, Result result)
+      throws OperationsException {
+    return toEntity(clazz, result, null);
+  }
+
+  /**
+   * Build the entity from a row result read without some lazy fields, left untouched by update.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param result not empty row {@linkplain org.apache.hadoop.hbase.client.Result}
+   * @param unreadFields bit set of the lazy fields not read, <code>null</code> when every field
+   *        was read
+   * 
+   * @return <T extends java.io.Serializable>
+   * 
+   * @throws OperationsException
+   */
+  protected <T extends Serializable> T toEntity(Class<T> clazz, Result result,
+      long[] unreadFields) throws OperationsException {
+
+    // init GHbase Bean
+    final GHBaseObjectBuilder<T> gHBean = new GHBaseObjectBuilder<T>(clazz, result.getRow());
+
+    // iterate
+    for (Cell cell : result.rawCells()) {
+
+      // set value, decoded on the cell backing array
+      gHBean.setValue(cell);
+    }
+
+    // loaded cells, compared by update
+    if (gHBean.getClassConfig().isDirtyTracking()) {
+      HBaseConnectionFactory.getInstance().getEntitySnapshots().put(gHBean.getObject(),
+          gHBean.getSnapshot());
+    }
+
+    // lazy fields left out, kept by update
+    if (unreadFields != null) {
+      HBaseConnectionFactory.getInstance().getUnreadFields().put(gHBean.getObject(),
+          unreadFields);
+    }
+
+    return gHBean.getObject();
+  }
+
+  /**
+   * Save HBase Entity
+   * 
+   * @param hBaseEntity <T>
+   * 
+   * @throws IOException
+   */
+  public <T extends Serializable> void save(T hBaseEntity) throws IOException {
+
+    final FieldConfiguration version = HBaseConnectionFactory.getInstance()
+        .getClassConfiguration(hBaseEntity.getClass().getName()).getVersionField();
+
+    // versions start from 0
+    if (version != null && version.getAccessor().get(hBaseEntity) == null) {
+      version.getAccessor().set(hBaseEntity, 0L);
+    }
+
+    try (Table table = getTable(hBaseEntity.getClass());) {
+
+      final GHBaseObjectBuilder<T> gHBean = new GHBaseObjectBuilder<T>(hBaseEntity);
+
+      // put operation list
+      final List<Put> puts = gHBean.preparePuts(true);
+
+      // index entries first, the replaced ones are dropped once the row is written
+      final List<Delete> replaced = writeIndexes(table, hBaseEntity, true);
+
+      // save or update inside table
+      table.put(puts);
+
+      // initial counter values, never over the increments of a stored row
+      for (Map.Entry<FieldConfiguration, Put> counter : gHBean.prepareCounters().entrySet()) {
+        table.checkAndPut(counter.getValue().getRow(), counter.getKey().getFamilyBytes(),
+            counter.getKey().getColumnBytes(), null, counter.getValue());
+
+        puts.add(counter.getValue());
+      }
+
+      // cached rows are stale
+      invalidate(hBaseEntity.getClass(), puts);
+
+      deleteIndexes(hBaseEntity.getClass(), replaced);
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  /**
+   * Update HBase Entity. With a version field, the row is written only if it still holds the
+   * version of the entity, and the version is bumped in the same atomic mutation; an update
+   * changing nothing writes nothing and keeps the version.
+   * 
+   * @param hBaseEntity <K>
+   * 
+   * @throws OptimisticLockException when the stored version changed, the entity keeps its version
+   * @throws IOException
+   */
+  public <T extends Serializable> void update(T hBaseEntity) throws IOException {
+
+    final FieldConfiguration version = HBaseConnectionFactory.getInstance()
+        .getClassConfiguration(hBaseEntity.getClass().getName()).getVersionField();
+
+    final Long expected = version == null ? null : (Long) version.getAccessor().get(hBaseEntity);
+
+    try (Table table = getTable(hBaseEntity.getClass());) {
+
+      final GHBaseObjectBuilder<T> gHBean = new GHBaseObjectBuilder<T>(hBaseEntity);
+
+      // lazy fields not read keep their columns
+      if (!gHBean.getClassConfig().getLazyFields().isEmpty()) {
+        gHBean.setUnreadFields(
+            HBaseConnectionFactory.getInstance().getUnreadFields().get(hBaseEntity));
+      }
+
+      final boolean tracked = gHBean.getClassConfig().isDirtyTracking();
+
+      final EntitySnapshots<RowSnapshot> snapshots =
+          HBaseConnectionFactory.getInstance().getEntitySnapshots();
+
+      // changed columns only, when the loaded ones are known
+      final List<Mutation> mutations =
+          gHBean.prepareUpdate(tracked ? snapshots.get(hBaseEntity) : null);
+
+      // nothing changed
+      if (mutations.isEmpty()) {
+        return;
+      }
+
+      // next version, written with the changed fields
+      if (version != null) {
+        version.getAccessor().set(hBaseEntity, expected == null ? 1L : expected + 1);
+
+        gHBean.addVersion(mutations);
+      }
+
+      // index entries first, the replaced ones are dropped once the row is written
+      final List<Delete> replaced = writeIndexes(table, hBaseEntity, false);
+
+      // save or update inside table
+      if (version == null && mutations.size() == 1 && mutations.get(0) instanceof Put) {
+        table.put((Put) mutations.get(0));
+      }
+      else if (version == null) {
+        table.mutateRow(toRowMutations(mutations));
+      }
+      else if (!checkAndMutate(table, version, expected, mutations)) {
+
+        // the cached row is older than the stored one
+        invalidate(hBaseEntity.getClass(), mutations);
+
+        throw new OptimisticLockException(hBaseEntity.getClass().getName(), expected);
+      }
+
+      // cached rows are stale
+      invalidate(hBaseEntity.getClass(), mutations);
+
+      // written cells, compared by the next update
+      if (tracked) {
+        snapshots.put(hBaseEntity, gHBean.getSnapshot());
+      }
+
+      deleteIndexes(hBaseEntity.getClass(), replaced);
+    }
+    catch (OptimisticLockException e) {
+      version.getAccessor().set(hBaseEntity, expected);
+
+      throw e;
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      // not written
+      if (version != null) {
+        version.getAccessor().set(hBaseEntity, expected);
+      }
+
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  /**
+   * Apply the mutations of a row in a single atomic operation, if the version column still holds
+   * the expected value.
+   * 
+   * @param table entity {@linkplain org.apache.hadoop.hbase.client.Table}
+   * @param version version {@link FieldConfiguration}
+   * @param expected expected version, <code>null</code> for a row without version
+   * @param mutations {@linkplain java.util.List} of puts and deletes of the row
+   * 
+   * @return <code>true</code> when applied
+   * 
+   * @throws IOException
+   */
+  protected boolean checkAndMutate(Table table, FieldConfiguration version, Long expected,
+      List<? extends Mutation> mutations) throws IOException {
+
+    final RowMutations row = toRowMutations(mutations);
+
+    // a null value checks the column is missing
+    return table.checkAndMutate(row.getRow(), version.getFamilyBytes(), version.getColumnBytes(),
+        CompareOp.EQUAL, expected == null ? null : Bytes.toBytes(expected.longValue()), row);
+  }
+
+  /**
+   * @param mutations {@linkplain java.util.List} of puts and deletes of a single row
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.client.RowMutations} applied atomically
+   * 
+   * @throws IOException
+   */
+  private static RowMutations toRowMutations(List<? extends Mutation> mutations)
+      throws IOException {
+
+    final RowMutations row = new RowMutations(mutations.get(0).getRow());
+
+    for (Mutation mutation : mutations) {
+
+      if (mutation instanceof Put) {
+        row.add((Put) mutation);
+      }
+      else {
+        row.add((Delete) mutation);
+      }
+    }
+
+    return row;
+  }
+
+  /**
+   * Load, change and update an entity, loading and changing it again when the update finds a
+   * newer version. Replaces a lock around the read-modify-write of versioned entities.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param rowKey row key value, of the row key field type
+   * @param change applied to the loaded entity, once for each attempt
+   * @param maxAttempts maximum updates tried
+   * 
+   * @return updated entity, <code>null</code> when the row does not exist
+   * 
+   * @throws OptimisticLockException when every attempt found a newer version
+   * @throws IOException
+   */
+  public <T extends Serializable> T updateWithRetry(Class<T> clazz, Object rowKey,
+      Consumer<T> change, int maxAttempts) throws IOException {
+
+    OptimisticLockException conflict = null;
+
+    for (int attempt = 0; attempt < Math.max(1, maxAttempts); attempt++) {
+
+      final T entity = load(clazz, rowKey);
+
+      // check
+      if (entity == null) {
+        return null;
+      }
+
+      change.accept(entity);
+
+      try {
+        update(entity);
+
+        return entity;
+      }
+      catch (OptimisticLockException e) {
+        LOGGER.logDebug("Attempt [%s] of [%s]: %s", attempt + 1, maxAttempts, e.getMessage());
+
+        conflict = e;
+      }
+    }
+
+    throw conflict;
+  }
+
+  /**
+   * Invalidate the cached rows written by mutations.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param mutations {@linkplain java.util.List} of mutations
+   */
+  protected void invalidate(Class<?> clazz, List<? extends Mutation> mutations) {
+
+    final EntityCache cache = HBaseConnectionFactory.getInstance().getEntityCache(clazz);
+
+    // check
+    if (cache != null) {
+      for (Mutation mutation : mutations) {
+        cache.invalidate(mutation.getRow());
+      }
+    }
+  }
+
+  /**
+   * Invalidate a cached row.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param row row key
+   */
+  protected void invalidate(Class<?> clazz, byte[] row) {
+
+    final EntityCache cache = HBaseConnectionFactory.getInstance().getEntityCache(clazz);
+
+    // check
+    if (cache != null) {
+      cache.invalidate(row);
+    }
+  }
+
+  /**
+   * Delete entire row.
+   * 
+   * @param clazz {@linkplain java.lang.Class<K>}
+   * @param rowKey row key value, of the row key field type
+   * 
+   * @throws IOException
+   */
+  public <K extends Serializable> void delete(Class<K> clazz, Object rowKey) throws IOException {
+
+    try (Table table = getTable(clazz);) {
+
+      // get by rowId
+      Delete delete = new Delete(toRowKey(clazz, rowKey));
+
+      // index entries of the current values
+      final List<Delete> indexes = readIndexes(table, clazz, delete.getRow(), null);
+
+      // delete
+      table.delete(delete);
+
+      // cached row is stale
+      invalidate(clazz, delete.getRow());
+
+      deleteIndexes(clazz, indexes);
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  /**
+   * Delete enitre column family values.
+   * 
+   * @param clazz {@linkplain java.lang.Class<K>}
+   * @param rowKey row key value, of the row key field type
+   * @param family family name
+   * 
+   * @throws IOException
+   */
+  public <K extends Serializable> void deleteFamily(Class<K> clazz, Object rowKey, String family)
+      throws IOException {
+
+    try (Table table = getTable(clazz);) {
+
+      // get by rowId
+      Delete delete = new Delete(toRowKey(clazz, rowKey));
+
+      // add family name
+      delete.addFamily(Bytes.toBytes(family));
+
+      // index entries of the current values in the family
+      final List<Delete> indexes = readIndexes(table, clazz, delete.getRow(), family);
+
+      // delete
+      table.delete(delete);
+
+      // cached row is stale
+      invalidate(clazz, delete.getRow());
+
+      deleteIndexes(clazz, indexes);
+
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  /**
+   * Write the index entries of the new values of an entity, before the row itself: a reader
+   * follows an entry only to a row holding its value, so entries written ahead are harmless.
+   * 
+   * @param table entity {@linkplain org.apache.hadoop.hbase.client.Table}
+   * @param hBaseEntity entity to write
+   * @param isSaveMode <code>true</code> on save, <code>false</code> on update
+   * 
+   * @return {@linkplain java.util.List} of index deletes of the replaced values, to apply once the
+   *         row is written
+   * 
+   * @throws IOException
+   */
+  protected List<Delete> writeIndexes(Table table, Object hBaseEntity, boolean isSaveMode)
+      throws IOException {
+
+    final Class<?> clazz = hBaseEntity.getClass();
+
+    final ClassConfiguration cc =
+        HBaseConnectionFactory.getInstance().getClassConfiguration(clazz.getName());
+
+    // check
+    if (cc.getIndexedFields().isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    final byte[] row = toRowKey(clazz, cc.getRowKeyField().getAccessor().get(hBaseEntity));
+
+    // written fields only
+    final List<FieldConfiguration> fields = new ArrayList<>(cc.getIndexedFields().size());
+
+    for (FieldConfiguration field : cc.getIndexedFields()) {
+      if (isSaveMode ? field.isInsertable() : field.isUpdatable()) {
+        fields.add(field);
+      }
+    }
+
+    final Map<FieldConfiguration, byte[]> current = readIndexKeys(table, row, fields);
+
+    final List<Put> puts = new ArrayList<>(fields.size());
+    final List<Delete> replaced = new ArrayList<>(0);
+
+    for (FieldConfiguration field : fields) {
+
+      final Object value = field.getAccessor().get(hBaseEntity);
+
+      final byte[] entry = value == null ? null : indexKey(field, value, row);
+      final byte[] previous = current.get(field);
+
+      // unchanged
+      if (Arrays.equals(entry, previous)) {
+        continue;
+      }
+
+      if (entry != null) {
+        puts.add(
+            new Put(entry).addColumn(INDEX_FAMILY, INDEX_COLUMN, HConstants.EMPTY_BYTE_ARRAY));
+      }
+
+      if (previous != null) {
+        replaced.add(new Delete(previous));
+      }
+    }
+
+    // check
+    if (!puts.isEmpty()) {
+      try (Table index = getIndexTable(clazz);) {
+        index.put(puts);
+      }
+    }
+
+    return replaced;
+  }
+
+  /**
+   * Read the index entries of the current values of a row.
+   * 
+   * @param table entity {@linkplain org.apache.hadoop.hbase.client.Table}
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param row entity row key
+   * @param family only the fields of this family, <code>null</code> for all
+   * 
+   * @return {@linkplain java.util.List} of index deletes
+   * 
+   * @throws IOException
+   */
+  protected List<Delete> readIndexes(Table table, Class<?> clazz, byte[] row, String family)
+      throws IOException {
+
+    final ClassConfiguration cc =
+        HBaseConnectionFactory.getInstance().getClassConfiguration(clazz.getName());
+
+    final List<FieldConfiguration> fields = new ArrayList<>(cc.getIndexedFields().size());
+
+    for (FieldConfiguration field : cc.getIndexedFields()) {
+      if (family == null || family.equals(field.getFamilyName())) {
+        fields.add(field);
+      }
+    }
+
+    final List<Delete> deletes = new ArrayList<>(fields.size());
+
+    for (byte[] entry : readIndexKeys(table, row, fields).values()) {
+      deletes.add(new Delete(entry));
+    }
+
+    return deletes;
+  }
+
+  /**
+   * Read the stored values of indexed fields, in a single get, as index row keys.
+   * 
+   * @param table entity {@linkplain org.apache.hadoop.hbase.client.Table}
+   * @param row entity row key
+   * @param fields indexed {@link FieldConfiguration} to read
+   * 
+   * @return {@linkplain java.util.Map} of index row key by field, missing values are absent
+   * 
+   * @throws IOException
+   */
+  private Map<FieldConfiguration, byte[]> readIndexKeys(Table table, byte[] row,
+      List<FieldConfiguration> fields) throws IOException {
+
+    final Map<FieldConfiguration, byte[]> entries = new LinkedHashMap<>();
+
+    // check
+    if (fields.isEmpty()) {
+      return entries;
+    }
+
+    final Get get = new Get(row);
+
+    for (FieldConfiguration field : fields) {
+      get.addColumn(field.getFamilyBytes(), field.getColumnBytes());
+    }
+
+    final Result result = table.get(get);
+
+    for (FieldConfiguration field : fields) {
+
+      final Cell cell = result.getColumnLatestCell(field.getFamilyBytes(), field.getColumnBytes());
+
+      // null values are written empty
+      if (cell == null || cell.getValueLength() == 0) {
+        continue;
+      }
+
+      final Object value = field.getCodec().decode(cell.getValueArray(), cell.getValueOffset(),
+          cell.getValueLength());
+
+      entries.put(field, indexKey(field, value, row));
+    }
+
+    return entries;
+  }
+
+  /**
+   * Delete index entries.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param deletes {@linkplain java.util.List} of index deletes
+   * 
+   * @throws IOException
+   */
+  protected void deleteIndexes(Class<?> clazz, List<Delete> deletes) throws IOException {
+
+    // check
+    if (deletes.isEmpty()) {
+      return;
+    }
+
+    try (Table index = getIndexTable(clazz);) {
+      // the client removes the applied deletes from the list
+      index.delete(new ArrayList<>(deletes));
+    }
+  }
+
+  /**
+   * @param field indexed {@link FieldConfiguration}
+   * @param value field value, <code>null</code> for the prefix of every value
+   * @param row entity row key, <code>null</code> for the prefix of every row
+   * 
+   * @return index row key, a prefix without row
+   */
+  protected static byte[] indexKey(FieldConfiguration field, Object value, byte[] row) {
+
+    final Object[] components = {field.getFieldName(), value, row};
+
+    return row == null ? field.getIndexCodec().encodePrefix(components)
+        : field.getIndexCodec().encode(components);
+  }
+
+  /**
+   * @param field indexed {@link FieldConfiguration}
+   * 
+   * @return first index row key after every entry of the field
+   */
+  protected static byte[] indexStop(FieldConfiguration field) {
+
+    // the field name ends with a zero terminator, step over every value
+    final byte[] stop = indexKey(field, null, null);
+    stop[stop.length - 1]++;
+
+    return stop;
+  }
+
+  /**
+   * Decide whether an index entry whose row does not hold its value can be dropped.
+   * 
+   * @param cell latest cell of the indexed column, <code>null</code> when missing
+   * @param written timestamp of the index entry
+   * @param now current time in milliseconds
+   * 
+   * @return <code>true</code> when the row was rewritten after the entry, or the entry is older
+   *         than {@link #INDEX_REPAIR_DELAY}
+   */
+  protected static boolean isStaleEntry(Cell cell, long written, long now) {
+    return (cell != null && cell.getTimestamp() > written) || now - written > INDEX_REPAIR_DELAY;
+  }
+
+  /**
+   * Find entities by the value of an indexed field: a scan of the index entries, then a batched
+   * get of their rows.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param fieldName name of a field with {@code @HBaseColumn(indexed = true)}
+   * @param value searched value
+   * 
+   * @return {@linkplain java.util.List} of entities holding the value, in row key order
+   * 
+   * @throws IOException
+   */
+  public <T extends Serializable> List<T> findBy(Class<T> clazz, String fieldName, Object value)
+      throws IOException {
+
+    final FieldConfiguration field = getIndexedField(clazz, fieldName);
+
+    // check
+    if (value == null) {
+      throw new IOException(String.format("Null value for index of [%s]", fieldName));
+    }
+
+    final Scan scan = new Scan();
+    scan.setRowPrefixFilter(indexKey(field, value, null));
+
+    return findByIndex(clazz, field, scan);
+  }
+
+  /**
+   * Find entities by a range of values of an indexed field.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param fieldName name of a field with {@code @HBaseColumn(indexed = true)}
+   * @param from first value, inclusive, <code>null</code> for no lower bound
+   * @param to last value, exclusive, <code>null</code> for no upper bound
+   * 
+   * @return {@linkplain java.util.List} of entities, in value order
+   * 
+   * @throws IOException
+   */
+  public <T extends Serializable> List<T> findRange(Class<T> clazz, String fieldName, Object from,
+      Object to) throws IOException {
+
+    final FieldConfiguration field = getIndexedField(clazz, fieldName);
+
+    final Scan scan = new Scan(indexKey(field, from, null));
+
+    // check
+    if (to != null) {
+      scan.setStopRow(indexKey(field, to, null));
+    }
+    else {
+      scan.setStopRow(indexStop(field));
+    }
+
+    return findByIndex(clazz, field, scan);
+  }
+
+  /**
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param fieldName field name
+   * 
+   * @return indexed {@link FieldConfiguration}
+   * 
+   * @throws IOException when the field is not indexed
+   */
+  private FieldConfiguration getIndexedField(Class<?> clazz, String fieldName) throws IOException {
+
+    final FieldConfiguration field = HBaseConnectionFactory.getInstance()
+        .getClassConfiguration(clazz.getName()).getFieldConfiguration(fieldName);
+
+    // check
+    if (field == null || !field.isIndexed()) {
+      throw new IOException(
+          String.format("No indexed field [%s] in [%s]", fieldName, clazz.getName()));
+    }
+
+    return field;
+  }
+
+  /**
+   * Read the index entries of a scan, then their rows in a single batch. An entry is returned
+   * only when its row still holds the value; otherwise it is stale, left by a failed or
+   * concurrent write, and is dropped once the row was rewritten after it, or once it is older than
+   * {@link #INDEX_REPAIR_DELAY} without its value, as after a failed or rejected update.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of <T extends java.io.Serializable>
+   * @param field indexed {@link FieldConfiguration}
+   * @param scan {@linkplain org.apache.hadoop.hbase.client.Scan} of the index table
+   * 
+   * @return {@linkplain java.util.List} of entities, in index order
+   * 
+   * @throws IOException
+   */
+  protected <T extends Serializable> List<T> findByIndex(Class<T> clazz, FieldConfiguration field,
+      Scan scan) throws IOException {
+
+    final List<Result> entries = new ArrayList<>(0);
+
+    // index entries
+    try (Table index = getIndexTable(clazz); ResultScanner scanner = index.getScanner(scan);) {
+      for (Result result : scanner) {
+        entries.add(result);
+      }
+    }
+
+    final List<T> entities = new ArrayList<>(entries.size());
+
+    // check
+    if (entries.isEmpty()) {
+      return entities;
+    }
+
+    // the indexed column is needed to check the entries
+    final List<HBaseColumnParam> projection = new ArrayList<>(getProjection(clazz, null));
+
+    if (!projection.isEmpty()
+        && !projection.contains(new HBaseColumnParam(field.getFamilyName(), null))) {
+      projection.add(new HBaseColumnParam(field.getFamilyName(), field.getColumnName()));
+    }
+
+    final List<Get> gets = new ArrayList<>(entries.size());
+
+    for (Result entry : entries) {
+      gets.add(createGet((byte[]) field.getIndexCodec().decode(entry.getRow())[2], projection));
+    }
+
+    final Result[] results;
+
+    try (Table table = getTable(clazz);) {
+      results = table.get(gets);
+    }
+
+    final T[] decoded =
+        decodeAll(clazz, results, getUnreadFields(clazz, gets.get(0).getFamilyMap()));
+
+    final List<Delete> stale = new ArrayList<>(0);
+
+    final long now = System.currentTimeMillis();
+
+    for (int i = 0; i < decoded.length; i++) {
+
+      final Result entry = entries.get(i);
+
+      final Object value = decoded[i] == null ? null : field.getAccessor().get(decoded[i]);
+
+      // row holds the value
+      if (value != null
+          && Arrays.equals(indexKey(field, value, results[i].getRow()), entry.getRow())) {
+        entities.add(decoded[i]);
+
+        continue;
+      }
+
+      final long written = entry.rawCells()[0].getTimestamp();
+
+      final Cell cell = results[i] == null ? null
+          : results[i].getColumnLatestCell(field.getFamilyBytes(), field.getColumnBytes());
+
+      // rewritten after the entry, or left by a failed write
+      if (isStaleEntry(cell, written, now)) {
+        stale.add(new Delete(entry.getRow()));
+      }
+    }
+
+    // repair
+    if (!stale.isEmpty()) {
+      LOGGER.logDebug("Dropping [%s] stale index entries of [%s]", stale.size(),
+          field.getFieldName());
+
+      deleteIndexes(clazz, stale);
+    }
+
+    return entities;
+  }
+
+  /**
+   * Atomically increment a counter field, in a single round trip.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param rowKey row key value, of the row key field type
+   * @param fieldName name of a {@code @Counter} field
+   * @param delta increment, negative to decrement
+   * 
+   * @return new value, <code>null</code> for sharded counters, whose total is read by
+   *         {@link #getCounter(Class, Object, String)}
+   * 
+   * @throws IOException
+   */
+  public Long increment(Class<?> clazz, Object rowKey, String fieldName, long delta)
+      throws IOException {
+    return increment(clazz, rowKey, Collections.singletonMap(fieldName, delta)).get(fieldName);
+  }
+
+  /**
+   * Atomically increment many counter fields of a row with a single increment. Sharded counters
+   * go to one shard row picked at random.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param rowKey row key value, of the row key field type
+   * @param deltas {@linkplain java.util.Map} of increments by counter field name
+   * 
+   * @return {@linkplain java.util.Map} of new values by field name, without sharded counters
+   * 
+   * @throws IOException
+   */
+  public Map<String, Long> increment(Class<?> clazz, Object rowKey, Map<String, Long> deltas)
+      throws IOException {
+
+    final byte[] row = toRowKey(clazz, rowKey);
+
+    final Increment increment = new Increment(row);
+
+    // shard rows by shard
+    final Map<Integer, Increment> shards = new TreeMap<>();
+
+    // one draw per shard count, fields sharing it share the shard row
+    final Map<Integer, Integer> picks = new HashMap<>();
+
+    final List<FieldConfiguration> fields = new ArrayList<>(deltas.size());
+
+    for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+
+      final FieldConfiguration field = getCounterField(clazz, delta.getKey());
+
+      // check
+      if (field.getCounterShards() > 0) {
+
+        final int shard = picks.computeIfAbsent(field.getCounterShards(),
+            n -> ThreadLocalRandom.current().nextInt(n));
+
+        shards.computeIfAbsent(shard, s -> new Increment(shardRow(row, s)).setReturnResults(false))
+            .addColumn(field.getFamilyBytes(), field.getColumnBytes(), delta.getValue());
+      }
+      else {
+        increment.addColumn(field.getFamilyBytes(), field.getColumnBytes(), delta.getValue());
+        fields.add(field);
+      }
+    }
+
+    final Map<String, Long> values = new LinkedHashMap<>();
+
+    try {
+      // row counters
+      if (!fields.isEmpty()) {
+
+        final Result result;
+
+        try (Table table = getTable(clazz);) {
+          result = table.increment(increment);
+        }
+
+        // cached row is stale
+        invalidate(clazz, row);
+
+        for (FieldConfiguration field : fields) {
+          values.put(field.getFieldName(),
+              Bytes.toLong(result.getValue(field.getFamilyBytes(), field.getColumnBytes())));
+        }
+      }
+
+      // shard counters
+      if (!shards.isEmpty()) {
+        try (Table table = openTable(getCounterTableName(clazz));) {
+          for (Increment current : shards.values()) {
+            table.increment(current);
+          }
+        }
+      }
+
+      return values;
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  /**
+   * Read the value of a counter field: the row value plus, for sharded counters, the value of
+   * every shard, read in a single batch.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param rowKey row key value, of the row key field type
+   * @param fieldName name of a {@code @Counter} field
+   * 
+   * @return counter value, 0 when never written
+   * 
+   * @throws IOException
+   */
+  public long getCounter(Class<?> clazz, Object rowKey, String fieldName) throws IOException {
+
+    final FieldConfiguration field = getCounterField(clazz, fieldName);
+
+    final byte[] row = toRowKey(clazz, rowKey);
+
+    long value = 0;
+
+    try {
+      try (Table table = getTable(clazz);) {
+        value += counterValue(field,
+            table.get(new Get(row).addColumn(field.getFamilyBytes(), field.getColumnBytes())));
+      }
+
+      // check
+      if (field.getCounterShards() > 0) {
+
+        final List<Get> gets = new ArrayList<>(field.getCounterShards());
+
+        for (int shard = 0; shard < field.getCounterShards(); shard++) {
+          gets.add(new Get(shardRow(row, shard)).addColumn(field.getFamilyBytes(),
+              field.getColumnBytes()));
+        }
+
+        try (Table table = openTable(getCounterTableName(clazz));) {
+          for (Result result : table.get(gets)) {
+            value += counterValue(field, result);
+          }
+        }
+      }
+
+      return value;
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  /**
+   * Queue a counter increment: increments of the same cell are summed on the client for the
+   * window of the {@link CounterBuffer}, then written together.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param rowKey row key value, of the row key field type
+   * @param fieldName name of a {@code @Counter} field
+   * @param delta increment, negative to decrement
+   * 
+   * @throws IOException
+   */
+  public void incrementLater(Class<?> clazz, Object rowKey, String fieldName, long delta)
+      throws IOException {
+
+    // fail now on a wrong field
+    getCounterField(clazz, fieldName);
+
+    getCounterBuffer().add(clazz, toRowKey(clazz, rowKey), fieldName, delta);
+  }
+
+  /**
+   * Write the queued counter increments.
+   * 
+   * @throws IOException
+   */
+  public void flushCounters() throws IOException {
+    getCounterBuffer().flush();
+  }
+
+  /**
+   * @return {@link CounterBuffer} of the factory, or of this handle when it owns its connection
+   */
+  protected CounterBuffer getCounterBuffer() {
+
+    // shared
+    if (factory != null) {
+      return factory.getCounterBuffer();
+    }
+
+    // check
+    if (counterBuffer == null) {
+      synchronized (closed) {
+        if (counterBuffer == null) {
+          counterBuffer = new CounterBuffer(
+              HBaseConnectionFactory.getInstance().getCounterWindow(), () -> this, false);
+        }
+      }
+    }
+
+    return counterBuffer;
+  }
+
+  /**
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param fieldName field name
+   * 
+   * @return counter {@link FieldConfiguration}
+   * 
+   * @throws IOException when the field is not a counter
+   */
+  private FieldConfiguration getCounterField(Class<?> clazz, String fieldName)
+      throws IOException {
+
+    final FieldConfiguration field = HBaseConnectionFactory.getInstance()
+        .getClassConfiguration(clazz.getName()).getFieldConfiguration(fieldName);
+
+    // check
+    if (field == null || !field.isCounter()) {
+      throw new IOException(
+          String.format("No counter field [%s] in [%s]", fieldName, clazz.getName()));
+    }
+
+    return field;
+  }
+
+  /**
+   * @param row entity row key
+   * @param shard shard number
+   * 
+   * @return counter shard row key: shard byte, then the entity row key
+   */
+  private static byte[] shardRow(byte[] row, int shard) {
+
+    final byte[] shardRow = new byte[row.length + 1];
+
+    shardRow[0] = (byte) shard;
+    System.arraycopy(row, 0, shardRow, 1, row.length);
+
+    return shardRow;
+  }
+
+  /**
+   * @param field counter {@link FieldConfiguration}
+   * @param result {@linkplain org.apache.hadoop.hbase.client.Result} holding the counter cell
+   * 
+   * @return cell value, 0 when missing
+   */
+  private static long counterValue(FieldConfiguration field, Result result) {
+
+    final Cell cell = result == null ? null
+        : result.getColumnLatestCell(field.getFamilyBytes(), field.getColumnBytes());
+
+    // check
+    if (cell == null || cell.getValueLength() != Bytes.SIZEOF_LONG) {
+      return 0;
+    }
+
+    return Bytes.toLong(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+  }
+
+  /**
+   * Encode a row key value as the entity row key.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param rowKey row key value, byte arrays are taken as they are
+   * 
+   * @return row key bytes, empty for <code>null</code>
+   */
+  @SuppressWarnings("unchecked")
+  protected byte[] toRowKey(Class<?> clazz, Object rowKey) {
+
+    // check
+    if (rowKey == null) {
+      return HConstants.EMPTY_BYTE_ARRAY;
+    }
+
+    if (rowKey instanceof byte[]) {
+      return (byte[]) rowKey;
+    }
+
+    // get class configuration
+    final ClassConfiguration cc =
+        HBaseConnectionFactory.getInstance().getClassConfiguration(clazz.getName());
+
+    return cc.getRowKeyField().getCodec().encode(rowKey);
+  }
+
+  /**
+   * Encode a row key value as a scan bound inside a salt bucket.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param rowKey row key value, byte arrays are taken as unsalted keys
+   * @param bucket salt bucket, negative for unsalted row keys
+   * 
+   * @return bound bytes, the bucket start for <code>null</code>; composite keys may miss trailing
+   *         components
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  protected byte[] toKeyBound(Class<?> clazz, Object rowKey, int bucket) {
+
+    final byte[] key;
+
+    if (rowKey == null) {
+      key = HConstants.EMPTY_BYTE_ARRAY;
+    }
+    else if (rowKey instanceof byte[]) {
+      key = (byte[]) rowKey;
+    }
+    else {
+      final ClassConfiguration cc =
+          HBaseConnectionFactory.getInstance().getClassConfiguration(clazz.getName());
+
+      final FieldCodec codec = bucket < 0 ? cc.getRowKeyField().getCodec()
+          : ((SaltedCodec) cc.getRowKeyField().getCodec()).getDelegate();
+
+      // prefix of composite keys
+      key = codec instanceof KeyPrefixCodec ? ((KeyPrefixCodec) codec).encodePrefix(rowKey)
+          : codec.encode(rowKey);
+    }
+
+    // unsalted
+    if (bucket < 0) {
+      return key;
+    }
+
+    return Bytes.add(new byte[] {(byte) bucket}, key);
+  }
+
+  /**
+   * @param bucket salt bucket
+   * 
+   * @return first row key after the bucket, empty after the last possible bucket
+   */
+  private static byte[] bucketEnd(int bucket) {
+    return bucket + 1 < SaltedCodec.MAX_BUCKETS ? new byte[] {(byte) (bucket + 1)}
+        : HConstants.EMPTY_BYTE_ARRAY;
+  }
+
+  /**
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * 
+   * @return salt buckets of the row key, not positive when unsalted
+   */
+  protected int getSaltBuckets(Class<?> clazz) {
+    return HBaseConnectionFactory.getInstance().getClassConfiguration(clazz.getName())
+        .getSaltBuckets();
+  }
+
+  /**
+   * Build the scans for entity params: one for each salt bucket, otherwise only one.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param params {@link HBaseParams}
+   * 
+   * @return {@linkplain java.util.List} of {@linkplain org.apache.hadoop.hbase.client.Scan} by
+   *         bucket
+   * 
+   * @throws IOException
+   */
+  protected List<Scan> createScans(Class<?> clazz, HBaseParams params) throws IOException {
+
+    final int buckets = getSaltBuckets(clazz);
+
+    // unsalted
+    if (buckets <= 0) {
+      return Collections.singletonList(createScan(clazz, params));
+    }
+
+    final List<Scan> scans = new ArrayList<>(buckets);
+
+    for (int bucket = 0; bucket < buckets; bucket++) {
+      scans.add(createScan(clazz, params, bucket));
+    }
+
+    return scans;
+  }
+
+  /**
+   * Build the scan for entity params, on unsalted row keys.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param params {@link HBaseParams}
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.client.Scan}
+   * 
+   * @throws IOException
+   */
+  protected Scan createScan(Class<?> clazz, HBaseParams params) throws IOException {
+    return createScan(clazz, params, -1);
+  }
+
+  /**
+   * Build the scan for entity params inside a salt bucket.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param params {@link HBaseParams}
+   * @param bucket salt bucket, negative for unsalted row keys
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.client.Scan}
+   * 
+   * @throws IOException
+   */
+  protected Scan createScan(Class<?> clazz, HBaseParams params, int bucket) throws IOException {
+
+    // get scan
+    Scan scan = new Scan();
+
+    // only last version
+    scan.setMaxVersions(1);
+
+    // whole bucket
+    if (bucket >= 0) {
+      scan.setStartRow(toKeyBound(clazz, null, bucket));
+      scan.setStopRow(bucketEnd(bucket));
+    }
+
+    // row key bounds: only the regions holding them are read
+    if (params.getRowPrefix() != null) {
+      scan.setRowPrefixFilter(toKeyBound(clazz, params.getRowPrefix(), bucket));
+    }
+
+    if (params.getStartRow() != null) {
+      scan.setStartRow(toKeyBound(clazz, params.getStartRow(), bucket));
+    }
+
+    if (params.getStopRow() != null) {
+      scan.setStopRow(toKeyBound(clazz, params.getStopRow(), bucket));
+    }
+
+    // disjoint ranges
+    Filter rangeFilter = null;
+
+    if (!params.getRowRanges().isEmpty()) {
+
+      final List<RowRange> ranges = new ArrayList<>(params.getRowRanges().size());
+
+      for (HBaseRowRangeParam current : params.getRowRanges()) {
+
+        // open stop in a bucket: bucket end
+        if (bucket >= 0 && current.getStop() == null) {
+          ranges.add(new RowRange(toKeyBound(clazz, current.getStart(), bucket),
+              current.isStartInclusive(), bucketEnd(bucket), false));
+        }
+        else {
+          ranges.add(new RowRange(toKeyBound(clazz, current.getStart(), bucket),
+              current.isStartInclusive(), toKeyBound(clazz, current.getStop(), bucket),
+              current.isStopInclusive()));
+        }
+      }
+
+      final MultiRowRangeFilter multiRange = new MultiRowRangeFilter(ranges);
+
+      // no explicit bounds: scan only from the first range to the last one
+      if (params.getRowPrefix() == null && params.getStartRow() == null
+          && params.getStopRow() == null) {
+
+        final List<RowRange> merged = multiRange.getRowRanges();
+
+        final RowRange first = merged.get(0);
+        final RowRange last = merged.get(merged.size() - 1);
+
+        scan.setStartRow(first.getStartRow());
+
+        // inclusive stop: next possible row key
+        if (last.getStopRow().length > 0 && last.isStopRowInclusive()) {
+          scan.setStopRow(Bytes.add(last.getStopRow(), new byte[] {0}));
+        }
+        else {
+          scan.setStopRow(last.getStopRow());
+        }
+      }
+
+      rangeFilter = multiRange;
+    }
+
+    // add columns and extra columns: the scanner stream is the only round trip
+    final List<HBaseColumnParam> columns = params.getAllColumns().isEmpty()
+        ? getProjection(clazz, params.getFetchGroups()) : params.getAllColumns();
+
+    for (HBaseColumnParam current : columns) {
+
+      // check
+      if (StringUtil.isEmpty(current.getColumnName())) {
+
+        // add only family
+        scan.addFamily(Bytes.toBytes(current.getFamilyName()));
+      }
+      else {
+        // add column to scan
+        scan.addColumn(Bytes.toBytes(current.getFamilyName()),
+            Bytes.toBytes(current.getColumnName()));
+      }
+    }
+
+    // add filters: ranges, typed conditions and user filters must all pass
+    final List<Filter> filters = new ArrayList<>(3);
+
+    if (rangeFilter != null) {
+      filters.add(rangeFilter);
+    }
+
+    if (params.getWhere() != null) {
+      filters.add(whereFilter(clazz, params.getWhere(), scan));
+    }
+
+    if (!params.isFiltersEmpty()) {
+      filters.add(params.getFilters());
+    }
+
+    if (filters.size() == 1) {
+      scan.setFilter(filters.get(0));
+    }
+    else if (filters.size() > 1) {
+      scan.setFilter(new FilterList(Operator.MUST_PASS_ALL, filters));
+    }
+
+    // scanner tuning
+    if (params.getCaching() > 0) {
+      scan.setCaching(params.getCaching());
+    }
+
+    // unsorted limit: do not fetch more rows than needed
+    if (params.getLimit() > 0 && params.getComparator() == null
+        && (params.getCaching() <= 0 || params.getCaching() > params.getLimit())) {
+      scan.setCaching(params.getLimit());
+    }
+
+    if (params.getBatch() > 0) {
+      scan.setBatch(params.getBatch());
+    }
+
+    if (params.getMaxResultSize() > 0) {
+      scan.setMaxResultSize(params.getMaxResultSize());
+    }
+
+    return scan;
+  }
+
+  /**
+   * Iterate rows by filters in row key order. Rows are read and decoded on demand from the live
+   * scanner, the returned {@link EntityScanner} must be closed. The comparator is not applied, the
+   * limit only when there is no comparator. Salted row keys are read from every bucket at once and
+   * merged in key order.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * 
+   * @return {@link EntityScanner}
+   * 
+   * @throws IOException
+   */
+  public <T extends Serializable> EntityScanner<T> iterate(Class<T> hBaseEntityClass,
+      HBaseParams params) throws IOException {
+
+    final List<Scan> scans = createScans(hBaseEntityClass, params);
+
+    final int limit = params.getComparator() == null ? params.getLimit() : -1;
+
+    // check
+    if (scans.size() == 1) {
+      return openScanner(hBaseEntityClass, scans.get(0), limit);
+    }
+
+    return openMerged(hBaseEntityClass, scans, limit);
+  }
+
+  /**
+   * Compile a typed condition. Value filters only see the columns read by the scan, so tested
+   * columns are added to a projected scan.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * @param condition {@link Condition}
+   * @param scan {@linkplain org.apache.hadoop.hbase.client.Scan} to complete
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.filter.Filter}
+   * 
+   * @throws IOException
+   */
+  protected Filter whereFilter(Class<?> clazz, Condition condition, Scan scan)
+      throws IOException {
+
+    final ClassConfiguration cc =
+        HBaseConnectionFactory.getInstance().getClassConfiguration(clazz.getName());
+
+    final Filter filter;
+
+    try {
+      filter = condition.toFilter(cc);
+    }
+    catch (IllegalArgumentException e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new IOException(e.getMessage(), e);
+    }
+
+    // whole row read
+    if (!scan.hasFamilies()) {
+      return filter;
+    }
+
+    final Set<String> fieldNames = new HashSet<>();
+
+    condition.collectFields(fieldNames);
+
+    for (String fieldName : fieldNames) {
+
+      final FieldConfiguration field = cc.getFieldConfiguration(fieldName);
+
+      // row key is always there
+      if (field == cc.getRowKeyField()) {
+        continue;
+      }
+
+      final NavigableSet<byte[]> qualifiers = scan.getFamilyMap().get(field.getFamilyBytes());
+
+      // family not read, or read by columns
+      if (!scan.getFamilyMap().containsKey(field.getFamilyBytes())
+          || (qualifiers != null && !qualifiers.contains(field.getColumnBytes()))) {
+        scan.addColumn(field.getFamilyBytes(), field.getColumnBytes());
+      }
+    }
+
+    return filter;
+  }
+
+  /**
+   * Open the entity scanner of a scan, owning its table.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param scan {@linkplain org.apache.hadoop.hbase.client.Scan}
+   * @param limit maximum rows returned, not positive for no limit
+   * 
+   * @return {@link EntityScanner}
+   * 
+   * @throws IOException
+   */
+  protected <T extends Serializable> EntityScanner<T> openScanner(Class<T> hBaseEntityClass,
+      Scan scan, int limit) throws IOException {
+
+    // get table
+    final Table table = getTable(hBaseEntityClass);
+
+    try {
+      return new EntityScanner<>(this, hBaseEntityClass, table, table.getScanner(scan),
+          scan.getBatch() > 0, limit, getUnreadFields(hBaseEntityClass, scan.getFamilyMap()));
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      // close table
+      table.close();
+
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  /**
+   * Open the scanners of salt buckets, in parallel, and merge them in row key order. The calling
+   * thread opens buckets too, so it never waits for executor threads that are not running.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param scans {@linkplain java.util.List} of {@linkplain org.apache.hadoop.hbase.client.Scan}
+   *        by bucket
+   * @param limit maximum rows returned, not positive for no limit
+   * 
+   * @return {@link EntityScanner}
+   * 
+   * @throws IOException
+   */
+  protected <T extends Serializable> EntityScanner<T> openMerged(Class<T> hBaseEntityClass,
+      List<Scan> scans, int limit) throws IOException {
+
+    final List<EntityScanner<T>> parts = new ArrayList<>(Collections.nCopies(scans.size(), null));
+    final Exception[] failures = new Exception[scans.size()];
+
+    final AtomicInteger cursor = new AtomicInteger(0);
+    final CountDownLatch done = new CountDownLatch(scans.size());
+
+    final Runnable worker = () -> {
+
+      int index;
+
+      // next bucket
+      while ((index = cursor.getAndIncrement()) < scans.size()) {
+
+        try {
+          final EntityScanner<T> part = openScanner(hBaseEntityClass, scans.get(index), limit);
+
+          parts.set(index, part);
+
+          // first rows read while the other buckets open
+          part.hasNext();
+        }
+        catch (IOException | RuntimeException e) {
+          failures[index] = e;
+        }
+        finally {
+          done.countDown();
+        }
+      }
+    };
+
+    final Executor executor = asyncExecutor();
+
+    for (int i = 1; i < Math.min(scans.size(), Runtime.getRuntime().availableProcessors()); i++) {
+      try {
+        executor.execute(worker);
+      }
+      catch (RejectedExecutionException e) {
+        // the calling thread opens the rest
+        break;
+      }
+    }
+
+    worker.run();
+
+    try {
+      done.await();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      failures[0] = e;
+    }
+
+    // first failure
+    for (Exception failure : failures) {
+
+      if (failure != null) {
+
+        for (EntityScanner<T> part : parts) {
+          if (part != null) {
+            part.close();
+          }
+        }
+
+        LOGGER.logError(failure.getMessage(), failure);
+
+        final Throwable cause =
+            failure instanceof UncheckedIOException ? failure.getCause() : failure;
+
+        throw new IOException(cause.getMessage(), cause);
+      }
+    }
+
+    return new EntityScanner<>(parts, 1, limit);
+  }
+
+  /**
+   * @return executor of background reads
+   */
+  private Executor asyncExecutor() {
+
+    // shared
+    if (factory != null) {
+      return factory.getAsyncExecutor();
+    }
+
+    // check
+    if (readExecutor == null) {
+      synchronized (closed) {
+        if (readExecutor == null) {
+          // bounded: over the bound, or once closed, the calling thread runs the read
+          readExecutor = new ThreadPoolExecutor(0, Runtime.getRuntime().availableProcessors(),
+              60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+              HBaseConnectionFactory.daemonThreads("g-hb-read-"), (task, pool) -> task.run());
+        }
+      }
+    }
+
+    return readExecutor;
+  }
+
+  /**
+   * Get rows by filters reading regions in parallel: the key range is split at region boundaries
+   * and each split is read by its own scanner, at most {@link HBaseParams#getParallelism()} at a
+   * time. Rows are returned in row key order when requested, otherwise as they arrive; then the
+   * comparator and the limit are applied. With a limit, unsorted reads stop once enough rows
+   * arrived, ordered ones read at most limit rows by split, and sorted ones keep only the first
+   * rows in a bounded heap.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * 
+   * @return {@linkplain java.util.List<T>}
+   * 
+   * @throws IOException
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> List<T> parallelScan(Class<T> hBaseEntityClass,
+      HBaseParams params) throws IOException {
+
+    final List<Scan> splits = splitByRegion(hBaseEntityClass, params);
+
+    final Comparator<T> comparator = (Comparator<T>) params.getComparator();
+
+    final int limit = params.getLimit();
+
+    // top N: head is the worst row kept
+    if (comparator != null && limit > 0) {
+
+      final PriorityQueue<T> heap = new PriorityQueue<>(limit + 1, comparator.reversed());
+
+      runSplits(hBaseEntityClass, params, splits, -1, (index, row) -> {
+        synchronized (heap) {
+          offer(heap, row, comparator, limit);
+        }
+
+        return true;
+      });
+
+      final List<T> results = new ArrayList<>(heap);
+
+      results.sort(comparator);
+
+      return results;
+    }
+
+    // the first rows of a split are enough without comparator
+    final int splitLimit = comparator == null ? limit : -1;
+
+    List<T> results;
+
+    // key order: one list per split, concatenated in split order
+    if (params.isKeyOrdered()) {
+
+      final List<List<T>> parts = new ArrayList<>(splits.size());
+
+      for (int i = 0; i < splits.size(); i++) {
+        parts.add(new ArrayList<>(0));
+      }
+
+      runSplits(hBaseEntityClass, params, splits, splitLimit,
+          (index, row) -> parts.get(index).add(row));
+
+      results = new ArrayList<>(0);
+
+      for (List<T> part : parts) {
+        results.addAll(part);
+      }
+
+      // salted: buckets one after the other
+      if (getSaltBuckets(hBaseEntityClass) > 0) {
+        results = sortByRowKey(hBaseEntityClass, results);
+      }
+    }
+    else {
+      final ConcurrentLinkedQueue<T> arrived = new ConcurrentLinkedQueue<>();
+
+      final AtomicInteger taken = new AtomicInteger(0);
+
+      // stop every split once enough rows arrived
+      runSplits(hBaseEntityClass, params, splits, splitLimit, (index, row) -> {
+
+        if (limit <= 0) {
+          return arrived.add(row);
+        }
+
+        final int count = taken.incrementAndGet();
+
+        if (count <= limit) {
+          arrived.add(row);
+        }
+
+        return count < limit;
+      });
+
+      results = new ArrayList<>(arrived);
+    }
+
+    // sort
+    if (comparator != null) {
+      results.sort(comparator);
+    }
+
+    // limit
+    if (limit > 0 && results.size() > limit) {
+      results = new ArrayList<>(results.subList(0, limit));
+    }
+
+    return results;
+  }
+
+  /**
+   * Sort entities of salted row keys by unsalted row key.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param entities {@linkplain java.util.List<T>}
+   * 
+   * @return {@linkplain java.util.List<T>} sorted
+   */
+  @SuppressWarnings("unchecked")
+  private <T extends Serializable> List<T> sortByRowKey(Class<T> hBaseEntityClass,
+      List<T> entities) {
+
+    final FieldConfiguration rowKeyField = HBaseConnectionFactory.getInstance()
+        .getClassConfiguration(hBaseEntityClass.getName()).getRowKeyField();
+
+    final List<SimpleImmutableEntry<byte[], T>> keyed = new ArrayList<>(entities.size());
+
+    // encode once
+    for (T entity : entities) {
+      keyed.add(new SimpleImmutableEntry<>(
+          rowKeyField.getCodec().encode(rowKeyField.getAccessor().get(entity)), entity));
+    }
+
+    // skip the bucket
+    keyed.sort((a, b) -> Bytes.compareTo(a.getKey(), 1, a.getKey().length - 1, b.getKey(), 1,
+        b.getKey().length - 1));
+
+    return keyed.stream().map(SimpleImmutableEntry::getValue).collect(Collectors.toList());
+  }
+
+  /**
+   * Read rows by filters reading regions in parallel, handing each row to the consumer as it
+   * arrives without keeping any of them. The consumer is called by many threads at once.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * @param consumer thread safe {@linkplain java.util.function.Consumer} of rows
+   * 
+   * @throws IOException
+   */
+  public <T extends Serializable> void parallelScan(Class<T> hBaseEntityClass, HBaseParams params,
+      Consumer<? super T> consumer) throws IOException {
+
+    runSplits(hBaseEntityClass, params, splitByRegion(hBaseEntityClass, params), -1,
+        (index, row) -> {
+          consumer.accept(row);
+
+          return true;
+        });
+  }
+
+  /**
+   * Split the scan of params at region boundaries.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * 
+   * @return {@linkplain java.util.List} of {@linkplain org.apache.hadoop.hbase.client.Scan} in
+   *         row key order
+   * 
+   * @throws IOException
+   */
+  protected List<Scan> splitByRegion(Class<?> hBaseEntityClass, HBaseParams params)
+      throws IOException {
+
+    final Pair<byte[][], byte[][]> keys;
+
+    try (RegionLocator locator = connection.getRegionLocator(getTableName(hBaseEntityClass));) {
+      keys = locator.getStartEndKeys();
+    }
+
+    final List<Scan> splits = new ArrayList<>(keys.getFirst().length);
+
+    // one scan for each salt bucket
+    for (Scan scan : createScans(hBaseEntityClass, params)) {
+      splitByRegion(scan, keys, splits);
+    }
+
+    return splits;
+  }
+
+  /**
+   * Split a scan at region boundaries.
+   * 
+   * @param scan {@linkplain org.apache.hadoop.hbase.client.Scan}
+   * @param keys region start and end keys
+   * @param splits {@linkplain java.util.List} receiving the splits in row key order
+   * 
+   * @throws IOException
+   */
+  private static void splitByRegion(Scan scan, Pair<byte[][], byte[][]> keys, List<Scan> splits)
+      throws IOException {
+
+    final byte[] scanStart = scan.getStartRow();
+    final byte[] scanStop = scan.getStopRow();
+
+    // iterate regions
+    for (int i = 0; i < keys.getFirst().length; i++) {
+
+      // later start, empty is the first row
+      final byte[] start = Bytes.compareTo(scanStart, keys.getFirst()[i]) >= 0 ? scanStart
+          : keys.getFirst()[i];
+
+      // earlier stop, empty is after the last row
+      final byte[] regionStop = keys.getSecond()[i];
+
+      final byte[] stop;
+
+      if (scanStop.length == 0) {
+        stop = regionStop;
+      }
+      else if (regionStop.length == 0) {
+        stop = scanStop;
+      }
+      else {
+        stop = Bytes.compareTo(scanStop, regionStop) <= 0 ? scanStop : regionStop;
+      }
+
+      // region out of range
+      if (stop.length > 0 && Bytes.compareTo(start, stop) >= 0) {
+        continue;
+      }
+
+      final Scan split = new Scan(scan);
+
+      split.setStartRow(start);
+      split.setStopRow(stop);
+
+      splits.add(split);
+    }
+  }
+
+  /**
+   * Run the splits on the async executor with at most the params parallelism at a time, the
+   * calling thread being one of the workers. Workers take the next split from a shared cursor, so a
+   * slow region does not stall the others; the first failure, or the first row refused by the
+   * sink, stops every worker.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * @param splits {@linkplain java.util.List} of {@linkplain org.apache.hadoop.hbase.client.Scan}
+   * @param splitLimit maximum rows read by split, not positive for no limit
+   * @param sink receiver of split index and row, <code>false</code> when no more rows are needed
+   * 
+   * @throws IOException
+   */
+  private <T extends Serializable> void runSplits(Class<T> hBaseEntityClass, HBaseParams params,
+      List<Scan> splits, int splitLimit, BiPredicate<Integer, T> sink) throws IOException {
+
+    // check
+    if (splits.isEmpty()) {
+      return;
+    }
+
+    final int parallelism = Math.min(splits.size(), params.getParallelism() > 0
+        ? params.getParallelism() : Runtime.getRuntime().availableProcessors());
+
+    final AtomicInteger cursor = new AtomicInteger(0);
+    final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    final CountDownLatch done = new CountDownLatch(splits.size());
+
+    final Runnable worker = () -> {
+
+      int index;
+
+      // next split, skipped once stopped
+      while ((index = cursor.getAndIncrement()) < splits.size()) {
+
+        try {
+          if (!stopped.get()) {
+            try (EntityScanner<T> scanner =
+                openScanner(hBaseEntityClass, splits.get(index), splitLimit);) {
+
+              while (!stopped.get() && scanner.hasNext()) {
+
+                // enough rows
+                if (!sink.test(index, scanner.next())) {
+                  stopped.set(true);
+                }
+              }
+            }
+          }
+        }
+        catch (IOException | RuntimeException e) {
+          stopped.set(true);
+
+          failure.compareAndSet(null, e);
+        }
+        finally {
+          done.countDown();
+        }
+      }
+    };
+
+    final Executor executor = asyncExecutor();
+
+    for (int w = 1; w < parallelism; w++) {
+      executor.execute(worker);
+    }
+
+    // the calling thread reads splits too, as its helpers may wait behind it on the same pool
+    worker.run();
+
+    try {
+      done.await();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      stopped.set(true);
+
+      throw new IOException(e.getMessage(), e);
+    }
+
+    // first failure
+    if (failure.get() != null) {
+      LOGGER.logError(failure.get().getMessage(), failure.get());
+
+      final Throwable cause = failure.get() instanceof UncheckedIOException
+          ? failure.get().getCause() : failure.get();
+
+      throw new IOException(cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * Get a page of rows by filters, in row key order. The scan starts right after the last row key
+   * of the previous page and stops server side with a
+   * {@linkplain org.apache.hadoop.hbase.filter.PageFilter}, so any page costs as the first one. The
+   * comparator and the limit of params are not applied.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * @param request {@link PageRequest}
+   * 
+   * @return {@link Page}
+   * 
+   * @throws IOException
+   */
+  public <T extends Serializable> Page<T> scanPage(Class<T> hBaseEntityClass, HBaseParams params,
+      PageRequest request) throws IOException {
+
+    final Page<T> page = readPage(hBaseEntityClass, params, request);
+
+    prefetch(hBaseEntityClass, params, page);
+
+    return page;
+  }
+
+  /**
+   * Get the page following the given one, taking the prefetched one when available.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams} of the previous page
+   * @param previous {@link Page} previous page
+   * 
+   * @return {@link Page} or <code>null</code> when the previous page is the last one
+   * 
+   * @throws IOException
+   */
+  public <T extends Serializable> Page<T> nextPage(Class<T> hBaseEntityClass, HBaseParams params,
+      Page<T> previous) throws IOException {
+
+    // last page
+    if (!previous.hasNext()) {
+      return null;
+    }
+
+    // not prefetched
+    if (previous.getPrefetch() == null) {
+      return scanPage(hBaseEntityClass, params, previous.nextRequest());
+    }
+
+    final Page<T> page;
+
+    try {
+      page = previous.getPrefetch().join();
+    }
+    catch (CompletionException e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new IOException(e.getCause().getMessage(), e.getCause());
+    }
+
+    prefetch(hBaseEntityClass, params, page);
+
+    return page;
+  }
+
+  /**
+   * Read a page. One row more than the page size is read to know whether a next page exists.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * @param request {@link PageRequest}
+   * 
+   * @return {@link Page}
+   * 
+   * @throws IOException
+   */
+  protected <T extends Serializable> Page<T> readPage(Class<T> hBaseEntityClass,
+      HBaseParams params, PageRequest request) throws IOException {
+
+    final int pageSize = request.getPageSize();
+
+    final List<Scan> scans = createScans(hBaseEntityClass, params);
+
+    // resume right after the last row of the previous page
+    final byte[] lastRow = request.getLastRow();
+
+    for (int bucket = 0; bucket < scans.size(); bucket++) {
+
+      final Scan scan = scans.get(bucket);
+
+      if (lastRow != null && scans.size() == 1) {
+        scan.setStartRow(Bytes.add(lastRow, new byte[] {0}));
+      } // same key in each bucket
+      else if (lastRow != null) {
+        scan.setStartRow(Bytes.add(new byte[] {(byte) bucket},
+            Bytes.tail(lastRow, lastRow.length - 1), new byte[] {0}));
+      }
+
+      // stop each region after one row more than the page
+      final FilterList pageFilters = new FilterList(Operator.MUST_PASS_ALL);
+
+      if (scan.getFilter() != null) {
+        pageFilters.addFilter(scan.getFilter());
+      }
+
+      pageFilters.addFilter(new PageFilter(pageSize + 1L));
+
+      scan.setFilter(pageFilters);
+
+      if (params.getCaching() <= 0 || params.getCaching() > pageSize + 1) {
+        scan.setCaching(pageSize + 1);
+      }
+    }
+
+    final List<T> results = new ArrayList<>(pageSize);
+
+    // page filter is per region: limit on client too
+    try (EntityScanner<T> scanner = scans.size() == 1
+        ? openScanner(hBaseEntityClass, scans.get(0), pageSize + 1)
+        : openMerged(hBaseEntityClass, scans, pageSize + 1);) {
+
+      byte[] pageLastRow = null;
+
+      while (results.size() < pageSize && scanner.hasNext()) {
+        results.add(scanner.next());
+
+        pageLastRow = scanner.getLastRow();
+      }
+
+      final String nextToken = scanner.hasNext() ? PageRequest.encodeToken(pageLastRow) : null;
+
+      return new Page<>(results, nextToken, request);
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Start reading the following page in background, when requested and available.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * @param page {@link Page} current page
+   */
+  private <T extends Serializable> void prefetch(Class<T> hBaseEntityClass, HBaseParams params,
+      Page<T> page) {
+
+    // check
+    if (!page.getRequest().isPrefetch() || !page.hasNext()) {
+      return;
+    }
+
+    final PageRequest nextRequest = page.nextRequest();
+
+    final Executor executor = asyncExecutor();
+
+    page.setPrefetch(CompletableFuture.supplyAsync(() -> {
+      try {
+        return readPage(hBaseEntityClass, params, nextRequest);
+      }
+      catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }, executor));
+  }
+
+  /**
+   * Stream rows by filters. Without comparator, rows are read and decoded on demand from the live
+   * scanner. With comparator and limit, only the first rows are kept in a bounded heap while
+   * scanning; with comparator only, rows are sorted with bounded memory spilling sorted runs of row
+   * cells to disk, decoded again while merging. The returned {@linkplain java.util.stream.Stream}
+   * must be closed.
+   * 
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * 
+   * @return {@linkplain java.util.stream.Stream<T>}
+   * 
+   * @throws IOException
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> Stream<T> stream(Class<T> hBaseEntityClass, HBaseParams params)
+      throws IOException {
+
+    final EntityScanner<T> scanner = iterate(hBaseEntityClass, params);
+
+    final Comparator<T> comparator = (Comparator<T>) params.getComparator();
+
+    // scanner order
+    if (comparator == null) {
+      return toStream(scanner).onClose(scanner::close);
+    }
+
+    try {
+      // top N
+      if (params.getLimit() > 0) {
+        return topN(scanner, comparator, params.getLimit()).stream();
+      }
+
+      // full sort, spilling rows rather than entities
+      final ExternalSorter<ScannedRow<T>> sorter = new ExternalSorter<>(
+          ScannedRow.comparing(comparator), params.getSortBufferSize(), ScannedRow.codec(scanner));
+
+      try {
+        while (scanner.hasNext()) {
+
+          final T entity = scanner.next();
+
+          sorter.add(new ScannedRow<>(entity, scanner.getLastResult()));
+        }
+
+        return toStream(sorter.sorted()).map(ScannedRow::getEntity).onClose(sorter::close);
+      }
+      catch (IOException | RuntimeException e) {
+        sorter.close();
+
+        throw e;
+      }
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    finally {
+      scanner.close();
+    }
+  }
+
+  /**
+   * Keep the first rows in comparator order with a bounded heap.
+   * 
+   * @param rows {@linkplain java.util.Iterator<T>} of rows
+   * @param comparator {@linkplain java.util.Comparator<T>}
+   * @param limit number of rows to keep
+   * 
+   * @return sorted {@linkplain java.util.List<T>} of at most limit rows
+   */
+  protected <T> List<T> topN(Iterator<T> rows, Comparator<T> comparator, int limit) {
+
+    // head is the worst row kept
+    final PriorityQueue<T> heap = new PriorityQueue<>(limit + 1, comparator.reversed());
+
+    while (rows.hasNext()) {
+      offer(heap, rows.next(), comparator, limit);
+    }
+
+    final List<T> results = new ArrayList<>(heap);
+
+    results.sort(comparator);
+
+    return results;
+  }
+
+  /**
+   * Offer a row to a bounded heap whose head is the worst row kept.
+   * 
+   * @param heap {@linkplain java.util.PriorityQueue<T>} in reversed comparator order
+   * @param row row
+   * @param comparator {@linkplain java.util.Comparator<T>}
+   * @param limit number of rows to keep
+   */
+  private static <T> void offer(PriorityQueue<T> heap, T row, Comparator<T> comparator,
+      int limit) {
+
+    if (heap.size() < limit) {
+      heap.add(row);
+    }
+    else if (comparator.compare(row, heap.peek()) < 0) {
+      heap.poll();
+      heap.add(row);
+    }
+  }
+
+  /**
+   * Wrap an iterator in a sequential ordered stream.
+   * 
+   * @param rows {@linkplain java.util.Iterator<T>} of rows
+   * 
+   * @return {@linkplain java.util.stream.Stream<T>}
+   */
+  private static <T> Stream<T> toStream(Iterator<T> rows) {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * Get rows by filters. A full sort is done in memory, as the whole result is returned anyway;
+   * large sorted results are better consumed by {@link #stream(Class, HBaseParams)}.
+   * 
+   * @param <K>
+   * @param hBaseEntityClass {@linkplain java.lang.Class} class of entity
+   * @param params {@link HBaseParams}
+   * 
+   * @return {@linkplain java.util.List<K>}
+   * 
+   * @throws IOException
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> List<T> scan(Class<T> hBaseEntityClass, HBaseParams params)
+      throws IOException {
+
+    // full sort: the whole result is returned in memory anyway
+    if (params.getComparator() != null && params.getLimit() <= 0) {
+
+      final List<T> results = new ArrayList<>(0);
+
+      // get result
+      try (EntityScanner<T> scanner = iterate(hBaseEntityClass, params);) {
+
+        // Reading values from scan result
+        while (scanner.hasNext()) {
+          results.add(scanner.next());
+        }
+
+        // sort
+        results.sort((Comparator<T>) params.getComparator());
+
+        return results;
+      }
+      catch (Exception e) {
+        LOGGER.logError(e);
+
+        throw new IOException(e.getMessage());
+      }
+    }
+
+    // unsorted or top N
+    try (Stream<T> rows = stream(hBaseEntityClass, params);) {
+      return rows.collect(Collectors.toCollection(ArrayList::new));
+    }
+    catch (Exception e) {
+      LOGGER.logError(e);
+
+      throw new IOException(e.getMessage());
     }
   }
 
@@ -17,13 +17,25 @@
 package net.sf.gee.hbase.core;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 
 import net.sf.gee.common.util.string.StringUtil;
 import net.sf.gee.hbase.config.ClassConfiguration;
 import net.sf.gee.hbase.config.HBaseConfiguration;
+import net.sf.gee.hbase.exception.ConfigurationException;
+import net.sf.gee.hbase.util.RowSnapshot;
 import net.sf.gee.logger.factory.GLogFactory;
 import net.sf.gee.logger.log.SimpleGLogger;
 
@@ -52,9 +64,43 @@ public class HBaseConnectionFactory {
   /** HBase Entities configuration */
   private HBaseConfiguration gHbaseConfiguration = null;
 
-  private int openedConnection = 0;
+  /**
+   * Shared heavyweight connections, created lazily and reused by every handle. Slots are read
+   * without lock, so they are published through volatile semantics
+   */
+  private AtomicReferenceArray<Connection> connections = new AtomicReferenceArray<>(1);
+
+  /** Round robin index on shared connections */
+  private final AtomicInteger nextConnection = new AtomicInteger(0);
+
+  /** Leased handles */
+  private final AtomicLong openedConnection = new AtomicLong(0);
+
+  /** Released handles */
+  private final AtomicLong closedConnection = new AtomicLong(0);
+
+  /** Table operations executed through leased handles */
+  private final AtomicLong usedConnection = new AtomicLong(0);
+
+  /** Executor of async operations, created on first use */
+  private volatile ExecutorService asyncExecutor = null;
 
-  private int closedConnection = 0;
+  /** Buffer of coalesced counter increments, created on first use */
+  private volatile CounterBuffer counterBuffer = null;
+
+  /** Inspected class configurations by class name, read without locking */
+  private final ConcurrentHashMap<String, ClassConfiguration> classConfigurations =
+      new ConcurrentHashMap<>();
+
+  /** Client caches by class name, empty for classes without cache */
+  private final ConcurrentHashMap<String, Optional<EntityCache>> caches =
+      new ConcurrentHashMap<>();
+
+  /** Cells snapshot of loaded entities of dirty tracking classes */
+  private final EntitySnapshots<RowSnapshot> snapshots = new EntitySnapshots<>();
+
+  /** Bit sets of the lazy fields left out when loading entities */
+  private final EntitySnapshots<long[]> unreadFields = new EntitySnapshots<>();
 
   /**
    * Private constructor as singleton pattern
@@ -102,6 +148,10 @@ public class HBaseConnectionFactory {
       // set port of zookeeper
       hbaseConfiguration.set("hbase.zookeeper.property.clientport", port);
 
+      // shared connections
+      connections = new AtomicReferenceArray<>(Math.max(1,
+          gHbaseConfiguration.getIntProperty(HBaseConfiguration.HB_CONNECTION_POOL_SIZE, 1)));
+
     }
     catch (IOException e) {
       LOGGER.logError(e.getMessage(), e);
@@ -158,7 +208,8 @@ public class HBaseConnectionFactory {
   }
 
   /**
-   * Open new connection.
+   * Lease a connection handle. The handle is cheap, thread-safe and backed by one of the shared
+   * heavyweight connections: closing it releases the lease, not the underlying connection.
    * 
    * @return {@link HBaseConnection}
    */
@@ -167,15 +218,15 @@ public class HBaseConnectionFactory {
     HBaseConnection newConnection = null;
 
     try {
-      // create new connection
-      newConnection = new HBaseConnection(ConnectionFactory.createConnection(hbaseConfiguration));
+      // lease handle on shared connection
+      newConnection = new HBaseConnection(getSharedConnection(), this);
 
       // add open connection
-      openedConnection++;
+      openedConnection.incrementAndGet();
 
       // log
-      LOGGER.logInfo("Connection stats: opened [%s], closed [%s], delta [%s]", openedConnection,
-          closedConnection, (openedConnection - closedConnection));
+      LOGGER.logDebug("Connection stats: opened [%s], closed [%s], delta [%s]",
+          openedConnection.get(), closedConnection.get(), getActiveConnections());
 
     }
     catch (Exception e) {
@@ -193,20 +244,347 @@ public class HBaseConnectionFactory {
   public void closeConnection(HBaseConnection conn) {
 
     try {
-      // close connection
+      // release lease
       conn.close();
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+    }
+  }
 
-      // add open connection
-      closedConnection++;
+  /**
+   * Release the lease of an handle. Called once by {@link HBaseConnection#close()}.
+   * 
+   * @param conn {@link HBaseConnection}
+   */
+  void releaseConnection(HBaseConnection conn) {
 
-      // log
-      LOGGER.logInfo("Connection stats: opened [%s], closed [%s], delta [%s]", openedConnection,
-          closedConnection, (openedConnection - closedConnection));
+    // add closed connection
+    closedConnection.incrementAndGet();
+
+    // log
+    LOGGER.logDebug("Connection stats: opened [%s], closed [%s], delta [%s]",
+        openedConnection.get(), closedConnection.get(), getActiveConnections());
+  }
+
+  /**
+   * Track one table operation executed through a leased handle.
+   */
+  void markUsage() {
+    usedConnection.incrementAndGet();
+  }
+
+  /**
+   * Get one of the shared heavyweight connections, (re)creating it when missing or aborted.
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.client.Connection}
+   * 
+   * @throws IOException
+   */
+  private Connection getSharedConnection() throws IOException {
+
+    // round robin on pool
+    final int index =
+        (nextConnection.getAndIncrement() & Integer.MAX_VALUE) % connections.length();
+
+    Connection conn = connections.get(index);
+
+    // check
+    if (conn == null || conn.isClosed() || conn.isAborted()) {
+
+      // monitor for concurrency
+      synchronized (connections) {
+
+        // double check
+        conn = connections.get(index);
+
+        if (conn == null || conn.isClosed() || conn.isAborted()) {
 
+          // create new heavyweight connection
+          conn = ConnectionFactory.createConnection(hbaseConfiguration);
+          connections.set(index, conn);
+
+          LOGGER.logInfo("Shared connection [%s] of [%s] created", index + 1,
+              connections.length());
+        }
+      }
     }
-    catch (Exception e) {
-      LOGGER.logError(e.getMessage(), e);
+
+    return conn;
+  }
+
+  /**
+   * Lease an async connection handle running on the factory executor.
+   * 
+   * @return {@link AsyncHBaseConnection}
+   */
+  public AsyncHBaseConnection openAsyncConnection() {
+    return openAsyncConnection(getAsyncExecutor());
+  }
+
+  /**
+   * Lease an async connection handle running on a custom executor.
+   * 
+   * @param executor {@linkplain java.util.concurrent.ExecutorService} of operations
+   * 
+   * @return {@link AsyncHBaseConnection}
+   */
+  public AsyncHBaseConnection openAsyncConnection(ExecutorService executor) {
+
+    final HBaseConnection conn = openConnection();
+
+    // check
+    if (conn == null) {
+      return null;
+    }
+
+    return new AsyncHBaseConnection(conn, executor,
+        gHbaseConfiguration.getIntProperty(HBaseConfiguration.HB_ASYNC_MAX_IN_FLIGHT, 512));
+  }
+
+  /**
+   * Get the executor of async operations: a fixed pool when threads are configured, otherwise
+   * virtual threads when the runtime has them, or a cached pool of daemon threads.
+   * 
+   * @return {@linkplain java.util.concurrent.ExecutorService}
+   */
+  public ExecutorService getAsyncExecutor() {
+
+    // check
+    if (asyncExecutor == null) {
+
+      // monitor for concurrency
+      synchronized (MONITOR) {
+
+        // double check
+        if (asyncExecutor == null) {
+
+          final int threads =
+              gHbaseConfiguration.getIntProperty(HBaseConfiguration.HB_ASYNC_THREADS, 0);
+
+          if (threads > 0) {
+            asyncExecutor = Executors.newFixedThreadPool(threads, daemonThreads("g-hb-async-"));
+          }
+          else {
+            asyncExecutor = newVirtualThreadExecutor();
+          }
+        }
+      }
+    }
+
+    return asyncExecutor;
+  }
+
+  /**
+   * Create a virtual thread per task executor if the runtime supports it, otherwise a cached pool.
+   * 
+   * @return {@linkplain java.util.concurrent.ExecutorService}
+   */
+  private static ExecutorService newVirtualThreadExecutor() {
+
+    try {
+      final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+      return (ExecutorService) factory.invoke(null);
+    }
+    catch (ReflectiveOperationException e) {
+      LOGGER.logDebug("Virtual threads not available, using cached thread pool");
+
+      return Executors.newCachedThreadPool(daemonThreads("g-hb-async-"));
+    }
+  }
+
+  /**
+   * Thread factory of named daemon threads.
+   * 
+   * @param prefix thread name prefix
+   * 
+   * @return {@linkplain java.util.concurrent.ThreadFactory}
+   */
+  static ThreadFactory daemonThreads(String prefix) {
+
+    final AtomicInteger counter = new AtomicInteger(0);
+
+    return runnable -> {
+      final Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+      thread.setDaemon(true);
+
+      return thread;
+    };
+  }
+
+  /**
+   * Close all shared heavyweight connections and the async executor. Leased handles become
+   * unusable.
+   */
+  public void shutdown() {
+
+    // write coalesced increments
+    if (counterBuffer != null) {
+      try {
+        counterBuffer.close();
+      }
+      catch (IOException e) {
+        LOGGER.logError(e.getMessage(), e);
+      }
+
+      counterBuffer = null;
+    }
+
+    // stop async operations
+    if (asyncExecutor != null) {
+      asyncExecutor.shutdown();
+      asyncExecutor = null;
+    }
+
+    // monitor for concurrency
+    synchronized (connections) {
+
+      for (int i = 0; i < connections.length(); i++) {
+
+        final Connection conn = connections.getAndSet(i, null);
+
+        // check
+        if (conn != null) {
+          try {
+            conn.close();
+          }
+          catch (IOException e) {
+            LOGGER.logError(e.getMessage(), e);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return number of leased handles since startup
+   */
+  public long getOpenedConnections() {
+    return openedConnection.get();
+  }
+
+  /**
+   * @return number of released handles since startup
+   */
+  public long getClosedConnections() {
+    return closedConnection.get();
+  }
+
+  /**
+   * @return number of handles currently leased
+   */
+  public long getActiveConnections() {
+    return openedConnection.get() - closedConnection.get();
+  }
+
+  /**
+   * @return number of table operations executed through leased handles
+   */
+  public long getConnectionUsage() {
+    return usedConnection.get();
+  }
+
+  /**
+   * Get the buffer of coalesced counter increments, flushed through leased handles.
+   * 
+   * @return {@link CounterBuffer}
+   */
+  public CounterBuffer getCounterBuffer() {
+
+    // check
+    if (counterBuffer == null) {
+
+      // monitor for concurrency
+      synchronized (MONITOR) {
+
+        // double check
+        if (counterBuffer == null) {
+          counterBuffer = new CounterBuffer(getCounterWindow(), this::openConnection, true);
+
+          LOGGER.logInfo("Counter buffer window [%s] ms", getCounterWindow());
+        }
+      }
     }
+
+    return counterBuffer;
+  }
+
+  /**
+   * @return window in milliseconds of coalesced counter increments
+   */
+  long getCounterWindow() {
+    return gHbaseConfiguration.getLongProperty(HBaseConfiguration.HB_COUNTER_WINDOW, 100L);
+  }
+
+  /**
+   * Gets the client cache of an entity class.
+   * 
+   * @param clazz {@linkplain java.lang.Class} of entity
+   * 
+   * @return {@link EntityCache} or <code>null</code> when the class has no cache
+   */
+  public EntityCache getEntityCache(Class<?> clazz) {
+
+    return caches.computeIfAbsent(clazz.getName(), name -> {
+
+      final ClassConfiguration cc = getClassConfiguration(name);
+
+      // check
+      if (cc == null || cc.getCacheSize() <= 0) {
+        return Optional.empty();
+      }
+
+      LOGGER.logInfo("Client cache of [%s]: size [%s] ttl [%s]", name, cc.getCacheSize(),
+          cc.getCacheTtl());
+
+      return Optional.of(new EntityCache(cc.getCacheSize(), cc.getCacheTtl()));
+
+    }).orElse(null);
+  }
+
+  /**
+   * @return {@link EntitySnapshots} of the dirty tracking classes
+   */
+  public EntitySnapshots<RowSnapshot> getEntitySnapshots() {
+    return snapshots;
+  }
+
+  /**
+   * @return {@link EntitySnapshots} of the lazy fields not read, as bit sets of field positions
+   */
+  public EntitySnapshots<long[]> getUnreadFields() {
+    return unreadFields;
+  }
+
+  /**
+   * Empty all client caches.
+   */
+  public void clearCaches() {
+    caches.values().forEach(cache -> cache.ifPresent(EntityCache::clear));
+  }
+
+  /**
+   * @return client cache hits of all classes
+   */
+  public long getCacheHits() {
+    return caches.values().stream().mapToLong(c -> c.map(EntityCache::getHits).orElse(0L)).sum();
+  }
+
+  /**
+   * @return client cache misses of all classes
+   */
+  public long getCacheMisses() {
+    return caches.values().stream().mapToLong(c -> c.map(EntityCache::getMisses).orElse(0L))
+        .sum();
+  }
+
+  /**
+   * @return client cache evictions of all classes
+   */
+  public long getCacheEvictions() {
+    return caches.values().stream().mapToLong(c -> c.map(EntityCache::getEvictions).orElse(0L))
+        .sum();
   }
 
   /**
@@ -218,11 +596,36 @@ public class HBaseConnectionFactory {
    */
   public ClassConfiguration getClassConfiguration(String className) {
 
-    // monitor
+    // check
+    if (className == null) {
+      return null;
+    }
+
+    // already inspected, no lock
+    ClassConfiguration cc = classConfigurations.get(className);
+
+    if (cc != null) {
+      return cc;
+    }
+
+    // monitor, only for the first request of a class
     synchronized (gHbaseConfiguration) {
 
-      // return class configuration
-      return gHbaseConfiguration.getConfiguration(className);
+      try {
+        cc = gHbaseConfiguration.inspect(className);
+      }
+      catch (ConfigurationException e) {
+        LOGGER.logError(e.getMessage(), e);
+
+        return null;
+      }
+
+      // check
+      if (cc != null) {
+        classConfigurations.put(className, cc);
+      }
+
+      return cc;
     }
   }
 
@@ -0,0 +1,113 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Comparator;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Result;
+
+import net.sf.gee.hbase.util.ExternalSorter.RunCodec;
+
+/**
+ * Entity sorted by a full scan sort, with the row it was decoded from. Spilled runs hold the row
+ * cells only and decode them again on merge, so every returned entity is tracked for update as if
+ * read by the scanner.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+final class ScannedRow<T extends Serializable> {
+
+  private final T entity;
+
+  private final Result result;
+
+  /**
+   * @param entity decoded <T>
+   * @param result {@linkplain org.apache.hadoop.hbase.client.Result} of the entity
+   */
+  ScannedRow(T entity, Result result) {
+    super();
+
+    this.entity = entity;
+    this.result = result;
+  }
+
+  /**
+   * @return entity
+   */
+  T getEntity() {
+    return entity;
+  }
+
+  /**
+   * @param comparator {@linkplain java.util.Comparator} of entities
+   *
+   * @return {@linkplain java.util.Comparator} of rows by their entities
+   */
+  static <T extends Serializable> Comparator<ScannedRow<T>> comparing(
+      Comparator<? super T> comparator) {
+    return (a, b) -> comparator.compare(a.entity, b.entity);
+  }
+
+  /**
+   * @param scanner {@link EntityScanner} the rows are read from
+   *
+   * @return {@link RunCodec} writing the row cells and decoding them by the scanner
+   */
+  static <T extends Serializable> RunCodec<ScannedRow<T>> codec(EntityScanner<T> scanner) {
+
+    return new RunCodec<ScannedRow<T>>() {
+
+      @Override
+      public void write(ScannedRow<T> row, DataOutput out) throws IOException {
+
+        final Cell[] cells = row.result.rawCells();
+
+        out.writeInt(cells.length);
+
+        for (Cell cell : cells) {
+          KeyValue.write(
+              cell instanceof KeyValue ? (KeyValue) cell : KeyValueUtil.copyToNewKeyValue(cell),
+              out);
+        }
+      }
+
+      @Override
+      public ScannedRow<T> read(DataInput in) throws IOException {
+
+        final Cell[] cells = new Cell[in.readInt()];
+
+        for (int i = 0; i < cells.length; i++) {
+          cells[i] = KeyValue.create(in);
+        }
+
+        final Result result = Result.create(cells);
+
+        return new ScannedRow<>(scanner.decode(result), result);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown by an update when the stored version of the entity is not the loaded one: the row was
+ * changed since it was read, and nothing was written.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class OptimisticLockException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Entity class name */
+  private final String entityName;
+
+  /** Version expected in the row, <code>null</code> for a row without version */
+  private final Long expectedVersion;
+
+  /**
+   * Constructor.
+   * 
+   * @param entityName entity class name
+   * @param expectedVersion version expected in the row
+   */
+  public OptimisticLockException(String entityName, Long expectedVersion) {
+    super(String.format("Version [%s] of [%s] is stale, the row was changed", expectedVersion,
+        entityName));
+
+    this.entityName = entityName;
+    this.expectedVersion = expectedVersion;
+  }
+
+  public String getEntityName() {
+    return entityName;
+  }
+
+  public Long getExpectedVersion() {
+    return expectedVersion;
+  }
+}
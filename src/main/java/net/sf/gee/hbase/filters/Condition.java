@@ -0,0 +1,382 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.filters;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.BinaryPrefixComparator;
+import org.apache.hadoop.hbase.filter.ByteArrayComparable;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FilterList.Operator;
+import org.apache.hadoop.hbase.filter.LongComparator;
+import org.apache.hadoop.hbase.filter.RowFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import net.sf.gee.hbase.basic.Compression;
+import net.sf.gee.hbase.basic.NoneMapper;
+import net.sf.gee.hbase.config.ClassConfiguration;
+import net.sf.gee.hbase.config.FieldConfiguration;
+
+/**
+ * Typed condition tree, built with {@link Where} and compiled to server side filters: a
+ * {@linkplain org.apache.hadoop.hbase.filter.SingleColumnValueFilter} for each column test, a
+ * {@linkplain org.apache.hadoop.hbase.filter.RowFilter} for the row key, flattened
+ * {@linkplain org.apache.hadoop.hbase.filter.FilterList} for and/or. Operands are encoded with the
+ * field codec, so they match the stored bytes. Only scalar columns without mapper can be
+ * filtered; ordering works on strings, byte arrays, integers, longs and dates, whose encoding can
+ * be compared by the region servers.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class Condition implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Leaf operators */
+  enum Op {
+    EQ, NE, GT, GE, LT, LE, PREFIX, NULL, NOT_NULL
+  }
+
+  /** Smallest int encoding, first of the negative ones in byte order */
+  private static final byte[] INT_SIGN = Bytes.toBytes(Integer.MIN_VALUE);
+
+  /** Operator of and/or nodes, <code>null</code> on leaves */
+  private final Operator operator;
+
+  private final List<Condition> children;
+
+  private final String fieldName;
+
+  private final Op op;
+
+  private final Serializable operand;
+
+  /**
+   * @param operator node operator
+   * @param children node children
+   * @param fieldName leaf field
+   * @param op leaf operator
+   * @param operand leaf operand
+   */
+  private Condition(Operator operator, List<Condition> children, String fieldName, Op op,
+      Serializable operand) {
+    super();
+
+    this.operator = operator;
+    this.children = children;
+    this.fieldName = fieldName;
+    this.op = op;
+    this.operand = operand;
+  }
+
+  /**
+   * @param fieldName entity field name
+   * @param op operator
+   * @param operand operand
+   * 
+   * @return leaf {@link Condition}
+   */
+  static Condition leaf(String fieldName, Op op, Serializable operand) {
+
+    // check
+    if (operand == null && op != Op.NULL && op != Op.NOT_NULL) {
+      throw new IllegalArgumentException(
+          "Null operand for field " + fieldName + ", use isNull or isNotNull");
+    }
+
+    return new Condition(null, Collections.<Condition>emptyList(), fieldName, op, operand);
+  }
+
+  /**
+   * @param alternatives conditions
+   * 
+   * @return {@link Condition} true when any of the alternatives is true
+   */
+  static Condition or(List<Condition> alternatives) {
+    return alternatives.size() == 1 ? alternatives.get(0)
+        : new Condition(Operator.MUST_PASS_ONE, alternatives, null, null, null);
+  }
+
+  /**
+   * @param other {@link Condition}
+   * 
+   * @return {@link Condition} true when both are true
+   */
+  public Condition and(Condition other) {
+    return new Condition(Operator.MUST_PASS_ALL, Arrays.asList(this, other), null, null, null);
+  }
+
+  /**
+   * @param other {@link Condition}
+   * 
+   * @return {@link Condition} true when any of them is true
+   */
+  public Condition or(Condition other) {
+    return new Condition(Operator.MUST_PASS_ONE, Arrays.asList(this, other), null, null, null);
+  }
+
+  /**
+   * Collect the names of the fields tested.
+   * 
+   * @param fieldNames {@linkplain java.util.Set} filled with field names
+   */
+  public void collectFields(Set<String> fieldNames) {
+
+    // leaf
+    if (operator == null) {
+      fieldNames.add(fieldName);
+    }
+
+    for (Condition child : children) {
+      child.collectFields(fieldNames);
+    }
+  }
+
+  /**
+   * Compile the condition on the entity mapping.
+   * 
+   * @param classConfig {@link ClassConfiguration} of entity
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.filter.Filter}
+   */
+  public Filter toFilter(ClassConfiguration classConfig) {
+
+    // leaf
+    if (operator == null) {
+      return compileLeaf(classConfig);
+    }
+
+    final FilterList list = new FilterList(operator);
+
+    for (Condition child : children) {
+      add(list, child.toFilter(classConfig));
+    }
+
+    return list;
+  }
+
+  /**
+   * Add a filter to a list, merging lists of the same operator.
+   * 
+   * @param list {@linkplain org.apache.hadoop.hbase.filter.FilterList}
+   * @param filter {@linkplain org.apache.hadoop.hbase.filter.Filter}
+   */
+  private static void add(FilterList list, Filter filter) {
+
+    if (filter instanceof FilterList
+        && ((FilterList) filter).getOperator() == list.getOperator()) {
+
+      for (Filter current : ((FilterList) filter).getFilters()) {
+        list.addFilter(current);
+      }
+    }
+    else {
+      list.addFilter(filter);
+    }
+  }
+
+  /**
+   * @param classConfig {@link ClassConfiguration} of entity
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.filter.Filter} of the leaf
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private Filter compileLeaf(ClassConfiguration classConfig) {
+
+    final FieldConfiguration field = classConfig.getFieldConfiguration(fieldName);
+
+    // check
+    if (field == null) {
+      throw new IllegalArgumentException("No mapped field " + fieldName);
+    }
+
+    final boolean rowKey = field == classConfig.getRowKeyField();
+
+    // salted keys are ordered only inside a bucket
+    if (rowKey && classConfig.getSaltBuckets() > 0 && op != Op.EQ && op != Op.NE) {
+      throw new IllegalArgumentException(
+          "Row key is salted, use row key bounds instead of " + op + " conditions");
+    }
+
+    if (!rowKey && (field.isCollection() || !NoneMapper.class.equals(field.getMapper()))) {
+      throw new IllegalArgumentException(
+          "Field " + fieldName + " is a collection or has a mapper, it cannot be filtered");
+    }
+
+    // compressed cells cannot be compared
+    if (!rowKey && field.getCompression() != Compression.NONE) {
+      throw new IllegalArgumentException(
+          "Field " + fieldName + " is compressed, it cannot be filtered");
+    }
+
+    // null fields are saved as empty cells: a missing or empty column passes the null test
+    if (op == Op.NULL || op == Op.NOT_NULL) {
+
+      if (rowKey) {
+        throw new IllegalArgumentException("Row key is never null");
+      }
+
+      final SingleColumnValueFilter filter = new SingleColumnValueFilter(field.getFamilyBytes(),
+          field.getColumnBytes(), op == Op.NULL ? CompareOp.EQUAL : CompareOp.NOT_EQUAL,
+          new BinaryComparator(HConstants.EMPTY_BYTE_ARRAY));
+
+      filter.setFilterIfMissing(op == Op.NOT_NULL);
+      filter.setLatestVersionOnly(true);
+
+      return filter;
+    }
+
+    final byte[] value = field.getCodec().encode(operand);
+
+    final Class<?> type = field.getFieldType();
+
+    final boolean binaryOrdered = String.class.equals(type) || byte[].class.equals(type);
+
+    // row key codecs preserve the order
+    final boolean ordered = binaryOrdered || rowKey;
+
+    switch (op) {
+
+      case EQ:
+        return single(field, rowKey, CompareOp.EQUAL, new BinaryComparator(value));
+
+      case NE:
+        return single(field, rowKey, CompareOp.NOT_EQUAL, new BinaryComparator(value));
+
+      case PREFIX:
+        // leading components of a composite row key
+        if (!binaryOrdered && !(rowKey && Object[].class.equals(type))) {
+          throw new IllegalArgumentException("Field " + fieldName + " is not a string");
+        }
+
+        return single(field, rowKey, CompareOp.EQUAL, new BinaryPrefixComparator(value));
+
+      default:
+        break;
+    }
+
+    final CompareOp compareOp = compareOp(op);
+
+    // byte order is value order
+    if (ordered) {
+      return single(field, rowKey, compareOp, new BinaryComparator(value));
+    }
+
+    // signed long order
+    if (Long.class.equals(type) || long.class.equals(type) || Date.class.equals(type)) {
+      return single(field, rowKey, compareOp, new LongComparator(Bytes.toLong(value)));
+    }
+
+    // signed int: byte order holds inside each sign
+    if (Integer.class.equals(type) || int.class.equals(type)) {
+      return signedInt(field, rowKey, compareOp, value, ((Number) operand).intValue() >= 0);
+    }
+
+    throw new IllegalArgumentException(
+        "Field " + fieldName + " of type " + type.getName() + " cannot be ordered server side");
+  }
+
+  /**
+   * Ordering of a two's complement int on byte order: compare bytes, then keep or add the other
+   * sign. Greater than a non-negative value must be non-negative, greater than a negative value
+   * can be any non-negative; the reverse for less than.
+   * 
+   * @param field {@link FieldConfiguration}
+   * @param rowKey <code>true</code> on the row key
+   * @param compareOp ordering operator
+   * @param value encoded operand
+   * @param nonNegative <code>true</code> when the operand is not negative
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.filter.Filter}
+   */
+  private static Filter signedInt(FieldConfiguration field, boolean rowKey, CompareOp compareOp,
+      byte[] value, boolean nonNegative) {
+
+    final boolean greater =
+        compareOp == CompareOp.GREATER || compareOp == CompareOp.GREATER_OR_EQUAL;
+
+    // non-negative values sort before the sign bit
+    final Filter sign = single(field, rowKey, greater ? CompareOp.LESS : CompareOp.GREATER_OR_EQUAL,
+        new BinaryComparator(INT_SIGN));
+
+    final Filter bytes = single(field, rowKey, compareOp, new BinaryComparator(value));
+
+    final Operator join =
+        greater == nonNegative ? Operator.MUST_PASS_ALL : Operator.MUST_PASS_ONE;
+
+    return new FilterList(join, bytes, sign);
+  }
+
+  /**
+   * @param field {@link FieldConfiguration}
+   * @param rowKey <code>true</code> on the row key
+   * @param compareOp operator
+   * @param comparator {@linkplain org.apache.hadoop.hbase.filter.ByteArrayComparable}
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.filter.Filter} on the row key or the column
+   */
+  private static Filter single(FieldConfiguration field, boolean rowKey, CompareOp compareOp,
+      ByteArrayComparable comparator) {
+
+    // check
+    if (rowKey) {
+      return new RowFilter(compareOp, comparator);
+    }
+
+    final SingleColumnValueFilter filter = new SingleColumnValueFilter(field.getFamilyBytes(),
+        field.getColumnBytes(), compareOp, comparator);
+
+    // rows without the column do not match
+    filter.setFilterIfMissing(true);
+    filter.setLatestVersionOnly(true);
+
+    return filter;
+  }
+
+  /**
+   * @param op ordering operator
+   * 
+   * @return {@linkplain org.apache.hadoop.hbase.filter.CompareFilter.CompareOp}
+   */
+  private static CompareOp compareOp(Op op) {
+
+    switch (op) {
+      case GT:
+        return CompareOp.GREATER;
+      case GE:
+        return CompareOp.GREATER_OR_EQUAL;
+      case LT:
+        return CompareOp.LESS;
+      case LE:
+        return CompareOp.LESS_OR_EQUAL;
+      default:
+        throw new IllegalArgumentException("Not an ordering operator: " + op);
+    }
+  }
+
+}
@@ -19,7 +19,9 @@ package net.sf.gee.hbase.filters;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
@@ -35,14 +37,43 @@ public class HBaseParams implements Serializable {
 
   private static final long serialVersionUID = 1L;
 
+  /** Default number of rows sorted in memory before spilling to disk */
+  public static final int DEFAULT_SORT_BUFFER_SIZE = 100000;
+
   private final List<HBaseColumnParam> columns = new ArrayList<>(0);
 
   private final List<HBaseColumnParam> extraColumns = new ArrayList<>(0);
 
+  private final List<HBaseRowRangeParam> rowRanges = new ArrayList<>(0);
+
+  private final Set<String> fetchGroups = new HashSet<>(0);
+
+  private Serializable startRow = null;
+
+  private Serializable stopRow = null;
+
+  private Serializable rowPrefix = null;
+
   private FilterList filters = null;
 
+  private Condition where = null;
+
   private Comparator<? extends Serializable> comparator = null;
 
+  private int caching = -1;
+
+  private int batch = -1;
+
+  private long maxResultSize = -1;
+
+  private int limit = -1;
+
+  private int sortBufferSize = DEFAULT_SORT_BUFFER_SIZE;
+
+  private int parallelism = -1;
+
+  private boolean keyOrdered = true;
+
   /**
    * Create new instance of HBaseParams
    * 
@@ -112,6 +143,23 @@ public class HBaseParams implements Serializable {
     return this;
   }
 
+  /**
+   * Add a typed condition, compiled to server side filters on the entity mapping. Many conditions
+   * must be all true, and must be true together with the other filters.
+   * 
+   * @param condition {@link Condition}
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams where(Condition condition) {
+
+    if (condition != null) {
+      where = where == null ? condition : where.and(condition);
+    }
+
+    return this;
+  }
+
   /**
    * Add comparator
    * 
@@ -147,6 +195,176 @@ public class HBaseParams implements Serializable {
     return this;
   }
 
+  /**
+   * Add a fetch group: without explicit columns, its lazy columns are read with the eager ones.
+   * 
+   * @param fetchGroup fetch group name
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams addFetchGroup(String fetchGroup) {
+
+    if (!StringUtil.isEmpty(fetchGroup)) {
+      fetchGroups.add(fetchGroup);
+    }
+
+    return this;
+  }
+
+  /**
+   * Set the first row key of the scan, inclusive. Row key values are encoded as the entity row
+   * key, byte arrays are taken as they are.
+   * 
+   * @param startRow row key, <code>null</code> from the first row
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setStartRow(Serializable startRow) {
+    this.startRow = startRow;
+
+    return this;
+  }
+
+  /**
+   * Set the row key where the scan stops, exclusive.
+   * 
+   * @param stopRow row key, <code>null</code> to the last row
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setStopRow(Serializable stopRow) {
+    this.stopRow = stopRow;
+
+    return this;
+  }
+
+  /**
+   * Scan only the rows whose key starts with the prefix: start and stop rows are derived from it,
+   * so only the regions holding the prefix are read.
+   * 
+   * @param rowPrefix row key prefix
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setRowPrefix(Serializable rowPrefix) {
+    this.rowPrefix = rowPrefix;
+
+    return this;
+  }
+
+  /**
+   * Add a row key range. Many ranges are read by a single scan seeking from one range to the
+   * next.
+   * 
+   * @param start first row key, <code>null</code> from the first row
+   * @param startInclusive <code>true</code> to include the first row key
+   * @param stop last row key, <code>null</code> to the last row
+   * @param stopInclusive <code>true</code> to include the last row key
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams addRowRange(Serializable start, boolean startInclusive, Serializable stop,
+      boolean stopInclusive) {
+
+    rowRanges.add(new HBaseRowRangeParam(start, startInclusive, stop, stopInclusive));
+
+    return this;
+  }
+
+  /**
+   * Set the number of rows fetched by the scanner for each RPC.
+   * 
+   * @param caching rows per RPC, not positive to use the table default
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setCaching(int caching) {
+    this.caching = caching;
+
+    return this;
+  }
+
+  /**
+   * Set the maximum number of cells returned for each scanner call. Wide rows are split in
+   * partial results, merged again before decoding the entity.
+   * 
+   * @param batch cells per call, not positive to disable
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setBatch(int batch) {
+    this.batch = batch;
+
+    return this;
+  }
+
+  /**
+   * Set the maximum size in bytes of each scanner call.
+   * 
+   * @param maxResultSize bytes per call, not positive to use the table default
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setMaxResultSize(long maxResultSize) {
+    this.maxResultSize = maxResultSize;
+
+    return this;
+  }
+
+  /**
+   * Set the maximum number of rows returned. With a comparator, the first rows in comparator
+   * order are kept in a bounded heap while scanning.
+   * 
+   * @param limit maximum rows, not positive for no limit
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setLimit(int limit) {
+    this.limit = limit;
+
+    return this;
+  }
+
+  /**
+   * Set the number of rows sorted in memory by a streamed sort before spilling sorted runs to
+   * disk.
+   * 
+   * @param sortBufferSize rows kept in memory
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setSortBufferSize(int sortBufferSize) {
+    this.sortBufferSize = sortBufferSize;
+
+    return this;
+  }
+
+  /**
+   * Set the maximum number of regions read at the same time by a parallel scan.
+   * 
+   * @param parallelism concurrent region scanners, not positive for the available processors
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+
+    return this;
+  }
+
+  /**
+   * Set whether a parallel scan returns rows in row key order or as they arrive.
+   * 
+   * @param keyOrdered <code>true</code> for row key order
+   * 
+   * @return {@link HBaseParams}
+   */
+  public HBaseParams setKeyOrdered(boolean keyOrdered) {
+    this.keyOrdered = keyOrdered;
+
+    return this;
+  }
+
   public boolean isColumnsEmpty() {
     return columns.isEmpty();
   }
@@ -163,10 +381,62 @@ public class HBaseParams implements Serializable {
     return filters;
   }
 
+  public Condition getWhere() {
+    return where;
+  }
+
   public Comparator<? extends Serializable> getComparator() {
     return comparator;
   }
 
+  public Set<String> getFetchGroups() {
+    return fetchGroups;
+  }
+
+  public Serializable getStartRow() {
+    return startRow;
+  }
+
+  public Serializable getStopRow() {
+    return stopRow;
+  }
+
+  public Serializable getRowPrefix() {
+    return rowPrefix;
+  }
+
+  public List<HBaseRowRangeParam> getRowRanges() {
+    return rowRanges;
+  }
+
+  public int getCaching() {
+    return caching;
+  }
+
+  public int getBatch() {
+    return batch;
+  }
+
+  public long getMaxResultSize() {
+    return maxResultSize;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getSortBufferSize() {
+    return sortBufferSize;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public boolean isKeyOrdered() {
+    return keyOrdered;
+  }
+
   public List<HBaseColumnParam> getExtraColumns() {
     return extraColumns;
   }
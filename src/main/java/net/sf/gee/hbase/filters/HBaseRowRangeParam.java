@@ -0,0 +1,74 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.filters;
+
+import java.io.Serializable;
+
+/**
+ * Row key range of a scan. Bounds are row key values, encoded as the entity row key, or raw byte
+ * arrays; a <code>null</code> bound is open.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class HBaseRowRangeParam implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Serializable start;
+
+  private final boolean startInclusive;
+
+  private final Serializable stop;
+
+  private final boolean stopInclusive;
+
+  /**
+   * Create new instance of HBaseRowRangeParam
+   * 
+   * @param start first row key, <code>null</code> from the first row
+   * @param startInclusive <code>true</code> to include the first row key
+   * @param stop last row key, <code>null</code> to the last row
+   * @param stopInclusive <code>true</code> to include the last row key
+   */
+  public HBaseRowRangeParam(Serializable start, boolean startInclusive, Serializable stop,
+      boolean stopInclusive) {
+    super();
+
+    this.start = start;
+    this.startInclusive = startInclusive;
+    this.stop = stop;
+    this.stopInclusive = stopInclusive;
+  }
+
+  public Serializable getStart() {
+    return start;
+  }
+
+  public boolean isStartInclusive() {
+    return startInclusive;
+  }
+
+  public Serializable getStop() {
+    return stop;
+  }
+
+  public boolean isStopInclusive() {
+    return stopInclusive;
+  }
+
+}
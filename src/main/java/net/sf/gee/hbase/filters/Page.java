@@ -0,0 +1,97 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.filters;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Rows of a cursor based scan and the token to resume from.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class Page<T extends Serializable> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final List<T> results;
+
+  private final String nextToken;
+
+  private final PageRequest request;
+
+  /** Following page read in background, when requested */
+  private transient CompletableFuture<Page<T>> prefetch = null;
+
+  /**
+   * Create new page.
+   * 
+   * @param results {@linkplain java.util.List} of rows
+   * @param nextToken continuation token, <code>null</code> on the last page
+   * @param request {@link PageRequest} of this page
+   */
+  public Page(List<T> results, String nextToken, PageRequest request) {
+    super();
+
+    this.results = results;
+    this.nextToken = nextToken;
+    this.request = request;
+  }
+
+  /**
+   * @return <code>true</code> when other rows follow this page
+   */
+  public boolean hasNext() {
+    return nextToken != null;
+  }
+
+  /**
+   * @return {@link PageRequest} of the following page, <code>null</code> on the last page
+   */
+  public PageRequest nextRequest() {
+
+    // check
+    if (nextToken == null) {
+      return null;
+    }
+
+    return request.next(nextToken);
+  }
+
+  public List<T> getResults() {
+    return results;
+  }
+
+  public String getNextToken() {
+    return nextToken;
+  }
+
+  public PageRequest getRequest() {
+    return request;
+  }
+
+  public CompletableFuture<Page<T>> getPrefetch() {
+    return prefetch;
+  }
+
+  public void setPrefetch(CompletableFuture<Page<T>> prefetch) {
+    this.prefetch = prefetch;
+  }
+
+}
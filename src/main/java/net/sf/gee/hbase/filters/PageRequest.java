@@ -0,0 +1,135 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.filters;
+
+import java.io.Serializable;
+import java.util.Base64;
+
+/**
+ * Page of a cursor based scan: the page size and the opaque token returned by the previous
+ * {@link Page}, <code>null</code> for the first page. Pages are read in row key order, resuming
+ * right after the last row key of the previous page, so any page costs as the first one.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class PageRequest implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int pageSize;
+
+  private final String token;
+
+  private boolean prefetch = false;
+
+  /**
+   * Create new page request.
+   * 
+   * @param pageSize rows per page
+   * @param token continuation token, <code>null</code> for the first page
+   */
+  private PageRequest(int pageSize, String token) {
+    super();
+
+    // check
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+    }
+
+    this.pageSize = pageSize;
+    this.token = token;
+  }
+
+  /**
+   * @param pageSize rows per page
+   * 
+   * @return {@link PageRequest} of the first page
+   */
+  public static PageRequest first(int pageSize) {
+    return new PageRequest(pageSize, null);
+  }
+
+  /**
+   * @param pageSize rows per page
+   * @param token continuation token of the previous {@link Page}
+   * 
+   * @return {@link PageRequest} of the page following the token
+   */
+  public static PageRequest after(int pageSize, String token) {
+    return new PageRequest(pageSize, token);
+  }
+
+  /**
+   * @param nextToken continuation token of the page read with this request
+   * 
+   * @return {@link PageRequest} of the following page, with same size and prefetch
+   */
+  public PageRequest next(String nextToken) {
+    return new PageRequest(pageSize, nextToken).setPrefetch(prefetch);
+  }
+
+  /**
+   * Read the following page in background while the current one is consumed.
+   * 
+   * @param prefetch <code>true</code> to prefetch
+   * 
+   * @return {@link PageRequest}
+   */
+  public PageRequest setPrefetch(boolean prefetch) {
+    this.prefetch = prefetch;
+
+    return this;
+  }
+
+  /**
+   * Encode a row key as continuation token.
+   * 
+   * @param row row key
+   * 
+   * @return opaque token
+   */
+  public static String encodeToken(byte[] row) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(row);
+  }
+
+  /**
+   * @return last row key of the previous page, <code>null</code> for the first page
+   */
+  public byte[] getLastRow() {
+
+    // check
+    if (token == null) {
+      return null;
+    }
+
+    return Base64.getUrlDecoder().decode(token);
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public String getToken() {
+    return token;
+  }
+
+  public boolean isPrefetch() {
+    return prefetch;
+  }
+
+}
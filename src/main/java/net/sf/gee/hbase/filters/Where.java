@@ -0,0 +1,177 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.filters;
+
+import java.beans.Introspector;
+import java.io.Serializable;
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.gee.hbase.filters.Condition.Op;
+
+/**
+ * Entry point of typed conditions:
+ * <code>where(Pojo::getAttr1).eq("x").and(field("count").gt(5))</code>. Fields are entity field
+ * names, operands are encoded with the field codec when compiled.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class Where {
+
+  private final String fieldName;
+
+  /**
+   * @param fieldName entity field name
+   */
+  private Where(String fieldName) {
+    super();
+
+    this.fieldName = fieldName;
+  }
+
+  /**
+   * @param getter getter reference, as <code>Pojo::getAttr1</code>
+   * 
+   * @return {@link Where} on the field of the getter
+   */
+  public static <T, R> Where where(Property<T, R> getter) {
+    return new Where(propertyName(getter));
+  }
+
+  /**
+   * @param fieldName entity field name
+   * 
+   * @return {@link Where} on the field
+   */
+  public static Where field(String fieldName) {
+    return new Where(fieldName);
+  }
+
+  /**
+   * Resolve the field name of a getter reference from its serialized form.
+   * 
+   * @param getter getter reference
+   * 
+   * @return field name
+   */
+  static String propertyName(Property<?, ?> getter) {
+
+    final String method;
+
+    try {
+      final Method writeReplace = getter.getClass().getDeclaredMethod("writeReplace");
+      writeReplace.setAccessible(true);
+
+      method = ((SerializedLambda) writeReplace.invoke(getter)).getImplMethodName();
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      throw new IllegalArgumentException("Not a getter reference: " + getter, e);
+    }
+
+    // strip accessor prefix
+    if (method.startsWith("get") && method.length() > 3) {
+      return Introspector.decapitalize(method.substring(3));
+    }
+    else if (method.startsWith("is") && method.length() > 2) {
+      return Introspector.decapitalize(method.substring(2));
+    }
+
+    throw new IllegalArgumentException("Not a getter reference: " + method);
+  }
+
+  public Condition eq(Serializable value) {
+    return Condition.leaf(fieldName, Op.EQ, value);
+  }
+
+  public Condition ne(Serializable value) {
+    return Condition.leaf(fieldName, Op.NE, value);
+  }
+
+  public Condition gt(Serializable value) {
+    return Condition.leaf(fieldName, Op.GT, value);
+  }
+
+  public Condition ge(Serializable value) {
+    return Condition.leaf(fieldName, Op.GE, value);
+  }
+
+  public Condition lt(Serializable value) {
+    return Condition.leaf(fieldName, Op.LT, value);
+  }
+
+  public Condition le(Serializable value) {
+    return Condition.leaf(fieldName, Op.LE, value);
+  }
+
+  /**
+   * @param low lower bound, inclusive
+   * @param high upper bound, inclusive
+   * 
+   * @return {@link Condition}
+   */
+  public Condition between(Serializable low, Serializable high) {
+    return ge(low).and(le(high));
+  }
+
+  /**
+   * @param prefix string or byte array prefix
+   * 
+   * @return {@link Condition}
+   */
+  public Condition startsWith(Serializable prefix) {
+    return Condition.leaf(fieldName, Op.PREFIX, prefix);
+  }
+
+  /**
+   * @param values accepted values
+   * 
+   * @return {@link Condition}
+   */
+  public Condition in(Serializable... values) {
+
+    // check
+    if (values == null || values.length == 0) {
+      throw new IllegalArgumentException("No value for field " + fieldName);
+    }
+
+    final List<Condition> alternatives = new ArrayList<>(values.length);
+
+    for (Serializable value : values) {
+      alternatives.add(eq(value));
+    }
+
+    return Condition.or(alternatives);
+  }
+
+  /**
+   * @return {@link Condition} true when the column is missing or empty, as saved for null
+   */
+  public Condition isNull() {
+    return Condition.leaf(fieldName, Op.NULL, null);
+  }
+
+  /**
+   * @return {@link Condition} true when the column holds a value
+   */
+  public Condition isNotNull() {
+    return Condition.leaf(fieldName, Op.NOT_NULL, null);
+  }
+
+}
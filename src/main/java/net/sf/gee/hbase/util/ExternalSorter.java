@@ -0,0 +1,319 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import net.sf.gee.logger.factory.GLogFactory;
+import net.sf.gee.logger.log.SimpleGLogger;
+
+/**
+ * External merge sort with bounded memory: elements are sorted in memory up to the buffer size,
+ * then full buffers are spilled as sorted runs in temporary files and merged back on read. Must
+ * be closed to delete the runs. Spilled elements are written and read back by a
+ * {@link RunCodec}, so elements read from a run are new instances.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class ExternalSorter<T> implements Closeable {
+
+  private final static SimpleGLogger LOGGER =
+      GLogFactory.getInstance().getLogger(SimpleGLogger.class, ExternalSorter.class);
+
+  private final Comparator<? super T> comparator;
+
+  private final RunCodec<T> codec;
+
+  private final int bufferSize;
+
+  private final List<T> buffer;
+
+  /** Spilled sorted runs */
+  private final List<File> runs = new ArrayList<>(0);
+
+  /** Opened runs while merging */
+  private final List<DataInputStream> readers = new ArrayList<>(0);
+
+  /**
+   * Create new sorter.
+   *
+   * @param comparator {@linkplain java.util.Comparator} of elements
+   * @param bufferSize maximum number of elements kept in memory
+   * @param codec {@link RunCodec} writing and reading spilled elements
+   */
+  public ExternalSorter(Comparator<? super T> comparator, int bufferSize, RunCodec<T> codec) {
+    super();
+
+    this.comparator = comparator;
+    this.codec = codec;
+    this.bufferSize = Math.max(1, bufferSize);
+    this.buffer = new ArrayList<>(Math.min(this.bufferSize, 1024));
+  }
+
+  /**
+   * Add an element, spilling the buffer when full.
+   *
+   * @param element <T>
+   *
+   * @throws IOException
+   */
+  public void add(T element) throws IOException {
+
+    buffer.add(element);
+
+    // check
+    if (buffer.size() >= bufferSize) {
+      spill();
+    }
+  }
+
+  /**
+   * Return the elements in order. Without runs the buffer is sorted in memory, otherwise runs are
+   * merged reading one element of each at a time.
+   *
+   * @return {@linkplain java.util.Iterator<T>}
+   *
+   * @throws IOException
+   */
+  public Iterator<T> sorted() throws IOException {
+
+    // all in memory
+    if (runs.isEmpty()) {
+      buffer.sort(comparator);
+
+      return buffer.iterator();
+    }
+
+    // last run
+    if (!buffer.isEmpty()) {
+      spill();
+    }
+
+    final PriorityQueue<RunCursor<T>> heads =
+        new PriorityQueue<>(runs.size(), (a, b) -> comparator.compare(a.head, b.head));
+
+    // open runs
+    for (File run : runs) {
+
+      final DataInputStream in =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+
+      readers.add(in);
+
+      final RunCursor<T> cursor = new RunCursor<>(in, codec);
+
+      if (cursor.advance()) {
+        heads.add(cursor);
+      }
+    }
+
+    return new Iterator<T>() {
+
+      @Override
+      public boolean hasNext() {
+        return !heads.isEmpty();
+      }
+
+      @Override
+      public T next() {
+
+        final RunCursor<T> cursor = heads.poll();
+
+        // check
+        if (cursor == null) {
+          throw new NoSuchElementException();
+        }
+
+        final T current = cursor.head;
+
+        try {
+          if (cursor.advance()) {
+            heads.add(cursor);
+          }
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+
+        return current;
+      }
+    };
+  }
+
+  /**
+   * Sort the buffer and write it as a new run.
+   *
+   * @throws IOException
+   */
+  private void spill() throws IOException {
+
+    buffer.sort(comparator);
+
+    // deleted by close
+    final File run = File.createTempFile("g-hbase-sort", ".run");
+
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)));) {
+
+      out.writeInt(buffer.size());
+
+      for (T element : buffer) {
+        codec.write(element, out);
+      }
+    }
+    catch (IOException | RuntimeException e) {
+
+      // partial run
+      if (!run.delete()) {
+        LOGGER.logDebug("Unable to delete sort run [%s]", run.getAbsolutePath());
+      }
+
+      throw e;
+    }
+
+    runs.add(run);
+
+    LOGGER.logDebug("Sort run [%s] spilled with [%s] elements", runs.size(), buffer.size());
+
+    buffer.clear();
+  }
+
+  /**
+   * Delete runs.
+   */
+  @Override
+  public void close() {
+
+    for (DataInputStream in : readers) {
+      try {
+        in.close();
+      }
+      catch (IOException e) {
+        LOGGER.logError(e.getMessage(), e);
+      }
+    }
+
+    for (File run : runs) {
+      if (!run.delete()) {
+        LOGGER.logDebug("Unable to delete sort run [%s]", run.getAbsolutePath());
+      }
+    }
+
+    readers.clear();
+    runs.clear();
+    buffer.clear();
+  }
+
+  /**
+   * Writer and reader of the elements of a run.
+   *
+   * @param <T> element type
+   */
+  public interface RunCodec<T> {
+
+    /**
+     * Write an element.
+     *
+     * @param element <T>
+     * @param out {@linkplain java.io.DataOutput} of the run
+     *
+     * @throws IOException
+     */
+    public void write(T element, DataOutput out) throws IOException;
+
+    /**
+     * Read an element written by {@link #write(Object, DataOutput)}.
+     *
+     * @param in {@linkplain java.io.DataInput} of the run
+     *
+     * @return <T>
+     *
+     * @throws IOException
+     */
+    public T read(DataInput in) throws IOException;
+  }
+
+  /**
+   * Current element of a run.
+   */
+  private static final class RunCursor<T> {
+
+    private final DataInputStream in;
+
+    private final RunCodec<T> codec;
+
+    private int remaining;
+
+    private T head = null;
+
+    /**
+     * @param in run stream
+     * @param codec {@link RunCodec} of elements
+     *
+     * @throws IOException
+     */
+    private RunCursor(DataInputStream in, RunCodec<T> codec) throws IOException {
+      super();
+
+      this.in = in;
+      this.codec = codec;
+      this.remaining = in.readInt();
+    }
+
+    /**
+     * Read the next element of the run.
+     *
+     * @return <code>false</code> at the end of the run
+     *
+     * @throws IOException
+     */
+    private boolean advance() throws IOException {
+
+      // end of run
+      if (remaining == 0) {
+        head = null;
+
+        return false;
+      }
+
+      remaining--;
+
+      head = codec.read(in);
+
+      return true;
+    }
+  }
+
+}
@@ -16,30 +16,29 @@
  **/
 package net.sf.gee.hbase.util;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import javax.management.OperationsException;
 
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.util.Bytes;
 
-import net.sf.gee.common.util.reflection.ReflectionUtil;
 import net.sf.gee.hbase.basic.HBaseMapper;
+import net.sf.gee.hbase.basic.MapperRegistry;
 import net.sf.gee.hbase.basic.NoneMapper;
 import net.sf.gee.hbase.config.ClassConfiguration;
 import net.sf.gee.hbase.config.FieldConfiguration;
@@ -58,12 +57,34 @@ public final class GHBaseObjectBuilder<T> implements Serializable {
   private final static SimpleGLogger LOGGER =
       GLogFactory.getInstance().getLogger(SimpleGLogger.class, GHBaseObjectBuilder.class);
 
+  /** FNV-1a 64 bit offset basis */
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+  /** FNV-1a 64 bit prime */
+  private static final long FNV_PRIME = 0x100000001b3L;
+
   private Class<T> objectClass = null;
 
   private T object = null;
 
   private ClassConfiguration classConfig = null;
 
+  /** Mappers of operation scope, created once for this builder */
+  @SuppressWarnings("rawtypes")
+  private transient Map<Class<?>, HBaseMapper> operationMappers = null;
+
+  /** Fingerprint of each field cells by position, 0 for no cell */
+  private long[] fingerprint = null;
+
+  /** Qualifiers of the collection and mapped fields by position, <code>null</code> for others */
+  private byte[][][] columns = null;
+
+  /** Qualifiers read by position, before they are kept in {@link #columns} */
+  private List<List<byte[]>> readColumns = null;
+
+  /** Bit set of the positions of the lazy fields not read, never written by updates */
+  private long[] unreadFields = null;
+
   /**
    * Creaete a new instance of GHBaseObjectBuilder using the class of <T> type.
    * 
@@ -86,15 +107,17 @@ public final class GHBaseObjectBuilder<T> implements Serializable {
    * @param objectClass
    * @param rowKeyValue
    */
+  @SuppressWarnings("unchecked")
   public GHBaseObjectBuilder(Class<T> objectClass, byte[] rowKeyValue) {
     this(objectClass);
 
     // build object
     buildObject();
 
+    final FieldConfiguration rowKeyField = classConfig.getRowKeyField();
+
     // set row key value
-    ReflectionUtil.setValue(object, classConfig.getRowKeyField().getFieldName(),
-        toObject(String.class, rowKeyValue));
+    rowKeyField.getAccessor().set(object, rowKeyField.getCodec().decode(rowKeyValue));
   }
 
   /**
@@ -116,39 +139,12 @@ public final class GHBaseObjectBuilder<T> implements Serializable {
 
   /**
    * Build object if it is null.
-   * 
-   * @param params constructor parameters
    */
-  private void buildObject(Object... params) {
-
-    // constructor with object
-    if (object == null && params != null && params.length > 0) {
+  private void buildObject() {
 
-      Class<?>[] constructTypes = new Class<?>[params.length];
-
-      for (int i = 0; i < params.length; i++) {
-        constructTypes[i] = constructTypes[i].getClass();
-      }
-
-      // init object
-      try {
-        object = objectClass.getDeclaredConstructor(constructTypes).newInstance(params);
-      }
-      catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-          | InvocationTargetException | NoSuchMethodException | SecurityException e) {
-        LOGGER.logError(e);
-      }
-
-    } // single constructor
-    else if (object == null) {
-      try {
-        // init object
-        object = objectClass.getDeclaredConstructor().newInstance();
-      }
-      catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-          | InvocationTargetException | NoSuchMethodException | SecurityException e) {
-        LOGGER.logError(e);
-      }
+    // single constructor
+    if (object == null) {
+      object = objectClass.cast(classConfig.newInstance());
     }
   }
 
@@ -158,207 +154,151 @@ public final class GHBaseObjectBuilder<T> implements Serializable {
    * @param fieldConfig field configuration{@link FieldConfiguration}
    * 
    * @return {@linkplain java.util.Collection<Object>}
-   * 
-   * @throws {@linkplain java.lang.Exception}
    */
   @SuppressWarnings("unchecked")
-  private Collection<Object> buildCollectionField(FieldConfiguration fieldConfig) throws Exception {
-
-    // get field
-    final Field field = objectClass.getDeclaredField(fieldConfig.getFieldName());
-    field.setAccessible(true);
+  private Collection<Object> buildCollectionField(FieldConfiguration fieldConfig) {
 
     // cast to collection
-    Collection<Object> collection = (Collection<Object>) field.get(object);
+    Collection<Object> collection = (Collection<Object>) fieldConfig.getAccessor().get(object);
+
+    // already built
+    if (collection != null) {
+      return collection;
+    }
 
     // list
-    if (collection == null && List.class.isAssignableFrom(fieldConfig.getFieldType())) {
+    if (List.class.isAssignableFrom(fieldConfig.getFieldType())) {
 
       // user arraylist
       collection = new ArrayList<>(0);
 
     } // set
-    else if (collection == null && Set.class.isAssignableFrom(fieldConfig.getFieldType())) {
+    else if (Set.class.isAssignableFrom(fieldConfig.getFieldType())) {
 
       // use hashset
       collection = new HashSet<>(0);
     }
 
     // set value
-    field.set(object, collection);
+    fieldConfig.getAccessor().set(object, collection);
 
     return collection;
   }
 
   /**
-   * Convert the value in the proper object.
+   * Get the mapper of a field according to its scope.
+   * 
+   * @param fieldConfig field configuration{@link FieldConfiguration}
    * 
-   * @param valueClass return class type {@linkplain java.lang.Class}
-   * @param value byte[] value
+   * @return {@link HBaseMapper}
    * 
-   * @return object value casted to valueClass.
+   * @throws ReflectiveOperationException
    */
-  private <K> K toObject(Class<K> valueClass, byte[] value) {
-
-    if (value == null) {
-      return null;
-    }
-
-    // string
-    if (String.class.getName().equals(valueClass.getName())) {
-      return valueClass.cast(Bytes.toString(value));
-
-    } // date
-    else if (Date.class.getName().equals(valueClass.getName())) {
-      long time = Bytes.toLong(value);
-
-      return valueClass.cast(new Date(time));
-
-    } // boolean
-    else if (Boolean.class.getName().equals(valueClass.getName())) {
-
-      return valueClass.cast(Bytes.toBoolean(value));
+  @SuppressWarnings("rawtypes")
+  private HBaseMapper getMapper(FieldConfiguration fieldConfig)
+      throws ReflectiveOperationException {
 
-    } // integer
-    else if (Integer.class.getName().equals(valueClass.getName())) {
+    switch (fieldConfig.getMapperScope()) {
 
-      return valueClass.cast(Bytes.toInt(value));
+      case SINGLETON:
+        return fieldConfig.getMapperInstance();
 
-    } // long
-    else if (Long.class.getName().equals(valueClass.getName())) {
+      case THREAD_LOCAL:
+        return fieldConfig.getMapperThreadLocal().get();
 
-      return valueClass.cast(Bytes.toLong(value));
-
-    } // double
-    else if (Double.class.getName().equals(valueClass.getName())) {
-
-      return valueClass.cast(Bytes.toDouble(value));
-
-    } // bigdecimal
-    else if (BigDecimal.class.getName().equals(valueClass.getName())) {
-
-      return valueClass.cast(Bytes.toBigDecimal(value));
-
-    } // byte array
-    else if (valueClass == byte[].class) {
-
-      return valueClass.cast(value);
+      default:
+        // lazy init
+        if (operationMappers == null) {
+          operationMappers = new HashMap<>(4);
+        }
 
-    } // try to serializable
-    else {
+        HBaseMapper mapper = operationMappers.get(fieldConfig.getMapper());
 
-      // open streams
-      try (ByteArrayInputStream bin = new ByteArrayInputStream(value);
-          ObjectInputStream in = new ObjectInputStream(bin);) {
+        // first use in this operation
+        if (mapper == null) {
+          mapper = MapperRegistry.getInstance().newMapper(fieldConfig.getMapper());
+          operationMappers.put(fieldConfig.getMapper(), mapper);
+        }
 
-        // write object
-        return valueClass.cast(in.readObject());
-      }
-      catch (Exception e) {
-        LOGGER.logError(e.getMessage(), e);
-      }
+        return mapper;
     }
-
-    return null;
   }
 
   /**
-   * Convert input in byte array ready to use for HBase
+   * Set value inside object to return.
    * 
-   * @param input {@linkplain java.lang.Object}
+   * @param family family name of cell
+   * @param column column name of cell
+   * @param value value of cell
    * 
-   * @return byte[]
+   * @throws {@link OperationsException}
    */
-  private byte[] toByteArray(Object input) {
-
-    if (input == null) {
-      return null;
-    }
-
-    // prepare buffer
-    byte[] value = null;
-
-    // string
-    if (String.class.getName().equals(input.getClass().getName())) {
-      value = Bytes.toBytes((String) input);
-
-    } // date
-    else if (Date.class.getName().equals(input.getClass().getName())) {
-      value = Bytes.toBytes(((Date) input).getTime());
-
-    } // boolean
-    else if (Boolean.class.getName().equals(input.getClass().getName())
-        || boolean.class.equals(input.getClass())) {
-      value = Bytes.toBytes(((Boolean) input).booleanValue());
-
-    } // integer
-    else if (Integer.class.getName().equals(input.getClass().getName())
-        || int.class.equals(input.getClass())) {
-      value = Bytes.toBytes(((Integer) input).intValue());
-
-    } // long
-    else if (Long.class.getName().equals(input.getClass().getName())
-        || long.class.equals(input.getClass())) {
-      value = Bytes.toBytes(((Long) input).longValue());
-
-    } // double
-    else if (Double.class.getName().equals(input.getClass().getName())
-        || double.class.equals(input.getClass())) {
-      value = Bytes.toBytes(((Double) input).doubleValue());
+  public void setValue(final String family, final String column, final byte[] value)
+      throws OperationsException {
 
-    } // bigdecimal
-    else if (BigDecimal.class.getName().equals(input.getClass().getName())) {
-      value = Bytes.toBytes((BigDecimal) input);
+    final FieldConfiguration fieldConfig = classConfig.getFieldConfiguration(family, column);
 
-    } // biginteger
-    else if (BigInteger.class.getName().equals(input.getClass().getName())) {
-      value = Bytes.toBytes(((BigInteger) input).doubleValue());
+    // check configuration
+    if (fieldConfig == null) {
+      throw new OperationsException(String
+          .format("No field configuration found for Family [%s], Column [%s]", family, column));
+    }
 
-    } // byte array
-    else if (input.getClass() == byte[].class) {
-      value = (byte[]) input;
+    final byte[] columnBytes = Bytes.toBytes(column);
 
-    } // try to serializable
-    else {
+    // decode
+    setValue(fieldConfig, columnBytes, 0, columnBytes.length, value, 0,
+        value == null ? 0 : value.length);
+  }
 
-      // open streams
-      try (ByteArrayOutputStream bout = new ByteArrayOutputStream();
-          ObjectOutputStream out = new ObjectOutputStream(bout);) {
+  /**
+   * Set value inside object to return, reading family, column and value directly on the cell
+   * backing arrays.
+   * 
+   * @param cell {@linkplain org.apache.hadoop.hbase.Cell}
+   * 
+   * @throws {@link OperationsException}
+   */
+  public void setValue(final Cell cell) throws OperationsException {
 
-        // write object
-        out.writeObject(input);
+    final FieldConfiguration fieldConfig = classConfig.getFieldConfiguration(
+        cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength(),
+        cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
 
-        // get byte array
-        value = bout.toByteArray();
-      }
-      catch (Exception e) {
-        LOGGER.logError(e.getMessage(), e);
-      }
+    // check configuration
+    if (fieldConfig == null) {
+      throw new OperationsException(
+          String.format("No field configuration found for Family [%s], Column [%s]",
+              Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(),
+                  cell.getFamilyLength()),
+              Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(),
+                  cell.getQualifierLength())));
     }
 
-    return value;
+    // decode
+    setValue(fieldConfig, cell.getQualifierArray(), cell.getQualifierOffset(),
+        cell.getQualifierLength(), cell.getValueArray(), cell.getValueOffset(),
+        cell.getValueLength());
   }
 
   /**
-   * Set value inside object to return.
+   * Decode column and value slices in the field. Bytes are copied only for user mappers, that
+   * work on whole arrays.
    * 
-   * @param family family name of cell
-   * @param column column name of cell
-   * @param value value of cell
+   * @param fieldConfig field configuration{@link FieldConfiguration}
+   * @param column column backing array
+   * @param columnOffset column offset
+   * @param columnLength column length
+   * @param value value backing array, <code>null</code> for no value
+   * @param valueOffset value offset
+   * @param valueLength value length
    * 
    * @throws {@link OperationsException}
    */
   @SuppressWarnings({"rawtypes", "unchecked"})
-  public void setValue(final String family, final String column, final byte[] value)
-      throws OperationsException {
-
-    final FieldConfiguration fieldConfig = classConfig.getFieldConfiguration(family, column);
-
-    // check configuration
-    if (fieldConfig == null) {
-      throw new OperationsException(String
-          .format("No field configuration found for Family [%s], Column [%s]", family, column));
-    }
+  private void setValue(final FieldConfiguration fieldConfig, final byte[] column,
+      final int columnOffset, final int columnLength, final byte[] value, final int valueOffset,
+      final int valueLength) throws OperationsException {
 
     // build object of the builder
     buildObject();
@@ -369,48 +309,57 @@ public final class GHBaseObjectBuilder<T> implements Serializable {
       if (!fieldConfig.isCollection() && NoneMapper.class.equals(fieldConfig.getMapper())) {
 
         // set field value
-        ReflectionUtil.setValue(object, fieldConfig.getFieldName(),
-            toObject(fieldConfig.getFieldType(), value));
+        fieldConfig.getAccessor().set(object, value == null ? null
+            : fieldConfig.getCodec().decode(value, valueOffset, valueLength));
 
       } // No collection and user mapper
       else if (!fieldConfig.isCollection()) {
 
         // call mapper
-        final HBaseMapper mapper = fieldConfig.getMapper().getDeclaredConstructor().newInstance();
+        final HBaseMapper mapper = getMapper(fieldConfig);
 
         // set field value
-        ReflectionUtil.setValue(object, fieldConfig.getFieldName(),
-            mapper.toObject(column, value, fieldConfig.getFieldType()));
+        fieldConfig.getAccessor().set(object,
+            mapper.toObject(Bytes.toString(column, columnOffset, columnLength),
+                copy(value, valueOffset, valueLength), fieldConfig.getFieldType()));
 
       } // Collection and NoneMapper
-      else if (fieldConfig.isCollection() && NoneMapper.class.equals(fieldConfig.getMapper())) {
+      else if (NoneMapper.class.equals(fieldConfig.getMapper())) {
 
         // init collection
         Collection<Object> collection = buildCollectionField(fieldConfig);
 
-        // get class of inner type of collection
-        Class<?> innerTypeClass = Class.forName(fieldConfig.getFieldInnerType());
-
-        byte[] columnAsValue =
-            Bytes.toBytes(column.substring(fieldConfig.getColumnName().length()));
+        // column suffix is the value
+        final int prefixLength = fieldConfig.getColumnBytes().length;
 
         // add to collection
-        collection.add(toObject(innerTypeClass, columnAsValue));
+        collection.add(fieldConfig.getInnerCodec().decode(column, columnOffset + prefixLength,
+            columnLength - prefixLength));
 
       } // Collection and custom mapper
-      else if (fieldConfig.isCollection()) {
+      else {
 
         // init collection
         Collection<Object> collection = buildCollectionField(fieldConfig);
 
-        // get class of inner type of collection
-        Class<?> innerTypeClass = Class.forName(fieldConfig.getFieldInnerType());
-
         // call mapper
-        final HBaseMapper mapper = fieldConfig.getMapper().getDeclaredConstructor().newInstance();
+        final HBaseMapper mapper = getMapper(fieldConfig);
 
         // add to collection
-        collection.add(mapper.toObject(column, value, innerTypeClass));
+        collection.add(mapper.toObject(Bytes.toString(column, columnOffset, columnLength),
+            copy(value, valueOffset, valueLength), fieldConfig.getFieldInnerClass()));
+      }
+
+      // loaded cells, compared by the next update
+      if (classConfig.isDirtyTracking()) {
+        getFingerprint()[fieldConfig.getPosition()] +=
+            cellHash(column, columnOffset, columnLength, value, valueOffset, valueLength);
+
+        // qualifiers to delete once no longer written
+        if (isMultiColumn(fieldConfig)) {
+          readColumns(fieldConfig.getPosition())
+              .add(Arrays.copyOfRange(column, columnOffset, columnOffset + columnLength));
+        }
       }
 
     }
@@ -422,7 +371,81 @@ public final class GHBaseObjectBuilder<T> implements Serializable {
   }
 
   /**
-   * Create the put array to store object inside HBASE row.
+   * Hash a cell with FNV-1a. The hashes of the cells of a field are summed, so that the
+   * fingerprint does not depend on the cells order.
+   * 
+   * @param column column backing array
+   * @param columnOffset column offset
+   * @param columnLength column length
+   * @param value value backing array, <code>null</code> for no value
+   * @param valueOffset value offset
+   * @param valueLength value length
+   * 
+   * @return hash of the cell, never 0
+   */
+  private static long cellHash(byte[] column, int columnOffset, int columnLength, byte[] value,
+      int valueOffset, int valueLength) {
+
+    long hash = FNV_OFFSET;
+
+    for (int i = 0; i < columnLength; i++) {
+      hash = (hash ^ (column[columnOffset + i] & 0xFF)) * FNV_PRIME;
+    }
+
+    // column length as separator
+    hash = (hash ^ columnLength) * FNV_PRIME;
+
+    for (int i = 0; value != null && i < valueLength; i++) {
+      hash = (hash ^ (value[valueOffset + i] & 0xFF)) * FNV_PRIME;
+    }
+
+    // 0 is kept for no cell
+    return hash == 0 ? 1 : hash;
+  }
+
+  /**
+   * @param put {@linkplain org.apache.hadoop.hbase.client.Put} of a single field
+   * 
+   * @return fingerprint of the put cells, 0 when empty
+   */
+  private static long fingerprint(Put put) {
+
+    long sum = 0;
+
+    for (List<Cell> cells : put.getFamilyCellMap().values()) {
+      for (Cell cell : cells) {
+        sum += cellHash(cell.getQualifierArray(), cell.getQualifierOffset(),
+            cell.getQualifierLength(), cell.getValueArray(), cell.getValueOffset(),
+            cell.getValueLength());
+      }
+    }
+
+    return sum;
+  }
+
+  /**
+   * Copy a slice, avoiding it when the slice is the whole array.
+   * 
+   * @param buffer backing array
+   * @param offset slice offset
+   * @param length slice length
+   * 
+   * @return byte[]
+   */
+  private static byte[] copy(byte[] buffer, int offset, int length) {
+
+    // check
+    if (buffer == null || (offset == 0 && length == buffer.length)) {
+      return buffer;
+    }
+
+    return Arrays.copyOfRange(buffer, offset, offset + length);
+  }
+
+  /**
+   * Create the put array to store object inside HBASE row. Save mode writes the insertable fields,
+   * update mode the updatable ones that were read. Counters are left to
+   * {@link #prepareCounters()}.
    * 
    * @param isSaveMode flag to check if save or update mode.
    * 
@@ -434,138 +457,220 @@ public final class GHBaseObjectBuilder<T> implements Serializable {
   public List<Put> preparePuts(boolean isSaveMode) throws OperationsException {
 
     // result
-    final List<Put> puts = new ArrayList<>(0);
+    final List<Put> puts = new ArrayList<>(1);
 
     try {
       // get row key field
       FieldConfiguration rowFieldConfig = classConfig.getRowKeyField();
 
-      // get row class
-      Class<?> rowClass = rowFieldConfig.getFieldType();
-
       // get row as byte array
-      byte[] row = toByteArray(
-          rowClass.cast(ReflectionUtil.getValue(rowClass, object, rowFieldConfig.getFieldName())));
+      byte[] row = rowFieldConfig.getCodec().encode(rowFieldConfig.getAccessor().get(object));
+
+      // one put for the whole row
+      Put put = new Put(row);
 
       // iterate
       for (FieldConfiguration current : classConfig.getFields()) {
 
-        // create put
-        Put put = new Put(row);
-
-        // check
-        if (current.isInsertable() == isSaveMode) {
+        // save case
+        if (isSaveMode && !current.isInsertable()) {
+          continue;
 
-          // add to list
-          puts.add(put);
+        } // update case
+        else if (!isSaveMode && (!current.isUpdatable() || isUnread(current))) {
+          continue;
+        }
 
+        // written only when missing
+        if (current.isCounter()) {
+          continue;
         }
-        // update case
-        else if (current.isUpdatable() == isSaveMode) {
 
-          // add to list
-          puts.add(put);
+        // get value
+        final Object fieldValue = current.getAccessor().get(object);
+
+        addCells(put, current, fieldValue);
+      }
+
+      // check
+      if (!put.isEmpty()) {
+        puts.add(put);
+      }
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new OperationsException(e.getMessage());
+    }
+
+    return puts;
+  }
+
+  /**
+   * Create the initial values of the counters of a save, a put for each counter not null. Each put
+   * is written only if its column is missing, so a save never overwrites the increments applied
+   * to a stored row.
+   * 
+   * @return {@linkplain java.util.Map} of put by counter {@link FieldConfiguration}
+   * 
+   * @throws {@link OperationsException}
+   */
+  public Map<FieldConfiguration, Put> prepareCounters() throws OperationsException {
+
+    // result
+    final Map<FieldConfiguration, Put> puts = new HashMap<>(2);
+
+    try {
+      // get row key field
+      FieldConfiguration rowFieldConfig = classConfig.getRowKeyField();
 
-        } // safe net
-        else {
+      // get row as byte array
+      byte[] row = rowFieldConfig.getCodec().encode(rowFieldConfig.getAccessor().get(object));
+
+      // iterate
+      for (FieldConfiguration current : classConfig.getFields()) {
+
+        // check
+        if (!current.isCounter() || !current.isInsertable()) {
           continue;
         }
 
-        // get row class
-        Class<?> fieldClass = current.getFieldType();
+        // get value
+        final Object fieldValue = current.getAccessor().get(object);
 
-        // no collection and not use mapper
-        if (!current.isCollection() && NoneMapper.class.equals(current.getMapper())) {
+        // an empty counter cell could not be incremented
+        if (fieldValue != null) {
 
-          // get value
-          byte[] value = toByteArray(
-              fieldClass.cast(ReflectionUtil.getValue(fieldClass, object, current.getFieldName())));
+          final Put put = new Put(row);
 
-          // put
-          put.addColumn(Bytes.toBytes(current.getFamilyName()),
-              Bytes.toBytes(current.getColumnName()), value);
+          addCells(put, current, fieldValue);
 
-        } // no collection and use mapper
-        else if (!current.isCollection()) {
+          puts.put(current, put);
+        }
+      }
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
 
-          // call mapper
-          HBaseMapper mapper = current.getMapper().getDeclaredConstructor().newInstance();
+      throw new OperationsException(e.getMessage());
+    }
 
-          // put
-          put.addColumn(Bytes.toBytes(current.getFamilyName()),
-              // column name
-              Bytes.toBytes(mapper.getColumnName(current.getColumnName(),
-                  ReflectionUtil.getValue(fieldClass, object, current.getFieldName()))),
+    return puts;
+  }
 
-              // column value
-              mapper.getColumnValue(
-                  ReflectionUtil.getValue(fieldClass, object, current.getFieldName())));
+  /**
+   * Create the mutations of an update. Fields whose cells match the snapshot taken at load, and
+   * lazy fields that were not read, are skipped; null scalar fields delete their column instead of
+   * writing an empty cell. Changed collection and mapped fields delete the columns of the snapshot
+   * they no longer write, all of them when set to null. The version field is left to
+   * {@link #addVersion(List)}. Once the mutations are written, {@link #getSnapshot()} is the
+   * snapshot of the stored row.
+   * 
+   * @param snapshot {@link RowSnapshot} of the loaded entity, <code>null</code> to write every
+   *        updatable field
+   * 
+   * @return {@linkplain java.util.List} of put and delete of the row, empty when nothing changed
+   * 
+   * @throws {@link OperationsException}
+   */
+  @SuppressWarnings("unchecked")
+  public List<Mutation> prepareUpdate(RowSnapshot snapshot) throws OperationsException {
 
-        } // collection and not use mapper
-        else if (current.isCollection() && NoneMapper.class.equals(current.getMapper())) {
+    // result
+    final List<Mutation> mutations = new ArrayList<>(2);
 
-          // cast to collection
-          Collection<Object> collection = (Collection<Object>) ReflectionUtil.getValue(fieldClass,
-              object, current.getFieldName());
+    try {
+      // get row key field
+      FieldConfiguration rowFieldConfig = classConfig.getRowKeyField();
 
-          // iterator
-          Iterator<Object> it = collection.iterator();
+      // get row as byte array
+      byte[] row = rowFieldConfig.getCodec().encode(rowFieldConfig.getAccessor().get(object));
 
-          // iterate on collection
-          while (it.hasNext()) {
+      final Put put = new Put(row);
+      final Delete delete = new Delete(row);
 
-            // current value
-            Object valueObj = it.next();
+      // snapshot after the update
+      final int size = classConfig.getFields().size();
+      final long[] stored = snapshot == null ? new long[size] : snapshot.fingerprint.clone();
+      final byte[][][] storedColumns =
+          snapshot == null ? new byte[size][][] : snapshot.columns.clone();
 
-            // buffer
-            StringBuilder buffer = new StringBuilder();
+      // iterate
+      for (FieldConfiguration current : classConfig.getFields()) {
 
-            // add column name
-            buffer.append(current.getColumnName());
+        // check
+        if (!current.isUpdatable() || isUnread(current) || current.isVersion()) {
+          continue;
+        }
 
-            // add field value
-            buffer.append(valueObj);
+        final int position = current.getPosition();
 
-            // put
-            put.addColumn(Bytes.toBytes(current.getFamilyName()), Bytes.toBytes(buffer.toString()),
-                new byte[] {});
-          }
+        // get value
+        final Object fieldValue = current.getAccessor().get(object);
 
-        } // collection and use mapper
-        else if (current.isCollection()) {
+        // null scalar: delete the column, if stored
+        if (fieldValue == null && !current.isCollection()
+            && NoneMapper.class.equals(current.getMapper())) {
 
-          // cast to collection
-          Collection<Object> collection = (Collection<Object>) ReflectionUtil.getValue(fieldClass,
-              object, current.getFieldName());
+          if (snapshot == null || snapshot.fingerprint[position] != 0) {
+            delete.addColumns(current.getFamilyBytes(), current.getColumnBytes());
+          }
 
-          // iterator
-          Iterator<Object> it = collection.iterator();
+          stored[position] = 0;
+          continue;
+        }
 
-          // mapper
-          HBaseMapper mapper = current.getMapper().getDeclaredConstructor().newInstance();
+        // cells of the field alone, none for a null collection or mapped field
+        final Put cells = new Put(row);
 
-          // iterate on collection
-          while (it.hasNext()) {
+        if (fieldValue != null) {
+          addCells(cells, current, fieldValue);
+        }
 
-            // current value
-            Object valueObj = it.next();
+        final long hash = fingerprint(cells);
 
-            // buffer
-            StringBuilder buffer = new StringBuilder();
+        // unchanged
+        if (snapshot != null && snapshot.fingerprint[position] == hash) {
+          continue;
+        }
 
-            // add column name
-            buffer.append(current.getColumnName());
+        final Set<byte[]> written = new TreeSet<>(Bytes.BYTES_COMPARATOR);
 
-            // add field value
-            buffer.append(mapper.getColumnName(current.getColumnName(), valueObj));
+        for (List<Cell> family : cells.getFamilyCellMap().values()) {
+          for (Cell cell : family) {
+            put.add(cell);
+            written.add(CellUtil.cloneQualifier(cell));
+          }
+        }
 
-            // put
-            put.addColumn(Bytes.toBytes(current.getFamilyName()), Bytes.toBytes(buffer.toString()),
-                mapper.getColumnValue(valueObj));
+        // columns of the snapshot no longer written
+        if (snapshot != null && snapshot.columns[position] != null) {
+          for (byte[] column : snapshot.columns[position]) {
+            if (!written.contains(column)) {
+              delete.addColumns(current.getFamilyBytes(), column);
+            }
           }
+        }
+
+        stored[position] = hash;
 
+        if (isMultiColumn(current)) {
+          storedColumns[position] = written.isEmpty() ? null : written.toArray(new byte[0][]);
         }
       }
+
+      // check
+      if (!put.isEmpty()) {
+        mutations.add(put);
+      }
+
+      if (!delete.isEmpty()) {
+        mutations.add(delete);
+      }
+
+      this.fingerprint = stored;
+      this.columns = storedColumns;
+      this.readColumns = null;
     }
     catch (Exception e) {
       LOGGER.logError(e.getMessage(), e);
@@ -573,7 +678,240 @@ public final class GHBaseObjectBuilder<T> implements Serializable {
       throw new OperationsException(e.getMessage());
     }
 
-    return puts;
+    return mutations;
+  }
+
+  /**
+   * Add the version field to the mutations of {@link #prepareUpdate(RowSnapshot)}, once they
+   * change the row and the version was bumped.
+   * 
+   * @param mutations {@linkplain java.util.List} of put and delete of the row
+   * 
+   * @throws {@link OperationsException}
+   */
+  public void addVersion(List<Mutation> mutations) throws OperationsException {
+
+    final FieldConfiguration version = classConfig.getVersionField();
+
+    // check
+    if (version == null) {
+      return;
+    }
+
+    Put put = null;
+
+    for (Mutation mutation : mutations) {
+      if (mutation instanceof Put) {
+        put = (Put) mutation;
+      }
+    }
+
+    try {
+      // deletes only
+      if (put == null) {
+        put = new Put(mutations.get(0).getRow());
+        mutations.add(0, put);
+      }
+
+      final Put cells = new Put(put.getRow());
+
+      addCells(cells, version, version.getAccessor().get(object));
+
+      for (Cell cell : cells.getFamilyCellMap().get(version.getFamilyBytes())) {
+        put.add(cell);
+      }
+
+      getFingerprint()[version.getPosition()] = fingerprint(cells);
+    }
+    catch (Exception e) {
+      LOGGER.logError(e.getMessage(), e);
+
+      throw new OperationsException(e.getMessage());
+    }
+  }
+
+  /**
+   * Add the cells of a field value to a put.
+   * 
+   * @param put row {@linkplain org.apache.hadoop.hbase.client.Put}
+   * @param current field configuration{@link FieldConfiguration}
+   * @param fieldValue field value
+   * 
+   * @throws ReflectiveOperationException
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private void addCells(Put put, FieldConfiguration current, Object fieldValue)
+      throws ReflectiveOperationException {
+
+    // no collection and not use mapper
+    if (!current.isCollection() && NoneMapper.class.equals(current.getMapper())) {
+
+      // get value
+      byte[] value = fieldValue == null ? null : current.getCodec().encode(fieldValue);
+
+      // put
+      put.addColumn(current.getFamilyBytes(), current.getColumnBytes(), value);
+
+    } // no collection and use mapper
+    else if (!current.isCollection()) {
+
+      // call mapper
+      HBaseMapper mapper = getMapper(current);
+
+      // put
+      put.addColumn(current.getFamilyBytes(),
+          // column name
+          Bytes.toBytes(mapper.getColumnName(current.getColumnName(), fieldValue)),
+
+          // column value
+          mapper.getColumnValue(fieldValue));
+
+    } // collection and not use mapper
+    else if (NoneMapper.class.equals(current.getMapper())) {
+
+      // check
+      if (fieldValue == null) {
+        return;
+      }
+
+      // column suffix is the element, encoded as read back
+      final byte[] prefix = current.getColumnBytes();
+
+      // iterate on collection
+      for (Object valueObj : (Collection<Object>) fieldValue) {
+
+        // check
+        if (valueObj == null) {
+          continue;
+        }
+
+        // put
+        put.addColumn(current.getFamilyBytes(),
+            Bytes.add(prefix, current.getInnerCodec().encode(valueObj)), new byte[] {});
+      }
+
+    } // collection and use mapper
+    else {
+
+      // check
+      if (fieldValue == null) {
+        return;
+      }
+
+      // mapper
+      HBaseMapper mapper = getMapper(current);
+
+      // iterate on collection
+      for (Object valueObj : (Collection<Object>) fieldValue) {
+
+        // buffer
+        StringBuilder buffer = new StringBuilder();
+
+        // add column name
+        buffer.append(current.getColumnName());
+
+        // add field value
+        buffer.append(mapper.getColumnName(current.getColumnName(), valueObj));
+
+        // put
+        put.addColumn(current.getFamilyBytes(), Bytes.toBytes(buffer.toString()),
+            mapper.getColumnValue(valueObj));
+      }
+
+    }
+  }
+
+  /**
+   * Get the fingerprint of each field cells, indexed by field position.
+   * 
+   * @return fingerprints, 0 for a field without cells
+   */
+  public long[] getFingerprint() {
+
+    // lazy build
+    if (fingerprint == null) {
+      fingerprint = new long[classConfig.getFields().size()];
+    }
+
+    return fingerprint;
+  }
+
+  /**
+   * Get the snapshot of the cells read or written by this builder, compared by the next update.
+   * 
+   * @return {@link RowSnapshot}
+   */
+  public RowSnapshot getSnapshot() {
+
+    // qualifiers read
+    if (readColumns != null) {
+
+      columns = new byte[classConfig.getFields().size()][][];
+
+      for (int position = 0; position < columns.length; position++) {
+        if (readColumns.get(position) != null) {
+          columns[position] = readColumns.get(position).toArray(new byte[0][]);
+        }
+      }
+
+      readColumns = null;
+    }
+    else if (columns == null) {
+      columns = new byte[classConfig.getFields().size()][][];
+    }
+
+    return new RowSnapshot(getFingerprint(), columns);
+  }
+
+  /**
+   * @param position field position
+   * 
+   * @return qualifiers read for the field
+   */
+  private List<byte[]> readColumns(int position) {
+
+    // lazy build
+    if (readColumns == null) {
+      readColumns = new ArrayList<>(Collections.nCopies(classConfig.getFields().size(),
+          (List<byte[]>) null));
+    }
+
+    if (readColumns.get(position) == null) {
+      readColumns.set(position, new ArrayList<byte[]>());
+    }
+
+    return readColumns.get(position);
+  }
+
+  /**
+   * @param field {@link FieldConfiguration}
+   * 
+   * @return <code>true</code> for a collection or mapped field, its qualifiers depend on the value
+   */
+  private static boolean isMultiColumn(FieldConfiguration field) {
+    return field.isCollection() || !NoneMapper.class.equals(field.getMapper());
+  }
+
+  /**
+   * Set the lazy fields left out when the object was read, updates keep their stored columns.
+   * 
+   * @param unreadFields bit set of field positions, <code>null</code> when every field was read
+   */
+  public void setUnreadFields(long[] unreadFields) {
+    this.unreadFields = unreadFields;
+  }
+
+  /**
+   * @param field {@link FieldConfiguration}
+   * 
+   * @return <code>true</code> when the field was left out when the object was read
+   */
+  private boolean isUnread(FieldConfiguration field) {
+
+    final int position = field.getPosition();
+
+    return unreadFields != null && (position >>> 6) < unreadFields.length
+        && (unreadFields[position >>> 6] & (1L << position)) != 0;
   }
 
   public Class<T> getObjectClass() {
@@ -0,0 +1,79 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.util;
+
+import java.util.Collection;
+
+import net.sf.gee.hbase.config.FieldConfiguration;
+
+/**
+ * Cells of a loaded or written row, compared by the next update: the fingerprint of each field
+ * cells and the qualifiers of the fields spread on several columns, deleted when they are no longer
+ * written.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class RowSnapshot {
+
+  /** Fingerprint of each field cells by position, 0 for no cell */
+  final long[] fingerprint;
+
+  /** Qualifiers of the collection and mapped fields by position, <code>null</code> for others */
+  final byte[][][] columns;
+
+  /**
+   * @param fingerprint field fingerprints, not copied
+   * @param columns qualifiers of the collection and mapped fields, not copied
+   */
+  RowSnapshot(long[] fingerprint, byte[][][] columns) {
+    this.fingerprint = fingerprint;
+    this.columns = columns;
+  }
+
+  /**
+   * @param position field position
+   * 
+   * @return fingerprint of the field cells, 0 for no cell
+   */
+  public long getFingerprint(int position) {
+    return fingerprint[position];
+  }
+
+  /**
+   * Copy this snapshot, taking some fields from another one.
+   * 
+   * @param other snapshot of the same class, as the one of fetched fields
+   * @param fields fields taken from other
+   * 
+   * @return new {@link RowSnapshot}
+   */
+  public RowSnapshot merge(RowSnapshot other, Collection<FieldConfiguration> fields) {
+
+    final long[] mergedFingerprint = fingerprint.clone();
+    final byte[][][] mergedColumns = columns.clone();
+
+    // iterate
+    for (FieldConfiguration field : fields) {
+      mergedFingerprint[field.getPosition()] = other.fingerprint[field.getPosition()];
+      mergedColumns[field.getPosition()] = other.columns[field.getPosition()];
+    }
+
+    return new RowSnapshot(mergedFingerprint, mergedColumns);
+  }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.bean;
+
+import java.io.Serializable;
+
+import net.sf.gee.hbase.annotation.HBaseColumn;
+import net.sf.gee.hbase.annotation.RowKey;
+import net.sf.gee.hbase.annotation.Table;
+import net.sf.gee.hbase.annotation.Version;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+@Table(table = "account_hb_table", dirtyTracking = true, cacheSize = 16)
+public class Account implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  @RowKey
+  private String code = null;
+
+  @HBaseColumn(familyName = "test", name = "balance")
+  private Long balance = null;
+
+  @Version
+  @HBaseColumn(familyName = "test", name = "version")
+  private Long version = null;
+
+  /**
+   * 
+   */
+  public Account() {
+    super();
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  public void setCode(String code) {
+    this.code = code;
+  }
+
+  public Long getBalance() {
+    return balance;
+  }
+
+  public void setBalance(Long balance) {
+    this.balance = balance;
+  }
+
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
+}
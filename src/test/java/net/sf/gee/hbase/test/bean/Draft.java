@@ -0,0 +1,85 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.bean;
+
+import java.io.Serializable;
+
+import net.sf.gee.hbase.annotation.HBaseColumn;
+import net.sf.gee.hbase.annotation.RowKey;
+import net.sf.gee.hbase.annotation.Table;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+@Table(table = "draft_hb_table")
+public class Draft implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  @RowKey
+  private String code = null;
+
+  @HBaseColumn(familyName = "test", name = "title")
+  private String title = null;
+
+  @HBaseColumn(familyName = "test", name = "rank")
+  private Integer rank = null;
+
+  @HBaseColumn(familyName = "test", name = "note")
+  private String note = null;
+
+  /**
+   * 
+   */
+  public Draft() {
+    super();
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  public void setCode(String code) {
+    this.code = code;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public Integer getRank() {
+    return rank;
+  }
+
+  public void setRank(Integer rank) {
+    this.rank = rank;
+  }
+
+  public String getNote() {
+    return note;
+  }
+
+  public void setNote(String note) {
+    this.note = note;
+  }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.bean;
+
+import java.io.Serializable;
+
+import net.sf.gee.hbase.annotation.Counter;
+import net.sf.gee.hbase.annotation.HBaseColumn;
+import net.sf.gee.hbase.annotation.RowKey;
+import net.sf.gee.hbase.annotation.Table;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+@Table(table = "hits_hb_table")
+public class Hits implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  @RowKey
+  private String page = null;
+
+  @Counter
+  @HBaseColumn(familyName = "test", name = "views")
+  private Long views = null;
+
+  @Counter
+  @HBaseColumn(familyName = "test", name = "likes")
+  private Long likes = null;
+
+  /**
+   * 
+   */
+  public Hits() {
+    super();
+  }
+
+  public String getPage() {
+    return page;
+  }
+
+  public void setPage(String page) {
+    this.page = page;
+  }
+
+  public Long getViews() {
+    return views;
+  }
+
+  public void setViews(Long views) {
+    this.views = views;
+  }
+
+  public Long getLikes() {
+    return likes;
+  }
+
+  public void setLikes(Long likes) {
+    this.likes = likes;
+  }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.bean;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import net.sf.gee.hbase.codec.FieldCodec;
+
+/**
+ * Stores strings reversed, to tell codec encoding from plain text.
+ * 
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class ReversedCodec implements FieldCodec<String> {
+
+  @Override
+  public byte[] encode(String value) {
+    return Bytes.toBytes(new StringBuilder(value).reverse().toString());
+  }
+
+  @Override
+  public String decode(byte[] buffer, int offset, int length) {
+    return new StringBuilder(Bytes.toString(buffer, offset, length)).reverse().toString();
+  }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.bean;
+
+import java.io.Serializable;
+import java.util.LinkedList;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class Shelf implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private LinkedList<String> books = null;
+
+  private TreeSet<Integer> ranks = null;
+
+  private TreeMap<String, Long> counts = null;
+
+  private SortedMap<String, Integer> shelves = null;
+
+  /**
+   * 
+   */
+  public Shelf() {
+    super();
+  }
+
+  public LinkedList<String> getBooks() {
+    return books;
+  }
+
+  public void setBooks(LinkedList<String> books) {
+    this.books = books;
+  }
+
+  public TreeSet<Integer> getRanks() {
+    return ranks;
+  }
+
+  public void setRanks(TreeSet<Integer> ranks) {
+    this.ranks = ranks;
+  }
+
+  public TreeMap<String, Long> getCounts() {
+    return counts;
+  }
+
+  public void setCounts(TreeMap<String, Long> counts) {
+    this.counts = counts;
+  }
+
+  public SortedMap<String, Integer> getShelves() {
+    return shelves;
+  }
+
+  public void setShelves(SortedMap<String, Integer> shelves) {
+    this.shelves = shelves;
+  }
+
+}
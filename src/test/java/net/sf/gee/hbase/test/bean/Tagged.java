@@ -0,0 +1,89 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.bean;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.gee.hbase.annotation.HBaseColumn;
+import net.sf.gee.hbase.annotation.RowKey;
+import net.sf.gee.hbase.annotation.Table;
+import net.sf.gee.hbase.basic.FetchType;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+@Table(table = "tagged_hb_table")
+public class Tagged implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  @RowKey
+  private String code = null;
+
+  @HBaseColumn(familyName = "test", name = "num_", insertable = true)
+  private List<Integer> numbers = null;
+
+  @HBaseColumn(familyName = "test", name = "fetch_", insertable = true)
+  private List<FetchType> fetches = null;
+
+  @HBaseColumn(familyName = "test", name = "word_", insertable = true,
+      codec = ReversedCodec.class)
+  private Set<String> words = null;
+
+  /**
+   * 
+   */
+  public Tagged() {
+    super();
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  public void setCode(String code) {
+    this.code = code;
+  }
+
+  public List<Integer> getNumbers() {
+    return numbers;
+  }
+
+  public void setNumbers(List<Integer> numbers) {
+    this.numbers = numbers;
+  }
+
+  public List<FetchType> getFetches() {
+    return fetches;
+  }
+
+  public void setFetches(List<FetchType> fetches) {
+    this.fetches = fetches;
+  }
+
+  public Set<String> getWords() {
+    return words;
+  }
+
+  public void setWords(Set<String> words) {
+    this.words = words;
+  }
+
+}
@@ -0,0 +1,259 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.codec;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.gee.hbase.basic.FetchType;
+import net.sf.gee.hbase.codec.BigIntegerCodec;
+import net.sf.gee.hbase.codec.BinaryCodec;
+import net.sf.gee.hbase.codec.FieldCodec;
+import net.sf.gee.hbase.codec.FieldCodecs;
+import net.sf.gee.hbase.codec.JavaSerializationCodec;
+import net.sf.gee.hbase.test.bean.Pojo2;
+import net.sf.gee.hbase.test.bean.Shelf;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class BinaryCodecTest {
+
+  private static <T> T roundTrip(Class<T> type, T value) {
+
+    FieldCodec<T> codec = FieldCodecs.forType(type);
+
+    return codec.decode(codec.encode(value));
+  }
+
+  @Test
+  public void testValues() {
+
+    UUID uuid = UUID.randomUUID();
+    Instant instant = Instant.ofEpochSecond(-12345L, 678);
+    LocalDate date = LocalDate.of(1969, 7, 20);
+    BigInteger big = BigInteger.valueOf(Long.MIN_VALUE).multiply(BigInteger.TEN);
+
+    Assert.assertEquals(uuid, roundTrip(UUID.class, uuid));
+    Assert.assertEquals(instant, roundTrip(Instant.class, instant));
+    Assert.assertEquals(date, roundTrip(LocalDate.class, date));
+    Assert.assertEquals(FetchType.LAZY, roundTrip(FetchType.class, FetchType.LAZY));
+    Assert.assertArrayEquals(new int[] {0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE},
+        roundTrip(int[].class, new int[] {0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE}));
+
+    FieldCodec<BigInteger> codec = new BinaryCodec<>(BigInteger.class);
+    Assert.assertEquals(big, codec.decode(codec.encode(big)));
+  }
+
+  @Test
+  public void testBigInteger() {
+
+    BigInteger[] values = {BigInteger.ZERO, BigInteger.ONE.negate(),
+        BigInteger.ONE.shiftLeft(53).add(BigInteger.ONE),
+        BigInteger.valueOf(Long.MAX_VALUE).pow(3).negate(),
+        new BigInteger("123456789012345678901234567890123")};
+
+    FieldCodec<BigInteger> codec = new BigIntegerCodec();
+
+    for (BigInteger value : values) {
+      Assert.assertEquals(value, codec.decode(codec.encode(value)));
+    }
+
+    // cell slice
+    byte[] buffer = Bytes.add(new byte[] {7}, codec.encode(values[2]));
+
+    Assert.assertEquals(values[2], codec.decode(buffer, 1, buffer.length - 1));
+  }
+
+  @Test
+  public void testBigIntegerLegacy() {
+
+    // cells written as double still read back by default
+    BigInteger value = BigInteger.valueOf(-123456789L);
+    byte[] stored = Bytes.toBytes(value.doubleValue());
+
+    Assert.assertEquals(value, FieldCodecs.BIG_INTEGER.decode(stored));
+    Assert.assertArrayEquals(stored, FieldCodecs.BIG_INTEGER.encode(value));
+    Assert.assertSame(FieldCodecs.BIG_INTEGER, FieldCodecs.forType(BigInteger.class));
+  }
+
+  @Test
+  public void testObject() {
+
+    Pojo2 pojo = roundTrip(Pojo2.class, new Pojo2("inner", -42));
+
+    Assert.assertEquals("inner", pojo.getInner1());
+    Assert.assertEquals(Integer.valueOf(-42), pojo.getInner2());
+
+    pojo = roundTrip(Pojo2.class, new Pojo2(null, null));
+
+    Assert.assertNull(pojo.getInner1());
+    Assert.assertNull(pojo.getInner2());
+  }
+
+  @Test
+  public void testSmallerThanSerialization() {
+
+    Pojo2 pojo = new Pojo2("inner", 42);
+
+    byte[] binary = FieldCodecs.forType(Pojo2.class).encode(pojo);
+    byte[] serialized = new JavaSerializationCodec<>(Pojo2.class).encode(pojo);
+
+    Assert.assertTrue(Arrays.toString(binary), binary.length * 5 < serialized.length);
+  }
+
+  @Test
+  public void testLegacyValue() {
+
+    byte[] serialized = new JavaSerializationCodec<>(Pojo2.class).encode(new Pojo2("old", 1));
+
+    Pojo2 pojo = FieldCodecs.forType(Pojo2.class).decode(serialized);
+
+    Assert.assertEquals("old", pojo.getInner1());
+    Assert.assertEquals(Integer.valueOf(1), pojo.getInner2());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupported() {
+    FieldCodecs.forType(Object[].class);
+  }
+
+  @Test
+  public void testDeclaredContainers() {
+
+    Shelf shelf = new Shelf();
+    shelf.setBooks(new LinkedList<>(Arrays.asList("b", "a")));
+    shelf.setRanks(new TreeSet<>(Arrays.asList(3, 1, 2)));
+    shelf.setCounts(new TreeMap<>());
+    shelf.getCounts().put("z", 1L);
+    shelf.getCounts().put("a", 2L);
+    shelf.setShelves(new TreeMap<>());
+    shelf.getShelves().put("top", 1);
+
+    Shelf read = roundTrip(Shelf.class, shelf);
+
+    // the declared classes, sorted ones keep their order
+    Assert.assertEquals(LinkedList.class, read.getBooks().getClass());
+    Assert.assertEquals(Arrays.asList("b", "a"), read.getBooks());
+
+    Assert.assertEquals(TreeSet.class, read.getRanks().getClass());
+    Assert.assertEquals(Arrays.asList(1, 2, 3), new LinkedList<>(read.getRanks()));
+
+    Assert.assertEquals(TreeMap.class, read.getCounts().getClass());
+    Assert.assertEquals(Arrays.asList("a", "z"), new LinkedList<>(read.getCounts().keySet()));
+    Assert.assertEquals(Long.valueOf(2L), read.getCounts().get("a"));
+
+    Assert.assertEquals(TreeMap.class, read.getShelves().getClass());
+    Assert.assertEquals(Integer.valueOf(1), read.getShelves().get("top"));
+  }
+
+  @Test
+  public void testSchemaChanged() {
+
+    byte[] written = new BinaryCodec<>(Before.class).encode(new Before());
+
+    // same field count, other names and types
+    try {
+      new BinaryCodec<>(After.class).decode(written);
+      Assert.fail("read with another schema");
+    }
+    catch (IllegalStateException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains(After.class.getName()));
+    }
+
+    Assert.assertNotNull(new BinaryCodec<>(Before.class).decode(written));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSubclass() {
+    new BinaryCodec<>(Before.class).encode(new Later());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testObjectField() {
+    new BinaryCodec<>(Anything.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testContainerWithoutConstructor() throws NoSuchFieldException {
+    new BinaryCodec<>(EnumMap.class, Holder.class.getDeclaredField("map").getGenericType());
+  }
+
+  /**
+   * Schema of written values.
+   */
+  private static class Before {
+
+    @SuppressWarnings("unused")
+    private String name = "before";
+
+    @SuppressWarnings("unused")
+    private int size = 1;
+  }
+
+  /**
+   * Schema changed since, with as many fields.
+   */
+  private static final class After {
+
+    @SuppressWarnings("unused")
+    private String title = null;
+
+    @SuppressWarnings("unused")
+    private long size = 0L;
+  }
+
+  /**
+   * Subclass of a declared class, with its own state.
+   */
+  private static final class Later extends Before {
+
+    @SuppressWarnings("unused")
+    private String note = "lost";
+  }
+
+  /**
+   * Holder of a field of any class.
+   */
+  private static final class Anything {
+
+    @SuppressWarnings("unused")
+    private Object value = null;
+  }
+
+  /**
+   * Holder of a container field without no-args constructor.
+   */
+  private static final class Holder {
+
+    @SuppressWarnings("unused")
+    private EnumMap<FetchType, String> map = null;
+  }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.codec;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import net.sf.gee.hbase.codec.BinaryCodec;
+import net.sf.gee.hbase.codec.FieldCodec;
+import net.sf.gee.hbase.codec.JavaSerializationCodec;
+
+/**
+ * Timed loop comparing the binary codec to java serialization on an order with 5 lines, a map, an
+ * enum, an {@linkplain java.time.Instant} and a {@linkplain java.util.UUID}. Not a unit test, run
+ * the main class from the test classpath:
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; \
+ *     net.sf.gee.hbase.test.codec.CodecBenchmark [iterations]
+ * </pre>
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public final class CodecBenchmark {
+
+  /** Default iterations of each timed loop */
+  private static final int ITERATIONS = 200_000;
+
+  /** Warm up rounds before the measured one */
+  private static final int WARM_UP = 2;
+
+  /** Read back values, so the loops are not optimized away */
+  private static Object sink = null;
+
+  private CodecBenchmark() {
+    super();
+  }
+
+  /**
+   * @param args optional number of iterations
+   */
+  public static void main(String[] args) {
+
+    final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : ITERATIONS;
+
+    final Order order = order();
+
+    final FieldCodec<Order> java = new JavaSerializationCodec<>(Order.class);
+    final FieldCodec<Order> binary = new BinaryCodec<>(Order.class);
+
+    System.out.printf("java serialization: %d bytes%n", java.encode(order).length);
+    System.out.printf("binary codec:       %d bytes%n", binary.encode(order).length);
+
+    for (int round = 0; round < WARM_UP; round++) {
+      time(java, order, iterations);
+      time(binary, order, iterations);
+    }
+
+    final double[] javaTimes = time(java, order, iterations);
+    final double[] binaryTimes = time(binary, order, iterations);
+
+    System.out.printf("java serialization: encode %.0f ns, decode %.0f ns%n", javaTimes[0],
+        javaTimes[1]);
+    System.out.printf("binary codec:       encode %.0f ns, decode %.0f ns%n", binaryTimes[0],
+        binaryTimes[1]);
+  }
+
+  /**
+   * @return nanoseconds by encode and by decode
+   */
+  private static double[] time(FieldCodec<Order> codec, Order order, int iterations) {
+
+    byte[] encoded = null;
+
+    long start = System.nanoTime();
+
+    for (int i = 0; i < iterations; i++) {
+      encoded = codec.encode(order);
+    }
+
+    final long encode = System.nanoTime() - start;
+
+    start = System.nanoTime();
+
+    for (int i = 0; i < iterations; i++) {
+      sink = codec.decode(encoded);
+    }
+
+    final long decode = System.nanoTime() - start;
+
+    return new double[] {encode / (double) iterations, decode / (double) iterations};
+  }
+
+  private static Order order() {
+
+    final Order order = new Order();
+    order.id = 123456789L;
+    order.kind = Kind.SHIPPED;
+    order.at = Instant.now();
+    order.uuid = UUID.randomUUID();
+    order.lines = new ArrayList<>();
+    order.tags = new HashMap<>();
+
+    for (int i = 0; i < 5; i++) {
+      order.lines.add(new Line("SKU-" + i, i + 1, 9.99 * i));
+    }
+
+    order.tags.put("priority", 1L);
+    order.tags.put("channel", 2L);
+
+    return order;
+  }
+
+  /**
+   * Order state.
+   */
+  public enum Kind {
+    OPEN, SHIPPED
+  }
+
+  /**
+   * Order line.
+   */
+  public static final class Line implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String sku = null;
+
+    private int quantity = 0;
+
+    private double price = 0;
+
+    public Line() {
+      super();
+    }
+
+    Line(String sku, int quantity, double price) {
+      super();
+      this.sku = sku;
+      this.quantity = quantity;
+      this.price = price;
+    }
+  }
+
+  /**
+   * Order.
+   */
+  public static final class Order implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long id = 0;
+
+    private Kind kind = null;
+
+    private Instant at = null;
+
+    private UUID uuid = null;
+
+    private List<Line> lines = null;
+
+    private Map<String, Long> tags = null;
+
+    public Order() {
+      super();
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.codec;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.gee.hbase.basic.Compression;
+import net.sf.gee.hbase.codec.CompressingCodec;
+import net.sf.gee.hbase.codec.FieldCodec;
+import net.sf.gee.hbase.codec.FieldCodecs;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class CompressingCodecTest {
+
+  private static String json(int items) {
+
+    StringBuilder sb = new StringBuilder("[");
+
+    for (int i = 0; i < items; i++) {
+      sb.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append("\"},");
+    }
+
+    return sb.append("]").toString();
+  }
+
+  @Test
+  public void testLargeValue() {
+
+    FieldCodec<String> codec =
+        new CompressingCodec<>(FieldCodecs.STRING, Compression.DEFLATE, 1024);
+
+    String value = json(2000);
+    byte[] encoded = codec.encode(value);
+
+    Assert.assertTrue(encoded.length * 4 < value.length());
+    Assert.assertEquals(value, codec.decode(encoded));
+  }
+
+  @Test
+  public void testSmallValue() {
+
+    FieldCodec<String> codec =
+        new CompressingCodec<>(FieldCodecs.STRING, Compression.DEFLATE, 1024);
+
+    String value = json(10);
+
+    Assert.assertArrayEquals(FieldCodecs.STRING.encode(value), codec.encode(value));
+    Assert.assertEquals(value, codec.decode(codec.encode(value)));
+  }
+
+  @Test
+  public void testUncompressedValues() {
+
+    FieldCodec<byte[]> codec =
+        new CompressingCodec<>(FieldCodecs.BYTES, Compression.DEFLATE_BEST, 16);
+
+    // incompressible
+    byte[] random = new byte[4096];
+    new Random(7).nextBytes(random);
+
+    Assert.assertArrayEquals(random, codec.encode(random));
+    Assert.assertArrayEquals(random, codec.decode(random));
+
+    // written before the compression, starting as a header
+    random[0] = (byte) 0xFE;
+    random[1] = 1;
+
+    Assert.assertArrayEquals(random, codec.decode(random));
+  }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.codec;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.gee.hbase.codec.FieldCodec;
+import net.sf.gee.hbase.codec.RowKeyCodecs;
+import net.sf.gee.hbase.codec.SaltedCodec;
+import net.sf.gee.hbase.codec.TupleCodec;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class RowKeyCodecsTest {
+
+  @Test
+  public void testLongOrder() {
+
+    FieldCodec<Long> codec = RowKeyCodecs.forType(Long.class);
+
+    long[] values = {Long.MIN_VALUE, -1000L, -1L, 0L, 1L, 255L, 256L, Long.MAX_VALUE};
+
+    for (int i = 0; i < values.length; i++) {
+
+      Assert.assertEquals(Long.valueOf(values[i]), codec.decode(codec.encode(values[i])));
+
+      if (i > 0) {
+        Assert.assertTrue(
+            Bytes.compareTo(codec.encode(values[i - 1]), codec.encode(values[i])) < 0);
+      }
+    }
+  }
+
+  @Test
+  public void testIntOrder() {
+
+    FieldCodec<Integer> codec = RowKeyCodecs.forType(int.class);
+
+    int[] values = {Integer.MIN_VALUE, -70000, -1, 0, 1, 70000, Integer.MAX_VALUE};
+
+    for (int i = 0; i < values.length; i++) {
+
+      Assert.assertEquals(Integer.valueOf(values[i]), codec.decode(codec.encode(values[i])));
+
+      if (i > 0) {
+        Assert.assertTrue(
+            Bytes.compareTo(codec.encode(values[i - 1]), codec.encode(values[i])) < 0);
+      }
+    }
+  }
+
+  @Test
+  public void testUUID() {
+
+    FieldCodec<UUID> codec = RowKeyCodecs.forType(UUID.class);
+
+    UUID uuid = UUID.randomUUID();
+
+    Assert.assertEquals(16, codec.encode(uuid).length);
+    Assert.assertEquals(uuid, codec.decode(codec.encode(uuid)));
+  }
+
+  @Test
+  public void testSalted() {
+
+    SaltedCodec<Long> codec = new SaltedCodec<>(RowKeyCodecs.LONG, 8);
+
+    int[] counts = new int[8];
+
+    for (long i = 0; i < 800; i++) {
+
+      byte[] key = codec.encode(i);
+
+      Assert.assertEquals(9, key.length);
+      Assert.assertEquals(Long.valueOf(i), codec.decode(key));
+
+      counts[key[0]]++;
+    }
+
+    // sequential keys spread on every bucket
+    for (int count : counts) {
+      Assert.assertTrue(count > 50);
+    }
+  }
+
+  @Test
+  public void testTupleOrder() {
+
+    TupleCodec codec = TupleCodec.of(String.class, Long.class);
+
+    // shorter strings first, then by long, zero bytes escaped
+    Object[][] values = {{"a", -5L}, {"a", 7L}, {"a\u0000", 1L}, {"ab", Long.MIN_VALUE},
+        {"b", 0L}};
+
+    for (int i = 0; i < values.length; i++) {
+
+      Assert.assertArrayEquals(values[i], codec.decode(codec.encode(values[i])));
+
+      if (i > 0) {
+        Assert.assertTrue(
+            Bytes.compareTo(codec.encode(values[i - 1]), codec.encode(values[i])) < 0);
+      }
+    }
+  }
+
+  @Test
+  public void testTuplePrefix() {
+
+    TupleCodec codec = TupleCodec.of(String.class, Long.class);
+
+    byte[] prefix = codec.encodePrefix(new Object[] {"a", null});
+
+    Assert.assertTrue(Bytes.startsWith(codec.encode(new Object[] {"a", 42L}), prefix));
+    Assert.assertFalse(Bytes.startsWith(codec.encode(new Object[] {"ab", 42L}), prefix));
+
+    // only the components before the first null
+    Assert.assertArrayEquals(prefix, codec.encodePrefix(new Object[] {"a", null, 7L}));
+    Assert.assertArrayEquals(prefix, codec.encodePrefix(new Object[] {"a"}));
+  }
+
+  @Test
+  public void testTupleNullComponent() {
+
+    TupleCodec codec = TupleCodec.of(String.class, String.class, Long.class);
+
+    // (t, null, 5) and (t, null, 6) would share a row
+    for (Object[] values : new Object[][] {{"t", null, 5L}, {null, "a", 1L}, {"t", "a", null},
+        {"t", "a"}}) {
+      try {
+        codec.encode(values);
+
+        Assert.fail(Arrays.toString(values));
+      }
+      catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupported() {
+    RowKeyCodecs.forType(Double.class);
+  }
+
+}
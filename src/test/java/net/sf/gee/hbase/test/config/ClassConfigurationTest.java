@@ -0,0 +1,135 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.config;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.gee.hbase.basic.FetchType;
+import net.sf.gee.hbase.basic.HBaseMapper;
+import net.sf.gee.hbase.basic.NoneMapper;
+import net.sf.gee.hbase.config.ClassConfiguration;
+import net.sf.gee.hbase.config.FieldConfiguration;
+import net.sf.gee.hbase.filters.HBaseColumnParam;
+import net.sf.gee.hbase.test.bean.Pojo2Mapper;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class ClassConfigurationTest {
+
+  private static FieldConfiguration field(String name, String family, String column,
+      boolean collection, Class<?> mapper) {
+
+    FieldConfiguration fc = new FieldConfiguration();
+    fc.setFieldName(name);
+    fc.setFieldType(collection ? List.class : String.class);
+    fc.setFieldInnerType(collection ? name : null);
+    fc.setFamilyName(family);
+    fc.setColumnName(column);
+    fc.setCollection(collection);
+    fc.setMapper(mapper.asSubclass(HBaseMapper.class));
+
+    return fc;
+  }
+
+  private static ClassConfiguration config() {
+
+    ClassConfiguration cc = new ClassConfiguration("table");
+
+    cc.addFieldConfiguration(field("tags", "test", "attr", true, NoneMapper.class));
+    cc.addFieldConfiguration(field("attr1", "test", "attr1", false, NoneMapper.class));
+    cc.addFieldConfiguration(field("attr10", "test", "attr10", false, NoneMapper.class));
+    cc.addFieldConfiguration(field("attr2", "test", "attr2", false, Pojo2Mapper.class));
+    cc.addFieldConfiguration(field("attr1", "other", "attr1", false, NoneMapper.class));
+
+    cc.compileDispatcher();
+
+    return cc;
+  }
+
+  @Test
+  public void testExactMatch() {
+
+    ClassConfiguration cc = config();
+
+    Assert.assertEquals("attr1", cc.getFieldConfiguration("test", "attr1").getFieldName());
+    Assert.assertEquals("attr10", cc.getFieldConfiguration("test", "attr10").getFieldName());
+    Assert.assertEquals("other", cc.getFieldConfiguration("other", "attr1").getFamilyName());
+  }
+
+  @Test
+  public void testPrefixMatch() {
+
+    ClassConfiguration cc = config();
+
+    // mapped column wins on the shorter collection prefix
+    Assert.assertEquals("attr2", cc.getFieldConfiguration("test", "attr2_Inner").getFieldName());
+
+    // scalar columns are not prefixes
+    Assert.assertEquals("tags", cc.getFieldConfiguration("test", "attr1x").getFieldName());
+    Assert.assertEquals("tags", cc.getFieldConfiguration("test", "attrX").getFieldName());
+
+    Assert.assertNull(cc.getFieldConfiguration("test", "none"));
+    Assert.assertNull(cc.getFieldConfiguration("missing", "attr1"));
+  }
+
+  @Test
+  public void testSliceMatch() {
+
+    ClassConfiguration cc = config();
+
+    byte[] buffer = Bytes.toBytes("__test__attr10__");
+
+    Assert.assertEquals("attr10",
+        cc.getFieldConfiguration(buffer, 2, 4, buffer, 8, 6).getFieldName());
+    Assert.assertEquals("attr1",
+        cc.getFieldConfiguration(buffer, 2, 4, buffer, 8, 5).getFieldName());
+  }
+
+  @Test
+  public void testProjection() {
+
+    ClassConfiguration cc = new ClassConfiguration("table");
+
+    FieldConfiguration big = field("big", "test", "big", true, NoneMapper.class);
+    big.setFetch(FetchType.LAZY);
+    big.setFetchGroups(new String[] {"detail"});
+
+    cc.addFieldConfiguration(field("attr1", "test", "attr1", false, NoneMapper.class));
+    cc.addFieldConfiguration(big);
+    cc.addFieldConfiguration(field("attr1", "other", "attr1", false, NoneMapper.class));
+
+    cc.compileProjection();
+
+    // lazy collection left out, whole family when all eager
+    List<HBaseColumnParam> projection = cc.getProjection(null);
+
+    Assert.assertEquals(2, projection.size());
+    Assert.assertEquals(new HBaseColumnParam("test", "attr1"), projection.get(0));
+    Assert.assertEquals(new HBaseColumnParam("other", null), projection.get(1));
+
+    // group requested: whole row
+    Assert.assertTrue(cc.getProjection(Collections.singleton("detail")).isEmpty());
+  }
+
+}
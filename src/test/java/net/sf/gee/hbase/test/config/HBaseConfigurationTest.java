@@ -25,6 +25,8 @@ import net.sf.gee.common.util.string.StringUtil;
 import net.sf.gee.hbase.config.ClassConfiguration;
 import net.sf.gee.hbase.config.FieldConfiguration;
 import net.sf.gee.hbase.config.HBaseConfiguration;
+import net.sf.gee.hbase.exception.ConfigurationException;
+import net.sf.gee.hbase.test.bean.CompressedTags;
 import net.sf.gee.hbase.test.bean.Pojo;
 
 /**
@@ -85,4 +87,21 @@ public class HBaseConfigurationTest {
     }
   }
 
+  @Test
+  public void testCompressedCollection() throws IOException {
+
+    HBaseConfiguration config = HBaseConfiguration.newInstance().build();
+
+    try {
+      config.inspect(CompressedTags.class.getName());
+
+      Assert.fail();
+    }
+    catch (ConfigurationException e) {
+      Assert.assertTrue(e.getMessage().contains("tags"));
+    }
+
+    Assert.assertNull(config.getConfiguration(CompressedTags.class.getName()));
+  }
+
 }
@@ -0,0 +1,284 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.gee.hbase.core.CounterBuffer;
+import net.sf.gee.hbase.core.HBaseConnection;
+import net.sf.gee.hbase.core.HBaseConnectionFactory;
+import net.sf.gee.hbase.test.bean.Hits;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class CounterBufferTest {
+
+  /** Written increments and initial values */
+  private final RecordingTable table = new RecordingTable();
+
+  @BeforeClass
+  public static void init() {
+    HBaseConnectionFactory.getInstance("ghbase_mapping.xml");
+  }
+
+  /**
+   * @return written increments
+   */
+  private List<Increment> increments() {
+
+    final List<Increment> increments = new ArrayList<>();
+
+    synchronized (table.getWritten()) {
+      for (Mutation mutation : table.getWritten()) {
+        if (mutation instanceof Increment) {
+          increments.add((Increment) mutation);
+        }
+      }
+    }
+
+    return increments;
+  }
+
+  /**
+   * @return deltas of the written increments, by row then by column
+   */
+  private Map<String, Map<String, Long>> deltas() {
+
+    final Map<String, Map<String, Long>> deltas = new HashMap<>();
+
+    for (Increment increment : increments()) {
+      for (List<Cell> family : increment.getFamilyCellMap().values()) {
+        for (Cell cell : family) {
+          deltas.computeIfAbsent(Bytes.toString(increment.getRow()), k -> new HashMap<>())
+              .merge(Bytes.toString(CellUtil.cloneQualifier(cell)),
+                  Bytes.toLong(CellUtil.cloneValue(cell)), Long::sum);
+        }
+      }
+    }
+
+    return deltas;
+  }
+
+  @Test
+  public void testCoalesce() throws IOException {
+
+    final HBaseConnection handle = table.handle();
+    final CounterBuffer buffer = new CounterBuffer(60000L, () -> handle, false);
+
+    for (int i = 0; i < 5; i++) {
+      buffer.add(Hits.class, Bytes.toBytes("home"), "views", 1);
+    }
+
+    buffer.add(Hits.class, Bytes.toBytes("home"), "likes", -2);
+    buffer.add(Hits.class, Bytes.toBytes("news"), "views", 3);
+
+    // nothing written before the window ends
+    Assert.assertEquals(2, buffer.getPendingRows());
+    Assert.assertTrue(increments().isEmpty());
+
+    buffer.flush();
+
+    // a single increment by row, with every field
+    Assert.assertEquals(0, buffer.getPendingRows());
+    Assert.assertEquals(2, increments().size());
+
+    final Map<String, Map<String, Long>> deltas = deltas();
+
+    Assert.assertEquals(Long.valueOf(5), deltas.get("home").get("views"));
+    Assert.assertEquals(Long.valueOf(-2), deltas.get("home").get("likes"));
+    Assert.assertEquals(Collections.singletonMap("views", 3L), deltas.get("news"));
+
+    buffer.close();
+    handle.close();
+
+    Assert.assertEquals(2, increments().size());
+  }
+
+  @Test
+  public void testNoWindow() throws IOException {
+
+    final HBaseConnection handle = table.handle();
+    final CounterBuffer buffer = new CounterBuffer(0L, () -> handle, false);
+
+    buffer.add(Hits.class, Bytes.toBytes("home"), "views", 1);
+    buffer.add(Hits.class, Bytes.toBytes("home"), "views", 1);
+
+    // written at once
+    Assert.assertEquals(0, buffer.getPendingRows());
+    Assert.assertEquals(2, increments().size());
+
+    buffer.close();
+    handle.close();
+  }
+
+  @Test
+  public void testNoWindowFailure() throws IOException {
+
+    final HBaseConnection handle = table.handle();
+    final CounterBuffer buffer = new CounterBuffer(0L, () -> handle, false);
+
+    table.failIncrements(1);
+
+    // the caller gets the failure of its own delta
+    try {
+      buffer.add(Hits.class, Bytes.toBytes("home"), "views", 2);
+
+      Assert.fail();
+    }
+    catch (IOException e) {
+      Assert.assertEquals(0, buffer.getPendingRows());
+      Assert.assertTrue(increments().isEmpty());
+    }
+
+    // never written by a later call
+    buffer.add(Hits.class, Bytes.toBytes("news"), "views", 1);
+
+    Assert.assertEquals(1, increments().size());
+    Assert.assertNull(deltas().get("home"));
+
+    buffer.close();
+    handle.close();
+  }
+
+  @Test
+  public void testFailedFlushKeepsDeltas() throws IOException {
+
+    final HBaseConnection handle = table.handle();
+    final CounterBuffer buffer = new CounterBuffer(60000L, () -> handle, false);
+
+    buffer.add(Hits.class, Bytes.toBytes("home"), "views", 2);
+
+    table.failIncrements(1);
+
+    try {
+      buffer.flush();
+
+      Assert.fail();
+    }
+    catch (IOException e) {
+      // kept for the next flush
+      Assert.assertEquals(1, buffer.getPendingRows());
+      Assert.assertTrue(increments().isEmpty());
+    }
+
+    // merged with the deltas added since
+    buffer.add(Hits.class, Bytes.toBytes("home"), "views", 3);
+    buffer.add(Hits.class, Bytes.toBytes("home"), "likes", 1);
+
+    buffer.flush();
+
+    Assert.assertEquals(0, buffer.getPendingRows());
+    Assert.assertEquals(1, increments().size());
+    Assert.assertEquals(Long.valueOf(5), deltas().get("home").get("views"));
+    Assert.assertEquals(Long.valueOf(1), deltas().get("home").get("likes"));
+
+    buffer.close();
+    handle.close();
+  }
+
+  @Test
+  public void testMultiField() throws IOException {
+
+    final HBaseConnection handle = table.handle();
+
+    final Map<String, Long> deltas = new HashMap<>();
+    deltas.put("views", 4L);
+    deltas.put("likes", 1L);
+
+    final Map<String, Long> values = handle.increment(Hits.class, "home", deltas);
+
+    // one round trip for both fields
+    Assert.assertEquals(1, increments().size());
+    Assert.assertEquals(deltas, values);
+
+    handle.close();
+  }
+
+  @Test
+  public void testSaveKeepsIncrements() throws IOException {
+
+    final HBaseConnection handle = table.handle();
+
+    final Hits hits = new Hits();
+    hits.setPage("home");
+    hits.setViews(7L);
+
+    handle.save(hits);
+
+    final byte[] family = Bytes.toBytes("test");
+
+    // never in the row put
+    Assert.assertTrue(table.columns(Put.class).isEmpty());
+
+    // the initial value only, and only over a missing column
+    Assert.assertEquals(1, table.getChecked().size());
+    Assert.assertTrue(
+        table.getChecked().get(0).has(family, Bytes.toBytes("views"), Bytes.toBytes(7L)));
+
+    handle.close();
+  }
+
+  @Test
+  public void testCloseFlushes() throws IOException {
+
+    final HBaseConnection handle = table.handle();
+
+    for (int i = 0; i < 10; i++) {
+      handle.incrementLater(Hits.class, "home", "views", 1);
+    }
+
+    handle.incrementLater(Hits.class, "home", "likes", 1);
+
+    // pending increments are written before the handle closes
+    handle.close();
+
+    final Map<String, Map<String, Long>> deltas = deltas();
+
+    Assert.assertEquals(Long.valueOf(10), deltas.get("home").get("views"));
+    Assert.assertEquals(Long.valueOf(1), deltas.get("home").get("likes"));
+
+    final int count = increments().size();
+
+    // closed
+    try {
+      handle.increment(Hits.class, "home", "views", 1);
+
+      Assert.fail();
+    }
+    catch (IOException e) {
+      Assert.assertEquals(count, increments().size());
+    }
+  }
+
+}
@@ -0,0 +1,272 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.gee.hbase.core.EntitySnapshots;
+import net.sf.gee.hbase.core.HBaseConnection;
+import net.sf.gee.hbase.core.HBaseConnectionFactory;
+import net.sf.gee.hbase.test.bean.Article;
+import net.sf.gee.hbase.test.bean.Draft;
+import net.sf.gee.hbase.test.bean.Ledger;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class DirtyTrackingTest {
+
+  /** Stored row and written mutations */
+  private final RecordingTable table = new RecordingTable();
+
+  @BeforeClass
+  public static void init() {
+    HBaseConnectionFactory.getInstance("ghbase_mapping.xml");
+  }
+
+  private static Article article() {
+
+    Article article = new Article();
+    article.setCode("A1");
+    article.setTitle("title");
+    article.setRank(3);
+    article.setNote("note");
+    article.setTags(new ArrayList<>(Arrays.asList("a", "b")));
+
+    return article;
+  }
+
+  @Test
+  public void testUnchanged() throws Exception {
+
+    table.store(article());
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Article article = handle.load(Article.class, "A1");
+
+      handle.update(article);
+
+      // nothing written
+      Assert.assertTrue(table.getWritten().isEmpty());
+    }
+  }
+
+  @Test
+  public void testChangedField() throws Exception {
+
+    table.store(article());
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Article article = handle.load(Article.class, "A1");
+      article.setRank(4);
+
+      handle.update(article);
+
+      Assert.assertEquals(Collections.singletonList("rank"), table.columns(Put.class));
+      Assert.assertTrue(table.columns(Delete.class).isEmpty());
+
+      // the written value is the new snapshot
+      table.getWritten().clear();
+
+      handle.update(article);
+
+      Assert.assertTrue(table.getWritten().isEmpty());
+    }
+  }
+
+  @Test
+  public void testNullDeletes() throws Exception {
+
+    table.store(article());
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Article article = handle.load(Article.class, "A1");
+      article.setNote(null);
+
+      handle.update(article);
+
+      Assert.assertTrue(table.columns(Put.class).isEmpty());
+      Assert.assertEquals(Collections.singletonList("note"), table.columns(Delete.class));
+    }
+  }
+
+  @Test
+  public void testNullCollection() throws Exception {
+
+    table.store(article());
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Article article = handle.load(Article.class, "A1");
+      article.setTags(null);
+
+      handle.update(article);
+
+      // every element deleted
+      Assert.assertTrue(table.columns(Put.class).isEmpty());
+      Assert.assertEquals(Arrays.asList("tag_a", "tag_b"), table.columns(Delete.class));
+
+      // the deleted elements are the new snapshot
+      table.getWritten().clear();
+
+      handle.update(article);
+
+      Assert.assertTrue(table.getWritten().isEmpty());
+    }
+  }
+
+  @Test
+  public void testRemovedElement() throws Exception {
+
+    table.store(article());
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Article article = handle.load(Article.class, "A1");
+      article.getTags().remove("b");
+
+      handle.update(article);
+
+      Assert.assertEquals(Collections.singletonList("tag_a"), table.columns(Put.class));
+      Assert.assertEquals(Collections.singletonList("tag_b"), table.columns(Delete.class));
+
+      // an element added back is written again
+      table.getWritten().clear();
+
+      article.getTags().add("b");
+      handle.update(article);
+
+      Assert.assertEquals(Arrays.asList("tag_a", "tag_b"), table.columns(Put.class));
+      Assert.assertTrue(table.columns(Delete.class).isEmpty());
+    }
+  }
+
+  @Test
+  public void testVersionUnchanged() throws Exception {
+
+    Ledger ledger = new Ledger();
+    ledger.setCode("L1");
+    ledger.setBalance(10L);
+    ledger.setVersion(4L);
+
+    table.store(ledger);
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Ledger loaded = handle.load(Ledger.class, "L1");
+
+      handle.update(loaded);
+
+      // nothing written, the version is kept
+      Assert.assertTrue(table.getWritten().isEmpty());
+      Assert.assertEquals(Long.valueOf(4L), loaded.getVersion());
+    }
+  }
+
+  @Test
+  public void testVersionBumped() throws Exception {
+
+    Ledger ledger = new Ledger();
+    ledger.setCode("L1");
+    ledger.setBalance(10L);
+    ledger.setVersion(4L);
+
+    table.store(ledger);
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Ledger loaded = handle.load(Ledger.class, "L1");
+      loaded.setBalance(null);
+
+      handle.update(loaded);
+
+      // the changed field with the next version
+      Assert.assertEquals(Long.valueOf(5L), loaded.getVersion());
+      Assert.assertEquals(Collections.singletonList("version"), table.columns(Put.class));
+      Assert.assertEquals(Collections.singletonList("balance"), table.columns(Delete.class));
+
+      // the written version is the new snapshot
+      table.getWritten().clear();
+
+      handle.update(loaded);
+
+      Assert.assertTrue(table.getWritten().isEmpty());
+      Assert.assertEquals(Long.valueOf(5L), loaded.getVersion());
+    }
+  }
+
+  @Test
+  public void testUntracked() throws Exception {
+
+    Draft draft = new Draft();
+    draft.setCode("D1");
+    draft.setTitle("title");
+    draft.setRank(3);
+    draft.setNote("note");
+
+    table.store(draft);
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Draft loaded = handle.load(Draft.class, "D1");
+      loaded.setNote(null);
+
+      handle.update(loaded);
+
+      // every updatable column, null ones deleted
+      Assert.assertEquals(Arrays.asList("rank", "title"), table.columns(Put.class));
+      Assert.assertEquals(Collections.singletonList("note"), table.columns(Delete.class));
+
+      Assert.assertNull(HBaseConnectionFactory.getInstance().getEntitySnapshots().get(loaded));
+    }
+  }
+
+  @Test
+  public void testCollected() throws InterruptedException {
+
+    EntitySnapshots<long[]> snapshots = new EntitySnapshots<>();
+
+    Article article = article();
+    snapshots.put(article, new long[] {1L});
+
+    Assert.assertArrayEquals(new long[] {1L}, snapshots.get(article));
+
+    article = null;
+
+    // the snapshot goes away with the entity
+    for (int i = 0; i < 100 && snapshots.size() > 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    Assert.assertEquals(0, snapshots.size());
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.gee.hbase.core.EntityCache;
+import net.sf.gee.hbase.filters.HBaseColumnParam;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class EntityCacheTest {
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes("row" + i);
+  }
+
+  private static Result result(int i, String value) {
+    return Result.create(Collections.singletonList(new KeyValue(row(i), Bytes.toBytes("f"),
+        Bytes.toBytes("c"), Bytes.toBytes(value))));
+  }
+
+  @Test
+  public void testLruEviction() {
+
+    EntityCache cache = new EntityCache(2, 0);
+
+    cache.put(row(1), "", result(1, "a"));
+    cache.put(row(2), "", result(2, "b"));
+
+    // 1 most recently used
+    Assert.assertNotNull(cache.get(row(1), ""));
+
+    cache.put(row(3), "", result(3, "c"));
+
+    Assert.assertEquals(2, cache.getSize());
+    Assert.assertEquals(1, cache.getEvictions());
+    Assert.assertNotNull(cache.get(row(1), ""));
+    Assert.assertNull(cache.get(row(2), ""));
+    Assert.assertNotNull(cache.get(row(3), ""));
+
+    Assert.assertEquals(3, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testTtl() throws InterruptedException {
+
+    EntityCache cache = new EntityCache(10, 50);
+
+    cache.put(row(1), "", result(1, "a"));
+
+    Assert.assertNotNull(cache.get(row(1), ""));
+
+    Thread.sleep(120);
+
+    Assert.assertNull(cache.get(row(1), ""));
+
+    // no expiration
+    EntityCache forever = new EntityCache(10, 0);
+
+    forever.put(row(1), "", result(1, "a"));
+
+    Thread.sleep(20);
+
+    Assert.assertNotNull(forever.get(row(1), ""));
+  }
+
+  @Test
+  public void testProjections() {
+
+    EntityCache cache = new EntityCache(10, 0);
+
+    String whole = EntityCache.projectionKey(Collections.<HBaseColumnParam>emptyList());
+    String column = EntityCache.projectionKey(Arrays.asList(new HBaseColumnParam("f", "c")));
+    String family = EntityCache.projectionKey(Arrays.asList(new HBaseColumnParam("f", null)));
+
+    Assert.assertEquals("", whole);
+    Assert.assertEquals(whole, EntityCache.projectionKey(null));
+    Assert.assertNotEquals(column, family);
+
+    cache.put(row(1), column, result(1, "column"));
+
+    // other projections of the same row are misses
+    Assert.assertNull(cache.get(row(1), whole));
+    Assert.assertNull(cache.get(row(1), family));
+
+    cache.put(row(1), whole, result(1, "whole"));
+
+    Assert.assertEquals("column",
+        Bytes.toString(cache.get(row(1), column).getValue(Bytes.toBytes("f"), Bytes.toBytes("c"))));
+    Assert.assertEquals("whole",
+        Bytes.toString(cache.get(row(1), whole).getValue(Bytes.toBytes("f"), Bytes.toBytes("c"))));
+
+    // projections share the row slot
+    Assert.assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void testInvalidate() {
+
+    EntityCache cache = new EntityCache(10, 0);
+
+    cache.put(row(1), "", result(1, "a"));
+    cache.put(row(1), "f:c,", result(1, "a"));
+    cache.put(row(2), "", result(2, "b"));
+
+    cache.invalidate(row(1));
+
+    // every projection of the row
+    Assert.assertNull(cache.get(row(1), ""));
+    Assert.assertNull(cache.get(row(1), "f:c,"));
+    Assert.assertNotNull(cache.get(row(2), ""));
+
+    cache.clear();
+
+    Assert.assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void testStaleRead() {
+
+    EntityCache cache = new EntityCache(10, 0);
+
+    // a reader misses, then a write lands before its result comes back
+    long generation = cache.generation(row(1));
+
+    cache.invalidate(row(1));
+
+    Assert.assertFalse(cache.put(row(1), "", result(1, "old"), generation));
+    Assert.assertNull(cache.get(row(1), ""));
+
+    // read after the write
+    generation = cache.generation(row(1));
+
+    Assert.assertTrue(cache.put(row(1), "", result(1, "new"), generation));
+    Assert.assertNotNull(cache.get(row(1), ""));
+
+    // clear makes every read in flight stale
+    generation = cache.generation(row(2));
+
+    cache.clear();
+
+    Assert.assertFalse(cache.put(row(2), "", result(2, "old"), generation));
+  }
+
+}
@@ -18,6 +18,10 @@ package net.sf.gee.hbase.test.core;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -55,6 +59,43 @@ public class HBConnectionFactoryTest {
     }
   }
 
+  @Test
+  public void testConcurrentLookup() throws Exception {
+
+    HBaseConnectionFactory hbcf = HBaseConnectionFactory.getInstance("ghbase_mapping.xml");
+
+    ClassConfiguration expected = hbcf.getClassConfiguration(Pojo.class.getName());
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    try {
+      List<Future<Boolean>> results = new ArrayList<>(8);
+
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(() -> {
+
+          boolean same = true;
+
+          for (int j = 0; j < 1000; j++) {
+            same &= hbcf.getClassConfiguration(Pojo.class.getName()) == expected;
+          }
+
+          return same;
+        }));
+      }
+
+      for (Future<Boolean> result : results) {
+        Assert.assertTrue(result.get());
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    // no table annotation
+    Assert.assertNull(hbcf.getClassConfiguration(Pojo2.class.getName()));
+  }
+
   @Test
   public void testSaveLoadScan() {
 
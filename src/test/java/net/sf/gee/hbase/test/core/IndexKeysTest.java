@@ -0,0 +1,197 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.test.core;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.gee.hbase.codec.TupleCodec;
+import net.sf.gee.hbase.config.ClassConfiguration;
+import net.sf.gee.hbase.config.FieldConfiguration;
+import net.sf.gee.hbase.core.HBaseConnection;
+import net.sf.gee.hbase.core.HBaseConnectionFactory;
+import net.sf.gee.hbase.test.bean.Listing;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class IndexKeysTest {
+
+  private static final byte[] FAMILY = Bytes.toBytes("test");
+
+  /**
+   * Expose the index key helpers.
+   */
+  private static final class IndexConnection extends HBaseConnection {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long DELAY = INDEX_REPAIR_DELAY;
+
+    private IndexConnection() {
+      super((Connection) null);
+    }
+
+    private static byte[] key(FieldConfiguration field, Object value, byte[] row) {
+      return indexKey(field, value, row);
+    }
+
+    private static byte[] stop(FieldConfiguration field) {
+      return indexStop(field);
+    }
+
+    private static boolean stale(Cell cell, long written, long now) {
+      return isStaleEntry(cell, written, now);
+    }
+  }
+
+  private static FieldConfiguration price;
+
+  private static FieldConfiguration priceBand;
+
+  @BeforeClass
+  public static void init() {
+
+    ClassConfiguration cc =
+        HBaseConnectionFactory.getInstance("ghbase_mapping.xml").getClassConfiguration(
+            Listing.class.getName());
+
+    price = cc.getFieldConfiguration("price");
+    priceBand = cc.getFieldConfiguration("priceBand");
+  }
+
+  /**
+   * @return <code>true</code> when the key is read by a scan from start, inclusive, to stop,
+   *         exclusive
+   */
+  private static boolean inRange(byte[] key, byte[] start, byte[] stop) {
+    return Bytes.compareTo(key, start) >= 0 && Bytes.compareTo(key, stop) < 0;
+  }
+
+  @Test
+  public void testLayout() {
+
+    byte[] row = Bytes.toBytes("L1");
+
+    byte[] entry = IndexConnection.key(price, -5L, row);
+
+    // field name, value, row key
+    Object[] components = price.getIndexCodec().decode(entry);
+
+    Assert.assertEquals("price", components[0]);
+    Assert.assertEquals(Long.valueOf(-5L), components[1]);
+    Assert.assertArrayEquals(row, (byte[]) components[2]);
+
+    // the same tuple as written by the codec
+    TupleCodec tuple = (TupleCodec) price.getIndexCodec();
+    Assert.assertArrayEquals(tuple.encode(new Object[] {"price", -5L, row}), entry);
+
+    // prefixes: of the value, then of the field
+    byte[] value = IndexConnection.key(price, -5L, null);
+    byte[] field = IndexConnection.key(price, null, null);
+
+    Assert.assertTrue(Bytes.startsWith(entry, value));
+    Assert.assertTrue(Bytes.startsWith(value, field));
+    Assert.assertArrayEquals(Bytes.add(Bytes.toBytes("price"), new byte[] {0, 0}), field);
+
+    // another value does not match the value prefix
+    Assert.assertFalse(Bytes.startsWith(IndexConnection.key(price, 5L, row),
+        IndexConnection.key(price, 0L, null)));
+  }
+
+  @Test
+  public void testValueOrder() {
+
+    long[] values = {Long.MIN_VALUE, -1000L, -1L, 0L, 1L, 1000L, Long.MAX_VALUE};
+
+    for (int i = 1; i < values.length; i++) {
+
+      // rows of the lower value first, whatever the row key
+      byte[] lower = IndexConnection.key(price, values[i - 1], Bytes.toBytes("z"));
+      byte[] upper = IndexConnection.key(price, values[i], Bytes.toBytes("a"));
+
+      Assert.assertTrue(Bytes.compareTo(lower, upper) < 0);
+    }
+  }
+
+  @Test
+  public void testRangeBounds() {
+
+    byte[] row = Bytes.toBytes("L1");
+
+    // findRange(price, 0, 12)
+    byte[] start = IndexConnection.key(price, 0L, null);
+    byte[] stop = IndexConnection.key(price, 12L, null);
+
+    Assert.assertFalse(inRange(IndexConnection.key(price, -1L, row), start, stop));
+    Assert.assertTrue(inRange(IndexConnection.key(price, 0L, row), start, stop));
+    Assert.assertTrue(inRange(IndexConnection.key(price, 11L, row), start, stop));
+    Assert.assertFalse(inRange(IndexConnection.key(price, 12L, row), start, stop));
+
+    // findRange(price, null, null): every value of the field
+    start = IndexConnection.key(price, null, null);
+    stop = IndexConnection.stop(price);
+
+    Assert.assertArrayEquals(Bytes.add(Bytes.toBytes("price"), new byte[] {0, 1}), stop);
+
+    Assert.assertTrue(inRange(IndexConnection.key(price, Long.MIN_VALUE, row), start, stop));
+    Assert.assertTrue(inRange(IndexConnection.key(price, Long.MAX_VALUE, row), start, stop));
+
+    // priceBand starts with price, its entries are out of the range
+    Assert.assertFalse(
+        inRange(IndexConnection.key(priceBand, Integer.MIN_VALUE, row), start, stop));
+    Assert.assertFalse(inRange(IndexConnection.key(priceBand, 0, row), start, stop));
+
+    // and the other way round
+    start = IndexConnection.key(priceBand, null, null);
+    stop = IndexConnection.stop(priceBand);
+
+    Assert.assertTrue(inRange(IndexConnection.key(priceBand, 0, row), start, stop));
+    Assert.assertFalse(inRange(IndexConnection.key(price, Long.MAX_VALUE, row), start, stop));
+  }
+
+  @Test
+  public void testRepair() {
+
+    long now = System.currentTimeMillis();
+    long delay = IndexConnection.DELAY;
+
+    byte[] row = Bytes.toBytes("L1");
+
+    // a young entry may belong to a row being written
+    Assert.assertFalse(IndexConnection.stale(null, now - 1000L, now));
+    Assert.assertFalse(IndexConnection.stale(
+        new KeyValue(row, FAMILY, Bytes.toBytes("price"), now - 2000L, Bytes.toBytes(1L)),
+        now - 1000L, now));
+
+    // the row was rewritten after the entry
+    Assert.assertTrue(IndexConnection.stale(
+        new KeyValue(row, FAMILY, Bytes.toBytes("price"), now - 500L, Bytes.toBytes(1L)),
+        now - 1000L, now));
+
+    // left by a failed write
+    Assert.assertFalse(IndexConnection.stale(null, now - delay, now));
+    Assert.assertTrue(IndexConnection.stale(null, now - delay - 1L, now));
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.gee.hbase.config.FieldConfiguration;
+import net.sf.gee.hbase.core.HBaseConnection;
+import net.sf.gee.hbase.core.HBaseConnectionFactory;
+import net.sf.gee.hbase.test.bean.Profile;
+import net.sf.gee.hbase.util.GHBaseObjectBuilder;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class LazyFieldsTest {
+
+  /** Stored row and written mutations */
+  private final RecordingTable table = new RecordingTable();
+
+  @BeforeClass
+  public static void init() {
+    HBaseConnectionFactory.getInstance("ghbase_mapping.xml");
+  }
+
+  private static Profile profile() {
+
+    Profile profile = new Profile();
+    profile.setCode("P1");
+    profile.setName("name");
+    profile.setBio("bio");
+    profile.setTags(Arrays.asList("a", "b"));
+
+    return profile;
+  }
+
+  @Test
+  public void testUnreadKept() throws Exception {
+
+    table.store(profile());
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Profile profile = handle.load(Profile.class, "P1");
+
+      // lazy fields left out
+      Assert.assertEquals("name", profile.getName());
+      Assert.assertNull(profile.getBio());
+      Assert.assertNull(profile.getTags());
+
+      profile.setName("other");
+
+      handle.update(profile);
+
+      // the lazy cells survive
+      Assert.assertEquals(Collections.singletonList("name"), table.columns(Put.class));
+      Assert.assertTrue(table.columns(Delete.class).isEmpty());
+    }
+  }
+
+  @Test
+  public void testFetchedWritten() throws Exception {
+
+    table.store(profile());
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Profile profile = handle.load(Profile.class, "P1");
+
+      handle.fetch(profile, "bio");
+
+      Assert.assertEquals("bio", profile.getBio());
+
+      profile.setBio(null);
+
+      handle.update(profile);
+
+      // the fetched field is written, the other lazy one is not
+      Assert.assertEquals(Collections.singletonList("name"), table.columns(Put.class));
+      Assert.assertEquals(Collections.singletonList("bio"), table.columns(Delete.class));
+    }
+  }
+
+  @Test
+  public void testGroupWritten() throws Exception {
+
+    table.store(profile());
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Profile profile = handle.loadGroups(Profile.class, "P1", "details");
+
+      Assert.assertEquals("bio", profile.getBio());
+      Assert.assertEquals(2, profile.getTags().size());
+
+      profile.setBio("other");
+
+      handle.update(profile);
+
+      Assert.assertEquals(Arrays.asList("bio", "name", "tag_a", "tag_b"), table.columns(Put.class));
+    }
+  }
+
+  @Test
+  public void testPreparePuts() throws Exception {
+
+    GHBaseObjectBuilder<Profile> builder = new GHBaseObjectBuilder<>(profile());
+
+    // bio and tags not read
+    long unread = 0;
+
+    for (FieldConfiguration field : builder.getClassConfig().getLazyFields()) {
+      unread |= 1L << field.getPosition();
+    }
+
+    builder.setUnreadFields(new long[] {unread});
+
+    table.getWritten().addAll(builder.preparePuts(false));
+
+    Assert.assertEquals(Collections.singletonList("name"), table.columns(Put.class));
+  }
+
+}
@@ -0,0 +1,209 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.test.core;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.gee.hbase.core.HBaseConnection;
+import net.sf.gee.hbase.core.HBaseConnectionFactory;
+import net.sf.gee.hbase.exception.OptimisticLockException;
+import net.sf.gee.hbase.test.bean.Account;
+import net.sf.gee.hbase.test.bean.Ledger;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class OptimisticLockTest {
+
+  /** Stored row and written mutations */
+  private final RecordingTable table = new RecordingTable();
+
+  @BeforeClass
+  public static void init() {
+    HBaseConnectionFactory.getInstance("ghbase_mapping.xml");
+  }
+
+  @Before
+  public void clear() {
+    HBaseConnectionFactory.getInstance().getEntityCache(Account.class).clear();
+  }
+
+  private static Ledger ledger() {
+
+    Ledger ledger = new Ledger();
+    ledger.setCode("L1");
+    ledger.setBalance(10L);
+    ledger.setVersion(4L);
+
+    return ledger;
+  }
+
+  @Test
+  public void testConflict() throws Exception {
+
+    table.store(ledger());
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Ledger loaded = handle.load(Ledger.class, "L1");
+      loaded.setBalance(20L);
+
+      table.conflict(1);
+
+      try {
+        handle.update(loaded);
+
+        Assert.fail();
+      }
+      catch (OptimisticLockException e) {
+        Assert.assertEquals(Long.valueOf(4L), e.getExpectedVersion());
+      }
+
+      // checked against the loaded version, nothing written, the version restored
+      Assert.assertArrayEquals(Bytes.toBytes(4L), table.getCompared().get(0));
+      Assert.assertTrue(table.getWritten().isEmpty());
+      Assert.assertEquals(Long.valueOf(4L), loaded.getVersion());
+
+      // the next attempt checks the same version
+      handle.update(loaded);
+
+      Assert.assertArrayEquals(Bytes.toBytes(4L), table.getCompared().get(1));
+      Assert.assertEquals(Long.valueOf(5L), loaded.getVersion());
+      Assert.assertEquals(Arrays.asList("balance", "version"), table.columns(Put.class));
+    }
+  }
+
+  @Test
+  public void testMissingVersion() throws Exception {
+
+    table.store(ledger());
+
+    // written before the version field
+    table.getStored()
+        .removeIf(cell -> "version".equals(Bytes.toString(CellUtil.cloneQualifier(cell))));
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Ledger loaded = handle.load(Ledger.class, "L1");
+
+      Assert.assertNull(loaded.getVersion());
+
+      loaded.setBalance(20L);
+
+      handle.update(loaded);
+
+      // checked as a missing column
+      Assert.assertEquals(1, table.getCompared().size());
+      Assert.assertNull(table.getCompared().get(0));
+      Assert.assertEquals(Long.valueOf(1L), loaded.getVersion());
+    }
+  }
+
+  @Test
+  public void testConflictInvalidatesCache() throws Exception {
+
+    Account account = new Account();
+    account.setCode("C1");
+    account.setBalance(10L);
+    account.setVersion(4L);
+
+    table.store(account);
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Account loaded = handle.load(Account.class, "C1");
+
+      // cached
+      Assert.assertNotNull(handle.load(Account.class, "C1"));
+      Assert.assertEquals(1, table.getGets());
+
+      loaded.setBalance(20L);
+
+      table.conflict(1);
+
+      try {
+        handle.update(loaded);
+
+        Assert.fail();
+      }
+      catch (OptimisticLockException e) {
+        Assert.assertEquals(Long.valueOf(4L), loaded.getVersion());
+      }
+
+      // the newer row is read again
+      handle.load(Account.class, "C1");
+
+      Assert.assertEquals(2, table.getGets());
+    }
+  }
+
+  @Test
+  public void testRetry() throws Exception {
+
+    table.store(ledger());
+
+    table.conflict(2);
+
+    try (HBaseConnection handle = table.handle()) {
+
+      Ledger updated =
+          handle.updateWithRetry(Ledger.class, "L1", l -> l.setBalance(l.getBalance() + 1), 5);
+
+      // loaded and changed again after each conflict
+      Assert.assertEquals(3, table.getGets());
+      Assert.assertEquals(3, table.getCompared().size());
+
+      Assert.assertEquals(Long.valueOf(11L), updated.getBalance());
+      Assert.assertEquals(Long.valueOf(5L), updated.getVersion());
+      Assert.assertEquals(Arrays.asList("balance", "version"), table.columns(Put.class));
+    }
+  }
+
+  @Test
+  public void testRetryExhausted() throws Exception {
+
+    table.store(ledger());
+
+    table.conflict(3);
+
+    try (HBaseConnection handle = table.handle()) {
+
+      try {
+        handle.updateWithRetry(Ledger.class, "L1", l -> l.setBalance(l.getBalance() + 1), 3);
+
+        Assert.fail();
+      }
+      catch (OptimisticLockException e) {
+        Assert.assertEquals(Long.valueOf(4L), e.getExpectedVersion());
+      }
+
+      // one load by attempt, nothing written
+      Assert.assertEquals(3, table.getGets());
+      Assert.assertTrue(table.getWritten().isEmpty());
+    }
+  }
+
+}
@@ -0,0 +1,315 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ **/
+package net.sf.gee.hbase.test.core;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.RowMutations;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import net.sf.gee.hbase.core.HBaseConnection;
+import net.sf.gee.hbase.util.GHBaseObjectBuilder;
+
+/**
+ * Table of the tests: gets read the stored cells, mutations are recorded instead of written.
+ * Increments return their deltas, as applied to empty cells.
+ *
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+final class RecordingTable {
+
+  /** Cells of the stored rows */
+  private final List<Cell> stored = Collections.synchronizedList(new ArrayList<>());
+
+  /** Mutations written to the table */
+  private final List<Mutation> written = Collections.synchronizedList(new ArrayList<>());
+
+  /** Puts written only if their column is missing */
+  private final List<Put> checked = Collections.synchronizedList(new ArrayList<>());
+
+  /** Values compared by checked mutations, null for a missing column */
+  private final List<byte[]> compared = Collections.synchronizedList(new ArrayList<>());
+
+  /** Next increments failing */
+  private final AtomicInteger failing = new AtomicInteger(0);
+
+  /** Next checked mutations finding another version */
+  private final AtomicInteger conflicts = new AtomicInteger(0);
+
+  /** Gets read */
+  private final AtomicInteger gets = new AtomicInteger(0);
+
+  /**
+   * @return handle owning a connection to the table
+   */
+  HBaseConnection handle() {
+
+    final Table table = (Table) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {Table.class}, (proxy, method, args) -> {
+
+          switch (method.getName()) {
+            case "get":
+              if (args[0] instanceof Get) {
+                return read((Get) args[0]);
+              }
+
+              final List<?> batch = (List<?>) args[0];
+              final Result[] results = new Result[batch.size()];
+
+              for (int i = 0; i < results.length; i++) {
+                results[i] = read((Get) batch.get(i));
+              }
+
+              return results;
+
+            case "put":
+              if (args[0] instanceof Put) {
+                written.add((Put) args[0]);
+              }
+              else {
+                for (Object put : (List<?>) args[0]) {
+                  written.add((Put) put);
+                }
+              }
+
+              return null;
+
+            case "mutateRow":
+              written.addAll(((RowMutations) args[0]).getMutations());
+              return null;
+
+            case "checkAndMutate":
+              compared.add((byte[]) args[4]);
+
+              // row changed since read
+              if (conflicts.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                return false;
+              }
+
+              written.addAll(((RowMutations) args[5]).getMutations());
+              return true;
+
+            case "checkAndPut":
+              // check
+              if (args[3] != null) {
+                throw new UnsupportedOperationException("Only missing columns are checked");
+              }
+
+              checked.add((Put) args[4]);
+              return true;
+
+            case "increment":
+              return increment((Increment) args[0]);
+
+            default:
+              return null;
+          }
+        });
+
+    final Connection connection = (Connection) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {Connection.class},
+        (proxy, method, args) -> "getTable".equals(method.getName()) ? table : null);
+
+    return new HBaseConnection(connection);
+  }
+
+  /**
+   * @return stored cells read by the get
+   */
+  private Result read(Get get) throws IOException {
+
+    gets.incrementAndGet();
+
+    final List<Cell> cells = new ArrayList<>();
+
+    synchronized (stored) {
+      for (Cell cell : stored) {
+        if (Bytes.equals(get.getRow(), CellUtil.cloneRow(cell)) && isRead(get, cell)) {
+          cells.add(cell);
+        }
+      }
+    }
+
+    cells.sort(KeyValue.COMPARATOR);
+
+    return Result.create(cells);
+  }
+
+  /**
+   * @return <code>true</code> when the get reads the cell
+   */
+  private static boolean isRead(Get get, Cell cell) throws IOException {
+
+    final Map<byte[], NavigableSet<byte[]>> columns = get.getFamilyMap();
+
+    if (!columns.isEmpty()) {
+
+      final byte[] family = CellUtil.cloneFamily(cell);
+
+      if (!columns.containsKey(family)) {
+        return false;
+      }
+
+      final NavigableSet<byte[]> qualifiers = columns.get(family);
+
+      if (qualifiers != null && !qualifiers.isEmpty()
+          && !qualifiers.contains(CellUtil.cloneQualifier(cell))) {
+        return false;
+      }
+    }
+
+    return get.getFilter() == null
+        || get.getFilter().filterKeyValue(cell) != Filter.ReturnCode.SKIP;
+  }
+
+  /**
+   * @return new values of the incremented cells, from 0
+   */
+  private Result increment(Increment increment) throws IOException {
+
+    // transient failure
+    if (failing.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+      throw new IOException("Region server unavailable");
+    }
+
+    written.add(increment);
+
+    final List<Cell> cells = new ArrayList<>();
+
+    for (List<Cell> family : increment.getFamilyCellMap().values()) {
+      for (Cell cell : family) {
+        cells.add(new KeyValue(increment.getRow(), CellUtil.cloneFamily(cell),
+            CellUtil.cloneQualifier(cell), CellUtil.cloneValue(cell)));
+      }
+    }
+
+    cells.sort(KeyValue.COMPARATOR);
+
+    return Result.create(cells);
+  }
+
+  /**
+   * Store the row of an entity, as written by save.
+   */
+  <T extends Serializable> void store(T entity) throws Exception {
+
+    final GHBaseObjectBuilder<T> builder = new GHBaseObjectBuilder<>(entity);
+
+    final List<Put> puts = new ArrayList<>(builder.preparePuts(true));
+    puts.addAll(builder.prepareCounters().values());
+
+    for (Put put : puts) {
+      for (List<Cell> family : put.getFamilyCellMap().values()) {
+        stored.addAll(family);
+      }
+    }
+  }
+
+  /**
+   * @return qualifiers of the written cells of a mutation type, sorted
+   */
+  List<String> columns(Class<? extends Mutation> type) {
+
+    final List<String> columns = new ArrayList<>();
+
+    synchronized (written) {
+      for (Mutation mutation : written) {
+        if (type.isInstance(mutation)) {
+          for (List<Cell> family : mutation.getFamilyCellMap().values()) {
+            for (Cell cell : family) {
+              columns.add(Bytes.toString(CellUtil.cloneQualifier(cell)));
+            }
+          }
+        }
+      }
+    }
+
+    Collections.sort(columns);
+
+    return columns;
+  }
+
+  /**
+   * @return cells of the stored rows
+   */
+  List<Cell> getStored() {
+    return stored;
+  }
+
+  /**
+   * @return mutations written to the table, in order
+   */
+  List<Mutation> getWritten() {
+    return written;
+  }
+
+  /**
+   * @return puts written only if their column is missing, in order
+   */
+  List<Put> getChecked() {
+    return checked;
+  }
+
+  /**
+   * @return values compared by checked mutations, in order, null for a missing column
+   */
+  List<byte[]> getCompared() {
+    return compared;
+  }
+
+  /**
+   * @param count next increments failing
+   */
+  void failIncrements(int count) {
+    failing.set(count);
+  }
+
+  /**
+   * @param count next checked mutations finding another version
+   */
+  void conflict(int count) {
+    conflicts.set(count);
+  }
+
+  /**
+   * @return gets read
+   */
+  int getGets() {
+    return gets.get();
+  }
+
+}
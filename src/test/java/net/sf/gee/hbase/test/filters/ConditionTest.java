@@ -0,0 +1,383 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.filters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FilterList.Operator;
+import org.apache.hadoop.hbase.filter.RowFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.gee.hbase.basic.Compression;
+import net.sf.gee.hbase.basic.NoneMapper;
+import net.sf.gee.hbase.codec.FieldCodec;
+import net.sf.gee.hbase.codec.FieldCodecs;
+import net.sf.gee.hbase.codec.RowKeyCodecs;
+import net.sf.gee.hbase.config.ClassConfiguration;
+import net.sf.gee.hbase.config.FieldConfiguration;
+import net.sf.gee.hbase.filters.Condition;
+import net.sf.gee.hbase.filters.Where;
+import net.sf.gee.hbase.test.bean.Pojo;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class ConditionTest {
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+
+  private static final int[] INTS =
+      {Integer.MIN_VALUE, -1000, -256, -1, 0, 1, 255, 256, 1000, Integer.MAX_VALUE};
+
+  private static final long[] LONGS = {Long.MIN_VALUE, -1000L, -1L, 0L, 1L, 1000L, Long.MAX_VALUE};
+
+  /**
+   * Entity with a boolean property.
+   */
+  public static class Flagged {
+
+    public boolean isActive() {
+      return true;
+    }
+  }
+
+  private static FieldConfiguration field(String name, Class<?> type, FieldCodec<?> codec) {
+
+    FieldConfiguration fc = new FieldConfiguration();
+    fc.setFieldName(name);
+    fc.setFieldType(type);
+    fc.setFamilyName("f");
+    fc.setColumnName(name);
+    fc.setMapper(NoneMapper.class);
+    fc.setCodec(codec);
+
+    return fc;
+  }
+
+  private static ClassConfiguration config(int saltBuckets) {
+
+    ClassConfiguration cc = new ClassConfiguration("table");
+
+    cc.setRowKeyField(field("id", Integer.class, RowKeyCodecs.INTEGER));
+    cc.setSaltBuckets(saltBuckets);
+
+    cc.addFieldConfiguration(field("count", Integer.class, FieldCodecs.INTEGER));
+    cc.addFieldConfiguration(field("total", Long.class, FieldCodecs.LONG));
+    cc.addFieldConfiguration(field("name", String.class, FieldCodecs.STRING));
+    cc.addFieldConfiguration(field("ratio", Double.class, FieldCodecs.DOUBLE));
+
+    FieldConfiguration tags = field("tags", List.class, FieldCodecs.STRING);
+    tags.setCollection(true);
+    tags.setInnerCodec(FieldCodecs.STRING);
+    cc.addFieldConfiguration(tags);
+
+    FieldConfiguration blob = field("blob", String.class, FieldCodecs.STRING);
+    blob.setCompression(Compression.DEFLATE);
+    cc.addFieldConfiguration(blob);
+
+    return cc;
+  }
+
+  /**
+   * Evaluate a filter on a row the way region servers do.
+   */
+  private static boolean matches(Filter filter, byte[] row, Cell... cells) throws IOException {
+
+    filter.reset();
+
+    if (filter.filterRowKey(row, 0, row.length)) {
+      return false;
+    }
+
+    List<Cell> kept = new ArrayList<>(cells.length);
+
+    for (Cell cell : cells) {
+
+      ReturnCode code = filter.filterKeyValue(cell);
+
+      if (code == ReturnCode.INCLUDE || code == ReturnCode.INCLUDE_AND_NEXT_COL) {
+        kept.add(cell);
+      }
+      else if (code == ReturnCode.NEXT_ROW) {
+        break;
+      }
+    }
+
+    filter.filterRowCells(kept);
+
+    return !filter.filterRow();
+  }
+
+  private static boolean matchesColumn(Filter filter, String column, byte[] value)
+      throws IOException {
+
+    byte[] row = Bytes.toBytes("row");
+
+    return matches(filter, row, new KeyValue(row, FAMILY, Bytes.toBytes(column), value));
+  }
+
+  @Test
+  public void testSignedIntOrder() throws IOException {
+
+    ClassConfiguration cc = config(0);
+
+    for (int operand : INTS) {
+
+      Filter gt = Where.field("count").gt(operand).toFilter(cc);
+      Filter ge = Where.field("count").ge(operand).toFilter(cc);
+      Filter lt = Where.field("count").lt(operand).toFilter(cc);
+      Filter le = Where.field("count").le(operand).toFilter(cc);
+
+      // two ranges joined by the operand sign
+      Assert.assertEquals(operand >= 0 ? Operator.MUST_PASS_ALL : Operator.MUST_PASS_ONE,
+          ((FilterList) gt).getOperator());
+      Assert.assertEquals(operand >= 0 ? Operator.MUST_PASS_ONE : Operator.MUST_PASS_ALL,
+          ((FilterList) lt).getOperator());
+
+      for (int stored : INTS) {
+
+        byte[] value = Bytes.toBytes(stored);
+        String message = stored + " vs " + operand;
+
+        Assert.assertEquals(message, stored > operand, matchesColumn(gt, "count", value));
+        Assert.assertEquals(message, stored >= operand, matchesColumn(ge, "count", value));
+        Assert.assertEquals(message, stored < operand, matchesColumn(lt, "count", value));
+        Assert.assertEquals(message, stored <= operand, matchesColumn(le, "count", value));
+      }
+    }
+  }
+
+  @Test
+  public void testLongOrder() throws IOException {
+
+    ClassConfiguration cc = config(0);
+
+    for (long operand : LONGS) {
+
+      Filter gt = Where.field("total").gt(operand).toFilter(cc);
+      Filter le = Where.field("total").le(operand).toFilter(cc);
+
+      for (long stored : LONGS) {
+
+        byte[] value = Bytes.toBytes(stored);
+        String message = stored + " vs " + operand;
+
+        Assert.assertEquals(message, stored > operand, matchesColumn(gt, "total", value));
+        Assert.assertEquals(message, stored <= operand, matchesColumn(le, "total", value));
+      }
+    }
+  }
+
+  @Test
+  public void testRowKeyOrder() throws IOException {
+
+    ClassConfiguration cc = config(0);
+
+    for (int operand : INTS) {
+
+      Filter ge = Where.field("id").ge(operand).toFilter(cc);
+
+      // order preserving encoding: a single row filter
+      Assert.assertTrue(ge instanceof RowFilter);
+
+      for (int stored : INTS) {
+
+        byte[] row = RowKeyCodecs.INTEGER.encode(stored);
+        Cell cell = new KeyValue(row, FAMILY, Bytes.toBytes("name"), Bytes.toBytes("x"));
+
+        Assert.assertEquals(stored + " vs " + operand, stored >= operand,
+            matches(ge, row, cell));
+      }
+    }
+  }
+
+  @Test
+  public void testMissingColumn() throws IOException {
+
+    ClassConfiguration cc = config(0);
+
+    byte[] row = Bytes.toBytes("row");
+    Cell other = new KeyValue(row, FAMILY, Bytes.toBytes("name"), Bytes.toBytes("x"));
+
+    // rows without the column never match a comparison
+    Assert.assertFalse(matches(Where.field("count").ne(1).toFilter(cc), row, other));
+    Assert.assertFalse(matches(Where.field("count").lt(1).toFilter(cc), row, other));
+  }
+
+  @Test
+  public void testNull() throws IOException {
+
+    ClassConfiguration cc = config(0);
+
+    Filter isNull = Where.field("name").isNull().toFilter(cc);
+    Filter isNotNull = Where.field("name").isNotNull().toFilter(cc);
+
+    byte[] row = Bytes.toBytes("row");
+    Cell name = new KeyValue(row, FAMILY, Bytes.toBytes("name"), Bytes.toBytes("x"));
+    Cell empty = new KeyValue(row, FAMILY, Bytes.toBytes("name"), new byte[0]);
+    Cell other = new KeyValue(row, FAMILY, Bytes.toBytes("count"), Bytes.toBytes(1));
+
+    // null is a missing column, or the empty cell saved for a null field
+    Assert.assertTrue(matches(isNull, row, other));
+    Assert.assertFalse(matches(isNull, row, name));
+    Assert.assertTrue(matches(isNull, row, empty));
+
+    Assert.assertFalse(matches(isNotNull, row, other));
+    Assert.assertTrue(matches(isNotNull, row, name));
+    Assert.assertFalse(matches(isNotNull, row, empty));
+  }
+
+  @Test
+  public void testFlatten() throws IOException {
+
+    ClassConfiguration cc = config(0);
+
+    // same operator: one level
+    Filter all = Where.field("name").eq("a").and(Where.field("count").gt(-5))
+        .and(Where.field("total").lt(10L)).toFilter(cc);
+
+    Assert.assertEquals(Operator.MUST_PASS_ALL, ((FilterList) all).getOperator());
+    Assert.assertEquals(3, ((FilterList) all).getFilters().size());
+
+    // alternatives nested in a conjunction
+    Filter mixed = Where.field("name").in("a", "b", "c").and(Where.field("total").eq(1L))
+        .toFilter(cc);
+
+    List<Filter> filters = ((FilterList) mixed).getFilters();
+
+    Assert.assertEquals(2, filters.size());
+    Assert.assertEquals(Operator.MUST_PASS_ONE, ((FilterList) filters.get(0)).getOperator());
+    Assert.assertEquals(3, ((FilterList) filters.get(0)).getFilters().size());
+    Assert.assertTrue(filters.get(1) instanceof SingleColumnValueFilter);
+
+    // single alternative is a leaf
+    Assert.assertTrue(Where.field("name").in("a").toFilter(cc) instanceof SingleColumnValueFilter);
+
+    byte[] row = Bytes.toBytes("row");
+
+    Assert.assertTrue(matches(mixed, row,
+        new KeyValue(row, FAMILY, Bytes.toBytes("name"), Bytes.toBytes("b")),
+        new KeyValue(row, FAMILY, Bytes.toBytes("total"), Bytes.toBytes(1L))));
+    Assert.assertFalse(matches(mixed, row,
+        new KeyValue(row, FAMILY, Bytes.toBytes("name"), Bytes.toBytes("d")),
+        new KeyValue(row, FAMILY, Bytes.toBytes("total"), Bytes.toBytes(1L))));
+  }
+
+  @Test
+  public void testPrefix() throws IOException {
+
+    ClassConfiguration cc = config(0);
+
+    Filter prefix = Where.field("name").startsWith("ab").toFilter(cc);
+
+    Assert.assertTrue(matchesColumn(prefix, "name", Bytes.toBytes("abc")));
+    Assert.assertFalse(matchesColumn(prefix, "name", Bytes.toBytes("acb")));
+
+    try {
+      Where.field("count").startsWith(1).toFilter(cc);
+
+      Assert.fail();
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRejected() {
+
+    ClassConfiguration salted = config(4);
+
+    // equality is bucket independent
+    Assert.assertTrue(Where.field("id").eq(5).toFilter(salted) instanceof RowFilter);
+
+    List<Function<ClassConfiguration, Filter>> rejected = new ArrayList<>();
+    rejected.add(c -> Where.field("id").gt(5).toFilter(salted));
+    rejected.add(c -> Where.field("id").startsWith(5).toFilter(salted));
+    rejected.add(c -> Where.field("id").isNull().toFilter(c));
+    rejected.add(c -> Where.field("tags").eq("x").toFilter(c));
+    rejected.add(c -> Where.field("blob").eq("x").toFilter(c));
+    rejected.add(c -> Where.field("ratio").gt(1.0).toFilter(c));
+    rejected.add(c -> Where.field("missing").eq("x").toFilter(c));
+    rejected.add(c -> Where.field("name").eq(null).toFilter(c));
+    rejected.add(c -> Where.field("name").in().toFilter(c));
+
+    ClassConfiguration cc = config(0);
+
+    for (int i = 0; i < rejected.size(); i++) {
+      try {
+        rejected.get(i).apply(cc);
+
+        Assert.fail("Condition " + i + " accepted");
+      }
+      catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testPropertyName() {
+
+    Set<String> fields = new HashSet<>();
+
+    Condition condition = Where.where(Pojo::getAttr1).eq("x")
+        .or(Where.where(Pojo::getCode).startsWith("K"))
+        .and(Where.where(Flagged::isActive).eq(true));
+
+    condition.collectFields(fields);
+
+    Assert.assertEquals(new HashSet<>(Arrays.asList("attr1", "code", "active")), fields);
+
+    // lambdas are not getters
+    try {
+      Where.where((Pojo p) -> p.getAttr1());
+
+      Assert.fail();
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    Assert.assertEquals(Collections.singleton("x"), collect(Where.field("x").isNull()));
+  }
+
+  private static Set<String> collect(Condition condition) {
+
+    Set<String> fields = new HashSet<>();
+    condition.collectFields(fields);
+
+    return fields;
+  }
+
+}
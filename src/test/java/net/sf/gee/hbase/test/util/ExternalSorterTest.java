@@ -0,0 +1,323 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.gee.hbase.core.HBaseConnection;
+import net.sf.gee.hbase.util.ExternalSorter;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class ExternalSorterTest {
+
+  private static final ExternalSorter.RunCodec<Integer> INTEGERS =
+      new ExternalSorter.RunCodec<Integer>() {
+
+        @Override
+        public void write(Integer element, DataOutput out) throws IOException {
+          out.writeInt(element);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+          return in.readInt();
+        }
+      };
+
+  private static final ExternalSorter.RunCodec<String> STRINGS =
+      new ExternalSorter.RunCodec<String>() {
+
+        @Override
+        public void write(String element, DataOutput out) throws IOException {
+          out.writeUTF(element);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+          return in.readUTF();
+        }
+      };
+
+  /**
+   * Not serializable element, spilled by its own codec.
+   */
+  private static final class Holder {
+
+    private final int value;
+
+    private Holder(int value) {
+      super();
+      this.value = value;
+    }
+  }
+
+  private static final ExternalSorter.RunCodec<Holder> HOLDERS =
+      new ExternalSorter.RunCodec<Holder>() {
+
+        @Override
+        public void write(Holder element, DataOutput out) throws IOException {
+          out.writeInt(element.value);
+        }
+
+        @Override
+        public Holder read(DataInput in) throws IOException {
+          return new Holder(in.readInt());
+        }
+      };
+
+  /**
+   * Expose the bounded heap of sorted scans.
+   */
+  private static final class SortingConnection extends HBaseConnection {
+
+    private static final long serialVersionUID = 1L;
+
+    private SortingConnection() {
+      super((Connection) null);
+    }
+
+    private <T> List<T> first(Iterator<T> rows, Comparator<T> comparator, int limit) {
+      return topN(rows, comparator, limit);
+    }
+  }
+
+  private static List<Integer> shuffled(int size) {
+
+    List<Integer> values = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      // duplicates and negatives
+      values.add(i / 2 - size / 4);
+    }
+
+    Collections.shuffle(values, new Random(42));
+
+    return values;
+  }
+
+  /**
+   * @return sort runs currently in the temporary directory
+   */
+  private static Set<String> runs() {
+
+    String[] names = new File(System.getProperty("java.io.tmpdir"))
+        .list((dir, name) -> name.startsWith("g-hbase-sort") && name.endsWith(".run"));
+
+    return names == null ? new HashSet<>() : new HashSet<>(Arrays.asList(names));
+  }
+
+  @Test
+  public void testInMemory() throws IOException {
+
+    List<Integer> values = shuffled(100);
+
+    Set<String> before = runs();
+
+    try (ExternalSorter<Integer> sorter =
+        new ExternalSorter<>(Comparator.naturalOrder(), 1000, INTEGERS)) {
+
+      for (Integer value : values) {
+        sorter.add(value);
+      }
+
+      // nothing spilled
+      Assert.assertEquals(before, runs());
+
+      List<Integer> sorted = new ArrayList<>(values.size());
+      sorter.sorted().forEachRemaining(sorted::add);
+
+      Collections.sort(values);
+      Assert.assertEquals(values, sorted);
+    }
+  }
+
+  @Test
+  public void testSpillOrder() throws IOException {
+
+    List<Integer> values = shuffled(2503);
+
+    Set<String> before = runs();
+
+    Set<String> spilled;
+
+    // tiny buffer: many runs, the last one partial
+    try (ExternalSorter<Integer> sorter =
+        new ExternalSorter<>(Comparator.reverseOrder(), 10, INTEGERS)) {
+
+      for (Integer value : values) {
+        sorter.add(value);
+      }
+
+      spilled = runs();
+      spilled.removeAll(before);
+
+      Assert.assertEquals(250, spilled.size());
+
+      List<Integer> sorted = new ArrayList<>(values.size());
+      sorter.sorted().forEachRemaining(sorted::add);
+
+      values.sort(Comparator.reverseOrder());
+      Assert.assertEquals(values, sorted);
+    }
+
+    // runs deleted on close
+    for (String run : spilled) {
+      Assert.assertFalse(run, runs().contains(run));
+    }
+  }
+
+  @Test
+  public void testCloseWhileReading() throws IOException {
+
+    Set<String> before = runs();
+
+    ExternalSorter<String> sorter = new ExternalSorter<>(Comparator.naturalOrder(), 3, STRINGS);
+
+    for (int i = 0; i < 20; i++) {
+      sorter.add(String.format("%02d", 19 - i));
+    }
+
+    Iterator<String> sorted = sorter.sorted();
+
+    Assert.assertEquals("00", sorted.next());
+    Assert.assertEquals("01", sorted.next());
+
+    Set<String> spilled = runs();
+    spilled.removeAll(before);
+    Assert.assertEquals(7, spilled.size());
+
+    // opened runs are closed and deleted
+    sorter.close();
+
+    for (String run : spilled) {
+      Assert.assertFalse(run, runs().contains(run));
+    }
+  }
+
+  @Test
+  public void testFailedSpillDeleted() throws IOException {
+
+    Set<String> before = runs();
+
+    ExternalSorter.RunCodec<Integer> failing = new ExternalSorter.RunCodec<Integer>() {
+
+      @Override
+      public void write(Integer element, DataOutput out) throws IOException {
+        throw new IOException("Disk full");
+      }
+
+      @Override
+      public Integer read(DataInput in) throws IOException {
+        return in.readInt();
+      }
+    };
+
+    try (ExternalSorter<Integer> sorter =
+        new ExternalSorter<>(Comparator.naturalOrder(), 2, failing)) {
+
+      sorter.add(1);
+
+      try {
+        sorter.add(2);
+
+        Assert.fail();
+      }
+      catch (IOException e) {
+        // the partial run is gone
+        Assert.assertEquals(before, runs());
+      }
+    }
+  }
+
+  @Test
+  public void testSpillByCodec() throws IOException {
+
+    List<Integer> values = shuffled(100);
+
+    List<Holder> added = new ArrayList<>(values.size());
+
+    try (ExternalSorter<Holder> sorter =
+        new ExternalSorter<>(Comparator.comparingInt(h -> h.value), 8, HOLDERS)) {
+
+      for (Integer value : values) {
+        Holder holder = new Holder(value);
+
+        added.add(holder);
+        sorter.add(holder);
+      }
+
+      List<Holder> sorted = new ArrayList<>(values.size());
+      sorter.sorted().forEachRemaining(sorted::add);
+
+      Collections.sort(values);
+
+      for (int i = 0; i < values.size(); i++) {
+        Assert.assertEquals(values.get(i).intValue(), sorted.get(i).value);
+
+        // read back from the runs
+        for (Holder holder : added) {
+          Assert.assertNotSame(holder, sorted.get(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTopN() {
+
+    List<Integer> values = shuffled(1000);
+
+    SortingConnection connection = new SortingConnection();
+
+    List<Integer> first = connection.first(values.iterator(), Comparator.naturalOrder(), 7);
+
+    List<Integer> expected = new ArrayList<>(values);
+    Collections.sort(expected);
+
+    Assert.assertEquals(expected.subList(0, 7), first);
+
+    // descending, limit over the size
+    List<Integer> all = connection.first(values.iterator(), Comparator.reverseOrder(), 5000);
+
+    Collections.reverse(expected);
+    Assert.assertEquals(expected, all);
+
+    Assert.assertTrue(
+        connection.first(Collections.<Integer>emptyIterator(), Comparator.naturalOrder(), 3)
+            .isEmpty());
+  }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * ------------------------------------------------------------------------------------------------
+ *
+ * Copyright 2015 - Giorgio Desideri
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ **/
+package net.sf.gee.hbase.test.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.gee.hbase.basic.FetchType;
+import net.sf.gee.hbase.core.HBaseConnectionFactory;
+import net.sf.gee.hbase.util.GHBaseObjectBuilder;
+import net.sf.gee.hbase.test.bean.Tagged;
+
+/**
+ * @author Giorgio Desideri - giorgio.desideri@gmail.com
+ *
+ */
+public class GHBaseObjectBuilderTest {
+
+  /**
+   * @return cells of the puts, as read back from a row
+   */
+  private static List<Cell> cells(List<Put> puts) {
+
+    List<Cell> cells = new ArrayList<>();
+
+    for (Put put : puts) {
+      for (List<Cell> family : put.getFamilyCellMap().values()) {
+        cells.addAll(family);
+      }
+    }
+
+    return cells;
+  }
+
+  @Test
+  public void testCollectionRoundTrip() throws Exception {
+
+    HBaseConnectionFactory.getInstance("ghbase_mapping.xml");
+
+    Tagged entity = new Tagged();
+    entity.setCode("T1");
+    entity.setNumbers(Arrays.asList(-70000, -1, 0, 1, 256, Integer.MAX_VALUE));
+    entity.setFetches(Arrays.asList(FetchType.LAZY, FetchType.EAGER));
+    entity.setWords(new HashSet<>(Arrays.asList("alpha", "beta")));
+
+    List<Cell> cells = cells(new GHBaseObjectBuilder<>(entity).preparePuts(true));
+
+    Assert.assertEquals(10, cells.size());
+
+    // elements encoded by the codec, not as text
+    Assert.assertTrue(cells.stream().anyMatch(cell -> Bytes.equals(CellUtil.cloneQualifier(cell),
+        Bytes.add(Bytes.toBytes("word_"), Bytes.toBytes("ahpla")))));
+    Assert.assertTrue(cells.stream().anyMatch(cell -> Bytes.equals(CellUtil.cloneQualifier(cell),
+        Bytes.add(Bytes.toBytes("num_"), Bytes.toBytes(-70000)))));
+
+    GHBaseObjectBuilder<Tagged> builder =
+        new GHBaseObjectBuilder<>(Tagged.class, Bytes.toBytes("T1"));
+
+    for (Cell cell : cells) {
+      builder.setValue(cell);
+    }
+
+    Tagged other = builder.getObject();
+
+    Assert.assertEquals("T1", other.getCode());
+    Assert.assertEquals(new HashSet<>(entity.getNumbers()), new HashSet<>(other.getNumbers()));
+    Assert.assertEquals(new HashSet<>(entity.getFetches()), new HashSet<>(other.getFetches()));
+    Assert.assertEquals(entity.getWords(), other.getWords());
+  }
+
+}